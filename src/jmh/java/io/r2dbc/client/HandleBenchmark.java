@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for binding positional parameters through {@link Handle#select(String, Object...)} and {@link Handle#execute(String, Object...)}.  The connection and statement do nothing, so that
+ * running with {@code -prof gc} reports only the allocations made by the client.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+public class HandleBenchmark {
+
+    private final Handle handle = new Handle(new NoopConnection());
+
+    private final Object[] parameters = new Object[]{100, "test-value", 200L, true};
+
+    @Benchmark
+    public Object execute() {
+        return this.handle.execute("INSERT INTO test VALUES ($1, $2, $3, $4)", this.parameters);
+    }
+
+    @Benchmark
+    public Object select() {
+        return this.handle.select("SELECT * FROM test WHERE a = $1 AND b = $2 AND c = $3 AND d = $4", this.parameters);
+    }
+
+    private static final class NoopBatch implements Batch<NoopBatch> {
+
+        @Override
+        public NoopBatch add(String sql) {
+            return this;
+        }
+
+        @Override
+        public Publisher<? extends Result> execute() {
+            return Mono.empty();
+        }
+
+    }
+
+    private static final class NoopConnection implements Connection {
+
+        private final NoopBatch batch = new NoopBatch();
+
+        private final NoopStatement statement = new NoopStatement();
+
+        @Override
+        public Publisher<Void> beginTransaction() {
+            return Mono.empty();
+        }
+
+        @Override
+        public Publisher<Void> close() {
+            return Mono.empty();
+        }
+
+        @Override
+        public Publisher<Void> commitTransaction() {
+            return Mono.empty();
+        }
+
+        @Override
+        public Batch<?> createBatch() {
+            return this.batch;
+        }
+
+        @Override
+        public Publisher<Void> createSavepoint(String name) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Statement<?> createStatement(String sql) {
+            return this.statement;
+        }
+
+        @Override
+        public Publisher<Void> releaseSavepoint(String name) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransaction() {
+            return Mono.empty();
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransactionToSavepoint(String name) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Publisher<Void> setTransactionIsolationLevel(IsolationLevel isolationLevel) {
+            return Mono.empty();
+        }
+
+    }
+
+    private static final class NoopStatement implements Statement<NoopStatement> {
+
+        @Override
+        public NoopStatement add() {
+            return this;
+        }
+
+        @Override
+        public NoopStatement bind(Object identifier, Object value) {
+            return this;
+        }
+
+        @Override
+        public NoopStatement bind(Integer index, Object value) {
+            return this;
+        }
+
+        @Override
+        public NoopStatement bindNull(Object identifier, Class<?> type) {
+            return this;
+        }
+
+        @Override
+        public NoopStatement bindNull(Integer index, Class<?> type) {
+            return this;
+        }
+
+        @Override
+        public Publisher<? extends Result> execute() {
+            return Mono.empty();
+        }
+
+    }
+
+}
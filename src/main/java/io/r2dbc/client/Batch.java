@@ -18,21 +18,51 @@ package io.r2dbc.client;
 
 import io.r2dbc.client.util.Assert;
 import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.util.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * A wrapper for a {@link io.r2dbc.spi.Batch} providing additional convenience APIs
+ * <p>
+ * Consecutive statements added with parameters and the same SQL are executed as a single statement with a binding for each, and consecutive statements added without parameters are executed as a
+ * single {@link io.r2dbc.spi.Batch}.  Statements are always executed, and their results returned, in the order that they were added.  Statements are never reordered to be combined, so only
+ * runs of adjacent statements are combined: adding {@code A, B, A, B} executes four statements, where {@code A, A, B, B} executes two.
  */
 public final class Batch implements ResultBearing {
 
-    private final io.r2dbc.spi.Batch<?> batch;
+    private final Supplier<? extends io.r2dbc.spi.Batch<?>> batchFactory;
 
-    Batch(io.r2dbc.spi.Batch<?> batch) {
-        this.batch = Assert.requireNonNull(batch, "batch must not be null");
+    private final List<Group> groups = new ArrayList<>();
+
+    private final Consumer<String> onExecute;
+
+    private final Set<String> sqls = new LinkedHashSet<>();
+
+    private final Function<String, ? extends Statement<?>> statementFactory;
+
+    private int size;
+
+    Batch(Supplier<? extends io.r2dbc.spi.Batch<?>> batchFactory, Function<String, ? extends Statement<?>> statementFactory) {
+        this(batchFactory, statementFactory, sql -> {
+        });
+    }
+
+    Batch(Supplier<? extends io.r2dbc.spi.Batch<?>> batchFactory, Function<String, ? extends Statement<?>> statementFactory, Consumer<String> onExecute) {
+        this.batchFactory = Assert.requireNonNull(batchFactory, "batchFactory must not be null");
+        this.statementFactory = Assert.requireNonNull(statementFactory, "statementFactory must not be null");
+        this.onExecute = Assert.requireNonNull(onExecute, "onExecute must not be null");
     }
 
     /**
@@ -45,22 +75,153 @@ public final class Batch implements ResultBearing {
     public Batch add(String sql) {
         Assert.requireNonNull(sql, "sql must not be null");
 
-        this.batch.add(sql);
+        Group group = getLastGroup();
+        if (group == null || group.batch == null) {
+            group = new Group(this.batchFactory.get(), null);
+            this.groups.add(group);
+        }
+
+        group.batch.add(sql);
+        group.add(this.size++, null);
+        this.sqls.add(sql);
         return this;
     }
 
+    /**
+     * Add a statement with parameters to this batch.  If the previous statement added has the same SQL, the two are executed together, as a single statement with a binding for each.
+     *
+     * @param sql        the statement to add
+     * @param parameters the parameters to bind, by index
+     * @return this {@link Batch}
+     * @throws IllegalArgumentException if {@code sql} or {@code parameters} is {@code null}, or {@code parameters} contains {@code null}
+     */
+    public Batch add(String sql, Object... parameters) {
+        Assert.requireNonNull(sql, "sql must not be null");
+        Assert.requireNonNull(parameters, "parameters must not be null");
+
+        if (parameters.length == 0) {
+            return add(sql);
+        }
+
+        for (Object parameter : parameters) {
+            Assert.requireNonNull(parameter, "parameters must not contain null");
+        }
+
+        Group group = getLastGroup();
+        if (group == null || !sql.equals(group.sql)) {
+            group = new Group(null, sql);
+            this.groups.add(group);
+        }
+
+        group.add(this.size++, parameters.clone());
+        this.sqls.add(sql);
+        return this;
+    }
+
+    @Override
     public <T> Flux<T> mapResult(Function<Result, ? extends Publisher<? extends T>> f) {
         Assert.requireNonNull(f, "f must not be null");
 
-        return Flux.from(this.batch.execute())
-            .flatMap(f::apply);
+        return execute(f)
+            .doFinally(signal -> this.sqls.forEach(this.onExecute));
     }
 
     @Override
     public String toString() {
         return "Batch{" +
-            "batch=" + this.batch +
+            "groups=" + this.groups +
+            ", size=" + this.size +
             '}';
     }
 
+    private <T> Flux<T> execute(Function<Result, ? extends Publisher<? extends T>> f) {
+        if (this.groups.isEmpty()) {
+            return Flux.from(this.batchFactory.get().execute())
+                .flatMap(f::apply);
+        }
+
+        if (this.groups.size() == 1) {
+            return Flux.from(this.groups.get(0).execute())
+                .concatMap(f::apply);
+        }
+
+        return Flux.defer(() -> {
+            List<List<T>> results = new ArrayList<>(Collections.nCopies(this.size, Collections.emptyList()));
+
+            return Flux.fromIterable(this.groups)
+                .concatMap(group -> Flux.from(group.execute())
+                    .concatMap(result -> Flux.<T>from(f.apply(result)).collectList())
+                    .index()
+                    .doOnNext(tuple -> group.collect(results, tuple.getT1(), tuple.getT2())))
+                .thenMany(Flux.fromIterable(results))
+                .concatMapIterable(Function.identity());
+        });
+    }
+
+    @Nullable
+    private Group getLastGroup() {
+        return this.groups.isEmpty() ? null : this.groups.get(this.groups.size() - 1);
+    }
+
+    private final class Group {
+
+        @Nullable
+        private final io.r2dbc.spi.Batch<?> batch;
+
+        private final List<Integer> indexes = new ArrayList<>();
+
+        private final List<Object[]> parameters = new ArrayList<>();
+
+        @Nullable
+        private final String sql;
+
+        private Group(@Nullable io.r2dbc.spi.Batch<?> batch, @Nullable String sql) {
+            this.batch = batch;
+            this.sql = sql;
+        }
+
+        @Override
+        public String toString() {
+            return "Group{" +
+                "size=" + this.indexes.size() +
+                ", sql='" + this.sql + '\'' +
+                '}';
+        }
+
+        private void add(int index, @Nullable Object[] parameters) {
+            this.indexes.add(index);
+
+            if (parameters != null) {
+                this.parameters.add(parameters);
+            }
+        }
+
+        private <T> void collect(List<List<T>> results, long position, List<T> values) {
+            if (position >= this.indexes.size()) {
+                throw new IllegalStateException(String.format("Statements returned more results than the %d added", this.indexes.size()));
+            }
+
+            results.set(this.indexes.get((int) position), values);
+        }
+
+        private Publisher<? extends Result> execute() {
+            if (this.batch != null) {
+                return this.batch.execute();
+            }
+
+            Statement<?> statement = Batch.this.statementFactory.apply(Objects.requireNonNull(this.sql));
+
+            for (Object[] parameters : this.parameters) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.bind(i, parameters[i]);
+                }
+
+                statement.add();
+            }
+
+            return statement.execute();
+        }
+
+    }
+
 }
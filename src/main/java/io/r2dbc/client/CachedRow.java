@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.Row;
+import reactor.util.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Row} decoded from an {@link OffHeapStore}.  Each value is the one that the driver returned when the row was cached, for the type that was requested then.  A value is returned for that
+ * type, or for any type that the value is an instance of.
+ */
+final class CachedRow implements Row {
+
+    static final Object NOT_READ = new Object() {
+
+        @Override
+        public String toString() {
+            return "NOT_READ";
+        }
+
+    };
+
+    private final String[] columns;
+
+    private final Class<?>[] types;
+
+    private final Object[] values;
+
+    CachedRow(String[] columns, Class<?>[] types, Object[] values) {
+        this.columns = columns;
+        this.types = types;
+        this.values = values;
+    }
+
+    @Override
+    @Nullable
+    public <T> T get(Object identifier, Class<T> type) {
+        int index = getIndex(this.columns, identifier);
+
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("Column %s does not exist", identifier));
+        }
+
+        Object value = this.values[index];
+
+        if (value == NOT_READ) {
+            throw new IllegalStateException(String.format("Column %s was not read when the row was cached", identifier));
+        }
+
+        if (value == null) {
+            return null;
+        }
+
+        if (type != this.types[index] && !type.isInstance(value)) {
+            throw new IllegalArgumentException(String.format("Cannot return value of type %s as %s", value.getClass().getName(), type.getName()));
+        }
+
+        return type.cast(value);
+    }
+
+    @Override
+    public String toString() {
+        return "CachedRow{" +
+            "columns=" + Arrays.toString(this.columns) +
+            ", types=" + Arrays.toString(this.types) +
+            ", values=" + Arrays.toString(this.values) +
+            '}';
+    }
+
+    /**
+     * Returns the index of the column that {@code identifier} names, an index or a case-insensitive name, or {@code -1} if there is no such column.
+     */
+    static int getIndex(@Nullable String[] columns, Object identifier) {
+        if (columns == null) {
+            return -1;
+        }
+
+        if (identifier instanceof Integer) {
+            int index = (Integer) identifier;
+
+            if (index >= 0 && index < columns.length) {
+                return index;
+            }
+        } else if (identifier instanceof String) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equalsIgnoreCase((String) identifier)) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+}
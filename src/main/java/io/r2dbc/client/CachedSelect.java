@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A query built with {@link Handle#select(String, Object...)} that may be served from a {@link ResultCache}.
+ */
+final class CachedSelect {
+
+    private final BooleanSupplier bypass;
+
+    private final Object[] parameters;
+
+    private final ResultCache resultCache;
+
+    private final String sql;
+
+    /**
+     * Creates a new cached select.
+     *
+     * @param resultCache the cache
+     * @param sql         the SQL of the query
+     * @param parameters  the parameters bound to the query
+     * @param bypass      a {@link BooleanSupplier} that returns {@code true} if the query must not use the cache, checked on subscription
+     */
+    CachedSelect(ResultCache resultCache, String sql, Object[] parameters, BooleanSupplier bypass) {
+        this.resultCache = resultCache;
+        this.sql = sql;
+        this.parameters = parameters.clone();
+        this.bypass = bypass;
+    }
+
+    /**
+     * Returns the values mapped from the results of the query by {@code mapper}, from the cache if possible and otherwise from {@code loader}.
+     */
+    <T> Flux<T> get(Object mapper, Supplier<? extends Publisher<T>> loader) {
+        return Flux.defer(() -> this.bypass.getAsBoolean() ? Flux.from(loader.get()) : this.resultCache.get(this.sql, this.parameters, mapper, loader));
+    }
+
+    /**
+     * Returns the values mapped from the rows of the query by {@code f}, from the cache if possible and otherwise from {@code loader}, which executes the query and maps its rows with the function it
+     * is given.
+     */
+    <T> Flux<T> get(Object mapper, BiFunction<Row, RowMetadata, ? extends T> f, Function<BiFunction<Row, RowMetadata, ? extends T>, ? extends Publisher<T>> loader) {
+        return Flux.defer(() -> this.bypass.getAsBoolean() ? Flux.from(loader.apply(f)) : this.resultCache.get(this.sql, this.parameters, mapper, f, loader));
+    }
+
+    @Override
+    public String toString() {
+        return "CachedSelect{" +
+            "parameters=" + Arrays.toString(this.parameters) +
+            ", resultCache=" + this.resultCache +
+            ", sql='" + this.sql + '\'' +
+            '}';
+    }
+
+}
@@ -19,13 +19,16 @@ package io.r2dbc.client;
 import io.r2dbc.client.util.Assert;
 import io.r2dbc.spi.Connection;
 import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Statement;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
 
+import java.util.LinkedHashSet;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
-import java.util.stream.IntStream;
 
 import static io.r2dbc.client.util.ReactiveUtils.appendError;
 import static io.r2dbc.client.util.ReactiveUtils.typeSafe;
@@ -37,17 +40,49 @@ public final class Handle {
 
     private final Connection connection;
 
+    @Nullable
+    private final InsertRewriting insertRewriting;
+
+    @Nullable
+    private final NamedParameters namedParameters;
+
+    @Nullable
+    private final ResultCache resultCache;
+
+    private final Function<String, Statement<?>> statementFactory;
+
+    private final Set<String> transactionWrites = new LinkedHashSet<>();
+
+    private volatile boolean transactional;
+
     Handle(Connection connection) {
+        this(connection, null, null, null);
+    }
+
+    Handle(Connection connection, @Nullable NamedParameters namedParameters, @Nullable InsertRewriting insertRewriting) {
+        this(connection, namedParameters, insertRewriting, null);
+    }
+
+    Handle(Connection connection, @Nullable NamedParameters namedParameters, @Nullable InsertRewriting insertRewriting, @Nullable ResultCache resultCache) {
         this.connection = Assert.requireNonNull(connection, "connection must not be null");
+        this.namedParameters = namedParameters;
+        this.insertRewriting = insertRewriting;
+        this.resultCache = resultCache;
+        this.statementFactory = connection::createStatement;
     }
 
     /**
-     * Begins a new transaction.
+     * Begins a new transaction.  If a {@link ResultCache} is configured, queries bypass it until the transaction is committed or rolled back.
      *
      * @return a {@link Publisher} that indicates that the transaction is open
      */
     public Publisher<Void> beginTransaction() {
-        return this.connection.beginTransaction();
+        if (this.resultCache == null) {
+            return this.connection.beginTransaction();
+        }
+
+        return Flux.from(this.connection.beginTransaction())
+            .doOnSubscribe(subscription -> this.transactional = true);
     }
 
     /**
@@ -65,7 +100,12 @@ public final class Handle {
      * @return a {@link Publisher} that indicates that a transaction has been committed
      */
     public Publisher<Void> commitTransaction() {
-        return this.connection.commitTransaction();
+        if (this.resultCache == null) {
+            return this.connection.commitTransaction();
+        }
+
+        return Flux.from(this.connection.commitTransaction())
+            .doFinally(signal -> endTransaction());
     }
 
     /**
@@ -74,11 +114,12 @@ public final class Handle {
      * @return a new {@link Batch} instance
      */
     public Batch createBatch() {
-        return new Batch(this.connection.createBatch());
+        return new Batch(this.connection::createBatch, this.connection::createStatement, this::written);
     }
 
     /**
-     * Creates a new {@link Query} instance for building a request.
+     * Creates a new {@link Query} instance for building a request.  If named parameters are enabled, {@code :name} parameters in {@code sql} are translated into the driver's placeholders.  If a
+     * {@link ResultCache} is configured, and the SQL may write, such as {@code UPDATE ... RETURNING}, executing the query invalidates the entries that read from the table it writes to.
      *
      * @param sql the SQL of the query
      * @return a new {@link Query} instance
@@ -87,7 +128,12 @@ public final class Handle {
     public Query createQuery(String sql) {
         Assert.requireNonNull(sql, "sql must not be null");
 
-        return new Query(this.connection.createStatement(sql));
+        ParsedSql parsedSql = this.namedParameters == null ? null : this.namedParameters.parse(sql);
+        String nativeSql = parsedSql == null ? sql : parsedSql.getSql();
+
+        Runnable onExecute = this.resultCache == null || !this.resultCache.isWrite(nativeSql) ? null : () -> written(nativeSql);
+
+        return new Query(this.connection.createStatement(nativeSql), parsedSql, null, onExecute);
     }
 
     /**
@@ -104,7 +150,8 @@ public final class Handle {
     }
 
     /**
-     * Create a new {@link Update} instance for building an updating request.
+     * Create a new {@link Update} instance for building an updating request.  If named parameters are enabled, {@code :name} parameters in {@code sql} are translated into the driver's
+     * placeholders.
      *
      * @param sql the SQL of the update
      * @return a new {@link Update} instance
@@ -113,7 +160,13 @@ public final class Handle {
     public Update createUpdate(String sql) {
         Assert.requireNonNull(sql, "sql must not be null");
 
-        return new Update(this.connection.createStatement(sql));
+        ParsedSql parsedSql = this.namedParameters == null ? null : this.namedParameters.parse(sql);
+        String nativeSql = parsedSql == null ? sql : parsedSql.getSql();
+
+        InsertRewriter insertRewriter = this.insertRewriting == null ? null : this.insertRewriting.get(nativeSql);
+        Runnable onExecute = this.resultCache == null ? null : () -> written(nativeSql);
+
+        return new Update(this.statementFactory, nativeSql, parsedSql, insertRewriter, onExecute);
     }
 
     /**
@@ -130,8 +183,9 @@ public final class Handle {
 
         Update update = createUpdate(sql);
 
-        IntStream.range(0, parameters.length)
-            .forEach(i -> update.bind(i, parameters[i]));
+        for (int i = 0; i < parameters.length; i++) {
+            update.bind(i, parameters[i]);
+        }
 
         return update.add().execute();
     }
@@ -198,7 +252,12 @@ public final class Handle {
      * @return a {@link Publisher} that indicates that a transaction has been rolled back
      */
     public Publisher<Void> rollbackTransaction() {
-        return this.connection.rollbackTransaction();
+        if (this.resultCache == null) {
+            return this.connection.rollbackTransaction();
+        }
+
+        return Flux.from(this.connection.rollbackTransaction())
+            .doFinally(signal -> endTransaction());
     }
 
     /**
@@ -215,7 +274,8 @@ public final class Handle {
     }
 
     /**
-     * A convenience method for building a {@link Query}, binding an ordered set of parameters.
+     * A convenience method for building a {@link Query}, binding an ordered set of parameters.  If a {@link ResultCache} is configured, this handle is not in a transaction, and the SQL is a
+     * plain {@code SELECT} or {@code WITH ... SELECT}, the mapped results of the query may be served from the cache.
      *
      * @param sql        the SQL of the query
      * @param parameters the parameters to bind
@@ -228,10 +288,15 @@ public final class Handle {
 
         Query query = createQuery(sql);
 
-        IntStream.range(0, parameters.length)
-            .forEach(i -> query.bind(i, parameters[i]));
+        for (int i = 0; i < parameters.length; i++) {
+            query.bind(i, parameters[i]);
+        }
 
-        return query.add();
+        if (this.resultCache == null || !this.resultCache.isSelect(sql)) {
+            return query.add();
+        }
+
+        return query.add().cached(new CachedSelect(this.resultCache, sql, parameters, () -> this.transactional));
     }
 
     /**
@@ -251,6 +316,9 @@ public final class Handle {
     public String toString() {
         return "Handle{" +
             "connection=" + this.connection +
+            ", insertRewriting=" + this.insertRewriting +
+            ", namedParameters=" + this.namedParameters +
+            ", resultCache=" + this.resultCache +
             '}';
     }
 
@@ -289,4 +357,32 @@ public final class Handle {
             .then();
     }
 
+    private void endTransaction() {
+        String[] writes;
+
+        synchronized (this.transactionWrites) {
+            this.transactional = false;
+            writes = this.transactionWrites.toArray(new String[0]);
+            this.transactionWrites.clear();
+        }
+
+        for (String sql : writes) {
+            written(sql);
+        }
+    }
+
+    private void written(String sql) {
+        if (this.resultCache == null) {
+            return;
+        }
+
+        this.resultCache.written(sql);
+
+        synchronized (this.transactionWrites) {
+            if (this.transactional) {
+                this.transactionWrites.add(sql);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+import reactor.util.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Rewrites a single-row {@code INSERT ... VALUES (...)} statement into a multi-row {@code INSERT ... VALUES (...), (...)} statement, so that many rows can be inserted in a single execution.
+ * Placeholders in the values of each additional row are renumbered to follow those of the previous row.
+ */
+final class InsertRewriter {
+
+    private final int[] indexes;
+
+    private final int parameterCount;
+
+    private final ParameterStyle parameterStyle;
+
+    private final String prefix;
+
+    private final int rowsPerStatement;
+
+    private final String[] segments;
+
+    private final String sql;
+
+    private final String suffix;
+
+    private InsertRewriter(ParameterStyle parameterStyle, String prefix, String[] segments, int[] indexes, String suffix, int parameterCount, int rowsPerStatement) {
+        this.parameterStyle = parameterStyle;
+        this.prefix = prefix;
+        this.segments = segments;
+        this.indexes = indexes;
+        this.suffix = suffix;
+        this.parameterCount = parameterCount;
+        this.rowsPerStatement = rowsPerStatement;
+        this.sql = render(rowsPerStatement);
+    }
+
+    @Override
+    public String toString() {
+        return "InsertRewriter{" +
+            "parameterCount=" + this.parameterCount +
+            ", parameterStyle=" + this.parameterStyle +
+            ", rowsPerStatement=" + this.rowsPerStatement +
+            ", sql='" + this.sql + '\'' +
+            '}';
+    }
+
+    int getParameterCount() {
+        return this.parameterCount;
+    }
+
+    int getRowsPerStatement() {
+        return this.rowsPerStatement;
+    }
+
+    /**
+     * Returns the SQL that inserts a number of rows.
+     *
+     * @param rows the number of rows
+     * @return the SQL that inserts {@code rows} rows
+     */
+    String getSql(int rows) {
+        return rows == this.rowsPerStatement ? this.sql : render(rows);
+    }
+
+    /**
+     * Creates a rewriter for SQL, if it is a single-row {@code INSERT ... VALUES (...)} statement whose only placeholders are in its values.
+     *
+     * @param sql            the SQL
+     * @param parameterStyle the style of the placeholders in {@code sql}
+     * @param maxRows        the maximum number of rows to insert in a single execution
+     * @return a rewriter for {@code sql}, or {@code null} if it cannot be rewritten, or at most one row could be inserted in a single execution
+     */
+    @Nullable
+    static InsertRewriter of(String sql, ParameterStyle parameterStyle, int maxRows) {
+        Assert.requireNonNull(sql, "sql must not be null");
+        Assert.requireNonNull(parameterStyle, "parameterStyle must not be null");
+
+        if (!sql.trim().regionMatches(true, 0, "INSERT", 0, 6)) {
+            return null;
+        }
+
+        int open = findValues(sql);
+        if (open < 0) {
+            return null;
+        }
+
+        int close = findClose(sql, open);
+        if (close < 0 || sql.substring(close + 1).trim().startsWith(",")) {
+            return null;
+        }
+
+        List<String> segments = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        BitSet used = new BitSet();
+
+        int segmentStart = open + 1;
+        int i = 0;
+        while (i < sql.length()) {
+            int end = ParsedSql.skip(sql, i);
+            if (end > i) {
+                i = end;
+                continue;
+            }
+
+            end = parameterStyle.getPlaceholderEnd(sql, i);
+            if (end == i) {
+                i++;
+                continue;
+            }
+
+            if (i < open || i > close) {
+                return null;
+            }
+
+            int index = parameterStyle.isPositional() ? indexes.size() : parameterStyle.getPlaceholderIndex(sql.substring(i, end));
+            if (index < 0) {
+                return null;
+            }
+
+            segments.add(sql.substring(segmentStart, i));
+            indexes.add(index);
+            used.set(index);
+
+            segmentStart = end;
+            i = end;
+        }
+        segments.add(sql.substring(segmentStart, close));
+
+        int parameterCount = used.length();
+        if (parameterCount == 0 || used.cardinality() != parameterCount) {
+            return null;
+        }
+
+        int rowsPerStatement = Math.min(maxRows, parameterStyle.getMaxParameters() / parameterCount);
+        if (rowsPerStatement < 2) {
+            return null;
+        }
+
+        return new InsertRewriter(parameterStyle, sql.substring(0, open), segments.toArray(new String[0]), indexes.stream().mapToInt(Integer::intValue).toArray(), sql.substring(close + 1),
+            parameterCount, rowsPerStatement);
+    }
+
+    private String render(int rows) {
+        StringBuilder sql = new StringBuilder(this.prefix);
+
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(", ");
+            }
+
+            sql.append('(');
+            for (int i = 0; i < this.indexes.length; i++) {
+                sql.append(this.segments[i]).append(this.parameterStyle.getPlaceholder(row * this.parameterCount + this.indexes[i]));
+            }
+            sql.append(this.segments[this.indexes.length]).append(')');
+        }
+
+        return sql.append(this.suffix).toString();
+    }
+
+    private static int findClose(String sql, int open) {
+        int depth = 0;
+
+        int i = open;
+        while (i < sql.length()) {
+            int end = ParsedSql.skip(sql, i);
+            if (end > i) {
+                i = end;
+                continue;
+            }
+
+            char c = sql.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+
+            i++;
+        }
+
+        return -1;
+    }
+
+    private static int findValues(String sql) {
+        int i = 0;
+        while (i < sql.length()) {
+            int end = ParsedSql.skip(sql, i);
+            if (end > i) {
+                i = end;
+                continue;
+            }
+
+            if (sql.regionMatches(true, i, "VALUES", 0, 6)
+                && (i == 0 || !ParsedSql.isIdentifierPart(sql.charAt(i - 1)))
+                && (i + 6 == sql.length() || !ParsedSql.isIdentifierPart(sql.charAt(i + 6)))) {
+
+                int open = i + 6;
+                while (open < sql.length() && Character.isWhitespace(sql.charAt(open))) {
+                    open++;
+                }
+
+                return open < sql.length() && sql.charAt(open) == '(' ? open : -1;
+            }
+
+            i++;
+        }
+
+        return -1;
+    }
+
+}
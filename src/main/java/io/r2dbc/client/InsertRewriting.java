@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+import reactor.util.annotation.Nullable;
+
+import java.util.Optional;
+
+/**
+ * Creates {@link InsertRewriter}s for SQL, caching the rewriter for each SQL string in a bounded cache.
+ */
+final class InsertRewriting {
+
+    static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final SqlCache<Optional<InsertRewriter>> cache;
+
+    private final int maxRows;
+
+    private final ParameterStyle parameterStyle;
+
+    InsertRewriting(ParameterStyle parameterStyle, int maxRows) {
+        Assert.isTrue(maxRows > 1, "maxRows must be greater than one");
+
+        this.parameterStyle = Assert.requireNonNull(parameterStyle, "parameterStyle must not be null");
+        this.maxRows = maxRows;
+        this.cache = new SqlCache<>(DEFAULT_CACHE_SIZE, sql -> Optional.ofNullable(InsertRewriter.of(sql, parameterStyle, maxRows)));
+    }
+
+    @Override
+    public String toString() {
+        return "InsertRewriting{" +
+            "cache=" + this.cache +
+            ", maxRows=" + this.maxRows +
+            ", parameterStyle=" + this.parameterStyle +
+            '}';
+    }
+
+    @Nullable
+    InsertRewriter get(String sql) {
+        return this.cache.get(sql).orElse(null);
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Streams the rows of a query a page at a time, ordered by a unique key column.  Rather than holding a single connection and snapshot for the whole scan, each page is a separate read-only unit of
+ * work that selects the rows after the last key of the previous page: {@code WHERE key > $last ORDER BY key LIMIT n}.  The next page is fetched while the current page is consumed, and a scan can be
+ * resumed from the last key that it emitted.
+ * <p>
+ * Because each page reads its own snapshot, rows that are inserted, updated, or deleted during a scan may or may not be seen.  The key column must be unique, non-null, and indexed, and must be
+ * selected by the query.  If it is not unique, rows that share the last key of a page are silently skipped by the next page; a repeated key is only detected when both rows fall in the same page.
+ */
+public final class KeysetPagination {
+
+    private final String keyColumn;
+
+    private final int pageSize;
+
+    private final ParameterStyle parameterStyle;
+
+    private final int prefetch;
+
+    private final R2dbc r2dbc;
+
+    private KeysetPagination(R2dbc r2dbc, String keyColumn, int pageSize, ParameterStyle parameterStyle, int prefetch) {
+        this.r2dbc = r2dbc;
+        this.keyColumn = keyColumn;
+        this.pageSize = pageSize;
+        this.parameterStyle = parameterStyle;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a scan of the rows of a query, from the first key.  The query is wrapped as {@code SELECT * FROM (sql) AS keyset WHERE key > $last ORDER BY key LIMIT n}, so it must not be ordered or
+     * limited itself.
+     *
+     * @param sql        the SQL of the query
+     * @param parameters the parameters to bind, by index.  The key of the previous page is bound after them.
+     * @return a new {@link KeysetQuery} instance
+     * @throws IllegalArgumentException if {@code sql} or {@code parameters} is {@code null}, or {@code parameters} contains {@code null}
+     */
+    public KeysetQuery select(String sql, Object... parameters) {
+        Assert.requireNonNull(sql, "sql must not be null");
+        Assert.requireNonNull(parameters, "parameters must not be null");
+
+        for (Object parameter : parameters) {
+            Assert.requireNonNull(parameter, "parameters must not contain null");
+        }
+
+        return new KeysetQuery(this.r2dbc, getSql(sql, parameters.length, false), getSql(sql, parameters.length, true), parameters.clone(), this.pageSize, this.prefetch, this.keyColumn, null);
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetPagination{" +
+            "keyColumn='" + this.keyColumn + '\'' +
+            ", pageSize=" + this.pageSize +
+            ", parameterStyle=" + this.parameterStyle +
+            ", prefetch=" + this.prefetch +
+            ", r2dbc=" + this.r2dbc +
+            '}';
+    }
+
+    String getSql(String sql, int parameterCount, boolean after) {
+        StringBuilder builder = new StringBuilder("SELECT * FROM (").append(sql).append(") AS keyset");
+
+        if (after) {
+            builder.append(" WHERE ").append(this.keyColumn).append(" > ").append(this.parameterStyle.getPlaceholder(parameterCount));
+        }
+
+        return builder.append(" ORDER BY ").append(this.keyColumn).append(" LIMIT ").append(this.pageSize).toString();
+    }
+
+    /**
+     * A builder for {@link KeysetPagination} instances.
+     * <p>
+     * <i>This class is not threadsafe</i>
+     */
+    public static final class Builder {
+
+        @Nullable
+        private String keyColumn;
+
+        private int pageSize = 1_000;
+
+        @Nullable
+        private ParameterStyle parameterStyle;
+
+        private int prefetch = 1;
+
+        @Nullable
+        private R2dbc r2dbc;
+
+        private Builder() {
+        }
+
+        /**
+         * Returns a configured {@link KeysetPagination}.
+         *
+         * @return a configured {@link KeysetPagination}
+         * @throws IllegalArgumentException if {@code r2dbc}, {@code keyColumn}, or {@code parameterStyle} has not been configured
+         */
+        public KeysetPagination build() {
+            Assert.requireNonNull(this.r2dbc, "r2dbc must not be null");
+            Assert.requireNonNull(this.keyColumn, "keyColumn must not be null");
+            Assert.requireNonNull(this.parameterStyle, "parameterStyle must not be null");
+
+            return new KeysetPagination(this.r2dbc, this.keyColumn, this.pageSize, this.parameterStyle, this.prefetch);
+        }
+
+        /**
+         * Configure the column that orders the rows and identifies each page.  The column must be unique and non-null, such as a primary key, or rows will be skipped between pages.  The column is
+         * written into SQL as it is given.
+         *
+         * @param keyColumn the name of the key column
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code keyColumn} is {@code null}
+         */
+        public Builder keyColumn(String keyColumn) {
+            this.keyColumn = Assert.requireNonNull(keyColumn, "keyColumn must not be null");
+            return this;
+        }
+
+        /**
+         * Configure the maximum number of rows in each page.  Defaults to {@code 1000}.
+         *
+         * @param pageSize the maximum number of rows in each page
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code pageSize} is less than one
+         */
+        public Builder pageSize(int pageSize) {
+            Assert.isTrue(pageSize > 0, "pageSize must be greater than zero");
+
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Configure the style of placeholder that the driver expects, used for the key of the previous page.
+         *
+         * @param parameterStyle the style of placeholder that the driver expects
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code parameterStyle} is {@code null}
+         */
+        public Builder parameterStyle(ParameterStyle parameterStyle) {
+            this.parameterStyle = Assert.requireNonNull(parameterStyle, "parameterStyle must not be null");
+            return this;
+        }
+
+        /**
+         * Configure the number of pages fetched ahead of the page being consumed.  Defaults to {@code 1}.
+         *
+         * @param prefetch the number of pages fetched ahead of the page being consumed
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code prefetch} is negative
+         */
+        public Builder prefetch(int prefetch) {
+            Assert.isTrue(prefetch >= 0, "prefetch must not be negative");
+
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * Configure the {@link R2dbc} used to execute queries.
+         *
+         * @param r2dbc the {@link R2dbc} used to execute queries
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code r2dbc} is {@code null}
+         */
+        public Builder r2dbc(R2dbc r2dbc) {
+            this.r2dbc = Assert.requireNonNull(r2dbc, "r2dbc must not be null");
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Builder{" +
+                "keyColumn='" + this.keyColumn + '\'' +
+                ", pageSize=" + this.pageSize +
+                ", parameterStyle=" + this.parameterStyle +
+                ", prefetch=" + this.prefetch +
+                ", r2dbc=" + this.r2dbc +
+                '}';
+        }
+
+    }
+
+}
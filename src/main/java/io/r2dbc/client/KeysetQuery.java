@@ -0,0 +1,359 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+import reactor.util.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A scan of the rows of a query, a page at a time, created by {@link KeysetPagination#select(String, Object...)}.  Each subscription starts a new scan, from the first key or from the key given to
+ * {@link #after(Object)}.
+ */
+public final class KeysetQuery implements ResultBearing {
+
+    @Nullable
+    private final Object after;
+
+    private final String afterSql;
+
+    private final String firstSql;
+
+    private final String keyColumn;
+
+    @Nullable
+    private volatile Object lastKey;
+
+    private final int pageSize;
+
+    private final Object[] parameters;
+
+    private final int prefetch;
+
+    private final R2dbc r2dbc;
+
+    KeysetQuery(R2dbc r2dbc, String firstSql, String afterSql, Object[] parameters, int pageSize, int prefetch, String keyColumn, @Nullable Object after) {
+        this.r2dbc = r2dbc;
+        this.firstSql = firstSql;
+        this.afterSql = afterSql;
+        this.parameters = parameters;
+        this.pageSize = pageSize;
+        this.prefetch = prefetch;
+        this.keyColumn = keyColumn;
+        this.after = after;
+    }
+
+    /**
+     * Returns a copy of this scan that starts after a key.
+     *
+     * @param key the key to start after
+     * @return a copy of this scan that starts after {@code key}
+     * @throws IllegalArgumentException if {@code key} is {@code null}
+     */
+    public KeysetQuery after(Object key) {
+        Assert.requireNonNull(key, "key must not be null");
+
+        return new KeysetQuery(this.r2dbc, this.firstSql, this.afterSql, this.parameters, this.pageSize, this.prefetch, this.keyColumn, key);
+    }
+
+    /**
+     * Returns the key of the last row emitted by any subscription to this scan.  Rows mapped with {@link #mapRow(BiFunction)} or {@link #mapRow(Function)} update the key as each value is emitted,
+     * while results transformed with {@link #mapResult(Function)} update it once the last value of each page has been emitted.
+     *
+     * @return the key of the last row emitted, or {@link Optional#empty()} if no rows have been emitted
+     */
+    public Optional<Object> getLastKey() {
+        return Optional.ofNullable(this.lastKey);
+    }
+
+    @Override
+    public <T> Flux<T> mapResult(Function<Result, ? extends Publisher<? extends T>> f) {
+        Assert.requireNonNull(f, "f must not be null");
+
+        return scan((result, page) -> Flux.<T>from(f.apply(page.capture(result)))
+            .map(value -> new Keyed<T>(null, value)));
+    }
+
+    @Override
+    public <T> Flux<T> mapRow(BiFunction<Row, RowMetadata, ? extends T> f) {
+        Assert.requireNonNull(f, "f must not be null");
+
+        return scan((result, page) -> page.capture(result)
+            .map((row, rowMetadata) -> new Keyed<T>(page.lastKey, f.apply(row, rowMetadata))));
+    }
+
+    /**
+     * Returns a copy of this scan that starts after the last key emitted, or this scan if no rows have been emitted.  Resuming a scan that failed continues from the row after the last one that it
+     * emitted.
+     *
+     * @return a copy of this scan that starts after the last key emitted
+     */
+    public KeysetQuery resume() {
+        Object lastKey = this.lastKey;
+        return lastKey == null ? this : after(lastKey);
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetQuery{" +
+            "after=" + this.after +
+            ", afterSql='" + this.afterSql + '\'' +
+            ", firstSql='" + this.firstSql + '\'' +
+            ", keyColumn='" + this.keyColumn + '\'' +
+            ", lastKey=" + this.lastKey +
+            ", pageSize=" + this.pageSize +
+            ", parameters=" + Arrays.toString(this.parameters) +
+            ", prefetch=" + this.prefetch +
+            '}';
+    }
+
+    private <T> Mono<Page<T>> fetch(@Nullable Object after, BiFunction<Result, Page<T>, ? extends Publisher<Keyed<T>>> f) {
+        return Mono.defer(() -> {
+            Page<T> page = new Page<>();
+
+            return this.r2dbc
+                .withReadOnlyHandle(handle -> {
+                    Query query = handle.createQuery(after == null ? this.firstSql : this.afterSql);
+
+                    for (int i = 0; i < this.parameters.length; i++) {
+                        query.bind(i, this.parameters[i]);
+                    }
+
+                    if (after != null) {
+                        query.bind(this.parameters.length, after);
+                    }
+
+                    return query.add().mapResult(result -> f.apply(result, page));
+                })
+                .collectList()
+                .map(page::complete);
+        });
+    }
+
+    private <T> Flux<T> scan(BiFunction<Result, Page<T>, ? extends Publisher<Keyed<T>>> f) {
+        return Flux.<Page<T>>create(sink -> new PageSource<>(sink, f).start())
+            .flatMapIterable(page -> page.values, 1)
+            .doOnNext(keyed -> {
+                if (keyed.key != null) {
+                    this.lastKey = keyed.key;
+                }
+            })
+            .map(keyed -> keyed.value);
+    }
+
+    private static final class Keyed<T> {
+
+        @Nullable
+        private final Object key;
+
+        private final T value;
+
+        private Keyed(@Nullable Object key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "Keyed{" +
+                "key=" + this.key +
+                ", value=" + this.value +
+                '}';
+        }
+
+    }
+
+    private final class PageSource<T> {
+
+        private final BiFunction<Result, Page<T>, ? extends Publisher<Keyed<T>>> f;
+
+        private final FluxSink<Page<T>> sink;
+
+        private boolean done;
+
+        private boolean fetching;
+
+        private Disposable inflight = Disposables.disposed();
+
+        @Nullable
+        private Object key = KeysetQuery.this.after;
+
+        private long produced;
+
+        private long requested;
+
+        private PageSource(FluxSink<Page<T>> sink, BiFunction<Result, Page<T>, ? extends Publisher<Keyed<T>>> f) {
+            this.sink = sink;
+            this.f = f;
+        }
+
+        @Override
+        public String toString() {
+            return "PageSource{" +
+                "done=" + this.done +
+                ", fetching=" + this.fetching +
+                ", key=" + this.key +
+                ", produced=" + this.produced +
+                ", requested=" + this.requested +
+                '}';
+        }
+
+        private void fetchNext() {
+            Object key;
+            long produced;
+
+            synchronized (this) {
+                if (this.done || this.fetching || this.produced >= this.requested + KeysetQuery.this.prefetch) {
+                    return;
+                }
+
+                this.fetching = true;
+                key = this.key;
+                produced = this.produced;
+            }
+
+            Disposable inflight = fetch(key, this.f).subscribe(this::onPage, this.sink::error);
+
+            synchronized (this) {
+                if (this.fetching && this.produced == produced) {
+                    this.inflight = inflight;
+                }
+            }
+        }
+
+        private void onPage(Page<T> page) {
+            boolean done = page.rows < KeysetQuery.this.pageSize || page.lastKey == null;
+
+            synchronized (this) {
+                if (this.done) {
+                    return;
+                }
+
+                this.done |= done;
+                this.fetching = false;
+                this.key = page.lastKey;
+                this.produced++;
+            }
+
+            this.sink.next(page);
+
+            if (done) {
+                this.sink.complete();
+            } else {
+                fetchNext();
+            }
+        }
+
+        private void start() {
+            this.sink.onRequest(n -> {
+                synchronized (this) {
+                    this.requested = Operators.addCap(this.requested, n);
+                }
+
+                fetchNext();
+            });
+
+            this.sink.onDispose(() -> {
+                Disposable inflight;
+
+                synchronized (this) {
+                    this.done = true;
+                    inflight = this.inflight;
+                }
+
+                inflight.dispose();
+            });
+        }
+
+    }
+
+    private final class Page<T> {
+
+        @Nullable
+        private Object lastKey;
+
+        private int rows;
+
+        private List<Keyed<T>> values = Collections.emptyList();
+
+        private Result capture(Result result) {
+            return new Result() {
+
+                @Override
+                public Publisher<Integer> getRowsUpdated() {
+                    return result.getRowsUpdated();
+                }
+
+                @Override
+                public <U> Publisher<U> map(BiFunction<Row, RowMetadata, ? extends U> f) {
+                    return result.map((row, rowMetadata) -> {
+                        Object key = row.get(KeysetQuery.this.keyColumn, Object.class);
+
+                        if (key == null) {
+                            throw new IllegalStateException(String.format("Key column %s must not be null", KeysetQuery.this.keyColumn));
+                        }
+
+                        if (key.equals(Page.this.lastKey)) {
+                            throw new IllegalStateException(String.format("Key column %s must be unique, but %s was repeated", KeysetQuery.this.keyColumn, key));
+                        }
+
+                        Page.this.lastKey = key;
+                        Page.this.rows++;
+                        return f.apply(row, rowMetadata);
+                    });
+                }
+
+            };
+        }
+
+        private Page<T> complete(List<Keyed<T>> values) {
+            if (!values.isEmpty() && values.get(values.size() - 1).key == null) {
+                values.set(values.size() - 1, new Keyed<>(this.lastKey, values.get(values.size() - 1).value));
+            }
+
+            this.values = values;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Page{" +
+                "lastKey=" + this.lastKey +
+                ", rows=" + this.rows +
+                ", values=" + this.values.size() +
+                '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+
+/**
+ * Translates SQL containing {@code :name} parameters into a {@link ParameterStyle}, caching the translation of each SQL string in a bounded cache.
+ */
+final class NamedParameters {
+
+    static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final SqlCache<ParsedSql> cache;
+
+    private final ParameterStyle parameterStyle;
+
+    NamedParameters(ParameterStyle parameterStyle) {
+        this(parameterStyle, DEFAULT_CACHE_SIZE);
+    }
+
+    NamedParameters(ParameterStyle parameterStyle, int cacheSize) {
+        Assert.isTrue(cacheSize > 0, "cacheSize must be greater than zero");
+
+        this.parameterStyle = Assert.requireNonNull(parameterStyle, "parameterStyle must not be null");
+        this.cache = new SqlCache<>(cacheSize, sql -> ParsedSql.parse(sql, parameterStyle));
+    }
+
+    @Override
+    public String toString() {
+        return "NamedParameters{" +
+            "cache=" + this.cache +
+            ", parameterStyle=" + this.parameterStyle +
+            '}';
+    }
+
+    int getCachedCount() {
+        return this.cache.size();
+    }
+
+    ParsedSql parse(String sql) {
+        return this.cache.get(sql);
+    }
+
+}
@@ -0,0 +1,745 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import reactor.core.publisher.Flux;
+import reactor.util.annotation.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiFunction;
+
+/**
+ * A store of rows, serialized as compact records into direct {@link ByteBuffer} segments outside of the heap.  Segments are allocated as they are needed, up to a maximum size.  Each entry is
+ * appended to the current segment, spilling into further segments as they fill, and once every segment has been allocated the oldest segment is reclaimed, removing every entry with records in it.
+ * <p>
+ * Each row is stored as the values that the mapping function read from the driver, with the types that it requested, so that the same function sees the same values when the row is read
+ * back.  Rows are decoded one at a time as they are read, so reading an entry holds a single row on the heap at once.  A segment that is being read is not reclaimed until its readers have finished.
+ * Values of types that cannot be serialized prevent a result from being stored.
+ */
+final class OffHeapStore {
+
+    private static final byte BIG_DECIMAL = 10;
+
+    private static final byte BIG_INTEGER = 11;
+
+    private static final byte BOOLEAN = 1;
+
+    private static final byte BYTE = 2;
+
+    private static final byte BYTES = 9;
+
+    private static final byte CHARACTER = 18;
+
+    private static final byte DOUBLE = 7;
+
+    private static final byte FLOAT = 6;
+
+    private static final byte INSTANT = 16;
+
+    private static final byte INTEGER = 4;
+
+    private static final byte LOCAL_DATE = 13;
+
+    private static final byte LOCAL_DATE_TIME = 15;
+
+    private static final byte LOCAL_TIME = 14;
+
+    private static final byte LONG = 5;
+
+    private static final byte NOT_READ = 19;
+
+    private static final byte NULL = 0;
+
+    private static final byte OFFSET_DATE_TIME = 17;
+
+    private static final byte SHORT = 3;
+
+    private static final byte STRING = 8;
+
+    private static final byte UUID_VALUE = 12;
+
+    private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicIntegerArray epochs;
+
+    private final ArrayDeque<Integer> order = new ArrayDeque<>();
+
+    private final AtomicIntegerArray readers;
+
+    private final List<Set<Object>> segmentKeys = new ArrayList<>();
+
+    private final int segmentSize;
+
+    private final ByteBuffer[] segments;
+
+    private final Map<String, Set<Object>> tags = new HashMap<>();
+
+    private int current = -1;
+
+    private int position;
+
+    /**
+     * Creates a new store.
+     *
+     * @param maximumSize the maximum number of bytes to allocate
+     * @param segmentSize the number of bytes in each segment
+     */
+    OffHeapStore(long maximumSize, int segmentSize) {
+        int count = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maximumSize / segmentSize));
+
+        this.segmentSize = segmentSize;
+        this.segments = new ByteBuffer[count];
+        this.epochs = new AtomicIntegerArray(count);
+        this.readers = new AtomicIntegerArray(count);
+    }
+
+    /**
+     * Returns the number of bytes allocated for segments.
+     */
+    synchronized long getAllocated() {
+        return (long) this.segmentKeys.size() * this.segmentSize;
+    }
+
+    /**
+     * Returns the number of entries in the store.
+     */
+    int getSize() {
+        return this.entries.size();
+    }
+
+    /**
+     * Removes every entry.  Their records are reclaimed along with the segments that hold them.
+     */
+    synchronized void invalidateAll() {
+        for (Entry entry : this.entries.values().toArray(new Entry[0])) {
+            remove(entry);
+        }
+    }
+
+    /**
+     * Removes every entry tagged with a table.
+     */
+    synchronized void invalidate(String table) {
+        Set<Object> keys = this.tags.get(table);
+
+        if (keys == null) {
+            return;
+        }
+
+        for (Object key : keys.toArray()) {
+            remove(this.entries.get(key));
+        }
+    }
+
+    /**
+     * Returns the rows of an entry, each decoded as it is requested and mapped by {@code f}, or {@code null} if there is no such entry.
+     */
+    @Nullable
+    <T> Flux<T> read(Object key, BiFunction<Row, RowMetadata, ? extends T> f, long now) {
+        Entry entry = this.entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (now - entry.expiresAt >= 0) {
+            synchronized (this) {
+                if (this.entries.get(key) == entry) {
+                    remove(entry);
+                }
+            }
+
+            return null;
+        }
+
+        if (!pin(entry)) {
+            return null;
+        }
+
+        return Flux.<T, Cursor>generate(() -> new Cursor(entry), (cursor, sink) -> {
+            if (cursor.hasNext()) {
+                sink.next(f.apply(cursor.next(), entry.rowMetadata));
+            } else {
+                sink.complete();
+            }
+
+            return cursor;
+        }, cursor -> unpin(entry));
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapStore{" +
+            "segmentSize=" + this.segmentSize +
+            ", segments=" + this.segments.length +
+            ", size=" + this.entries.size() +
+            '}';
+    }
+
+    /**
+     * Returns a new {@link Writer} that appends the rows of a single result.
+     */
+    Writer writer() {
+        return new Writer();
+    }
+
+    private boolean advance() {
+        int next = -1;
+
+        if (this.segmentKeys.size() < this.segments.length) {
+            next = this.segmentKeys.size();
+            this.segments[next] = ByteBuffer.allocateDirect(this.segmentSize);
+            this.segmentKeys.add(new HashSet<>());
+        } else {
+            for (int i = this.order.size(); i > 0; i--) {
+                int candidate = this.order.removeFirst();
+                reclaim(candidate);
+
+                if (this.readers.get(candidate) == 0) {
+                    next = candidate;
+                    break;
+                }
+
+                this.order.addLast(candidate);
+            }
+
+            if (next < 0) {
+                return false;
+            }
+        }
+
+        this.order.addLast(next);
+        this.current = next;
+        this.position = 0;
+        return true;
+    }
+
+    private synchronized boolean append(Writer writer, ByteBuffer record) {
+        int length = record.remaining();
+
+        if (length > this.segmentSize) {
+            return false;
+        }
+
+        if (this.current < 0 || this.position + length > this.segmentSize) {
+            if (!advance()) {
+                return false;
+            }
+        }
+
+        ByteBuffer segment = this.segments[this.current].duplicate();
+        segment.position(this.position);
+        segment.put(record);
+
+        writer.extend(this.current, this.epochs.get(this.current), this.position, length);
+        this.position += length;
+        return true;
+    }
+
+    private synchronized void commit(Writer writer, Object key, Set<String> tables, long expiresAt) {
+        for (Fragment fragment : writer.fragments) {
+            if (this.epochs.get(fragment.segment) != fragment.epoch) {
+                return;
+            }
+        }
+
+        remove(this.entries.get(key));
+
+        String[] columns = writer.columns == null ? new String[0] : writer.columns;
+        Class<?>[] types = writer.types == null ? new Class<?>[0] : writer.types;
+        Entry entry = new Entry(key, columns, types, writer.rowMetadata, writer.fragments.toArray(new Fragment[0]), tables, expiresAt);
+        this.entries.put(key, entry);
+
+        for (Fragment fragment : entry.fragments) {
+            this.segmentKeys.get(fragment.segment).add(key);
+        }
+
+        for (String table : tables) {
+            this.tags.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+        }
+    }
+
+    private boolean pin(Entry entry) {
+        for (int i = 0; i < entry.fragments.length; i++) {
+            Fragment fragment = entry.fragments[i];
+            this.readers.incrementAndGet(fragment.segment);
+
+            if (this.epochs.get(fragment.segment) != fragment.epoch) {
+                for (int j = 0; j <= i; j++) {
+                    this.readers.decrementAndGet(entry.fragments[j].segment);
+                }
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void reclaim(int segment) {
+        Set<Object> keys = this.segmentKeys.get(segment);
+
+        for (Object key : keys.toArray()) {
+            remove(this.entries.get(key));
+        }
+
+        keys.clear();
+        this.epochs.incrementAndGet(segment);
+    }
+
+    private void remove(@Nullable Entry entry) {
+        if (entry == null || !this.entries.remove(entry.key, entry)) {
+            return;
+        }
+
+        for (Fragment fragment : entry.fragments) {
+            this.segmentKeys.get(fragment.segment).remove(entry.key);
+        }
+
+        for (String table : entry.tables) {
+            Set<Object> keys = this.tags.get(table);
+
+            if (keys != null && keys.remove(entry.key) && keys.isEmpty()) {
+                this.tags.remove(table);
+            }
+        }
+    }
+
+    private void unpin(Entry entry) {
+        for (Fragment fragment : entry.fragments) {
+            this.readers.decrementAndGet(fragment.segment);
+        }
+    }
+
+    @Nullable
+    private static Object decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+
+        switch (type) {
+            case BIG_DECIMAL:
+                int scale = buffer.getInt();
+                return new BigDecimal(new BigInteger(getBytes(buffer)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(getBytes(buffer));
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case BYTE:
+                return buffer.get();
+            case BYTES:
+                return getBytes(buffer);
+            case CHARACTER:
+                return buffer.getChar();
+            case DOUBLE:
+                return buffer.getDouble();
+            case FLOAT:
+                return buffer.getFloat();
+            case INSTANT:
+                return Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            case INTEGER:
+                return buffer.getInt();
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(buffer.getLong());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.of(LocalDate.ofEpochDay(buffer.getLong()), LocalTime.ofNanoOfDay(buffer.getLong()));
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(buffer.getLong());
+            case NOT_READ:
+                return CachedRow.NOT_READ;
+            case LONG:
+                return buffer.getLong();
+            case NULL:
+                return null;
+            case OFFSET_DATE_TIME:
+                LocalDateTime dateTime = LocalDateTime.of(LocalDate.ofEpochDay(buffer.getLong()), LocalTime.ofNanoOfDay(buffer.getLong()));
+                return OffsetDateTime.of(dateTime, ZoneOffset.ofTotalSeconds(buffer.getInt()));
+            case SHORT:
+                return buffer.getShort();
+            case STRING:
+                return new String(getBytes(buffer), StandardCharsets.UTF_8);
+            case UUID_VALUE:
+                return new UUID(buffer.getLong(), buffer.getLong());
+            default:
+                throw new IllegalStateException(String.format("Unknown type %d", type));
+        }
+    }
+
+    /**
+     * Appends a value to {@code buffer}, returning the buffer that it was appended to, which is larger than {@code buffer} if it did not have room.
+     *
+     * @throws IllegalArgumentException if the value cannot be serialized
+     */
+    private static ByteBuffer encode(ByteBuffer buffer, @Nullable Object value) {
+        if (value == null) {
+            return ensure(buffer, 1).put(NULL);
+        } else if (value == CachedRow.NOT_READ) {
+            return ensure(buffer, 1).put(NOT_READ);
+        } else if (value instanceof BigDecimal) {
+            byte[] unscaled = ((BigDecimal) value).unscaledValue().toByteArray();
+            return ensure(buffer, 9 + unscaled.length).put(BIG_DECIMAL).putInt(((BigDecimal) value).scale()).putInt(unscaled.length).put(unscaled);
+        } else if (value instanceof BigInteger) {
+            byte[] bytes = ((BigInteger) value).toByteArray();
+            return ensure(buffer, 5 + bytes.length).put(BIG_INTEGER).putInt(bytes.length).put(bytes);
+        } else if (value instanceof Boolean) {
+            return ensure(buffer, 2).put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof Byte) {
+            return ensure(buffer, 2).put(BYTE).put((Byte) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            return ensure(buffer, 5 + bytes.length).put(BYTES).putInt(bytes.length).put(bytes);
+        } else if (value instanceof Character) {
+            return ensure(buffer, 3).put(CHARACTER).putChar((Character) value);
+        } else if (value instanceof Double) {
+            return ensure(buffer, 9).put(DOUBLE).putDouble((Double) value);
+        } else if (value instanceof Float) {
+            return ensure(buffer, 5).put(FLOAT).putFloat((Float) value);
+        } else if (value instanceof Instant) {
+            return ensure(buffer, 13).put(INSTANT).putLong(((Instant) value).getEpochSecond()).putInt(((Instant) value).getNano());
+        } else if (value instanceof Integer) {
+            return ensure(buffer, 5).put(INTEGER).putInt((Integer) value);
+        } else if (value instanceof LocalDate) {
+            return ensure(buffer, 9).put(LOCAL_DATE).putLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            return ensure(buffer, 17).put(LOCAL_DATE_TIME).putLong(dateTime.toLocalDate().toEpochDay()).putLong(dateTime.toLocalTime().toNanoOfDay());
+        } else if (value instanceof LocalTime) {
+            return ensure(buffer, 9).put(LOCAL_TIME).putLong(((LocalTime) value).toNanoOfDay());
+        } else if (value instanceof Long) {
+            return ensure(buffer, 9).put(LONG).putLong((Long) value);
+        } else if (value instanceof OffsetDateTime) {
+            OffsetDateTime dateTime = (OffsetDateTime) value;
+            return ensure(buffer, 21).put(OFFSET_DATE_TIME).putLong(dateTime.toLocalDate().toEpochDay()).putLong(dateTime.toLocalTime().toNanoOfDay())
+                .putInt(dateTime.getOffset().getTotalSeconds());
+        } else if (value instanceof Short) {
+            return ensure(buffer, 3).put(SHORT).putShort((Short) value);
+        } else if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            return ensure(buffer, 5 + bytes.length).put(STRING).putInt(bytes.length).put(bytes);
+        } else if (value instanceof UUID) {
+            return ensure(buffer, 17).put(UUID_VALUE).putLong(((UUID) value).getMostSignificantBits()).putLong(((UUID) value).getLeastSignificantBits());
+        }
+
+        throw new IllegalArgumentException(String.format("Cannot serialize value of type %s", value.getClass().getName()));
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buffer, int length) {
+        if (buffer.remaining() >= length) {
+            return buffer;
+        }
+
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        return larger.put(buffer);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Appends the rows of a single result to the store.  Rows are appended as they are written, and become readable once the writer is committed.  If a row cannot be appended, because it has a value
+     * that cannot be serialized or because the result is larger than the store, the writer fails and its rows are discarded.
+     */
+    final class Writer {
+
+        @Nullable
+        private String[] columns;
+
+        private boolean failed;
+
+        private final List<Fragment> fragments = new ArrayList<>();
+
+        @Nullable
+        private RowMetadata rowMetadata;
+
+        private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+        private long size;
+
+        @Nullable
+        private Class<?>[] types;
+
+        private Writer() {
+        }
+
+        @Override
+        public String toString() {
+            return "Writer{" +
+                "failed=" + this.failed +
+                ", fragments=" + this.fragments +
+                ", size=" + this.size +
+                '}';
+        }
+
+        /**
+         * Makes the written rows readable with {@code key}, unless the writer has failed or any of its rows have been reclaimed.
+         */
+        void commit(Object key, Set<String> tables, long expiresAt) {
+            if (!this.failed) {
+                OffHeapStore.this.commit(this, key, tables, expiresAt);
+            }
+        }
+
+        /**
+         * Maps a row with {@code f}, and appends the values that {@code f} read from it.  Each column must be read with the same type in every row, or the writer fails.
+         */
+        <T> T write(Row row, RowMetadata rowMetadata, BiFunction<Row, RowMetadata, ? extends T> f) {
+            if (this.failed) {
+                return f.apply(row, rowMetadata);
+            }
+
+            if (this.columns == null) {
+                List<String> columns = new ArrayList<>();
+                for (ColumnMetadata columnMetadata : rowMetadata.getColumnMetadatas()) {
+                    columns.add(columnMetadata.getName());
+                }
+
+                this.columns = columns.toArray(new String[0]);
+                this.rowMetadata = rowMetadata;
+                this.types = new Class<?>[this.columns.length];
+            }
+
+            Recorder recorder = new Recorder(this, row, this.columns.length);
+            T value = f.apply(recorder, rowMetadata);
+
+            if (this.failed) {
+                return value;
+            }
+
+            this.scratch.clear();
+
+            try {
+                for (Object read : recorder.values) {
+                    this.scratch = encode(this.scratch, read);
+                }
+            } catch (IllegalArgumentException e) {
+                this.failed = true;
+                return value;
+            }
+
+            this.scratch.flip();
+            this.size += this.scratch.remaining();
+
+            if (this.size > (long) OffHeapStore.this.segments.length * OffHeapStore.this.segmentSize || !append(this, this.scratch)) {
+                this.failed = true;
+            }
+
+            return value;
+        }
+
+        private void extend(int segment, int epoch, int offset, int length) {
+            if (!this.fragments.isEmpty()) {
+                Fragment last = this.fragments.get(this.fragments.size() - 1);
+
+                if (last.segment == segment && last.epoch == epoch && last.offset + last.length == offset) {
+                    last.length += length;
+                    return;
+                }
+            }
+
+            this.fragments.add(new Fragment(segment, epoch, offset, length));
+        }
+
+    }
+
+    /**
+     * A {@link Row} that records the values read from it, and the types that they were read with.
+     */
+    private final class Recorder implements Row {
+
+        private final Row row;
+
+        private final Object[] values;
+
+        private final Writer writer;
+
+        private Recorder(Writer writer, Row row, int columns) {
+            this.writer = writer;
+            this.row = row;
+            this.values = new Object[columns];
+            Arrays.fill(this.values, CachedRow.NOT_READ);
+        }
+
+        @Override
+        @Nullable
+        public <T> T get(Object identifier, Class<T> type) {
+            T value = this.row.get(identifier, type);
+            Class<?>[] types = this.writer.types;
+            int index = CachedRow.getIndex(this.writer.columns, identifier);
+
+            if (types == null || index < 0 || (types[index] != null && types[index] != type)) {
+                this.writer.failed = true;
+            } else {
+                types[index] = type;
+                this.values[index] = value;
+            }
+
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Recorder{" +
+                "row=" + this.row +
+                ", values=" + Arrays.toString(this.values) +
+                '}';
+        }
+
+    }
+
+    private final class Cursor {
+
+        private final Entry entry;
+
+        private int fragment = -1;
+
+        @Nullable
+        private ByteBuffer view;
+
+        private Cursor(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String toString() {
+            return "Cursor{" +
+                "entry=" + this.entry +
+                ", fragment=" + this.fragment +
+                '}';
+        }
+
+        private boolean hasNext() {
+            while (this.view == null || !this.view.hasRemaining()) {
+                if (++this.fragment >= this.entry.fragments.length) {
+                    return false;
+                }
+
+                Fragment next = this.entry.fragments[this.fragment];
+                this.view = OffHeapStore.this.segments[next.segment].duplicate();
+                this.view.limit(next.offset + next.length).position(next.offset);
+            }
+
+            return true;
+        }
+
+        private Row next() {
+            ByteBuffer view = this.view;
+            Object[] values = new Object[this.entry.columns.length];
+
+            for (int i = 0; i < values.length && view != null; i++) {
+                values[i] = decode(view);
+            }
+
+            return new CachedRow(this.entry.columns, this.entry.types, values);
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final String[] columns;
+
+        private final long expiresAt;
+
+        private final Fragment[] fragments;
+
+        private final Object key;
+
+        @Nullable
+        private final RowMetadata rowMetadata;
+
+        private final Set<String> tables;
+
+        private final Class<?>[] types;
+
+        private Entry(Object key, String[] columns, Class<?>[] types, @Nullable RowMetadata rowMetadata, Fragment[] fragments, Set<String> tables, long expiresAt) {
+            this.key = key;
+            this.columns = columns;
+            this.types = types;
+            this.rowMetadata = rowMetadata;
+            this.fragments = fragments;
+            this.tables = tables;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                "columns=" + Arrays.toString(this.columns) +
+                ", fragments=" + Arrays.toString(this.fragments) +
+                ", key=" + this.key +
+                ", tables=" + this.tables +
+                '}';
+        }
+
+    }
+
+    private static final class Fragment {
+
+        private final int epoch;
+
+        private int length;
+
+        private final int offset;
+
+        private final int segment;
+
+        private Fragment(int segment, int epoch, int offset, int length) {
+            this.segment = segment;
+            this.epoch = epoch;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public String toString() {
+            return "Fragment{" +
+                "epoch=" + this.epoch +
+                ", length=" + this.length +
+                ", offset=" + this.offset +
+                ", segment=" + this.segment +
+                '}';
+        }
+
+    }
+
+}
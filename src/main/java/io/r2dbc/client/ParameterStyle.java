@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+/**
+ * The style of parameter placeholder that a driver expects.  Named parameters, written as {@code :name} in SQL, are translated into this style before a statement is created.
+ *
+ * @see R2dbc#namedParameters(ParameterStyle)
+ */
+public enum ParameterStyle {
+
+    /**
+     * Placeholders written as {@code @P0}, {@code @P1}, and bound with the identifiers {@code P0}, {@code P1}.  Used by Microsoft SQL Server.
+     */
+    AT_P {
+        @Override
+        public Object getIdentifier(int index) {
+            return "P" + index;
+        }
+
+        @Override
+        public String getPlaceholder(int index) {
+            return "@P" + index;
+        }
+
+        @Override
+        int getMaxParameters() {
+            return 2100;
+        }
+
+        @Override
+        int getPlaceholderEnd(String sql, int start) {
+            return sql.startsWith("@P", start) ? getDigitsEnd(sql, start, 2) : start;
+        }
+
+        @Override
+        int getPlaceholderIndex(String placeholder) {
+            return Integer.parseInt(placeholder.substring(2));
+        }
+
+        @Override
+        boolean isPositional() {
+            return false;
+        }
+    },
+
+    /**
+     * Placeholders written as {@code $1}, {@code $2}, and bound with the same identifiers.  Used by PostgreSQL and H2.
+     */
+    DOLLAR {
+        @Override
+        public Object getIdentifier(int index) {
+            return getPlaceholder(index);
+        }
+
+        @Override
+        public String getPlaceholder(int index) {
+            return "$" + (index + 1);
+        }
+
+        @Override
+        int getMaxParameters() {
+            return 32767;
+        }
+
+        @Override
+        int getPlaceholderEnd(String sql, int start) {
+            return sql.charAt(start) == '$' ? getDigitsEnd(sql, start, 1) : start;
+        }
+
+        @Override
+        int getPlaceholderIndex(String placeholder) {
+            return Integer.parseInt(placeholder.substring(1)) - 1;
+        }
+
+        @Override
+        boolean isPositional() {
+            return false;
+        }
+    },
+
+    /**
+     * Placeholders written as {@code ?}, and bound by their zero-based index.  Every occurrence of a named parameter becomes a separate placeholder.
+     */
+    QUESTION_MARK {
+        @Override
+        public Object getIdentifier(int index) {
+            return index;
+        }
+
+        @Override
+        public String getPlaceholder(int index) {
+            return "?";
+        }
+
+        @Override
+        int getMaxParameters() {
+            return 65535;
+        }
+
+        @Override
+        int getPlaceholderEnd(String sql, int start) {
+            return sql.charAt(start) == '?' ? start + 1 : start;
+        }
+
+        @Override
+        int getPlaceholderIndex(String placeholder) {
+            return -1;
+        }
+
+        @Override
+        boolean isPositional() {
+            return true;
+        }
+    };
+
+    /**
+     * Returns the identifier used to bind the placeholder at a given index.
+     *
+     * @param index the zero-based index of the placeholder
+     * @return the identifier used to bind the placeholder
+     */
+    public abstract Object getIdentifier(int index);
+
+    /**
+     * Returns the placeholder written into SQL at a given index.
+     *
+     * @param index the zero-based index of the placeholder
+     * @return the placeholder written into SQL
+     */
+    public abstract String getPlaceholder(int index);
+
+    /**
+     * Returns the maximum number of parameters that a single statement may bind.
+     *
+     * @return the maximum number of parameters that a single statement may bind
+     */
+    abstract int getMaxParameters();
+
+    /**
+     * Returns the end of the placeholder starting at a position in SQL.
+     *
+     * @param sql   the SQL
+     * @param start the position
+     * @return the position after the end of the placeholder, or {@code start} if there is no placeholder at that position
+     */
+    abstract int getPlaceholderEnd(String sql, int start);
+
+    /**
+     * Returns the zero-based index of a placeholder.
+     *
+     * @param placeholder the placeholder
+     * @return the zero-based index of the placeholder, or {@code -1} if placeholders are identified by position alone
+     */
+    abstract int getPlaceholderIndex(String placeholder);
+
+    /**
+     * Returns whether placeholders are identified by position alone, so that a named parameter used more than once needs more than one placeholder.
+     *
+     * @return whether placeholders are identified by position alone
+     */
+    abstract boolean isPositional();
+
+    private static int getDigitsEnd(String sql, int start, int prefixLength) {
+        int end = start + prefixLength;
+        while (end < sql.length() && Character.isDigit(sql.charAt(end))) {
+            end++;
+        }
+
+        return end == start + prefixLength ? start : end;
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+import io.r2dbc.spi.Statement;
+import reactor.util.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL containing {@code :name} parameters, translated into a {@link ParameterStyle}.  Parameters are not recognized inside string literals, quoted identifiers, dollar-quoted strings, or comments,
+ * and {@code ::} casts are left untouched.
+ */
+final class ParsedSql {
+
+    private final Map<String, Object[]> identifiers;
+
+    private final String sql;
+
+    private ParsedSql(String sql, Map<String, Object[]> identifiers) {
+        this.sql = sql;
+        this.identifiers = identifiers;
+    }
+
+    @Override
+    public String toString() {
+        return "ParsedSql{" +
+            "parameters=" + this.identifiers.keySet() +
+            ", sql='" + this.sql + '\'' +
+            '}';
+    }
+
+    /**
+     * Bind a value to every placeholder of a named parameter.
+     *
+     * @param statement the statement to bind to
+     * @param name      the name of the parameter
+     * @param value     the value to bind
+     * @return {@code true} if {@code name} is a parameter of this SQL, otherwise {@code false} and nothing is bound
+     */
+    boolean bind(Statement<?> statement, String name, Object value) {
+        Object[] identifiers = this.identifiers.get(name);
+
+        if (identifiers == null) {
+            return false;
+        }
+
+        for (Object identifier : identifiers) {
+            if (identifier instanceof Integer) {
+                statement.bind((Integer) identifier, value);
+            } else {
+                statement.bind(identifier, value);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Bind a {@code null} value to every placeholder of a named parameter.
+     *
+     * @param statement the statement to bind to
+     * @param name      the name of the parameter
+     * @param type      the type of null value
+     * @return {@code true} if {@code name} is a parameter of this SQL, otherwise {@code false} and nothing is bound
+     */
+    boolean bindNull(Statement<?> statement, String name, Class<?> type) {
+        Object[] identifiers = this.identifiers.get(name);
+
+        if (identifiers == null) {
+            return false;
+        }
+
+        for (Object identifier : identifiers) {
+            if (identifier instanceof Integer) {
+                statement.bindNull((Integer) identifier, type);
+            } else {
+                statement.bindNull(identifier, type);
+            }
+        }
+
+        return true;
+    }
+
+    @Nullable
+    Object[] getIdentifiers(String name) {
+        Object[] identifiers = this.identifiers.get(name);
+        return identifiers == null ? null : identifiers.clone();
+    }
+
+    String getSql() {
+        return this.sql;
+    }
+
+    static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || Character.isDigit(c);
+    }
+
+    static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    static ParsedSql parse(String sql, ParameterStyle parameterStyle) {
+        Assert.requireNonNull(sql, "sql must not be null");
+        Assert.requireNonNull(parameterStyle, "parameterStyle must not be null");
+
+        StringBuilder translated = new StringBuilder(sql.length());
+        Map<String, List<Integer>> indexes = new LinkedHashMap<>();
+        int count = 0;
+
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            int end = skip(sql, i);
+
+            if (end > i) {
+                translated.append(sql, i, end);
+                i = end;
+            } else if (c == ':' && i + 1 < sql.length() && sql.charAt(i + 1) == ':') {
+                translated.append("::");
+                i += 2;
+            } else if (c == ':' && i + 1 < sql.length() && isIdentifierStart(sql.charAt(i + 1))) {
+                end = i + 2;
+                while (end < sql.length() && isIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+
+                List<Integer> occurrences = indexes.computeIfAbsent(sql.substring(i + 1, end), name -> new ArrayList<>());
+                if (occurrences.isEmpty() || parameterStyle.isPositional()) {
+                    occurrences.add(count++);
+                }
+
+                translated.append(parameterStyle.getPlaceholder(occurrences.get(occurrences.size() - 1)));
+                i = end;
+            } else {
+                translated.append(c);
+                i++;
+            }
+        }
+
+        if (indexes.isEmpty()) {
+            return new ParsedSql(sql, Collections.emptyMap());
+        }
+
+        Map<String, Object[]> identifiers = new LinkedHashMap<>();
+        indexes.forEach((name, occurrences) -> {
+            Object[] values = new Object[occurrences.size()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = parameterStyle.getIdentifier(occurrences.get(j));
+            }
+            identifiers.put(name, values);
+        });
+
+        return new ParsedSql(translated.toString(), Collections.unmodifiableMap(identifiers));
+    }
+
+    /**
+     * Returns the end of a string literal, quoted identifier, dollar-quoted string, or comment starting at a position in SQL.
+     *
+     * @param sql   the SQL
+     * @param start the position
+     * @return the position after the end of the construct, or {@code start} if there is none at that position
+     */
+    static int skip(String sql, int start) {
+        char c = sql.charAt(start);
+        char next = start + 1 < sql.length() ? sql.charAt(start + 1) : 0;
+
+        if (c == '\'' || c == '"') {
+            return skipQuoted(sql, start, c);
+        } else if (c == '-' && next == '-') {
+            int end = sql.indexOf('\n', start);
+            return end < 0 ? sql.length() : end;
+        } else if (c == '/' && next == '*') {
+            int end = sql.indexOf("*/", start + 2);
+            return end < 0 ? sql.length() : end + 2;
+        } else if (c == '$') {
+            return skipDollarQuoted(sql, start);
+        }
+
+        return start;
+    }
+
+    private static int skipDollarQuoted(String sql, int start) {
+        int end = start + 1;
+        if (end < sql.length() && isIdentifierStart(sql.charAt(end))) {
+            while (end < sql.length() && isIdentifierPart(sql.charAt(end))) {
+                end++;
+            }
+        }
+
+        if (end >= sql.length() || sql.charAt(end) != '$') {
+            return start;
+        }
+
+        String tag = sql.substring(start, end + 1);
+        int close = sql.indexOf(tag, end + 1);
+        return close < 0 ? sql.length() : close + tag.length();
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int end = start + 1;
+
+        while (end < sql.length()) {
+            if (sql.charAt(end) == quote) {
+                if (end + 1 < sql.length() && sql.charAt(end + 1) == quote) {
+                    end += 2;
+                    continue;
+                }
+
+                return end + 1;
+            }
+
+            end++;
+        }
+
+        return end;
+    }
+
+}
@@ -18,11 +18,15 @@ package io.r2dbc.client;
 
 import io.r2dbc.client.util.Assert;
 import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import io.r2dbc.spi.Statement;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.util.annotation.Nullable;
 
 import java.util.Objects;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /**
@@ -30,10 +34,34 @@ import java.util.function.Function;
  */
 public final class Query implements ResultBearing {
 
+    @Nullable
+    private final CachedSelect cachedSelect;
+
+    @Nullable
+    private final Runnable onExecute;
+
+    @Nullable
+    private final ParsedSql parsedSql;
+
     private final Statement<?> statement;
 
     Query(Statement<?> statement) {
+        this(statement, null);
+    }
+
+    Query(Statement<?> statement, @Nullable ParsedSql parsedSql) {
+        this(statement, parsedSql, null);
+    }
+
+    Query(Statement<?> statement, @Nullable ParsedSql parsedSql, @Nullable CachedSelect cachedSelect) {
+        this(statement, parsedSql, cachedSelect, null);
+    }
+
+    Query(Statement<?> statement, @Nullable ParsedSql parsedSql, @Nullable CachedSelect cachedSelect, @Nullable Runnable onExecute) {
         this.statement = Assert.requireNonNull(statement, "statement must not be null");
+        this.parsedSql = parsedSql;
+        this.cachedSelect = cachedSelect;
+        this.onExecute = onExecute;
     }
 
     /**
@@ -47,7 +75,7 @@ public final class Query implements ResultBearing {
     }
 
     /**
-     * Bind a value.
+     * Bind a value.  If this was created with named parameters enabled, and {@code identifier} is the name of a parameter, the value is bound to every placeholder for that parameter.
      *
      * @param identifier the identifier to bind to
      * @param value      the value to bind
@@ -58,12 +86,16 @@ public final class Query implements ResultBearing {
         Assert.requireNonNull(identifier, "identifier must not be null");
         Assert.requireNonNull(value, "value must not be null");
 
+        if (this.parsedSql != null && identifier instanceof String && this.parsedSql.bind(this.statement, (String) identifier, value)) {
+            return this;
+        }
+
         this.statement.bind(identifier, value);
         return this;
     }
 
     /**
-     * Bind a {@code null} value.
+     * Bind a {@code null} value.  If this was created with named parameters enabled, and {@code identifier} is the name of a parameter, the value is bound to every placeholder for that parameter.
      *
      * @param identifier the identifier to bind to
      * @param type       the type of null value
@@ -74,22 +106,61 @@ public final class Query implements ResultBearing {
         Assert.requireNonNull(identifier, "identifier must not be null");
         Assert.requireNonNull(type, "type must not be null");
 
+        if (this.parsedSql != null && identifier instanceof String && this.parsedSql.bindNull(this.statement, (String) identifier, type)) {
+            return this;
+        }
+
         this.statement.bindNull(identifier, type);
         return this;
     }
 
+    /**
+     * {@inheritDoc}  If this was built with {@link Handle#select(String, Object...)} and a {@link ResultCache} is configured, the values may be served from the cache, keyed by {@code f}.
+     */
     public <T> Flux<T> mapResult(Function<Result, ? extends Publisher<? extends T>> f) {
         Assert.requireNonNull(f, "f must not be null");
 
-        return Flux
-            .from(this.statement.execute())
-            .flatMap(f::apply);
+        if (this.cachedSelect == null) {
+            return execute(f);
+        }
+
+        return this.cachedSelect.get(f, () -> execute(f));
+    }
+
+    /**
+     * {@inheritDoc}  If this was built with {@link Handle#select(String, Object...)} and a {@link ResultCache} is configured, the values may be served from the cache, keyed by {@code f}.
+     */
+    @Override
+    public <T> Flux<T> mapRow(BiFunction<Row, RowMetadata, ? extends T> f) {
+        Assert.requireNonNull(f, "f must not be null");
+
+        if (this.cachedSelect == null) {
+            return execute(result -> result.map(f));
+        }
+
+        return this.cachedSelect.get(f, f, g -> execute(result -> result.map(g)));
+    }
+
+    /**
+     * {@inheritDoc}  If this was built with {@link Handle#select(String, Object...)} and a {@link ResultCache} is configured, the values may be served from the cache, keyed by {@code f}.
+     */
+    @Override
+    public <T> Flux<T> mapRow(Function<Row, ? extends T> f) {
+        Assert.requireNonNull(f, "f must not be null");
+
+        if (this.cachedSelect == null) {
+            return execute(result -> result.map((row, rowMetadata) -> f.apply(row)));
+        }
+
+        return this.cachedSelect.get(f, (row, rowMetadata) -> f.apply(row), g -> execute(result -> result.map(g)));
     }
 
     @Override
     public String toString() {
         return "Query{" +
-            "statement=" + this.statement +
+            "cachedSelect=" + this.cachedSelect +
+            ", parsedSql=" + this.parsedSql +
+            ", statement=" + this.statement +
             '}';
     }
 
@@ -100,4 +171,17 @@ public final class Query implements ResultBearing {
         return this;
     }
 
+    Query cached(CachedSelect cachedSelect) {
+        return new Query(this.statement, this.parsedSql, cachedSelect, this.onExecute);
+    }
+
+    private <T> Flux<T> execute(Function<Result, ? extends Publisher<? extends T>> f) {
+        Flux<T> values = Flux
+            .from(this.statement.execute())
+            .flatMap(f::apply);
+
+        Runnable onExecute = this.onExecute;
+        return onExecute == null ? values : values.doFinally(signal -> onExecute.run());
+    }
+
 }
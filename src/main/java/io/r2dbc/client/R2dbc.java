@@ -16,24 +16,46 @@
 
 package io.r2dbc.client;
 
+import io.r2dbc.client.pool.PooledConnectionFactory;
+import io.r2dbc.client.routing.RoundRobinConnectionFactory;
 import io.r2dbc.client.util.Assert;
+import io.r2dbc.client.util.DelegatingConnectionFactory;
 import io.r2dbc.client.util.ReactiveUtils;
 import io.r2dbc.spi.Connection;
 import io.r2dbc.spi.ConnectionFactory;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 
 /**
  * An implementation of the Reactive Relational Database Connection API for PostgreSQL servers.
+ * <p>
+ * An instance can route read-only units of work, started with {@link #openReadOnly()}, {@link #useReadOnlyHandle(Function)}, or {@link #withReadOnlyHandle(Function)}, to replicas of the primary
+ * database.  All other units of work, including every transaction, use the primary database.
  */
 public final class R2dbc {
 
     private final ConnectionFactory connectionFactory;
 
+    @Nullable
+    private final InsertRewriting insertRewriting;
+
+    @Nullable
+    private final NamedParameters namedParameters;
+
+    private final ConnectionFactory readOnlyConnectionFactory;
+
+    @Nullable
+    private final ResultCache resultCache;
+
     /**
      * Create a new instance of {@link R2dbc}.
      *
@@ -42,6 +64,46 @@ public final class R2dbc {
      */
     public R2dbc(ConnectionFactory connectionFactory) {
         this.connectionFactory = Assert.requireNonNull(connectionFactory, "connectionFactory must not be null");
+        this.insertRewriting = null;
+        this.namedParameters = null;
+        this.readOnlyConnectionFactory = connectionFactory;
+        this.resultCache = null;
+    }
+
+    /**
+     * Create a new instance of {@link R2dbc} that routes read-only units of work to replicas.
+     *
+     * @param primary  a {@link ConnectionFactory} used to create {@link Connection}s to the primary database
+     * @param replicas a {@link ConnectionFactory} used to create {@link Connection}s for read-only units of work.  This may itself balance between several replicas.
+     * @throws IllegalArgumentException if {@code primary} or {@code replicas} is {@code null}
+     */
+    public R2dbc(ConnectionFactory primary, ConnectionFactory replicas) {
+        this.connectionFactory = Assert.requireNonNull(primary, "primary must not be null");
+        this.insertRewriting = null;
+        this.namedParameters = null;
+        this.readOnlyConnectionFactory = Assert.requireNonNull(replicas, "replicas must not be null");
+        this.resultCache = null;
+    }
+
+    /**
+     * Create a new instance of {@link R2dbc} that routes read-only units of work to replicas in turn.  If there are no replicas, read-only units of work use the primary database.
+     *
+     * @param primary  a {@link ConnectionFactory} used to create {@link Connection}s to the primary database
+     * @param replicas the {@link ConnectionFactory}s used to create {@link Connection}s for read-only units of work
+     * @throws IllegalArgumentException if {@code primary} or {@code replicas} is {@code null}, or {@code replicas} contains {@code null}
+     * @see RoundRobinConnectionFactory
+     */
+    public R2dbc(ConnectionFactory primary, List<? extends ConnectionFactory> replicas) {
+        this(primary, roundRobin(primary, replicas));
+    }
+
+    private R2dbc(ConnectionFactory connectionFactory, ConnectionFactory readOnlyConnectionFactory, @Nullable NamedParameters namedParameters, @Nullable InsertRewriting insertRewriting,
+                  @Nullable ResultCache resultCache) {
+        this.connectionFactory = connectionFactory;
+        this.insertRewriting = insertRewriting;
+        this.namedParameters = namedParameters;
+        this.readOnlyConnectionFactory = readOnlyConnectionFactory;
+        this.resultCache = resultCache;
     }
 
     /**
@@ -61,21 +123,81 @@ public final class R2dbc {
     }
 
     /**
-     * Open a {@link Handle} and return it for use.  Note that you the caller is responsible for closing the handle otherwise connections will be leaked.
+     * Returns a copy of this instance that accepts named parameters, written as {@code :name}, in the SQL of every {@link Query} and {@link Update}.  Named parameters are translated into the
+     * placeholders of {@code parameterStyle} and are bound by name.  Each translation is cached, so SQL that is used repeatedly is only parsed once.
+     *
+     * @param parameterStyle the style of placeholder that the driver expects
+     * @return a copy of this instance that accepts named parameters
+     * @throws IllegalArgumentException if {@code parameterStyle} is {@code null}
+     */
+    public R2dbc namedParameters(ParameterStyle parameterStyle) {
+        Assert.requireNonNull(parameterStyle, "parameterStyle must not be null");
+
+        return new R2dbc(this.connectionFactory, this.readOnlyConnectionFactory, new NamedParameters(parameterStyle), this.insertRewriting, this.resultCache);
+    }
+
+    /**
+     * Open a {@link Handle} and return it for use.  Note that you the caller is responsible for closing the handle otherwise connections will be leaked.  A pool configured with a leak
+     * detection threshold reports handles that are not closed.
      *
      * @return a new {@link Handle}, ready to use
      * @see Handle#close()
+     * @see io.r2dbc.client.pool.PoolConfiguration.Builder#leakDetectionThreshold(java.time.Duration)
      */
     public Mono<Handle> open() {
-        return Mono.from(
-            this.connectionFactory.create())
-            .map(Handle::new);
+        return open(this.connectionFactory);
+    }
+
+    /**
+     * Open a {@link Handle} for read-only use and return it.  The handle is opened against a replica, if any are configured.  Note that you the caller is responsible for closing the handle
+     * otherwise connections will be leaked.
+     *
+     * @return a new {@link Handle}, ready to use
+     * @see Handle#close()
+     */
+    public Mono<Handle> openReadOnly() {
+        return open(this.readOnlyConnectionFactory);
+    }
+
+    /**
+     * Returns a copy of this instance that caches the mapped results of queries built with {@link Handle#select(String, Object...)}, outside of transactions.  Every {@link Update} and
+     * {@link Batch} executed through the copy invalidates the entries that read from the tables that it writes to, and does so again when its transaction ends.  Writes made by other instances,
+     * or by other applications, are only reflected once entries expire.
+     *
+     * @param resultCache the cache of mapped results
+     * @return a copy of this instance that caches the mapped results of queries
+     * @throws IllegalArgumentException if {@code resultCache} is {@code null}
+     */
+    public R2dbc resultCache(ResultCache resultCache) {
+        Assert.requireNonNull(resultCache, "resultCache must not be null");
+
+        return new R2dbc(this.connectionFactory, this.readOnlyConnectionFactory, this.namedParameters, this.insertRewriting, resultCache);
+    }
+
+    /**
+     * Returns a copy of this instance that rewrites inserts executed with {@link Update#executeMany(Publisher, int, int)}.  When the SQL of an {@link Update} is a single-row
+     * {@code INSERT ... VALUES (...)} whose only placeholders are in its values, each chunk of rows is inserted with a single multi-row {@code INSERT ... VALUES (...), (...)} statement rather than
+     * with one binding per row.  The number of rows in each statement is limited by {@code maxRows}, and by the maximum number of parameters that the driver accepts in a single statement.
+     *
+     * @param parameterStyle the style of placeholder used in SQL executed by the driver
+     * @param maxRows        the maximum number of rows to insert with a single statement
+     * @return a copy of this instance that rewrites inserts
+     * @throws IllegalArgumentException if {@code parameterStyle} is {@code null}, or {@code maxRows} is not greater than one
+     */
+    public R2dbc rewriteInserts(ParameterStyle parameterStyle, int maxRows) {
+        Assert.requireNonNull(parameterStyle, "parameterStyle must not be null");
+
+        return new R2dbc(this.connectionFactory, this.readOnlyConnectionFactory, this.namedParameters, new InsertRewriting(parameterStyle, maxRows), this.resultCache);
     }
 
     @Override
     public String toString() {
         return "R2dbc{" +
             "connectionFactory=" + this.connectionFactory +
+            ", insertRewriting=" + this.insertRewriting +
+            ", namedParameters=" + this.namedParameters +
+            ", readOnlyConnectionFactory=" + this.readOnlyConnectionFactory +
+            ", resultCache=" + this.resultCache +
             '}';
     }
 
@@ -93,6 +215,20 @@ public final class R2dbc {
             .then();
     }
 
+    /**
+     * Execute read-only behavior with a {@link Handle} not returning results.  The handle is opened against a replica, if any are configured.
+     *
+     * @param f a {@link Function} that takes a {@link Handle} and returns a {@link Publisher} of results.  These results are discarded.
+     * @return a {@link Mono} that execution is complete
+     * @throws IllegalArgumentException if {@code f} is {@code null}
+     */
+    public Mono<Void> useReadOnlyHandle(Function<Handle, ? extends Publisher<?>> f) {
+        Assert.requireNonNull(f, "f must not be null");
+
+        return withReadOnlyHandle(f)
+            .then();
+    }
+
     /**
      * Execute behavior within a transaction not returning results.  The transaction is committed if the behavior completes successfully, and rolled back it produces an error.
      *
@@ -108,6 +244,33 @@ public final class R2dbc {
         return useHandle(handle -> handle.useTransaction(f));
     }
 
+    /**
+     * Open connections in advance of use.  Opens connections in parallel until every {@link PooledConnectionFactory} used for the primary database or for replicas holds at least {@code minIdle}
+     * idle connections, validating each one if the pool is configured with a validation query.  Pools are found through any wrapping
+     * {@link ConnectionFactory} that implements {@link DelegatingConnectionFactory}, as the circuit breaker, limiting, and routing {@link ConnectionFactory}s do.
+     *
+     * @param minIdle the minimum number of idle connections to hold
+     * @return a {@link Mono} that indicates that the connections have been opened
+     * @throws IllegalArgumentException if {@code minIdle} is negative
+     * @throws IllegalStateException    if no {@link PooledConnectionFactory} is found
+     * @see PooledConnectionFactory#warmup(int)
+     */
+    public Mono<Void> warmup(int minIdle) {
+        Assert.isTrue(minIdle >= 0, "minIdle must not be negative");
+
+        Set<PooledConnectionFactory> pools = Collections.newSetFromMap(new IdentityHashMap<>());
+        findPools(this.connectionFactory, pools);
+        findPools(this.readOnlyConnectionFactory, pools);
+
+        if (pools.isEmpty()) {
+            throw new IllegalStateException("No PooledConnectionFactory found to warm up; wrapping ConnectionFactories must implement DelegatingConnectionFactory");
+        }
+
+        return Flux.fromIterable(pools)
+            .flatMap(pool -> pool.warmup(minIdle))
+            .then();
+    }
+
     /**
      * Execute behavior with a {@link Handle} returning results.
      *
@@ -119,7 +282,46 @@ public final class R2dbc {
     public <T> Flux<T> withHandle(Function<Handle, ? extends Publisher<? extends T>> f) {
         Assert.requireNonNull(f, "f must not be null");
 
-        return open()
+        return withHandle(open(), f);
+    }
+
+    /**
+     * Execute read-only behavior with a {@link Handle} returning results.  The handle is opened against a replica, if any are configured.
+     *
+     * @param f   a {@link Function} that takes a {@link Handle} and returns a {@link Publisher} of results
+     * @param <T> the type of results
+     * @return a {@link Flux} of results
+     * @throws IllegalArgumentException if {@code f} is {@code null}
+     */
+    public <T> Flux<T> withReadOnlyHandle(Function<Handle, ? extends Publisher<? extends T>> f) {
+        Assert.requireNonNull(f, "f must not be null");
+
+        return withHandle(openReadOnly(), f);
+    }
+
+    private static void findPools(ConnectionFactory connectionFactory, Set<PooledConnectionFactory> pools) {
+        if (connectionFactory instanceof PooledConnectionFactory) {
+            pools.add((PooledConnectionFactory) connectionFactory);
+        } else if (connectionFactory instanceof DelegatingConnectionFactory) {
+            ((DelegatingConnectionFactory) connectionFactory).getConnectionFactories().forEach(delegate -> findPools(delegate, pools));
+        }
+    }
+
+    private Mono<Handle> open(ConnectionFactory connectionFactory) {
+        return Mono.from(
+            connectionFactory.create())
+            .map(connection -> new Handle(connection, this.namedParameters, this.insertRewriting, this.resultCache));
+    }
+
+    private static ConnectionFactory roundRobin(ConnectionFactory primary, List<? extends ConnectionFactory> replicas) {
+        Assert.requireNonNull(primary, "primary must not be null");
+        Assert.requireNonNull(replicas, "replicas must not be null");
+
+        return replicas.isEmpty() ? primary : new RoundRobinConnectionFactory(replicas);
+    }
+
+    private static <T> Flux<T> withHandle(Mono<Handle> open, Function<Handle, ? extends Publisher<? extends T>> f) {
+        return open
             .flatMapMany(handle -> Flux.from(
                 f.apply(handle))
                 .concatWith(ReactiveUtils.typeSafe(handle::close))
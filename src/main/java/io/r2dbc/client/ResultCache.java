@@ -0,0 +1,789 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * A cache of the values mapped from the results of queries, keyed by their SQL, their parameters, and the mapping function.  Configured with {@link R2dbc#resultCache(ResultCache)}, it caches queries
+ * built with {@link Handle#select(String, Object...)} and mapped with {@link ResultBearing#mapRow(java.util.function.Function)} or
+ * {@link ResultBearing#mapRow(java.util.function.BiFunction)}.  Mapping functions are compared by identity, so a query is only served from the cache if it is mapped with the same function instance.
+ * <p>
+ * Each entry is tagged with the tables that its SQL reads from.  When an {@link Update} or {@link Batch} executes through the same {@link R2dbc}, every entry tagged with a table that it writes to
+ * is invalidated, and if the table cannot be determined, every entry is.  So is a {@link Query} that may write, such as {@code UPDATE ... RETURNING}: any query that is not a {@code SELECT}.  Entries also expire a fixed time after they are written, which bounds staleness caused by writes made elsewhere.
+ * <p>
+ * The total weight of the entries is bounded, by default to one unit per row.  Entries are admitted and evicted with the W-TinyLFU policy: new entries enter a small LRU window, and an entry
+ * leaving the window only displaces an entry of the main region if a {@link FrequencySketch} estimates that it is used more often.  This keeps popular results cached in the face of scans of
+ * results that are used once.
+ * <p>
+ * An optional second tier stores rows as serialized records outside of the heap, bounded by a number of bytes rather than a weight.  It suits large, slowly changing results, such as reference
+ * data, that would otherwise burden the garbage collector.  Its rows are decoded and mapped as they are read.  Each row holds the values that the mapping function read from the driver, with the
+ * types that it requested, so the off-heap tier is keyed by the mapping function too, and a function sees the same values whichever tier a query is served from.
+ */
+public final class ResultCache {
+
+    private static final int PROBATION = 1;
+
+    private static final int PROTECTED = 2;
+
+    private static final int SQL_CACHE_SIZE = 256;
+
+    private static final int WINDOW = 0;
+
+    private final SqlCache<Tables.Access> access = new SqlCache<>(SQL_CACHE_SIZE, Tables::access);
+
+    private final ConcurrentMap<Key, Node> data = new ConcurrentHashMap<>();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final long expireAfterWriteNanos;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final long maximumProtectedWeight;
+
+    private final long maximumWeight;
+
+    private final long maximumWindowWeight;
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder offHeapHitCount = new LongAdder();
+
+    @Nullable
+    private final OffHeapStore offHeapStore;
+
+    private final LinkedHashMap<Key, Node> probation = new LinkedHashMap<>();
+
+    private final LinkedHashMap<Key, Node> protect = new LinkedHashMap<>();
+
+    private final FrequencySketch sketch;
+
+    private final Map<String, Set<Key>> tags = new LinkedHashMap<>();
+
+    private final LongSupplier ticker;
+
+    private final ToIntFunction<Object> weigher;
+
+    private final LinkedHashMap<Key, Node> window = new LinkedHashMap<>();
+
+    private long protectedWeight;
+
+    private long weight;
+
+    private long windowWeight;
+
+    ResultCache(long maximumWeight, Duration expireAfterWrite, ToIntFunction<Object> weigher, LongSupplier ticker) {
+        this(maximumWeight, expireAfterWrite, weigher, null, ticker);
+    }
+
+    ResultCache(long maximumWeight, Duration expireAfterWrite, ToIntFunction<Object> weigher, @Nullable OffHeapStore offHeapStore, LongSupplier ticker) {
+        this.maximumWeight = maximumWeight;
+        this.maximumWindowWeight = Math.max(1, maximumWeight / 100);
+        this.maximumProtectedWeight = (long) ((maximumWeight - this.maximumWindowWeight) * 0.8);
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        this.weigher = weigher;
+        this.offHeapStore = offHeapStore;
+        this.ticker = ticker;
+        this.sketch = new FrequencySketch(maximumWeight);
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the number of entries that have been evicted to bound the total weight.
+     *
+     * @return the number of entries that have been evicted
+     */
+    public long getEvictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    /**
+     * Returns the number of queries that have been served from the cache.
+     *
+     * @return the number of queries that have been served from the cache
+     */
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * Returns the number of queries that have been executed because they were not in the cache.
+     *
+     * @return the number of queries that have been executed because they were not in the cache
+     */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /**
+     * Returns the number of queries that have been served from the off-heap tier.  These are included in {@link #getHitCount()}.
+     *
+     * @return the number of queries that have been served from the off-heap tier
+     */
+    public long getOffHeapHitCount() {
+        return this.offHeapHitCount.sum();
+    }
+
+    /**
+     * Returns the number of bytes allocated outside of the heap for the off-heap tier.
+     *
+     * @return the number of bytes allocated for the off-heap tier
+     */
+    public long getOffHeapMemory() {
+        return this.offHeapStore == null ? 0 : this.offHeapStore.getAllocated();
+    }
+
+    /**
+     * Returns the number of entries in the off-heap tier, including any that have expired but have not yet been removed.
+     *
+     * @return the number of entries in the off-heap tier
+     */
+    public int getOffHeapSize() {
+        return this.offHeapStore == null ? 0 : this.offHeapStore.getSize();
+    }
+
+    /**
+     * Returns the number of entries on the heap, including any that have expired but have not yet been removed.
+     *
+     * @return the number of entries in the cache
+     */
+    public int getSize() {
+        return this.data.size();
+    }
+
+    /**
+     * Returns the total weight of the entries on the heap.
+     *
+     * @return the total weight of the entries on the heap
+     */
+    public long getWeight() {
+        this.lock.lock();
+        try {
+            return this.weight;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Invalidates every entry that reads from a table.
+     *
+     * @param table the name of the table, without quotes or schema
+     * @throws IllegalArgumentException if {@code table} is {@code null}
+     */
+    public void invalidate(String table) {
+        Assert.requireNonNull(table, "table must not be null");
+
+        String tag = table.toLowerCase(Locale.ROOT);
+        this.generations.computeIfAbsent(tag, t -> new AtomicLong()).incrementAndGet();
+
+        this.lock.lock();
+        try {
+            Set<Key> keys = this.tags.get(tag);
+
+            if (keys != null) {
+                for (Key key : keys.toArray(new Key[0])) {
+                    remove(this.data.get(key));
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (this.offHeapStore != null) {
+            this.offHeapStore.invalidate(tag);
+        }
+    }
+
+    /**
+     * Invalidates every entry.
+     */
+    public void invalidateAll() {
+        this.generation.incrementAndGet();
+
+        if (this.offHeapStore != null) {
+            this.offHeapStore.invalidateAll();
+        }
+
+        this.lock.lock();
+        try {
+            for (Node node : this.data.values().toArray(new Node[0])) {
+                remove(node);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache{" +
+            "evictionCount=" + this.evictionCount +
+            ", expireAfterWriteNanos=" + this.expireAfterWriteNanos +
+            ", hitCount=" + this.hitCount +
+            ", maximumWeight=" + this.maximumWeight +
+            ", missCount=" + this.missCount +
+            ", offHeapHitCount=" + this.offHeapHitCount +
+            ", offHeapStore=" + this.offHeapStore +
+            ", size=" + this.data.size() +
+            '}';
+    }
+
+    /**
+     * Returns the values mapped from the results of a query, from the cache if they are present and otherwise from {@code loader}.  Values from {@code loader} are cached once they have all been
+     * emitted, unless a table that the query reads from is invalidated while it executes.
+     */
+    <T> Flux<T> get(String sql, Object[] parameters, Object mapper, Supplier<? extends Publisher<T>> loader) {
+        return Flux.defer(() -> {
+            Key key = new Key(sql, parameters, mapper);
+            List<T> values = getIfPresent(key);
+
+            if (values != null) {
+                this.hitCount.increment();
+                return Flux.fromIterable(values);
+            }
+
+            this.missCount.increment();
+            return load(key, sql, Flux.from(loader.get()), null);
+        });
+    }
+
+    /**
+     * Returns the values mapped from the rows of a query by {@code f}, from the cache if they are present and otherwise from {@code loader}.  If an off-heap tier is configured, and the values are
+     * not on the heap, the rows are read from the off-heap tier if they are present there, and are decoded and mapped as they are requested.  Rows from {@code loader} are stored in the off-heap
+     * tier as well as their mapped values being cached on the heap.
+     */
+    <T> Flux<T> get(String sql, Object[] parameters, Object mapper, BiFunction<Row, RowMetadata, ? extends T> f,
+                    Function<BiFunction<Row, RowMetadata, ? extends T>, ? extends Publisher<T>> loader) {
+
+        if (this.offHeapStore == null) {
+            return get(sql, parameters, mapper, () -> loader.apply(f));
+        }
+
+        OffHeapStore offHeapStore = this.offHeapStore;
+
+        return Flux.defer(() -> {
+            Key key = new Key(sql, parameters, mapper);
+            List<T> values = getIfPresent(key);
+
+            if (values != null) {
+                this.hitCount.increment();
+                return Flux.fromIterable(values);
+            }
+
+            Flux<T> rows = offHeapStore.read(key, f, this.ticker.getAsLong());
+
+            if (rows != null) {
+                this.hitCount.increment();
+                this.offHeapHitCount.increment();
+                return rows;
+            }
+
+            this.missCount.increment();
+
+            OffHeapStore.Writer writer = offHeapStore.writer();
+            return load(key, sql, Flux.from(loader.apply((row, rowMetadata) -> writer.write(row, rowMetadata, f))), writer);
+        });
+    }
+
+    /**
+     * Returns whether SQL is a plain query, whose results may be cached.
+     *
+     * @see Tables#isSelect(String)
+     */
+    boolean isSelect(String sql) {
+        return this.access.get(sql).isSelect();
+    }
+
+    /**
+     * Returns whether SQL executed as a query may write to tables, and so must invalidate entries.
+     *
+     * @see Tables.Access#isWrite()
+     */
+    boolean isWrite(String sql) {
+        return this.access.get(sql).isWrite();
+    }
+
+    /**
+     * Invalidates every entry that reads from the table that an update writes to, or every entry if that table is not known.
+     */
+    void written(String sql) {
+        Set<String> tables = this.access.get(sql).getWritten();
+
+        if (tables == null) {
+            invalidateAll();
+            return;
+        }
+
+        for (String table : tables) {
+            invalidate(table);
+        }
+    }
+
+    private void admit() {
+        while (this.windowWeight > this.maximumWindowWeight) {
+            Node candidate = first(this.window);
+            this.window.remove(candidate.key);
+            this.windowWeight -= candidate.weight;
+            candidate.queue = PROBATION;
+
+            long maximumMainWeight = this.maximumWeight - this.maximumWindowWeight;
+            long now = this.ticker.getAsLong();
+
+            while (this.weight - this.windowWeight > maximumMainWeight) {
+                Node victim = this.probation.isEmpty() ? first(this.protect) : first(this.probation);
+
+                if (victim == null) {
+                    break;
+                }
+
+                if (!victim.isExpired(now) && this.sketch.frequency(victim.key) >= this.sketch.frequency(candidate.key)) {
+                    evict(candidate);
+                    candidate = null;
+                    break;
+                }
+
+                evict(victim);
+            }
+
+            if (candidate == null) {
+                continue;
+            }
+
+            if (this.weight - this.windowWeight > maximumMainWeight) {
+                evict(candidate);
+            } else {
+                this.probation.put(candidate.key, candidate);
+            }
+        }
+    }
+
+    private <T> Flux<T> load(Key key, String sql, Flux<T> values, @Nullable OffHeapStore.Writer writer) {
+        Set<String> tables = this.access.get(sql).getRead();
+        long generation = getGeneration(tables);
+        Load load = new Load();
+
+        return values
+            .doOnNext(value -> load.add(value, this.weigher.applyAsInt(value), this.maximumWeight))
+            .doOnComplete(() -> {
+                if (getGeneration(tables) != generation) {
+                    return;
+                }
+
+                if (load.values != null) {
+                    put(key, tables, load.values, Math.max(1, load.weight));
+                }
+
+                if (writer != null) {
+                    writer.commit(key, tables, this.ticker.getAsLong() + this.expireAfterWriteNanos);
+                }
+            });
+    }
+
+    private void evict(Node node) {
+        remove(node);
+        this.evictionCount.increment();
+    }
+
+    private long getGeneration(Set<String> tables) {
+        long generation = this.generation.get();
+
+        for (String table : tables) {
+            AtomicLong tableGeneration = this.generations.get(table);
+
+            if (tableGeneration != null) {
+                generation += tableGeneration.get();
+            }
+        }
+
+        return generation;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <T> List<T> getIfPresent(Key key) {
+        Node node = this.data.get(key);
+
+        if (node != null && node.isExpired(this.ticker.getAsLong())) {
+            this.lock.lock();
+            try {
+                remove(node);
+            } finally {
+                this.lock.unlock();
+            }
+
+            node = null;
+        }
+
+        if (this.lock.tryLock()) {
+            try {
+                this.sketch.increment(key);
+
+                if (node != null && this.data.get(key) == node) {
+                    onAccess(node);
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        return node == null ? null : (List<T>) node.values;
+    }
+
+    private void onAccess(Node node) {
+        if (node.queue == WINDOW) {
+            this.window.remove(node.key);
+            this.window.put(node.key, node);
+        } else if (node.queue == PROTECTED) {
+            this.protect.remove(node.key);
+            this.protect.put(node.key, node);
+        } else {
+            this.probation.remove(node.key);
+            node.queue = PROTECTED;
+            this.protect.put(node.key, node);
+            this.protectedWeight += node.weight;
+
+            while (this.protectedWeight > this.maximumProtectedWeight) {
+                Node demoted = first(this.protect);
+                this.protect.remove(demoted.key);
+                this.protectedWeight -= demoted.weight;
+
+                demoted.queue = PROBATION;
+                this.probation.put(demoted.key, demoted);
+            }
+        }
+    }
+
+    private void put(Key key, Set<String> tables, List<?> values, long weight) {
+        Node node = new Node(key, tables, values, weight, this.ticker.getAsLong() + this.expireAfterWriteNanos);
+
+        this.lock.lock();
+        try {
+            remove(this.data.get(key));
+
+            this.data.put(key, node);
+            this.window.put(key, node);
+            this.windowWeight += weight;
+            this.weight += weight;
+
+            for (String table : tables) {
+                this.tags.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+            }
+
+            admit();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void remove(@Nullable Node node) {
+        if (node == null || !this.data.remove(node.key, node)) {
+            return;
+        }
+
+        this.weight -= node.weight;
+
+        if (node.queue == WINDOW) {
+            this.window.remove(node.key);
+            this.windowWeight -= node.weight;
+        } else if (node.queue == PROTECTED) {
+            this.protect.remove(node.key);
+            this.protectedWeight -= node.weight;
+        } else {
+            this.probation.remove(node.key);
+        }
+
+        for (String table : node.tables) {
+            Set<Key> keys = this.tags.get(table);
+
+            if (keys != null && keys.remove(node.key) && keys.isEmpty()) {
+                this.tags.remove(table);
+            }
+        }
+    }
+
+    @Nullable
+    private static Node first(LinkedHashMap<Key, Node> queue) {
+        Iterator<Node> iterator = queue.values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * A builder for {@link ResultCache} instances.
+     */
+    public static final class Builder {
+
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+
+        private long maximumOffHeapSize;
+
+        private long maximumWeight = 10_000;
+
+        private int offHeapSegmentSize = 1 << 20;
+
+        private ToIntFunction<Object> weigher = value -> 1;
+
+        private Builder() {
+        }
+
+        /**
+         * Returns a configured {@link ResultCache}.
+         *
+         * @return a configured {@link ResultCache}
+         */
+        public ResultCache build() {
+            OffHeapStore offHeapStore = this.maximumOffHeapSize == 0 ? null : new OffHeapStore(this.maximumOffHeapSize, (int) Math.min(this.offHeapSegmentSize, this.maximumOffHeapSize));
+
+            return new ResultCache(this.maximumWeight, this.expireAfterWrite, this.weigher, offHeapStore, System::nanoTime);
+        }
+
+        /**
+         * Configure how long an entry is cached after it is written.  Defaults to {@code 5} minutes.
+         *
+         * @param expireAfterWrite how long an entry is cached after it is written
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code expireAfterWrite} is {@code null}, zero, or negative
+         */
+        public Builder expireAfterWrite(Duration expireAfterWrite) {
+            Assert.requireNonNull(expireAfterWrite, "expireAfterWrite must not be null");
+            Assert.isTrue(!expireAfterWrite.isNegative() && !expireAfterWrite.isZero(), "expireAfterWrite must be positive");
+
+            this.expireAfterWrite = expireAfterWrite;
+            return this;
+        }
+
+        /**
+         * Configure the maximum number of bytes allocated outside of the heap for the off-heap tier.  When configured, the rows of queries mapped with
+         * {@link ResultBearing#mapRow(java.util.function.Function)} or {@link ResultBearing#mapRow(java.util.function.BiFunction)} are also stored as compact serialized records in direct
+         * {@link java.nio.ByteBuffer}s.  A query whose values are not on the heap is then served from these records, decoding and mapping each row as it is requested.  Only rows whose values are
+         * {@code null}, primitive wrappers, {@link String}, {@code byte[]}, {@link java.math.BigDecimal}, {@link java.math.BigInteger}, {@link java.util.UUID}, or {@code java.time} dates and times are
+         * stored.  Defaults to {@code 0}, which disables the off-heap tier.
+         *
+         * @param maximumOffHeapSize the maximum number of bytes allocated for the off-heap tier
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maximumOffHeapSize} is negative
+         */
+        public Builder maximumOffHeapSize(long maximumOffHeapSize) {
+            Assert.isTrue(maximumOffHeapSize >= 0, "maximumOffHeapSize must not be negative");
+
+            this.maximumOffHeapSize = maximumOffHeapSize;
+            return this;
+        }
+
+        /**
+         * Configure the maximum total weight of the entries in the cache.  An entry whose weight alone exceeds the maximum is not cached.  Defaults to {@code 10000}.
+         *
+         * @param maximumWeight the maximum total weight of the entries in the cache
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maximumWeight} is less than one
+         */
+        public Builder maximumWeight(long maximumWeight) {
+            Assert.isTrue(maximumWeight > 0, "maximumWeight must be greater than zero");
+
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Configure the number of bytes in each segment of the off-heap tier.  Segments are allocated as they are needed, and when the tier is full, the oldest segment is reclaimed along with every
+         * entry stored in it.  A single row larger than a segment is not stored.  Defaults to {@code 1} MiB.
+         *
+         * @param offHeapSegmentSize the number of bytes in each segment of the off-heap tier
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code offHeapSegmentSize} is less than one
+         */
+        public Builder offHeapSegmentSize(int offHeapSegmentSize) {
+            Assert.isTrue(offHeapSegmentSize > 0, "offHeapSegmentSize must be greater than zero");
+
+            this.offHeapSegmentSize = offHeapSegmentSize;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Builder{" +
+                "expireAfterWrite=" + this.expireAfterWrite +
+                ", maximumOffHeapSize=" + this.maximumOffHeapSize +
+                ", maximumWeight=" + this.maximumWeight +
+                ", offHeapSegmentSize=" + this.offHeapSegmentSize +
+                ", weigher=" + this.weigher +
+                '}';
+        }
+
+        /**
+         * Configure the weight of each mapped value.  The weight of an entry is the sum of the weights of its values, and at least one.  Defaults to one per value.
+         *
+         * @param weigher a {@link ToIntFunction} that returns the weight of a mapped value
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code weigher} is {@code null}
+         */
+        public Builder weigher(ToIntFunction<Object> weigher) {
+            this.weigher = Assert.requireNonNull(weigher, "weigher must not be null");
+            return this;
+        }
+
+    }
+
+    private static final class Load {
+
+        @Nullable
+        private List<Object> values = new ArrayList<>();
+
+        private long weight;
+
+        private void add(Object value, int weight, long maximumWeight) {
+            if (this.values == null) {
+                return;
+            }
+
+            this.weight += weight;
+
+            if (this.weight > maximumWeight) {
+                this.values = null;
+            } else {
+                this.values.add(value);
+            }
+        }
+
+    }
+
+    private static final class Key {
+
+        private final int hashCode;
+
+        private final Object mapper;
+
+        private final Object[] parameters;
+
+        private final String sql;
+
+        private Key(String sql, Object[] parameters, Object mapper) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.mapper = mapper;
+            this.hashCode = 31 * (31 * sql.hashCode() + Arrays.deepHashCode(parameters)) + System.identityHashCode(mapper);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key that = (Key) o;
+            return this.mapper == that.mapper &&
+                this.sql.equals(that.sql) &&
+                Arrays.deepEquals(this.parameters, that.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "Key{" +
+                "mapper=" + this.mapper +
+                ", parameters=" + Arrays.toString(this.parameters) +
+                ", sql='" + this.sql + '\'' +
+                '}';
+        }
+
+    }
+
+    private static final class Node {
+
+        private final long expiresAt;
+
+        private final Key key;
+
+        private final Set<String> tables;
+
+        private final List<?> values;
+
+        private final long weight;
+
+        private int queue = WINDOW;
+
+        private Node(Key key, Set<String> tables, List<?> values, long weight, long expiresAt) {
+            this.key = key;
+            this.tables = tables;
+            this.values = values;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public String toString() {
+            return "Node{" +
+                "key=" + this.key +
+                ", queue=" + this.queue +
+                ", weight=" + this.weight +
+                '}';
+        }
+
+        private boolean isExpired(long now) {
+            return now - this.expiresAt >= 0;
+        }
+
+    }
+
+}
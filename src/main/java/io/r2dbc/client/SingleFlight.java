@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.util.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent identical queries into a single execution.  A query is identified by its SQL, its parameters, and the function used to map its results.  While a query is executing,
+ * further subscriptions to an identical query share its execution, and each receives every mapped result.  Once the execution terminates, the next identical query executes again.
+ * <p>
+ * Queries run in read-only units of work, so they are routed to replicas if any are configured.  Mapping functions are compared with {@link Object#equals(Object)}, so identical queries must share
+ * the same mapping function instance, for example a constant or a method reference held in a field.
+ */
+public final class SingleFlight {
+
+    private final LongAdder collapsedCount = new LongAdder();
+
+    private final LongAdder executionCount = new LongAdder();
+
+    private final ConcurrentMap<Key, Flux<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final R2dbc r2dbc;
+
+    /**
+     * Create a new instance of {@link SingleFlight}.
+     *
+     * @param r2dbc the {@link R2dbc} used to execute queries
+     * @throws IllegalArgumentException if {@code r2dbc} is {@code null}
+     */
+    public SingleFlight(R2dbc r2dbc) {
+        this.r2dbc = Assert.requireNonNull(r2dbc, "r2dbc must not be null");
+    }
+
+    /**
+     * Returns the number of queries that shared an execution that was already in flight.
+     *
+     * @return the number of queries that shared an execution that was already in flight
+     */
+    public long getCollapsedCount() {
+        return this.collapsedCount.sum();
+    }
+
+    /**
+     * Returns the number of executions against the database.
+     *
+     * @return the number of executions against the database
+     */
+    public long getExecutionCount() {
+        return this.executionCount.sum();
+    }
+
+    /**
+     * Returns the number of executions currently in flight.
+     *
+     * @return the number of executions currently in flight
+     */
+    public int getInFlightCount() {
+        return this.inFlight.size();
+    }
+
+    /**
+     * Prepare a query that shares its execution with concurrent identical queries.  The query executes when the result of one of the mapping methods is subscribed to.
+     *
+     * @param sql        the SQL of the query
+     * @param parameters the parameters to bind, by index
+     * @return a {@link ResultBearing} that executes the query
+     * @throws IllegalArgumentException if {@code sql} or {@code parameters} is {@code null}
+     */
+    public ResultBearing select(String sql, Object... parameters) {
+        Assert.requireNonNull(sql, "sql must not be null");
+        Assert.requireNonNull(parameters, "parameters must not be null");
+
+        return new CollapsedQuery(sql, parameters.clone());
+    }
+
+    @Override
+    public String toString() {
+        return "SingleFlight{" +
+            "collapsedCount=" + this.collapsedCount +
+            ", executionCount=" + this.executionCount +
+            ", inFlight=" + this.inFlight.size() +
+            ", r2dbc=" + this.r2dbc +
+            '}';
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Flux<T> collapse(Key key, Function<Query, Flux<T>> f) {
+        return Flux.defer(() -> {
+            Flux<?> existing = this.inFlight.get(key);
+
+            if (existing == null) {
+                Flux<T> execution = this.r2dbc
+                    .<T>withReadOnlyHandle(handle -> f.apply(handle.select(key.sql, key.parameters)))
+                    .doFinally(signal -> this.inFlight.remove(key))
+                    .cache();
+
+                existing = this.inFlight.putIfAbsent(key, execution);
+
+                if (existing == null) {
+                    this.executionCount.increment();
+                    return execution;
+                }
+            }
+
+            this.collapsedCount.increment();
+            return (Flux<T>) existing;
+        });
+    }
+
+    private final class CollapsedQuery implements ResultBearing {
+
+        private final Object[] parameters;
+
+        private final String sql;
+
+        private CollapsedQuery(String sql, Object[] parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public <T> Flux<T> mapResult(Function<Result, ? extends Publisher<? extends T>> f) {
+            Assert.requireNonNull(f, "f must not be null");
+
+            return collapse(new Key(this.sql, this.parameters, f), query -> query.mapResult(f));
+        }
+
+        @Override
+        public <T> Flux<T> mapRow(BiFunction<Row, RowMetadata, ? extends T> f) {
+            Assert.requireNonNull(f, "f must not be null");
+
+            return collapse(new Key(this.sql, this.parameters, f), query -> query.mapRow(f));
+        }
+
+        @Override
+        public <T> Flux<T> mapRow(Function<Row, ? extends T> f) {
+            Assert.requireNonNull(f, "f must not be null");
+
+            return collapse(new Key(this.sql, this.parameters, f), query -> query.mapRow(f));
+        }
+
+        @Override
+        public String toString() {
+            return "CollapsedQuery{" +
+                "parameters=" + Arrays.toString(this.parameters) +
+                ", sql='" + this.sql + '\'' +
+                '}';
+        }
+
+    }
+
+    private static final class Key {
+
+        private final Object mapper;
+
+        private final Object[] parameters;
+
+        private final String sql;
+
+        private Key(String sql, Object[] parameters, Object mapper) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key that = (Key) o;
+            return this.sql.equals(that.sql) &&
+                Arrays.deepEquals(this.parameters, that.parameters) &&
+                this.mapper.equals(that.mapper);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.sql, Arrays.deepHashCode(this.parameters), this.mapper);
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A bounded, concurrent cache of values derived from SQL strings.  When the cache is full, an arbitrary entry is evicted to make room.
+ *
+ * @param <V> the type of cached value
+ */
+final class SqlCache<V> {
+
+    private final ConcurrentMap<String, V> cache = new ConcurrentHashMap<>();
+
+    private final Function<String, ? extends V> loader;
+
+    private final int maximumSize;
+
+    SqlCache(int maximumSize, Function<String, ? extends V> loader) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be greater than zero");
+
+        this.loader = Assert.requireNonNull(loader, "loader must not be null");
+        this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlCache{" +
+            "maximumSize=" + this.maximumSize +
+            ", size=" + this.cache.size() +
+            '}';
+    }
+
+    V get(String sql) {
+        V value = this.cache.get(sql);
+
+        if (value != null) {
+            return value;
+        }
+
+        value = this.loader.apply(sql);
+
+        if (this.cache.size() >= this.maximumSize) {
+            Iterator<String> keys = this.cache.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+
+        V existing = this.cache.putIfAbsent(sql, value);
+        return existing == null ? value : existing;
+    }
+
+    int size() {
+        return this.cache.size();
+    }
+
+}
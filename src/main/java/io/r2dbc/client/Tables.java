@@ -0,0 +1,336 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import reactor.util.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the tables that SQL reads from or writes to.  Table names are lower case, without quotes or schema.  This is a lexical approximation rather than a full parse: it finds every table named
+ * after {@code FROM} or {@code JOIN} in a query, and the target of an {@code INSERT}, {@code UPDATE}, {@code DELETE}, {@code MERGE}, or {@code TRUNCATE}.
+ */
+final class Tables {
+
+    private Tables() {
+    }
+
+    /**
+     * Returns how SQL accesses tables, tokenizing it once.
+     *
+     * @param sql the SQL
+     * @return how the SQL accesses tables
+     */
+    static Access access(String sql) {
+        List<String> tokens = tokenize(sql);
+        boolean select = isSelect(tokens);
+
+        return new Access(read(tokens), select, !select && !tokens.isEmpty() && !"select".equals(tokens.get(0)), written(tokens));
+    }
+
+    /**
+     * Returns whether SQL is a plain query, a {@code SELECT} or a {@code WITH ... SELECT}, that cannot write or lock rows.  Any SQL that mentions a write, {@code SELECT ... INTO}, or a locking clause
+     * such as {@code FOR UPDATE}, is not a plain query.
+     *
+     * @param sql the SQL
+     * @return {@code true} if the SQL is a plain query
+     */
+    static boolean isSelect(String sql) {
+        return isSelect(tokenize(sql));
+    }
+
+    /**
+     * Returns the tables that a query reads from.
+     *
+     * @param sql the SQL of the query
+     * @return the tables that the query reads from
+     */
+    static Set<String> read(String sql) {
+        return read(tokenize(sql));
+    }
+
+    /**
+     * Returns the table that an update writes to.
+     *
+     * @param sql the SQL of the update
+     * @return the table that the update writes to, or {@code null} if it is not known
+     */
+    @Nullable
+    static Set<String> written(String sql) {
+        return written(tokenize(sql));
+    }
+
+    private static boolean isSelect(List<String> tokens) {
+        if (tokens.isEmpty() || (!"select".equals(tokens.get(0)) && !"with".equals(tokens.get(0)))) {
+            return false;
+        }
+
+        for (String token : tokens) {
+            if (isWrite(token)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Set<String> read(List<String> tokens) {
+        Set<String> tables = new LinkedHashSet<>();
+
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            String token = tokens.get(i);
+
+            if (!"from".equals(token) && !"join".equals(token)) {
+                continue;
+            }
+
+            int j = i + 1;
+            while (j < tokens.size() && isName(tokens.get(j))) {
+                tables.add(getTable(tokens.get(j)));
+
+                j = skipAlias(tokens, j + 1);
+                if (j >= tokens.size() || !",".equals(tokens.get(j)) || !"from".equals(token)) {
+                    break;
+                }
+                j++;
+            }
+        }
+
+        return tables;
+    }
+
+    @Nullable
+    private static Set<String> written(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        int i;
+        switch (tokens.get(0)) {
+            case "delete":
+            case "insert":
+            case "merge":
+            case "replace":
+                i = tokens.size() > 1 && ("into".equals(tokens.get(1)) || "from".equals(tokens.get(1))) ? 2 : 1;
+                break;
+            case "truncate":
+                i = tokens.size() > 1 && "table".equals(tokens.get(1)) ? 2 : 1;
+                break;
+            case "update":
+                i = 1;
+                break;
+            default:
+                return null;
+        }
+
+        if (i < tokens.size() - 1 && "only".equals(tokens.get(i))) {
+            i++;
+        }
+
+        if (i >= tokens.size() || !isName(tokens.get(i))) {
+            return null;
+        }
+
+        return Collections.singleton(getTable(tokens.get(i)));
+    }
+
+    private static String getTable(String name) {
+        int dot = name.lastIndexOf('.');
+        return (dot < 0 ? name : name.substring(dot + 1)).replace("\"", "");
+    }
+
+    private static boolean isName(String token) {
+        char c = token.charAt(0);
+        return c == '"' || ParsedSql.isIdentifierStart(c);
+    }
+
+    private static int skipAlias(List<String> tokens, int i) {
+        if (i < tokens.size() && "as".equals(tokens.get(i))) {
+            i++;
+        }
+
+        if (i < tokens.size() && isName(tokens.get(i)) && !isKeyword(tokens.get(i))) {
+            i++;
+        }
+
+        return i;
+    }
+
+    private static boolean isKeyword(String token) {
+        switch (token) {
+            case "cross":
+            case "full":
+            case "group":
+            case "having":
+            case "inner":
+            case "join":
+            case "left":
+            case "limit":
+            case "natural":
+            case "offset":
+            case "on":
+            case "order":
+            case "right":
+            case "union":
+            case "using":
+            case "where":
+            case "window":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isWrite(String token) {
+        switch (token) {
+            case "call":
+            case "delete":
+            case "for":
+            case "insert":
+            case "into":
+            case "merge":
+            case "replace":
+            case "truncate":
+            case "update":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Splits SQL into lower case words, where a word may be a quoted or schema-qualified name, and single punctuation characters.  Literals and comments are dropped.
+     */
+    private static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<>();
+
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+
+            if (c == '"' || ParsedSql.isIdentifierStart(c)) {
+                int start = i;
+                do {
+                    if (sql.charAt(i) == '"') {
+                        i = ParsedSql.skip(sql, i);
+                    } else {
+                        while (i < sql.length() && (ParsedSql.isIdentifierPart(sql.charAt(i)) || sql.charAt(i) == '$')) {
+                            i++;
+                        }
+                    }
+                } while (i + 1 < sql.length() && sql.charAt(i) == '.' && (sql.charAt(i + 1) == '"' || ParsedSql.isIdentifierStart(sql.charAt(i + 1))) && ++i > 0);
+
+                tokens.add(sql.substring(start, i).toLowerCase(Locale.ROOT));
+                continue;
+            }
+
+            int end = ParsedSql.skip(sql, i);
+            if (end > i) {
+                i = end;
+                continue;
+            }
+
+            if (!Character.isWhitespace(c)) {
+                tokens.add(String.valueOf(c));
+            }
+
+            i++;
+        }
+
+        return tokens;
+    }
+
+    /**
+     * How SQL accesses tables.
+     */
+    static final class Access {
+
+        private final Set<String> read;
+
+        private final boolean select;
+
+        private final boolean write;
+
+        @Nullable
+        private final Set<String> written;
+
+        private Access(Set<String> read, boolean select, boolean write, @Nullable Set<String> written) {
+            this.read = read;
+            this.select = select;
+            this.write = write;
+            this.written = written;
+        }
+
+        @Override
+        public String toString() {
+            return "Access{" +
+                "read=" + this.read +
+                ", select=" + this.select +
+                ", write=" + this.write +
+                ", written=" + this.written +
+                '}';
+        }
+
+        /**
+         * Returns the tables that the SQL reads from.
+         *
+         * @return the tables that the SQL reads from
+         * @see Tables#read(String)
+         */
+        Set<String> getRead() {
+            return this.read;
+        }
+
+        /**
+         * Returns the table that the SQL writes to.
+         *
+         * @return the table that the SQL writes to, or {@code null} if it is not known
+         * @see Tables#written(String)
+         */
+        @Nullable
+        Set<String> getWritten() {
+            return this.written;
+        }
+
+        /**
+         * Returns whether the SQL is a plain query.
+         *
+         * @return {@code true} if the SQL is a plain query
+         * @see Tables#isSelect(String)
+         */
+        boolean isSelect() {
+            return this.select;
+        }
+
+        /**
+         * Returns whether the SQL may write to tables: it is neither a plain query nor any other {@code SELECT}.  This is true of DML such as {@code UPDATE ... RETURNING}, of
+         * {@code WITH} containing DML, of {@code CALL}, and of DDL.
+         *
+         * @return {@code true} if the SQL may write to tables
+         */
+        boolean isWrite() {
+            return this.write;
+        }
+
+    }
+
+}
@@ -19,19 +19,61 @@ package io.r2dbc.client;
 import io.r2dbc.client.util.Assert;
 import io.r2dbc.spi.Result;
 import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
 
-import java.util.Objects;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  * A wrapper for a {@link Statement} providing additional convenience APIs for running updates such as {@code INSERT} and {@code DELETE}.
  */
 public final class Update {
 
-    private final Statement<?> statement;
+    private static final int DEFAULT_CHUNK_SIZE = 1_000;
+
+    private static final int DEFAULT_CONCURRENCY = 1;
+
+    @Nullable
+    private final InsertRewriter insertRewriter;
+
+    @Nullable
+    private final Runnable onExecute;
+
+    @Nullable
+    private final ParsedSql parsedSql;
+
+    @Nullable
+    private final String sql;
+
+    @Nullable
+    private final Function<String, Statement<?>> statementFactory;
+
+    @Nullable
+    private Statement<?> statement;
 
     Update(Statement<?> statement) {
+        this(statement, null);
+    }
+
+    Update(Statement<?> statement, @Nullable ParsedSql parsedSql) {
         this.statement = Assert.requireNonNull(statement, "statement must not be null");
+        this.parsedSql = parsedSql;
+        this.insertRewriter = null;
+        this.onExecute = null;
+        this.sql = null;
+        this.statementFactory = null;
+    }
+
+    Update(Function<String, Statement<?>> statementFactory, String sql, @Nullable ParsedSql parsedSql, @Nullable InsertRewriter insertRewriter, @Nullable Runnable onExecute) {
+        this.statementFactory = Assert.requireNonNull(statementFactory, "statementFactory must not be null");
+        this.sql = Assert.requireNonNull(sql, "sql must not be null");
+        this.parsedSql = parsedSql;
+        this.insertRewriter = insertRewriter;
+        this.onExecute = onExecute;
     }
 
     /**
@@ -40,12 +82,12 @@ public final class Update {
      * @return this {@link Statement}
      */
     public Update add() {
-        this.statement.add();
+        getStatement().add();
         return this;
     }
 
     /**
-     * Bind a value.
+     * Bind a value.  If this was created with named parameters enabled, and {@code identifier} is the name of a parameter, the value is bound to every placeholder for that parameter.
      *
      * @param identifier the identifier to bind to
      * @param value      the value to bind
@@ -56,12 +98,18 @@ public final class Update {
         Assert.requireNonNull(identifier, "identifier must not be null");
         Assert.requireNonNull(value, "value must not be null");
 
-        this.statement.bind(identifier, value);
+        Statement<?> statement = getStatement();
+
+        if (this.parsedSql != null && identifier instanceof String && this.parsedSql.bind(statement, (String) identifier, value)) {
+            return this;
+        }
+
+        statement.bind(identifier, value);
         return this;
     }
 
     /**
-     * Bind a {@code null} value.
+     * Bind a {@code null} value.  If this was created with named parameters enabled, and {@code identifier} is the name of a parameter, the value is bound to every placeholder for that parameter.
      *
      * @param identifier the identifier to bind to
      * @param type       the type of null value
@@ -72,33 +120,137 @@ public final class Update {
         Assert.requireNonNull(identifier, "identifier must not be null");
         Assert.requireNonNull(type, "type must not be null");
 
-        this.statement.bindNull(identifier, type);
+        Statement<?> statement = getStatement();
+
+        if (this.parsedSql != null && identifier instanceof String && this.parsedSql.bindNull(statement, (String) identifier, type)) {
+            return this;
+        }
+
+        statement.bindNull(identifier, type);
         return this;
     }
 
     /**
      * Executes the update and returns the number of rows that were updated.
      *
-     * @return the number of rows that were updated
+     * @return the number of rows that were updated by each binding, in the order of the bindings
      */
     public Flux<Integer> execute() {
-        return Flux
-            .from(this.statement.execute())
-            .flatMap(Result::getRowsUpdated);
+        Flux<Integer> rowsUpdated = Flux
+            .from(getStatement().execute())
+            .concatMap(Result::getRowsUpdated);
+
+        return withOnExecute(rowsUpdated);
+    }
+
+    /**
+     * Executes the update once for every tuple of parameters, in chunks of up to 1000 tuples, one chunk at a time.
+     *
+     * @param parameters a {@link Publisher} of tuples of parameters, each bound by index
+     * @return the number of rows that were updated by each chunk, in the order of the chunks
+     * @throws IllegalArgumentException if {@code parameters} is {@code null}
+     * @see #executeMany(Publisher, int, int)
+     */
+    public Flux<Integer> executeMany(Publisher<Object[]> parameters) {
+        return executeMany(parameters, DEFAULT_CHUNK_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Executes the update once for every tuple of parameters.  Tuples are consumed with backpressure and collected into chunks, and each chunk is bound to a new statement with the same SQL and
+     * executed.  At most {@code chunkSize * concurrency} tuples are held in memory at once.  Bindings already made on this update are not executed.
+     * <p>
+     * If inserts are rewritten, and this is a single-row {@code INSERT ... VALUES (...)}, each chunk is executed as a single multi-row {@code INSERT}, with a single binding.  Chunks are then limited to
+     * the maximum number of rows per statement.
+     *
+     * @param parameters  a {@link Publisher} of tuples of parameters, each bound by index
+     * @param chunkSize   the maximum number of tuples to execute in a single statement
+     * @param concurrency the maximum number of chunks executing at once
+     * @return the number of rows that were updated by each chunk, in the order of the chunks
+     * @throws IllegalArgumentException if {@code parameters} is {@code null}, or {@code chunkSize} or {@code concurrency} is not positive
+     * @throws IllegalStateException    if this update cannot create a new statement for each chunk
+     */
+    public Flux<Integer> executeMany(Publisher<Object[]> parameters, int chunkSize, int concurrency) {
+        Assert.requireNonNull(parameters, "parameters must not be null");
+        Assert.isTrue(chunkSize > 0, "chunkSize must be greater than zero");
+        Assert.isTrue(concurrency > 0, "concurrency must be greater than zero");
+
+        Function<String, Statement<?>> statementFactory = this.statementFactory;
+        String sql = this.sql;
+        if (statementFactory == null || sql == null) {
+            throw new IllegalStateException("Update cannot create a statement for each chunk");
+        }
+
+        InsertRewriter insertRewriter = this.insertRewriter;
+        IntFunction<Statement<?>> chunkFactory = insertRewriter == null ? rows -> statementFactory.apply(sql) : rows -> statementFactory.apply(insertRewriter.getSql(rows));
+        int rows = insertRewriter == null ? chunkSize : Math.min(chunkSize, insertRewriter.getRowsPerStatement());
+
+        Flux<Integer> rowsUpdated = Flux.from(parameters)
+            .buffer(rows)
+            .flatMapSequential(chunk -> execute(chunkFactory.apply(chunk.size()), chunk), concurrency, 1);
+
+        return withOnExecute(rowsUpdated);
     }
 
     @Override
     public String toString() {
         return "Update{" +
-            "statement=" + this.statement +
+            "insertRewriter=" + this.insertRewriter +
+            ", parsedSql=" + this.parsedSql +
+            ", sql='" + this.sql + '\'' +
+            ", statement=" + this.statement +
             '}';
     }
 
     Update bind(int index, Object value) {
         Assert.requireNonNull(value, "value must not be null");
 
-        this.statement.bind(index, value);
+        getStatement().bind(index, value);
         return this;
     }
 
+    private Mono<Integer> execute(Statement<?> statement, List<Object[]> chunk) {
+        for (int row = 0; row < chunk.size(); row++) {
+            Object[] tuple = chunk.get(row);
+            int offset = 0;
+
+            if (this.insertRewriter != null) {
+                if (tuple.length != this.insertRewriter.getParameterCount()) {
+                    throw new IllegalArgumentException(String.format("parameters must contain %d values", this.insertRewriter.getParameterCount()));
+                }
+
+                offset = row * tuple.length;
+            }
+
+            for (int i = 0; i < tuple.length; i++) {
+                statement.bind(offset + i, Assert.requireNonNull(tuple[i], "value must not be null"));
+            }
+
+            if (this.insertRewriter == null) {
+                statement.add();
+            }
+        }
+
+        if (this.insertRewriter != null) {
+            statement.add();
+        }
+
+        return Flux
+            .from(statement.execute())
+            .flatMap(Result::getRowsUpdated)
+            .reduce(0, Integer::sum);
+    }
+
+    private Statement<?> getStatement() {
+        if (this.statement == null) {
+            this.statement = this.statementFactory.apply(this.sql);
+        }
+
+        return this.statement;
+    }
+
+    private Flux<Integer> withOnExecute(Flux<Integer> rowsUpdated) {
+        Runnable onExecute = this.onExecute;
+        return onExecute == null ? rowsUpdated : rowsUpdated.doFinally(signal -> onExecute.run());
+    }
+
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.client.util.Assert;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent single-row updates with the same SQL into a single execution.  The first update for some SQL opens a window; updates with the same SQL that arrive before the window
+ * closes, or before the maximum number of updates is reached, are executed together as a single {@link Update} with a binding for each.  Each caller receives the number of rows updated by its
+ * own binding.
+ * <p>
+ * Coalescing trades a short delay for fewer round trips to the database.  Coalesced updates run in a single unit of work outside of any transaction, and an update still executes if its caller
+ * cancels after it has been queued.  If the execution fails, every coalesced update fails with the same error.
+ */
+public final class WriteCoalescer {
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    private final LongAdder executionCount = new LongAdder();
+
+    private final int maxSize;
+
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    private final R2dbc r2dbc;
+
+    private final long windowNanos;
+
+    private WriteCoalescer(R2dbc r2dbc, int maxSize, Duration window) {
+        this.r2dbc = r2dbc;
+        this.maxSize = maxSize;
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Execute a single-row update, coalesced with concurrent updates with the same SQL.
+     *
+     * @param sql        the SQL of the update
+     * @param parameters the parameters to bind, by index
+     * @return the number of rows updated by this update
+     * @throws IllegalArgumentException if {@code sql} or {@code parameters} is {@code null}, or {@code parameters} contains {@code null}
+     */
+    public Mono<Integer> execute(String sql, Object... parameters) {
+        Assert.requireNonNull(sql, "sql must not be null");
+        Assert.requireNonNull(parameters, "parameters must not be null");
+
+        for (Object parameter : parameters) {
+            Assert.requireNonNull(parameter, "parameters must not contain null");
+        }
+
+        Object[] copy = parameters.clone();
+        return Mono.create(sink -> enqueue(sql, new Entry(copy, sink)));
+    }
+
+    /**
+     * Returns the number of updates that have been coalesced.
+     *
+     * @return the number of updates that have been coalesced
+     */
+    public long getCoalescedCount() {
+        return this.coalescedCount.sum();
+    }
+
+    /**
+     * Returns the number of executions against the database.
+     *
+     * @return the number of executions against the database
+     */
+    public long getExecutionCount() {
+        return this.executionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "WriteCoalescer{" +
+            "coalescedCount=" + this.coalescedCount +
+            ", executionCount=" + this.executionCount +
+            ", maxSize=" + this.maxSize +
+            ", r2dbc=" + this.r2dbc +
+            ", windowNanos=" + this.windowNanos +
+            '}';
+    }
+
+    private void enqueue(String sql, Entry entry) {
+        while (true) {
+            Window window = this.windows.computeIfAbsent(sql, Window::new);
+            List<Entry> full = null;
+            boolean first;
+
+            synchronized (window) {
+                if (window.entries == null) {
+                    this.windows.remove(sql, window);
+                    continue;
+                }
+
+                first = window.entries.isEmpty();
+                window.entries.add(entry);
+
+                if (window.entries.size() >= this.maxSize) {
+                    full = window.close();
+                }
+            }
+
+            this.coalescedCount.increment();
+
+            if (full != null) {
+                this.windows.remove(sql, window);
+                execute(sql, full);
+            } else if (first) {
+                Schedulers.parallel().schedule(() -> flush(window), this.windowNanos, TimeUnit.NANOSECONDS);
+            }
+
+            return;
+        }
+    }
+
+    private void execute(String sql, List<Entry> entries) {
+        this.executionCount.increment();
+
+        this.r2dbc
+            .withHandle(handle -> {
+                Update update = handle.createUpdate(sql);
+
+                for (Entry entry : entries) {
+                    for (int i = 0; i < entry.parameters.length; i++) {
+                        update.bind(i, entry.parameters[i]);
+                    }
+
+                    update.add();
+                }
+
+                return update.execute();
+            })
+            .collectList()
+            .subscribe(counts -> {
+                for (int i = 0; i < entries.size(); i++) {
+                    if (i < counts.size()) {
+                        entries.get(i).sink.success(counts.get(i));
+                    } else {
+                        entries.get(i).sink.error(new IllegalStateException(String.format("Update returned %d row counts for %d bindings", counts.size(), entries.size())));
+                    }
+                }
+            }, t -> entries.forEach(entry -> entry.sink.error(t)));
+    }
+
+    private void flush(Window window) {
+        List<Entry> entries;
+
+        synchronized (window) {
+            entries = window.close();
+        }
+
+        this.windows.remove(window.sql, window);
+
+        if (entries != null) {
+            execute(window.sql, entries);
+        }
+    }
+
+    /**
+     * A builder for {@link WriteCoalescer} instances.
+     * <p>
+     * <i>This class is not threadsafe</i>
+     */
+    public static final class Builder {
+
+        private int maxSize = 100;
+
+        @Nullable
+        private R2dbc r2dbc;
+
+        private Duration window = Duration.ofMillis(1);
+
+        private Builder() {
+        }
+
+        /**
+         * Returns a configured {@link WriteCoalescer}.
+         *
+         * @return a configured {@link WriteCoalescer}
+         * @throws IllegalArgumentException if {@code r2dbc} has not been configured
+         */
+        public WriteCoalescer build() {
+            Assert.requireNonNull(this.r2dbc, "r2dbc must not be null");
+
+            return new WriteCoalescer(this.r2dbc, this.maxSize, this.window);
+        }
+
+        /**
+         * Configure the maximum number of updates coalesced into a single execution.  A window is executed as soon as it holds this many updates.  Defaults to {@code 100}.
+         *
+         * @param maxSize the maximum number of updates coalesced into a single execution
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maxSize} is less than one
+         */
+        public Builder maxSize(int maxSize) {
+            Assert.isTrue(maxSize > 0, "maxSize must be greater than zero");
+
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Configure the {@link R2dbc} used to execute updates.
+         *
+         * @param r2dbc the {@link R2dbc} used to execute updates
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code r2dbc} is {@code null}
+         */
+        public Builder r2dbc(R2dbc r2dbc) {
+            this.r2dbc = Assert.requireNonNull(r2dbc, "r2dbc must not be null");
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Builder{" +
+                "maxSize=" + this.maxSize +
+                ", r2dbc=" + this.r2dbc +
+                ", window=" + this.window +
+                '}';
+        }
+
+        /**
+         * Configure how long the first update for some SQL waits for others to coalesce with.  Defaults to {@code 1} millisecond.
+         *
+         * @param window how long the first update for some SQL waits for others to coalesce with
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code window} is {@code null} or negative
+         */
+        public Builder window(Duration window) {
+            Assert.requireNonNull(window, "window must not be null");
+            Assert.isTrue(!window.isNegative(), "window must not be negative");
+
+            this.window = window;
+            return this;
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final Object[] parameters;
+
+        private final MonoSink<Integer> sink;
+
+        private Entry(Object[] parameters, MonoSink<Integer> sink) {
+            this.parameters = parameters;
+            this.sink = sink;
+        }
+
+    }
+
+    private static final class Window {
+
+        private final String sql;
+
+        @Nullable
+        private List<Entry> entries = new ArrayList<>();
+
+        private Window(String sql) {
+            this.sql = sql;
+        }
+
+        @Nullable
+        private List<Entry> close() {
+            List<Entry> entries = this.entries;
+            this.entries = null;
+            return entries;
+        }
+
+    }
+
+}
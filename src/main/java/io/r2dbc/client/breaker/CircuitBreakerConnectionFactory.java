@@ -0,0 +1,424 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.breaker;
+
+import io.r2dbc.client.util.Assert;
+import io.r2dbc.client.util.DelegatingConnectionFactory;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Result;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A {@link ConnectionFactory} that stops opening {@link Connection}s from a delegate {@link ConnectionFactory}, typically for one database node, while that node is failing.
+ * <p>
+ * The circuit breaker starts {@link State#CLOSED closed}, recording whether each attempt to open a connection, and each statement or batch executed on a connection, succeeds or fails.  As
+ * drivers typically report a failed statement while its result is consumed, the outcome of a statement is recorded when each of its results is consumed.  When
+ * the proportion of failures among recent outcomes reaches a threshold, the circuit breaker {@link State#OPEN opens} and every request for a connection fails immediately with a
+ * {@link CircuitBreakerOpenException}, rather than waiting for the node to time out.  After a period of time, the circuit breaker becomes {@link State#HALF_OPEN half-open} and lets a single
+ * request through as a probe: if that request opens a connection the circuit breaker closes again, otherwise, or if it does not open a connection within the probe timeout, it reopens.
+ */
+public final class CircuitBreakerConnectionFactory implements DelegatingConnectionFactory {
+
+    private final ConnectionFactory connectionFactory;
+
+    private final double failureRateThreshold;
+
+    private final int minimumCalls;
+
+    private final long openNanos;
+
+    private final boolean[] outcomes;
+
+    private final Duration probeTimeout;
+
+    private final Predicate<Throwable> recordFailure;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private int count;
+
+    private int failures;
+
+    private int index;
+
+    private volatile long openedAt;
+
+    private volatile State state = State.CLOSED;
+
+    private CircuitBreakerConnectionFactory(ConnectionFactory connectionFactory, double failureRateThreshold, int minimumCalls, Duration openDuration, Duration probeTimeout,
+                                            Predicate<Throwable> recordFailure, int windowSize) {
+        this.connectionFactory = connectionFactory;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.openNanos = openDuration.toNanos();
+        this.outcomes = new boolean[windowSize];
+        this.probeTimeout = probeTimeout;
+        this.recordFailure = recordFailure;
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Open a {@link Connection} unless the circuit breaker is open.
+     *
+     * @return a {@link Mono} of a {@link Connection}, or an error of {@link CircuitBreakerOpenException} if the circuit breaker is open
+     */
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            State admission = this.state == State.CLOSED ? State.CLOSED : admit();
+
+            if (admission == State.OPEN) {
+                this.rejectedCount.increment();
+                return Mono.error(new CircuitBreakerOpenException(String.format("Circuit breaker for %s is open", this.connectionFactory)));
+            }
+
+            Mono<Connection> connection = Mono.<Connection>from(this.connectionFactory.create())
+                .switchIfEmpty(Mono.error(new IllegalStateException("ConnectionFactory did not produce a Connection")));
+
+            if (admission == State.HALF_OPEN) {
+                // A probe that never completes would otherwise leave the circuit breaker half-open forever
+                connection = connection
+                    .timeout(this.probeTimeout)
+                    .doOnSuccess(c -> probed(false))
+                    .doOnError(t -> probed(t instanceof TimeoutException || this.recordFailure.test(t)))
+                    .doOnCancel(this::cancelProbe);
+            } else {
+                connection = connection
+                    .doOnSuccess(c -> record(false))
+                    .doOnError(t -> record(this.recordFailure.test(t)));
+            }
+
+            return connection
+                .map(c -> new GuardedConnection(this, c));
+        });
+    }
+
+    @Override
+    public List<ConnectionFactory> getConnectionFactories() {
+        return Collections.singletonList(this.connectionFactory);
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return this.connectionFactory.getMetadata();
+    }
+
+    /**
+     * Returns the number of requests for a {@link Connection} that were rejected because the circuit breaker was open.
+     *
+     * @return the number of requests for a {@link Connection} that were rejected
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    /**
+     * Returns the state of the circuit breaker.  An open circuit breaker that will let the next request through as a probe is reported as half-open.
+     *
+     * @return the state of the circuit breaker
+     */
+    public State getState() {
+        State state = this.state;
+
+        if (state == State.OPEN && System.nanoTime() - this.openedAt >= this.openNanos) {
+            return State.HALF_OPEN;
+        }
+
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerConnectionFactory{" +
+            "connectionFactory=" + this.connectionFactory +
+            ", failureRateThreshold=" + this.failureRateThreshold +
+            ", minimumCalls=" + this.minimumCalls +
+            ", openNanos=" + this.openNanos +
+            ", probeTimeout=" + this.probeTimeout +
+            ", state=" + this.state +
+            '}';
+    }
+
+    Flux<Result> execute(Publisher<? extends Result> source) {
+        return Flux.<Result>from(source)
+            .doOnError(t -> record(this.recordFailure.test(t)))
+            .map(result -> new GuardedResult(this, result));
+    }
+
+    <T> Flux<T> guard(Publisher<T> source) {
+        return Flux.from(source)
+            .doOnComplete(() -> record(false))
+            .doOnError(t -> record(this.recordFailure.test(t)));
+    }
+
+    private synchronized State admit() {
+        if (this.state == State.OPEN && System.nanoTime() - this.openedAt >= this.openNanos) {
+            this.state = State.HALF_OPEN;
+            return State.HALF_OPEN;
+        }
+
+        // While a probe is in flight every other request is rejected
+        return this.state == State.CLOSED ? State.CLOSED : State.OPEN;
+    }
+
+    private synchronized void cancelProbe() {
+        // A cancelled probe says nothing about the node, so let the next request probe instead
+        if (this.state == State.HALF_OPEN) {
+            this.state = State.OPEN;
+            this.openedAt = System.nanoTime() - this.openNanos;
+        }
+    }
+
+    private synchronized void probed(boolean failure) {
+        if (this.state != State.HALF_OPEN) {
+            return;
+        }
+
+        if (failure) {
+            trip();
+        } else {
+            reset();
+        }
+    }
+
+    private synchronized void record(boolean failure) {
+        if (this.state != State.CLOSED) {
+            return;
+        }
+
+        if (this.count == this.outcomes.length) {
+            if (this.outcomes[this.index]) {
+                this.failures--;
+            }
+        } else {
+            this.count++;
+        }
+
+        this.outcomes[this.index] = failure;
+        if (failure) {
+            this.failures++;
+        }
+        this.index = (this.index + 1) % this.outcomes.length;
+
+        if (this.count >= this.minimumCalls && this.failures >= this.failureRateThreshold * this.count) {
+            trip();
+        }
+    }
+
+    private void reset() {
+        this.count = 0;
+        this.failures = 0;
+        this.index = 0;
+        this.state = State.CLOSED;
+    }
+
+    private void trip() {
+        this.openedAt = System.nanoTime();
+        this.state = State.OPEN;
+    }
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+
+        /**
+         * Requests for a connection are allowed, and their outcomes recorded.
+         */
+        CLOSED,
+
+        /**
+         * A single request for a connection is allowed, to probe whether the node has recovered.
+         */
+        HALF_OPEN,
+
+        /**
+         * Requests for a connection fail immediately.
+         */
+        OPEN
+
+    }
+
+    /**
+     * A builder for {@link CircuitBreakerConnectionFactory} instances.
+     */
+    public static final class Builder {
+
+        @Nullable
+        private ConnectionFactory connectionFactory;
+
+        private double failureRateThreshold = 0.5;
+
+        private int minimumCalls = 10;
+
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        private Duration probeTimeout = Duration.ofSeconds(10);
+
+        private Predicate<Throwable> recordFailure = t -> true;
+
+        private int windowSize = 100;
+
+        private Builder() {
+        }
+
+        /**
+         * Returns a configured {@link CircuitBreakerConnectionFactory}.
+         *
+         * @return a configured {@link CircuitBreakerConnectionFactory}
+         * @throws IllegalArgumentException if {@code connectionFactory} has not been configured, or {@code minimumCalls} is greater than {@code windowSize}
+         */
+        public CircuitBreakerConnectionFactory build() {
+            Assert.requireNonNull(this.connectionFactory, "connectionFactory must not be null");
+            Assert.isTrue(this.minimumCalls <= this.windowSize, "minimumCalls must not be greater than windowSize");
+
+            return new CircuitBreakerConnectionFactory(this.connectionFactory, this.failureRateThreshold, this.minimumCalls, this.openDuration, this.probeTimeout, this.recordFailure,
+                this.windowSize);
+        }
+
+        /**
+         * Configure the {@link ConnectionFactory} used to open {@link Connection}s.
+         *
+         * @param connectionFactory the {@link ConnectionFactory} used to open {@link Connection}s
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code connectionFactory} is {@code null}
+         */
+        public Builder connectionFactory(ConnectionFactory connectionFactory) {
+            this.connectionFactory = Assert.requireNonNull(connectionFactory, "connectionFactory must not be null");
+            return this;
+        }
+
+        /**
+         * Configure the proportion of recent outcomes that must be failures for the circuit breaker to open.  Defaults to {@code 0.5}.
+         *
+         * @param failureRateThreshold the proportion of recent outcomes that must be failures for the circuit breaker to open
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code failureRateThreshold} is not greater than {@code 0} and at most {@code 1}
+         */
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            Assert.isTrue(failureRateThreshold > 0 && failureRateThreshold <= 1, "failureRateThreshold must be greater than 0 and at most 1");
+
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Configure the number of outcomes that must be recorded before the failure rate is considered.  Defaults to {@code 10}.
+         *
+         * @param minimumCalls the number of outcomes that must be recorded before the failure rate is considered
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code minimumCalls} is less than one
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            Assert.isTrue(minimumCalls > 0, "minimumCalls must be greater than zero");
+
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * Configure how long the circuit breaker stays open before letting a probe through.  Defaults to {@code 30} seconds.
+         *
+         * @param openDuration how long the circuit breaker stays open
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code openDuration} is {@code null} or negative
+         */
+        public Builder openDuration(Duration openDuration) {
+            Assert.requireNonNull(openDuration, "openDuration must not be null");
+            Assert.isTrue(!openDuration.isNegative(), "openDuration must not be negative");
+
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * Configure how long a probe may take to open a connection before it counts as a failure and the circuit breaker reopens.  Defaults to {@code 10} seconds.
+         *
+         * @param probeTimeout how long a probe may take to open a connection
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code probeTimeout} is {@code null}, zero, or negative
+         */
+        public Builder probeTimeout(Duration probeTimeout) {
+            Assert.requireNonNull(probeTimeout, "probeTimeout must not be null");
+            Assert.isTrue(!probeTimeout.isNegative() && !probeTimeout.isZero(), "probeTimeout must be positive");
+
+            this.probeTimeout = probeTimeout;
+            return this;
+        }
+
+        /**
+         * Configure which errors count as failures.  Errors that do not, for example constraint violations caused by the caller, count as successes.  Defaults to every error.
+         *
+         * @param recordFailure a {@link Predicate} that returns {@code true} for errors that count as failures
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code recordFailure} is {@code null}
+         */
+        public Builder recordFailure(Predicate<Throwable> recordFailure) {
+            this.recordFailure = Assert.requireNonNull(recordFailure, "recordFailure must not be null");
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Builder{" +
+                "connectionFactory=" + this.connectionFactory +
+                ", failureRateThreshold=" + this.failureRateThreshold +
+                ", minimumCalls=" + this.minimumCalls +
+                ", openDuration=" + this.openDuration +
+                ", probeTimeout=" + this.probeTimeout +
+                ", recordFailure=" + this.recordFailure +
+                ", windowSize=" + this.windowSize +
+                '}';
+        }
+
+        /**
+         * Configure the number of recent outcomes over which the failure rate is calculated.  Defaults to {@code 100}.
+         *
+         * @param windowSize the number of recent outcomes over which the failure rate is calculated
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code windowSize} is less than one
+         */
+        public Builder windowSize(int windowSize) {
+            Assert.isTrue(windowSize > 0, "windowSize must be greater than zero");
+
+            this.windowSize = windowSize;
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.breaker;
+
+/**
+ * An exception indicating that a {@link CircuitBreakerConnectionFactory} rejected a request for a connection because its circuit breaker was open.
+ */
+public final class CircuitBreakerOpenException extends RuntimeException {
+
+    /**
+     * Create a new instance of {@link CircuitBreakerOpenException}.
+     *
+     * @param message the detail message
+     */
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.breaker;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Result;
+import reactor.core.publisher.Flux;
+
+/**
+ * A {@link Batch} created by a {@link GuardedConnection}.  Executing the batch reports its outcome to the circuit breaker.
+ */
+final class GuardedBatch implements Batch<GuardedBatch> {
+
+    private final Batch<?> batch;
+
+    private final CircuitBreakerConnectionFactory circuitBreaker;
+
+    GuardedBatch(CircuitBreakerConnectionFactory circuitBreaker, Batch<?> batch) {
+        this.circuitBreaker = circuitBreaker;
+        this.batch = batch;
+    }
+
+    @Override
+    public GuardedBatch add(String sql) {
+        this.batch.add(sql);
+        return this;
+    }
+
+    @Override
+    public Flux<Result> execute() {
+        return this.circuitBreaker.execute(this.batch.execute());
+    }
+
+    @Override
+    public String toString() {
+        return "GuardedBatch{" +
+            "batch=" + this.batch +
+            '}';
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.breaker;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+
+/**
+ * A {@link Connection} opened by a {@link CircuitBreakerConnectionFactory}.  Executing a statement or batch on the connection reports its outcome to the circuit breaker.
+ */
+final class GuardedConnection implements Connection {
+
+    private final CircuitBreakerConnectionFactory circuitBreaker;
+
+    private final Connection connection;
+
+    GuardedConnection(CircuitBreakerConnectionFactory circuitBreaker, Connection connection) {
+        this.circuitBreaker = circuitBreaker;
+        this.connection = connection;
+    }
+
+    @Override
+    public Publisher<Void> beginTransaction() {
+        return this.connection.beginTransaction();
+    }
+
+    @Override
+    public Publisher<Void> close() {
+        return this.connection.close();
+    }
+
+    @Override
+    public Publisher<Void> commitTransaction() {
+        return this.connection.commitTransaction();
+    }
+
+    @Override
+    public Batch<?> createBatch() {
+        return new GuardedBatch(this.circuitBreaker, this.connection.createBatch());
+    }
+
+    @Override
+    public Publisher<Void> createSavepoint(String name) {
+        return this.connection.createSavepoint(name);
+    }
+
+    @Override
+    public Statement<?> createStatement(String sql) {
+        return new GuardedStatement(this.circuitBreaker, this.connection.createStatement(sql));
+    }
+
+    @Override
+    public Publisher<Void> releaseSavepoint(String name) {
+        return this.connection.releaseSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransaction() {
+        return this.connection.rollbackTransaction();
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransactionToSavepoint(String name) {
+        return this.connection.rollbackTransactionToSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> setTransactionIsolationLevel(IsolationLevel isolationLevel) {
+        return this.connection.setTransactionIsolationLevel(isolationLevel);
+    }
+
+    @Override
+    public String toString() {
+        return "GuardedConnection{" +
+            "connection=" + this.connection +
+            '}';
+    }
+
+}
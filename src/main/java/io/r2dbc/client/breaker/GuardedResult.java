@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.breaker;
+
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import reactor.core.publisher.Flux;
+
+import java.util.function.BiFunction;
+
+/**
+ * A {@link Result} of a {@link GuardedStatement} or {@link GuardedBatch}.  Consuming the result reports its outcome to the circuit breaker.
+ */
+final class GuardedResult implements Result {
+
+    private final CircuitBreakerConnectionFactory circuitBreaker;
+
+    private final Result result;
+
+    GuardedResult(CircuitBreakerConnectionFactory circuitBreaker, Result result) {
+        this.circuitBreaker = circuitBreaker;
+        this.result = result;
+    }
+
+    @Override
+    public Flux<Integer> getRowsUpdated() {
+        return this.circuitBreaker.guard(this.result.getRowsUpdated());
+    }
+
+    @Override
+    public <T> Flux<T> map(BiFunction<Row, RowMetadata, ? extends T> f) {
+        return this.circuitBreaker.guard(this.result.map(f));
+    }
+
+    @Override
+    public String toString() {
+        return "GuardedResult{" +
+            "result=" + this.result +
+            '}';
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.breaker;
+
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Flux;
+
+/**
+ * A {@link Statement} created by a {@link GuardedConnection}.  Executing the statement reports its outcome to the circuit breaker.
+ */
+final class GuardedStatement implements Statement<GuardedStatement> {
+
+    private final CircuitBreakerConnectionFactory circuitBreaker;
+
+    private final Statement<?> statement;
+
+    GuardedStatement(CircuitBreakerConnectionFactory circuitBreaker, Statement<?> statement) {
+        this.circuitBreaker = circuitBreaker;
+        this.statement = statement;
+    }
+
+    @Override
+    public GuardedStatement add() {
+        this.statement.add();
+        return this;
+    }
+
+    @Override
+    public GuardedStatement bind(Object identifier, Object value) {
+        this.statement.bind(identifier, value);
+        return this;
+    }
+
+    @Override
+    public GuardedStatement bind(Integer index, Object value) {
+        this.statement.bind(index, value);
+        return this;
+    }
+
+    @Override
+    public GuardedStatement bindNull(Object identifier, Class<?> type) {
+        this.statement.bindNull(identifier, type);
+        return this;
+    }
+
+    @Override
+    public GuardedStatement bindNull(Integer index, Class<?> type) {
+        this.statement.bindNull(index, type);
+        return this;
+    }
+
+    @Override
+    public Flux<Result> execute() {
+        return this.circuitBreaker.execute(this.statement.execute());
+    }
+
+    @Override
+    public String toString() {
+        return "GuardedStatement{" +
+            "statement=" + this.statement +
+            '}';
+    }
+
+}
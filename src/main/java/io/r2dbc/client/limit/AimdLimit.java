@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.limit;
+
+import io.r2dbc.client.util.Assert;
+
+import java.time.Duration;
+
+/**
+ * A {@link Limit} that uses additive increase and multiplicative decrease, in the style of TCP congestion control.  The limit grows by one for each successful unit of work that ran while at
+ * least half of the limit was in use, and shrinks by the backoff ratio whenever a unit of work is dropped or takes longer than the timeout.
+ */
+public final class AimdLimit implements Limit {
+
+    private final double backoffRatio;
+
+    private final int maxLimit;
+
+    private final int minLimit;
+
+    private final long timeoutNanos;
+
+    private volatile int limit;
+
+    private AimdLimit(double backoffRatio, int initialLimit, int maxLimit, int minLimit, Duration timeout) {
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.minLimit = minLimit;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public int getLimit() {
+        return this.limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        int limit = this.limit;
+
+        if (dropped || rttNanos > this.timeoutNanos) {
+            limit = Math.max(this.minLimit, Math.min(limit - 1, (int) (limit * this.backoffRatio)));
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(this.maxLimit, limit + 1);
+        }
+
+        this.limit = limit;
+    }
+
+    @Override
+    public String toString() {
+        return "AimdLimit{" +
+            "backoffRatio=" + this.backoffRatio +
+            ", limit=" + this.limit +
+            ", maxLimit=" + this.maxLimit +
+            ", minLimit=" + this.minLimit +
+            ", timeoutNanos=" + this.timeoutNanos +
+            '}';
+    }
+
+    /**
+     * A builder for {@link AimdLimit} instances.
+     */
+    public static final class Builder {
+
+        private double backoffRatio = 0.9;
+
+        private int initialLimit = 10;
+
+        private int maxLimit = 200;
+
+        private int minLimit = 1;
+
+        private Duration timeout = Duration.ofSeconds(5);
+
+        private Builder() {
+        }
+
+        /**
+         * Configure the ratio by which the limit is multiplied when a unit of work is dropped or times out.  Defaults to {@code 0.9}.
+         *
+         * @param backoffRatio the ratio by which the limit is multiplied
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code backoffRatio} is not between {@code 0.5} and {@code 1}, exclusive of {@code 1}
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            Assert.isTrue(backoffRatio >= 0.5 && backoffRatio < 1, "backoffRatio must be at least 0.5 and less than 1");
+
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Returns a configured {@link AimdLimit}.
+         *
+         * @return a configured {@link AimdLimit}
+         * @throws IllegalArgumentException if {@code initialLimit} is not between {@code minLimit} and {@code maxLimit}
+         */
+        public AimdLimit build() {
+            Assert.isTrue(this.minLimit <= this.maxLimit, "minLimit must not be greater than maxLimit");
+            Assert.isTrue(this.initialLimit >= this.minLimit && this.initialLimit <= this.maxLimit, "initialLimit must be between minLimit and maxLimit");
+
+            return new AimdLimit(this.backoffRatio, this.initialLimit, this.maxLimit, this.minLimit, this.timeout);
+        }
+
+        /**
+         * Configure the limit used before any units of work have been observed.  Defaults to {@code 10}.
+         *
+         * @param initialLimit the limit used before any units of work have been observed
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code initialLimit} is less than one
+         */
+        public Builder initialLimit(int initialLimit) {
+            Assert.isTrue(initialLimit > 0, "initialLimit must be greater than zero");
+
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Configure the largest limit.  Defaults to {@code 200}.
+         *
+         * @param maxLimit the largest limit
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maxLimit} is less than one
+         */
+        public Builder maxLimit(int maxLimit) {
+            Assert.isTrue(maxLimit > 0, "maxLimit must be greater than zero");
+
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Configure the smallest limit.  Defaults to {@code 1}.
+         *
+         * @param minLimit the smallest limit
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code minLimit} is less than one
+         */
+        public Builder minLimit(int minLimit) {
+            Assert.isTrue(minLimit > 0, "minLimit must be greater than zero");
+
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * Configure the time after which a unit of work is treated as dropped.  Defaults to {@code 5} seconds.
+         *
+         * @param timeout the time after which a unit of work is treated as dropped
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code timeout} is {@code null} or not positive
+         */
+        public Builder timeout(Duration timeout) {
+            Assert.requireNonNull(timeout, "timeout must not be null");
+            Assert.isTrue(!timeout.isNegative() && !timeout.isZero(), "timeout must be positive");
+
+            this.timeout = timeout;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Builder{" +
+                "backoffRatio=" + this.backoffRatio +
+                ", initialLimit=" + this.initialLimit +
+                ", maxLimit=" + this.maxLimit +
+                ", minLimit=" + this.minLimit +
+                ", timeout=" + this.timeout +
+                '}';
+        }
+
+    }
+
+}
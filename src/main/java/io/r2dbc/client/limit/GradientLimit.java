@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.limit;
+
+import io.r2dbc.client.util.Assert;
+
+/**
+ * A {@link Limit} that compares the latency of each unit of work against a long-term baseline, in the style of TCP Vegas.  While latency stays near the baseline the limit grows by roughly the
+ * square root of the limit, probing for more throughput; as latency rises above the baseline, indicating that work is queueing in the database, the limit shrinks in proportion.
+ */
+public final class GradientLimit implements Limit {
+
+    private final int longWindow;
+
+    private final int maxLimit;
+
+    private final int minLimit;
+
+    private final double smoothing;
+
+    private final double tolerance;
+
+    private double estimatedLimit;
+
+    private volatile int limit;
+
+    private double longRttNanos;
+
+    private GradientLimit(int initialLimit, int longWindow, int maxLimit, int minLimit, double smoothing, double tolerance) {
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+        this.longWindow = longWindow;
+        this.maxLimit = maxLimit;
+        this.minLimit = minLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public int getLimit() {
+        return this.limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        double gradient;
+
+        if (dropped) {
+            gradient = 0.5;
+        } else {
+            double rtt = Math.max(1, rttNanos);
+
+            if (this.longRttNanos == 0) {
+                this.longRttNanos = rtt;
+            } else {
+                this.longRttNanos += (rtt - this.longRttNanos) / this.longWindow;
+            }
+
+            // Let the baseline recover quickly once the database speeds up again, rather than waiting out the whole window
+            if (this.longRttNanos / rtt > 2) {
+                this.longRttNanos *= 0.95;
+            }
+
+            // Latency measured while most of the limit was unused says nothing about whether the limit could be higher
+            if (inFlight * 2 < this.estimatedLimit) {
+                return;
+            }
+
+            gradient = Math.max(0.5, Math.min(1.0, this.tolerance * this.longRttNanos / rtt));
+        }
+
+        double newLimit = this.estimatedLimit * gradient + Math.sqrt(this.estimatedLimit);
+        newLimit = this.estimatedLimit * (1 - this.smoothing) + newLimit * this.smoothing;
+
+        this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+        this.limit = (int) this.estimatedLimit;
+    }
+
+    @Override
+    public String toString() {
+        return "GradientLimit{" +
+            "estimatedLimit=" + this.estimatedLimit +
+            ", limit=" + this.limit +
+            ", longRttNanos=" + this.longRttNanos +
+            ", longWindow=" + this.longWindow +
+            ", maxLimit=" + this.maxLimit +
+            ", minLimit=" + this.minLimit +
+            ", smoothing=" + this.smoothing +
+            ", tolerance=" + this.tolerance +
+            '}';
+    }
+
+    /**
+     * A builder for {@link GradientLimit} instances.
+     */
+    public static final class Builder {
+
+        private int initialLimit = 10;
+
+        private int longWindow = 600;
+
+        private int maxLimit = 200;
+
+        private int minLimit = 1;
+
+        private double smoothing = 0.2;
+
+        private double tolerance = 1.5;
+
+        private Builder() {
+        }
+
+        /**
+         * Returns a configured {@link GradientLimit}.
+         *
+         * @return a configured {@link GradientLimit}
+         * @throws IllegalArgumentException if {@code initialLimit} is not between {@code minLimit} and {@code maxLimit}
+         */
+        public GradientLimit build() {
+            Assert.isTrue(this.minLimit <= this.maxLimit, "minLimit must not be greater than maxLimit");
+            Assert.isTrue(this.initialLimit >= this.minLimit && this.initialLimit <= this.maxLimit, "initialLimit must be between minLimit and maxLimit");
+
+            return new GradientLimit(this.initialLimit, this.longWindow, this.maxLimit, this.minLimit, this.smoothing, this.tolerance);
+        }
+
+        /**
+         * Configure the limit used before any units of work have been observed.  Defaults to {@code 10}.
+         *
+         * @param initialLimit the limit used before any units of work have been observed
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code initialLimit} is less than one
+         */
+        public Builder initialLimit(int initialLimit) {
+            Assert.isTrue(initialLimit > 0, "initialLimit must be greater than zero");
+
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Configure the number of samples over which the baseline latency is averaged.  Defaults to {@code 600}.
+         *
+         * @param longWindow the number of samples over which the baseline latency is averaged
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code longWindow} is less than one
+         */
+        public Builder longWindow(int longWindow) {
+            Assert.isTrue(longWindow > 0, "longWindow must be greater than zero");
+
+            this.longWindow = longWindow;
+            return this;
+        }
+
+        /**
+         * Configure the largest limit.  Defaults to {@code 200}.
+         *
+         * @param maxLimit the largest limit
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maxLimit} is less than one
+         */
+        public Builder maxLimit(int maxLimit) {
+            Assert.isTrue(maxLimit > 0, "maxLimit must be greater than zero");
+
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Configure the smallest limit.  Defaults to {@code 1}.
+         *
+         * @param minLimit the smallest limit
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code minLimit} is less than one
+         */
+        public Builder minLimit(int minLimit) {
+            Assert.isTrue(minLimit > 0, "minLimit must be greater than zero");
+
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * Configure how strongly each sample moves the limit, from {@code 0} exclusive (not at all) to {@code 1} (fully).  Defaults to {@code 0.2}.
+         *
+         * @param smoothing how strongly each sample moves the limit
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code smoothing} is not greater than {@code 0} and at most {@code 1}
+         */
+        public Builder smoothing(double smoothing) {
+            Assert.isTrue(smoothing > 0 && smoothing <= 1, "smoothing must be greater than 0 and at most 1");
+
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Builder{" +
+                "initialLimit=" + this.initialLimit +
+                ", longWindow=" + this.longWindow +
+                ", maxLimit=" + this.maxLimit +
+                ", minLimit=" + this.minLimit +
+                ", smoothing=" + this.smoothing +
+                ", tolerance=" + this.tolerance +
+                '}';
+        }
+
+        /**
+         * Configure how much slower than the baseline a unit of work may be before the limit shrinks.  Defaults to {@code 1.5}.
+         *
+         * @param tolerance how much slower than the baseline a unit of work may be before the limit shrinks
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code tolerance} is less than {@code 1}
+         */
+        public Builder tolerance(double tolerance) {
+            Assert.isTrue(tolerance >= 1, "tolerance must be at least 1");
+
+            this.tolerance = tolerance;
+            return this;
+        }
+
+    }
+
+}
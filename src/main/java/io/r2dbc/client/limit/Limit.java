@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.limit;
+
+/**
+ * An algorithm that adjusts the number of units of work permitted to run concurrently against a database, based on the latency observed for each unit of work.
+ *
+ * @see LimitingConnectionFactory
+ */
+public interface Limit {
+
+    /**
+     * Returns the number of units of work currently permitted to run concurrently.
+     *
+     * @return the number of units of work currently permitted to run concurrently
+     */
+    int getLimit();
+
+    /**
+     * Record the outcome of a unit of work.
+     *
+     * @param rttNanos the time, in nanoseconds, between the unit of work being admitted and its connection being closed
+     * @param inFlight the number of units of work in flight when this unit of work was admitted, including itself
+     * @param dropped  whether the unit of work failed in a way that indicates the database is overloaded, for example because a connection could not be opened
+     */
+    void onSample(long rttNanos, int inFlight, boolean dropped);
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.limit;
+
+import io.r2dbc.client.util.Assert;
+import io.r2dbc.client.util.DelegatingConnectionFactory;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ConnectionFactory} that limits the number of {@link Connection}s in use at any one time to a limit that adapts to the latency observed by each connection, measured from the request
+ * for the connection until it is closed.  Wrapping the {@link ConnectionFactory} of an {@code R2dbc} therefore limits the number of concurrent {@code withHandle} and {@code inTransaction} units of
+ * work, keeping the database near the concurrency at which it delivers the most throughput without manual tuning.  Requests beyond the limit fail immediately with a
+ * {@link LimitExceededException}.
+ *
+ * @see AimdLimit
+ * @see GradientLimit
+ */
+public final class LimitingConnectionFactory implements DelegatingConnectionFactory {
+
+    private final ConnectionFactory connectionFactory;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Limit limit;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Create a new instance of {@link LimitingConnectionFactory} with a default {@link GradientLimit}.
+     *
+     * @param connectionFactory the {@link ConnectionFactory} used to open {@link Connection}s
+     * @throws IllegalArgumentException if {@code connectionFactory} is {@code null}
+     */
+    public LimitingConnectionFactory(ConnectionFactory connectionFactory) {
+        this(connectionFactory, GradientLimit.builder().build());
+    }
+
+    /**
+     * Create a new instance of {@link LimitingConnectionFactory}.
+     *
+     * @param connectionFactory the {@link ConnectionFactory} used to open {@link Connection}s
+     * @param limit             the {@link Limit} that determines how many {@link Connection}s may be in use at any one time
+     * @throws IllegalArgumentException if {@code connectionFactory} or {@code limit} is {@code null}
+     */
+    public LimitingConnectionFactory(ConnectionFactory connectionFactory, Limit limit) {
+        this.connectionFactory = Assert.requireNonNull(connectionFactory, "connectionFactory must not be null");
+        this.limit = Assert.requireNonNull(limit, "limit must not be null");
+    }
+
+    /**
+     * Open a {@link Connection} if fewer connections than the current limit are in use.
+     *
+     * @return a {@link Mono} of a {@link Connection}, or an error of {@link LimitExceededException} if the limit has been reached
+     */
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            int inFlight = tryAcquire();
+
+            if (inFlight == 0) {
+                this.rejectedCount.increment();
+                return Mono.error(new LimitExceededException(String.format("Concurrency limit of %d has been reached", this.limit.getLimit())));
+            }
+
+            Permit permit = new Permit(inFlight);
+
+            return Mono.<Connection>from(this.connectionFactory.create())
+                .switchIfEmpty(Mono.error(new IllegalStateException("ConnectionFactory did not produce a Connection")))
+                .map(permit::connect)
+                .doOnError(t -> permit.release(true))
+                .doOnCancel(permit::cancel);
+        });
+    }
+
+    @Override
+    public List<ConnectionFactory> getConnectionFactories() {
+        return Collections.singletonList(this.connectionFactory);
+    }
+
+    /**
+     * Returns the number of {@link Connection}s in use or being opened.
+     *
+     * @return the number of {@link Connection}s in use or being opened
+     */
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * Returns the number of {@link Connection}s currently permitted to be in use at any one time.
+     *
+     * @return the number of {@link Connection}s currently permitted to be in use at any one time
+     */
+    public int getLimit() {
+        return this.limit.getLimit();
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return this.connectionFactory.getMetadata();
+    }
+
+    /**
+     * Returns the number of requests for a {@link Connection} that were rejected because the limit had been reached.
+     *
+     * @return the number of requests for a {@link Connection} that were rejected
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "LimitingConnectionFactory{" +
+            "connectionFactory=" + this.connectionFactory +
+            ", inFlight=" + this.inFlight +
+            ", limit=" + this.limit +
+            '}';
+    }
+
+    private int tryAcquire() {
+        for (; ; ) {
+            int current = this.inFlight.get();
+
+            if (current >= this.limit.getLimit()) {
+                return 0;
+            }
+
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    final class Permit {
+
+        private final AtomicBoolean connected = new AtomicBoolean();
+
+        private final int inFlight;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private final long start = System.nanoTime();
+
+        private Permit(int inFlight) {
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public String toString() {
+            return "Permit{" +
+                "inFlight=" + this.inFlight +
+                ", released=" + this.released +
+                ", start=" + this.start +
+                '}';
+        }
+
+        void release(boolean dropped) {
+            if (this.released.compareAndSet(false, true)) {
+                LimitingConnectionFactory.this.inFlight.decrementAndGet();
+                LimitingConnectionFactory.this.limit.onSample(System.nanoTime() - this.start, this.inFlight, dropped);
+            }
+        }
+
+        private void cancel() {
+            // Once the connection has been handed out, the permit is released when the connection is closed
+            if (!this.connected.get() && this.released.compareAndSet(false, true)) {
+                LimitingConnectionFactory.this.inFlight.decrementAndGet();
+            }
+        }
+
+        private Connection connect(Connection connection) {
+            this.connected.set(true);
+            return new LimitedConnection(connection, this);
+        }
+
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.pool;
+
+/**
+ * The order in which a {@link PooledConnectionFactory} leases idle connections.
+ */
+public enum AcquisitionStrategy {
+
+    /**
+     * Lease the connection that has been idle the longest.  Spreads work across every idle connection.
+     */
+    FIFO,
+
+    /**
+     * Lease the connection that was most recently returned.  Concentrates work on as few connections as possible, keeping their server-side caches warm and letting the remaining
+     * connections reach their maximum idle time and be closed.
+     */
+    LIFO
+
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.pool;
+
+import io.r2dbc.client.util.Assert;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The configuration of a {@link PooledConnectionFactory}.
+ */
+public final class PoolConfiguration {
+
+    @Nullable
+    private final Duration acquireTimeout;
+
+    private final AcquisitionStrategy acquisitionStrategy;
+
+    private final Duration housekeepingInterval;
+
+    private final double leakDetectionSampleRate;
+
+    @Nullable
+    private final Duration leakDetectionThreshold;
+
+    @Nullable
+    private final Duration maxIdleTime;
+
+    @Nullable
+    private final Duration maxLifetime;
+
+    private final Duration maxLifetimeJitter;
+
+    private final int maxPendingAcquire;
+
+    private final int maxSize;
+
+    private final int minIdle;
+
+    private final int stripes;
+
+    private final Duration validationIdleTime;
+
+    @Nullable
+    private final String validationQuery;
+
+    private PoolConfiguration(@Nullable Duration acquireTimeout, AcquisitionStrategy acquisitionStrategy, Duration housekeepingInterval, double leakDetectionSampleRate,
+                              @Nullable Duration leakDetectionThreshold, @Nullable Duration maxIdleTime, @Nullable Duration maxLifetime, Duration maxLifetimeJitter, int maxPendingAcquire, int maxSize, int minIdle, int stripes, Duration validationIdleTime,
+                              @Nullable String validationQuery) {
+        this.acquireTimeout = acquireTimeout;
+        this.acquisitionStrategy = acquisitionStrategy;
+        this.housekeepingInterval = housekeepingInterval;
+        this.leakDetectionSampleRate = leakDetectionSampleRate;
+        this.leakDetectionThreshold = leakDetectionThreshold;
+        this.maxIdleTime = maxIdleTime;
+        this.maxLifetime = maxLifetime;
+        this.maxLifetimeJitter = maxLifetimeJitter;
+        this.maxPendingAcquire = maxPendingAcquire;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.stripes = stripes;
+        this.validationIdleTime = validationIdleTime;
+        this.validationQuery = validationQuery;
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns how long a request waits for a connection before failing, if configured.
+     *
+     * @return how long a request waits for a connection before failing
+     */
+    public Optional<Duration> getAcquireTimeout() {
+        return Optional.ofNullable(this.acquireTimeout);
+    }
+
+    /**
+     * Returns the order in which idle connections are leased.
+     *
+     * @return the order in which idle connections are leased
+     */
+    public AcquisitionStrategy getAcquisitionStrategy() {
+        return this.acquisitionStrategy;
+    }
+
+    /**
+     * Returns the interval between runs of the background task that evicts expired connections and refills the pool to its minimum idle size.
+     *
+     * @return the interval between runs of the background housekeeping task
+     */
+    public Duration getHousekeepingInterval() {
+        return this.housekeepingInterval;
+    }
+
+    /**
+     * Returns the fraction of leases for which the call site that requested the connection is recorded, so that it can be reported if the lease is leaked.
+     *
+     * @return the fraction of leases for which the call site is recorded
+     */
+    public double getLeakDetectionSampleRate() {
+        return this.leakDetectionSampleRate;
+    }
+
+    /**
+     * Returns how long a connection may be leased before it is reported as a possible leak, if configured.
+     *
+     * @return how long a connection may be leased before it is reported as a possible leak
+     */
+    public Optional<Duration> getLeakDetectionThreshold() {
+        return Optional.ofNullable(this.leakDetectionThreshold);
+    }
+
+    /**
+     * Returns how long a connection may sit idle before it is closed, if configured.
+     *
+     * @return how long a connection may sit idle before it is closed
+     */
+    public Optional<Duration> getMaxIdleTime() {
+        return Optional.ofNullable(this.maxIdleTime);
+    }
+
+    /**
+     * Returns how long a connection may stay open before it is closed, if configured.
+     *
+     * @return how long a connection may stay open before it is closed
+     */
+    public Optional<Duration> getMaxLifetime() {
+        return Optional.ofNullable(this.maxLifetime);
+    }
+
+    /**
+     * Returns the upper bound of the random amount by which the lifetime of each connection is shortened.
+     *
+     * @return the upper bound of the random amount by which the lifetime of each connection is shortened
+     */
+    public Duration getMaxLifetimeJitter() {
+        return this.maxLifetimeJitter;
+    }
+
+    /**
+     * Returns the maximum number of requests that may wait for a connection at any one time.
+     *
+     * @return the maximum number of requests that may wait for a connection at any one time
+     */
+    public int getMaxPendingAcquire() {
+        return this.maxPendingAcquire;
+    }
+
+    /**
+     * Returns the maximum number of connections that the pool will open at any one time.
+     *
+     * @return the maximum number of connections that the pool will open at any one time
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the number of connections that the pool keeps open, even when they are idle.
+     *
+     * @return the number of connections that the pool keeps open
+     */
+    public int getMinIdle() {
+        return this.minIdle;
+    }
+
+    /**
+     * Returns the number of stripes that idle connections are divided between.
+     *
+     * @return the number of stripes that idle connections are divided between
+     */
+    public int getStripes() {
+        return this.stripes;
+    }
+
+    /**
+     * Returns how long a connection must have been idle before it is validated when leased.
+     *
+     * @return how long a connection must have been idle before it is validated when leased
+     */
+    public Duration getValidationIdleTime() {
+        return this.validationIdleTime;
+    }
+
+    /**
+     * Returns the statement used to check that a connection is usable, if configured.
+     *
+     * @return the statement used to check that a connection is usable
+     */
+    public Optional<String> getValidationQuery() {
+        return Optional.ofNullable(this.validationQuery);
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfiguration{" +
+            "acquireTimeout=" + this.acquireTimeout +
+            ", acquisitionStrategy=" + this.acquisitionStrategy +
+            ", housekeepingInterval=" + this.housekeepingInterval +
+            ", leakDetectionSampleRate=" + this.leakDetectionSampleRate +
+            ", leakDetectionThreshold=" + this.leakDetectionThreshold +
+            ", maxIdleTime=" + this.maxIdleTime +
+            ", maxLifetime=" + this.maxLifetime +
+            ", maxLifetimeJitter=" + this.maxLifetimeJitter +
+            ", maxPendingAcquire=" + this.maxPendingAcquire +
+            ", maxSize=" + this.maxSize +
+            ", minIdle=" + this.minIdle +
+            ", stripes=" + this.stripes +
+            ", validationIdleTime=" + this.validationIdleTime +
+            ", validationQuery='" + this.validationQuery + '\'' +
+            '}';
+    }
+
+    /**
+     * A builder for {@link PoolConfiguration} instances.
+     */
+    public static final class Builder {
+
+        @Nullable
+        private Duration acquireTimeout;
+
+        private AcquisitionStrategy acquisitionStrategy = AcquisitionStrategy.FIFO;
+
+        private Duration housekeepingInterval = Duration.ofSeconds(30);
+
+        private double leakDetectionSampleRate = 0.1;
+
+        @Nullable
+        private Duration leakDetectionThreshold;
+
+        @Nullable
+        private Duration maxIdleTime;
+
+        @Nullable
+        private Duration maxLifetime;
+
+        @Nullable
+        private Duration maxLifetimeJitter;
+
+        private int maxPendingAcquire = Integer.MAX_VALUE;
+
+        private int maxSize = 10;
+
+        private int minIdle = 0;
+
+        private int stripes = 1;
+
+        private Duration validationIdleTime = Duration.ofMillis(500);
+
+        @Nullable
+        private String validationQuery;
+
+        private Builder() {
+        }
+
+        /**
+         * Configure how long a request waits for a connection before failing with a {@link PoolExhaustedException}.  Not configured by default, so requests wait indefinitely.
+         *
+         * @param acquireTimeout how long a request waits for a connection before failing
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code acquireTimeout} is {@code null} or not positive
+         */
+        public Builder acquireTimeout(Duration acquireTimeout) {
+            Assert.requireNonNull(acquireTimeout, "acquireTimeout must not be null");
+            Assert.isTrue(!acquireTimeout.isNegative() && !acquireTimeout.isZero(), "acquireTimeout must be positive");
+
+            this.acquireTimeout = acquireTimeout;
+            return this;
+        }
+
+        /**
+         * Configure the order in which idle connections are leased.  Defaults to {@link AcquisitionStrategy#FIFO}.
+         *
+         * @param acquisitionStrategy the order in which idle connections are leased
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code acquisitionStrategy} is {@code null}
+         */
+        public Builder acquisitionStrategy(AcquisitionStrategy acquisitionStrategy) {
+            this.acquisitionStrategy = Assert.requireNonNull(acquisitionStrategy, "acquisitionStrategy must not be null");
+            return this;
+        }
+
+        /**
+         * Returns a configured {@link PoolConfiguration}.
+         *
+         * @return a configured {@link PoolConfiguration}
+         * @throws IllegalArgumentException if {@code minIdle} is greater than {@code maxSize}, or {@code maxLifetimeJitter} is configured without being less than {@code maxLifetime}
+         */
+        public PoolConfiguration build() {
+            Assert.isTrue(this.minIdle <= this.maxSize, "minIdle must not be greater than maxSize");
+
+            Duration maxLifetimeJitter = this.maxLifetimeJitter;
+            if (maxLifetimeJitter == null) {
+                maxLifetimeJitter = this.maxLifetime == null ? Duration.ZERO : this.maxLifetime.dividedBy(40);
+            } else {
+                Assert.isTrue(this.maxLifetime != null && maxLifetimeJitter.compareTo(this.maxLifetime) < 0, "maxLifetimeJitter must be less than maxLifetime");
+            }
+
+            return new PoolConfiguration(this.acquireTimeout, this.acquisitionStrategy, this.housekeepingInterval, this.leakDetectionSampleRate, this.leakDetectionThreshold, this.maxIdleTime,
+                this.maxLifetime, maxLifetimeJitter, this.maxPendingAcquire, this.maxSize, this.minIdle, this.stripes, this.validationIdleTime, this.validationQuery);
+        }
+
+        /**
+         * Configure the interval between runs of the background task that evicts expired connections and refills the pool to its minimum idle size.  The task only runs if a maximum
+         * idle time, a maximum lifetime, a minimum idle size, or a leak detection threshold is configured.  Defaults to {@code 30} seconds.
+         *
+         * @param housekeepingInterval the interval between runs of the background housekeeping task
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code housekeepingInterval} is {@code null} or not positive
+         */
+        public Builder housekeepingInterval(Duration housekeepingInterval) {
+            Assert.requireNonNull(housekeepingInterval, "housekeepingInterval must not be null");
+            Assert.isTrue(!housekeepingInterval.isNegative() && !housekeepingInterval.isZero(), "housekeepingInterval must be positive");
+
+            this.housekeepingInterval = housekeepingInterval;
+            return this;
+        }
+
+        /**
+         * Configure the fraction of leases for which the call site that requested the connection is recorded, from {@code 0} to {@code 1}.  Recording a call site captures a stack trace, so
+         * sampling keeps leak detection cheap enough to leave enabled.  Defaults to {@code 0.1}.
+         *
+         * @param leakDetectionSampleRate the fraction of leases for which the call site is recorded
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code leakDetectionSampleRate} is not between {@code 0} and {@code 1}
+         */
+        public Builder leakDetectionSampleRate(double leakDetectionSampleRate) {
+            Assert.isTrue(leakDetectionSampleRate >= 0 && leakDetectionSampleRate <= 1, "leakDetectionSampleRate must be between 0 and 1");
+
+            this.leakDetectionSampleRate = leakDetectionSampleRate;
+            return this;
+        }
+
+        /**
+         * Configure how long a connection may be leased before it is reported as a possible leak.  Leases are checked by the background housekeeping task, and each leaked lease is logged
+         * once, with the call site that requested the connection if it was sampled.  Not configured by default.
+         *
+         * @param leakDetectionThreshold how long a connection may be leased before it is reported as a possible leak
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code leakDetectionThreshold} is {@code null} or not positive
+         * @see #leakDetectionSampleRate(double)
+         */
+        public Builder leakDetectionThreshold(Duration leakDetectionThreshold) {
+            Assert.requireNonNull(leakDetectionThreshold, "leakDetectionThreshold must not be null");
+            Assert.isTrue(!leakDetectionThreshold.isNegative() && !leakDetectionThreshold.isZero(), "leakDetectionThreshold must be positive");
+
+            this.leakDetectionThreshold = leakDetectionThreshold;
+            return this;
+        }
+
+        /**
+         * Configure how long a connection may sit idle before it is closed.  Idle connections are never closed if doing so would leave fewer than {@code minIdle} connections open.  Not
+         * configured by default.
+         *
+         * @param maxIdleTime how long a connection may sit idle before it is closed
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maxIdleTime} is {@code null} or negative
+         */
+        public Builder maxIdleTime(Duration maxIdleTime) {
+            Assert.requireNonNull(maxIdleTime, "maxIdleTime must not be null");
+            Assert.isTrue(!maxIdleTime.isNegative(), "maxIdleTime must not be negative");
+
+            this.maxIdleTime = maxIdleTime;
+            return this;
+        }
+
+        /**
+         * Configure how long a connection may stay open before it is closed.  Leased connections are closed when they are returned.  Not configured by default.
+         *
+         * @param maxLifetime how long a connection may stay open before it is closed
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maxLifetime} is {@code null} or not positive
+         * @see #maxLifetimeJitter(Duration)
+         */
+        public Builder maxLifetime(Duration maxLifetime) {
+            Assert.requireNonNull(maxLifetime, "maxLifetime must not be null");
+            Assert.isTrue(!maxLifetime.isNegative() && !maxLifetime.isZero(), "maxLifetime must be positive");
+
+            this.maxLifetime = maxLifetime;
+            return this;
+        }
+
+        /**
+         * Configure the upper bound of a random amount by which the lifetime of each connection is shortened, so that connections opened together do not all expire together.  Defaults
+         * to one fortieth of the maximum lifetime.
+         *
+         * @param maxLifetimeJitter the upper bound of the random amount by which the lifetime of each connection is shortened
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maxLifetimeJitter} is {@code null} or negative
+         * @see #maxLifetime(Duration)
+         */
+        public Builder maxLifetimeJitter(Duration maxLifetimeJitter) {
+            Assert.requireNonNull(maxLifetimeJitter, "maxLifetimeJitter must not be null");
+            Assert.isTrue(!maxLifetimeJitter.isNegative(), "maxLifetimeJitter must not be negative");
+
+            this.maxLifetimeJitter = maxLifetimeJitter;
+            return this;
+        }
+
+        /**
+         * Configure the maximum number of requests that may wait for a connection at any one time.  Further requests fail immediately with a {@link PoolExhaustedException}.  Defaults
+         * to {@link Integer#MAX_VALUE}.
+         *
+         * @param maxPendingAcquire the maximum number of requests that may wait for a connection
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maxPendingAcquire} is negative
+         */
+        public Builder maxPendingAcquire(int maxPendingAcquire) {
+            Assert.isTrue(maxPendingAcquire >= 0, "maxPendingAcquire must not be negative");
+
+            this.maxPendingAcquire = maxPendingAcquire;
+            return this;
+        }
+
+        /**
+         * Configure the maximum number of connections that the pool will open at any one time.  Defaults to {@code 10}.
+         *
+         * @param maxSize the maximum number of connections
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maxSize} is not positive
+         */
+        public Builder maxSize(int maxSize) {
+            Assert.isTrue(maxSize > 0, "maxSize must be greater than zero");
+
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Configure the number of connections that the pool keeps open, even when they are idle.  The pool is refilled to this size in the background.  Defaults to {@code 0}.
+         *
+         * @param minIdle the number of connections that the pool keeps open
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code minIdle} is negative
+         */
+        public Builder minIdle(int minIdle) {
+            Assert.isTrue(minIdle >= 0, "minIdle must not be negative");
+
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        /**
+         * Configure the number of stripes that idle connections are divided between.  A connection is returned to the stripe of the thread that returns it, and a request for a
+         * connection is served from the stripe of the requesting thread, only taking connections from other stripes when its own is empty.  Configuring one stripe per event loop keeps
+         * connections on the event loop that performs their I/O and spreads contention on the idle connections.  Defaults to {@code 1}.
+         *
+         * @param stripes the number of stripes that idle connections are divided between
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code stripes} is not positive
+         */
+        public Builder stripes(int stripes) {
+            Assert.isTrue(stripes > 0, "stripes must be greater than zero");
+
+            this.stripes = stripes;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Builder{" +
+                "acquireTimeout=" + this.acquireTimeout +
+                ", acquisitionStrategy=" + this.acquisitionStrategy +
+                ", housekeepingInterval=" + this.housekeepingInterval +
+                ", leakDetectionSampleRate=" + this.leakDetectionSampleRate +
+                ", leakDetectionThreshold=" + this.leakDetectionThreshold +
+                ", maxIdleTime=" + this.maxIdleTime +
+                ", maxLifetime=" + this.maxLifetime +
+                ", maxLifetimeJitter=" + this.maxLifetimeJitter +
+                ", maxPendingAcquire=" + this.maxPendingAcquire +
+                ", maxSize=" + this.maxSize +
+                ", minIdle=" + this.minIdle +
+                ", stripes=" + this.stripes +
+                ", validationIdleTime=" + this.validationIdleTime +
+                ", validationQuery='" + this.validationQuery + '\'' +
+                '}';
+        }
+
+        /**
+         * Configure how long a connection must have been idle before it is validated when leased.  Connections used more recently than this are leased without a round trip to the
+         * database.  Has no effect unless a validation query is configured.  Defaults to {@code 500} milliseconds.
+         *
+         * @param validationIdleTime how long a connection must have been idle before it is validated
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code validationIdleTime} is {@code null} or negative
+         * @see #validationQuery(String)
+         */
+        public Builder validationIdleTime(Duration validationIdleTime) {
+            Assert.requireNonNull(validationIdleTime, "validationIdleTime must not be null");
+            Assert.isTrue(!validationIdleTime.isNegative(), "validationIdleTime must not be negative");
+
+            this.validationIdleTime = validationIdleTime;
+            return this;
+        }
+
+        /**
+         * Configure a statement, such as {@code SELECT 1}, used to check that a connection is usable.  Not configured by default.
+         *
+         * @param validationQuery the statement used to check that a connection is usable
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code validationQuery} is {@code null}
+         */
+        public Builder validationQuery(String validationQuery) {
+            this.validationQuery = Assert.requireNonNull(validationQuery, "validationQuery must not be null");
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.pool;
+
+/**
+ * An exception indicating that a {@link PooledConnectionFactory} could not lease a connection, either because too many requests were already waiting for a connection or because no
+ * connection became available within the acquire timeout.  Callers can treat this exception as a signal to shed load.
+ *
+ * @see PoolConfiguration#getMaxPendingAcquire()
+ * @see PoolConfiguration#getAcquireTimeout()
+ */
+public final class PoolExhaustedException extends RuntimeException {
+
+    /**
+     * Create a new instance of {@link PoolExhaustedException}.
+     *
+     * @param message the detail message
+     */
+    public PoolExhaustedException(String message) {
+        super(message);
+    }
+
+}
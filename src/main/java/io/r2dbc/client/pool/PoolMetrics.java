@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.pool;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the state of a {@link PooledConnectionFactory}.
+ */
+public final class PoolMetrics {
+
+    private final long acquiredCount;
+
+    private final AcquisitionStrategy acquisitionStrategy;
+
+    private final int allocatedSize;
+
+    private final int idleSize;
+
+    private final long leakedCount;
+
+    private final long maxAcquireNanos;
+
+    private final int pendingAcquireSize;
+
+    private final long rejectedCount;
+
+    private final long timedOutCount;
+
+    private final long totalAcquireNanos;
+
+    PoolMetrics(AcquisitionStrategy acquisitionStrategy, int allocatedSize, int idleSize, int pendingAcquireSize, long acquiredCount, long totalAcquireNanos, long maxAcquireNanos,
+                long rejectedCount, long timedOutCount, long leakedCount) {
+        this.acquisitionStrategy = acquisitionStrategy;
+        this.allocatedSize = allocatedSize;
+        this.idleSize = idleSize;
+        this.pendingAcquireSize = pendingAcquireSize;
+        this.acquiredCount = acquiredCount;
+        this.totalAcquireNanos = totalAcquireNanos;
+        this.maxAcquireNanos = maxAcquireNanos;
+        this.rejectedCount = rejectedCount;
+        this.timedOutCount = timedOutCount;
+        this.leakedCount = leakedCount;
+    }
+
+    /**
+     * Returns the number of connections that have been leased.
+     *
+     * @return the number of connections that have been leased
+     */
+    public long getAcquiredCount() {
+        return this.acquiredCount;
+    }
+
+    /**
+     * Returns the order in which the pool leases idle connections.
+     *
+     * @return the order in which the pool leases idle connections
+     */
+    public AcquisitionStrategy getAcquisitionStrategy() {
+        return this.acquisitionStrategy;
+    }
+
+    /**
+     * Returns the number of connections that are open or being opened, whether idle or leased.
+     *
+     * @return the number of connections that are open or being opened
+     */
+    public int getAllocatedSize() {
+        return this.allocatedSize;
+    }
+
+    /**
+     * Returns the mean time between a request for a connection and the connection being leased.
+     *
+     * @return the mean time between a request for a connection and the connection being leased
+     */
+    public Duration getAverageAcquireTime() {
+        return this.acquiredCount == 0 ? Duration.ZERO : Duration.ofNanos(this.totalAcquireNanos / this.acquiredCount);
+    }
+
+    /**
+     * Returns the number of open connections that are waiting to be leased.
+     *
+     * @return the number of open connections that are waiting to be leased
+     */
+    public int getIdleSize() {
+        return this.idleSize;
+    }
+
+    /**
+     * Returns the number of leases that were reported as possible leaks because they were held for longer than the leak detection threshold.
+     *
+     * @return the number of leases that were reported as possible leaks
+     */
+    public long getLeakedCount() {
+        return this.leakedCount;
+    }
+
+    /**
+     * Returns the longest time between a request for a connection and the connection being leased.
+     *
+     * @return the longest time between a request for a connection and the connection being leased
+     */
+    public Duration getMaxAcquireTime() {
+        return Duration.ofNanos(this.maxAcquireNanos);
+    }
+
+    /**
+     * Returns the number of requests waiting for a connection to become available.
+     *
+     * @return the number of requests waiting for a connection to become available
+     */
+    public int getPendingAcquireSize() {
+        return this.pendingAcquireSize;
+    }
+
+    /**
+     * Returns the number of requests for a connection that were rejected because the maximum number of requests were already waiting.
+     *
+     * @return the number of requests for a connection that were rejected
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount;
+    }
+
+    /**
+     * Returns the number of requests for a connection that failed because they did not acquire a connection within the acquire timeout.
+     *
+     * @return the number of requests for a connection that timed out
+     */
+    public long getTimedOutCount() {
+        return this.timedOutCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+            "acquiredCount=" + this.acquiredCount +
+            ", acquisitionStrategy=" + this.acquisitionStrategy +
+            ", allocatedSize=" + this.allocatedSize +
+            ", idleSize=" + this.idleSize +
+            ", leakedCount=" + this.leakedCount +
+            ", maxAcquireNanos=" + this.maxAcquireNanos +
+            ", pendingAcquireSize=" + this.pendingAcquireSize +
+            ", rejectedCount=" + this.rejectedCount +
+            ", timedOutCount=" + this.timedOutCount +
+            ", totalAcquireNanos=" + this.totalAcquireNanos +
+            '}';
+    }
+
+}
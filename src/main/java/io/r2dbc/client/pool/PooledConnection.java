@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.pool;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link Connection} leased from a {@link PooledConnectionFactory}.  Closing the connection returns it to the pool, rolling back any transaction that it left open.
+ */
+final class PooledConnection implements Connection {
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final PooledConnectionFactory.Entry entry;
+
+    private final long leasedAt = System.nanoTime();
+
+    private final PooledConnectionFactory pool;
+
+    @Nullable
+    private final Throwable site;
+
+    private volatile boolean inTransaction;
+
+    PooledConnection(PooledConnectionFactory pool, PooledConnectionFactory.Entry entry, @Nullable Throwable site) {
+        this.pool = pool;
+        this.entry = entry;
+        this.site = site;
+    }
+
+    @Override
+    public Publisher<Void> beginTransaction() {
+        return Flux.from(getConnection().beginTransaction())
+            .doOnComplete(() -> this.inTransaction = true);
+    }
+
+    @Override
+    public Mono<Void> close() {
+        return Mono.defer(() -> {
+            if (!this.closed.compareAndSet(false, true)) {
+                return Mono.empty();
+            }
+
+            this.pool.released(this);
+
+            if (!this.inTransaction) {
+                this.pool.release(this.entry);
+                return Mono.empty();
+            }
+
+            return Flux.from(this.entry.getConnection().rollbackTransaction())
+                .then(Mono.<Void>fromRunnable(() -> this.pool.release(this.entry)))
+                .onErrorResume(t -> this.pool.destroy(this.entry));
+        });
+    }
+
+    @Override
+    public Publisher<Void> commitTransaction() {
+        return Flux.from(getConnection().commitTransaction())
+            .doOnComplete(() -> this.inTransaction = false);
+    }
+
+    @Override
+    public Batch<?> createBatch() {
+        return getConnection().createBatch();
+    }
+
+    @Override
+    public Publisher<Void> createSavepoint(String name) {
+        return getConnection().createSavepoint(name);
+    }
+
+    @Override
+    public Statement<?> createStatement(String sql) {
+        return getConnection().createStatement(sql);
+    }
+
+    @Override
+    public Publisher<Void> releaseSavepoint(String name) {
+        return getConnection().releaseSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransaction() {
+        return Flux.from(getConnection().rollbackTransaction())
+            .doOnComplete(() -> this.inTransaction = false);
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransactionToSavepoint(String name) {
+        return getConnection().rollbackTransactionToSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> setTransactionIsolationLevel(IsolationLevel isolationLevel) {
+        return getConnection().setTransactionIsolationLevel(isolationLevel);
+    }
+
+    @Override
+    public String toString() {
+        return "PooledConnection{" +
+            "closed=" + this.closed +
+            ", entry=" + this.entry +
+            ", inTransaction=" + this.inTransaction +
+            '}';
+    }
+
+    long getLeasedNanos(long now) {
+        return now - this.leasedAt;
+    }
+
+    @Nullable
+    Throwable getSite() {
+        return this.site;
+    }
+
+    private Connection getConnection() {
+        if (this.closed.get()) {
+            throw new IllegalStateException("Connection has been returned to the pool");
+        }
+
+        return this.entry.getConnection();
+    }
+
+}
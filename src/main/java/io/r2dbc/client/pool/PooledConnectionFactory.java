@@ -0,0 +1,631 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.pool;
+
+import io.r2dbc.client.util.Assert;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Result;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ConnectionFactory} that leases {@link Connection}s from a bounded pool of connections opened by a delegate {@link ConnectionFactory}.  Closing a leased {@link Connection} returns it to
+ * the pool rather than closing it.  When every connection is leased, requests for a connection wait, without blocking, until one is returned.
+ * <p>
+ * If a maximum idle time, a maximum lifetime, or a minimum idle size is configured, a background task periodically closes expired idle connections and refills the pool to its minimum
+ * idle size, so that this work never delays a request for a connection.
+ * <p>
+ * Idle connections can be divided between several stripes.  A request for a connection is served, without locking, from the stripe of the requesting thread and only takes connections
+ * from other stripes when that stripe is empty.
+ *
+ * <p>
+ * The number of requests waiting for a connection can be bounded, and requests can be given a time limit to acquire a connection.  Requests beyond either limit fail with a
+ * {@link PoolExhaustedException} instead of waiting, so that an overloaded pool sheds load rather than building an unbounded queue.
+ * <p>
+ * If a leak detection threshold is configured, connections leased for longer than the threshold are logged as possible leaks, along with the call site that requested the connection for a
+ * sample of leases.
+ *
+ * @see PoolConfiguration.Builder#stripes(int)
+ * @see PoolConfiguration.Builder#maxPendingAcquire(int)
+ * @see PoolConfiguration.Builder#acquireTimeout(Duration)
+ * @see PoolConfiguration.Builder#leakDetectionThreshold(Duration)
+ */
+public final class PooledConnectionFactory implements ConnectionFactory {
+
+    private final LongAdder acquiredCount = new LongAdder();
+
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    private final PoolConfiguration configuration;
+
+    private final ConnectionFactory connectionFactory;
+
+    @Nullable
+    private final Disposable housekeeper;
+
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder leakedCount = new LongAdder();
+
+    private final Logger logger = Loggers.getLogger(this.getClass());
+
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+
+    private final Deque<Borrower> pending = new ConcurrentLinkedDeque<>();
+
+    private final LongAdder pendingSize = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final Stripe[] stripes;
+
+    private final LongAdder timedOutCount = new LongAdder();
+
+    private final LongAdder totalAcquireNanos = new LongAdder();
+
+    private final AtomicInteger warming = new AtomicInteger();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /**
+     * Create a new instance of {@link PooledConnectionFactory} with the default {@link PoolConfiguration}.
+     *
+     * @param connectionFactory the {@link ConnectionFactory} used to open pooled {@link Connection}s
+     * @throws IllegalArgumentException if {@code connectionFactory} is {@code null}
+     */
+    public PooledConnectionFactory(ConnectionFactory connectionFactory) {
+        this(connectionFactory, PoolConfiguration.builder().build());
+    }
+
+    /**
+     * Create a new instance of {@link PooledConnectionFactory}.
+     *
+     * @param connectionFactory the {@link ConnectionFactory} used to open pooled {@link Connection}s
+     * @param configuration     the configuration of the pool
+     * @throws IllegalArgumentException if {@code connectionFactory} or {@code configuration} is {@code null}
+     */
+    public PooledConnectionFactory(ConnectionFactory connectionFactory, PoolConfiguration configuration) {
+        this.connectionFactory = Assert.requireNonNull(connectionFactory, "connectionFactory must not be null");
+        this.configuration = Assert.requireNonNull(configuration, "configuration must not be null");
+
+        this.stripes = new Stripe[configuration.getStripes()];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+
+        if (configuration.getMaxIdleTime().isPresent() || configuration.getMaxLifetime().isPresent() || configuration.getMinIdle() > 0
+            || configuration.getLeakDetectionThreshold().isPresent()) {
+            Duration interval = configuration.getHousekeepingInterval();
+            this.housekeeper = Flux.interval(interval, interval, Schedulers.parallel())
+                .subscribe(tick -> housekeep());
+        } else {
+            this.housekeeper = null;
+        }
+    }
+
+    /**
+     * Close the pool.  Idle connections are closed immediately, leased connections are closed when they are returned, and pending requests for a connection are failed.
+     *
+     * @return a {@link Mono} that indicates that the idle connections have been closed
+     */
+    public Mono<Void> close() {
+        return Mono.defer(() -> {
+            this.closed = true;
+
+            if (this.housekeeper != null) {
+                this.housekeeper.dispose();
+            }
+
+            Borrower borrower;
+            while ((borrower = this.pending.poll()) != null) {
+                this.pendingSize.decrement();
+                borrower.error(new IllegalStateException("PooledConnectionFactory has been closed"));
+            }
+
+            List<Mono<Void>> destroys = new ArrayList<>();
+
+            Entry entry;
+            while ((entry = pollIdle()) != null) {
+                destroys.add(destroy(entry));
+            }
+
+            return Flux.merge(destroys).then();
+        });
+    }
+
+    /**
+     * Lease a {@link Connection} from the pool, opening a new one if none are idle and the pool has not reached its maximum size.  The request fails with a {@link PoolExhaustedException}
+     * if it would exceed the maximum number of pending requests or does not acquire a connection within the acquire timeout.
+     *
+     * @return a {@link Mono} of a leased {@link Connection}.  Closing the connection returns it to the pool.
+     */
+    @Override
+    public Mono<Connection> create() {
+        Mono<Connection> acquire = Mono.create(sink -> {
+            if (this.closed) {
+                sink.error(new IllegalStateException("PooledConnectionFactory has been closed"));
+                return;
+            }
+
+            Borrower borrower = new Borrower(sink);
+            sink.onCancel(borrower::cancel);
+
+            if (this.pending.isEmpty()) {
+                Entry entry = pollIdle();
+
+                if (entry != null) {
+                    lease(borrower, entry);
+                    return;
+                }
+
+                if (tryReserve()) {
+                    allocate(borrower);
+                    return;
+                }
+            }
+
+            // Only queued requests count towards the limit, so requests served above touch no shared counter
+            if (this.pendingSize.sum() >= this.configuration.getMaxPendingAcquire()) {
+                this.rejectedCount.increment();
+                borrower.error(new PoolExhaustedException(String.format("Pending acquire queue has reached its maximum size of %d", this.configuration.getMaxPendingAcquire())));
+                return;
+            }
+
+            this.pendingSize.increment();
+            this.pending.offer(borrower);
+            drain();
+        });
+
+        return this.configuration.getAcquireTimeout()
+            .map(acquireTimeout -> acquire.timeout(acquireTimeout, Mono.defer(() -> {
+                this.timedOutCount.increment();
+                return Mono.<Connection>error(new PoolExhaustedException(String.format("Connection was not acquired within %s", acquireTimeout)));
+            })))
+            .orElse(acquire);
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return this.connectionFactory.getMetadata();
+    }
+
+    /**
+     * Returns a snapshot of the state of the pool.
+     *
+     * @return a snapshot of the state of the pool
+     */
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(this.configuration.getAcquisitionStrategy(), this.allocated.get(), getIdleSize(), this.pendingSize.intValue(), this.acquiredCount.sum(), this.totalAcquireNanos.sum(),
+            this.maxAcquireNanos.get(), this.rejectedCount.sum(), this.timedOutCount.sum(), this.leakedCount.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "PooledConnectionFactory{" +
+            "configuration=" + this.configuration +
+            ", connectionFactory=" + this.connectionFactory +
+            '}';
+    }
+
+    /**
+     * Open connections, in parallel, until the pool holds, or is already opening, at least {@code minIdle} idle connections or reaches its maximum size.  If a validation query is configured, each new connection is validated
+     * before it is added to the pool.  Warming up the pool moves the cost of opening connections out of the path of the first requests.
+     *
+     * @param minIdle the minimum number of idle connections to hold
+     * @return a {@link Mono} that indicates that the connections have been opened
+     * @throws IllegalArgumentException if {@code minIdle} is negative
+     * @see PoolConfiguration#getValidationQuery()
+     */
+    public Mono<Void> warmup(int minIdle) {
+        Assert.isTrue(minIdle >= 0, "minIdle must not be negative");
+
+        return Mono.defer(() -> {
+            // Opens are reserved before subscribing, so that overlapping warmups count each other's opens rather than opening past minIdle
+            List<Mono<Void>> opens = new ArrayList<>();
+
+            for (int i = minIdle - getIdleSize() - this.warming.get(); i > 0 && tryReserve(); i--) {
+                this.warming.incrementAndGet();
+
+                opens.add(open()
+                    .flatMap(entry -> validate(entry)
+                        .onErrorResume(t -> destroy(entry)
+                            .then(Mono.error(t)))
+                        .then(Mono.<Void>fromRunnable(() -> release(entry))))
+                    .doFinally(signal -> this.warming.decrementAndGet()));
+            }
+
+            if (opens.isEmpty()) {
+                return Mono.empty();
+            }
+
+            return Flux.fromIterable(opens)
+                .flatMapDelayError(open -> open, opens.size(), 1)
+                .then();
+        });
+    }
+
+    Mono<Void> destroy(Entry entry) {
+        return Flux.from(entry.getConnection().close())
+            .onErrorResume(t -> Mono.empty())
+            .then()
+            .doFinally(signal -> {
+                this.allocated.decrementAndGet();
+                drain();
+            });
+    }
+
+    /**
+     * Close idle connections that have expired, refill the pool to its minimum idle size, and report leases that may have leaked.
+     */
+    void housekeep() {
+        if (this.closed) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        detectLeaks(now);
+        long maxIdleNanos = this.configuration.getMaxIdleTime().map(Duration::toNanos).orElse(Long.MAX_VALUE);
+        int evictable = getIdleSize() - this.configuration.getMinIdle();
+
+        for (Stripe stripe : this.stripes) {
+            for (Entry entry : stripe.entries) {
+                boolean expired = entry.isExpired(now);
+                boolean idleTooLong = evictable > 0 && entry.getIdleNanos(now) > maxIdleNanos;
+
+                if ((expired || idleTooLong) && stripe.entries.removeFirstOccurrence(entry)) {
+                    evictable--;
+                    destroy(entry).subscribe();
+                }
+            }
+        }
+
+        warmup(this.configuration.getMinIdle())
+            .onErrorResume(t -> Mono.empty())
+            .subscribe();
+    }
+
+    void release(Entry entry) {
+        if (this.closed || entry.isExpired(System.nanoTime())) {
+            destroy(entry).subscribe();
+            return;
+        }
+
+        entry.touch();
+        this.stripes[localStripe()].entries.offerLast(entry);
+        drain();
+    }
+
+    void released(PooledConnection connection) {
+        this.leased.remove(connection);
+    }
+
+    private void allocate(Borrower borrower) {
+        open().subscribe(entry -> deliver(borrower, entry), borrower::error);
+    }
+
+    private void deliver(Borrower borrower, Entry entry) {
+        PooledConnection connection = new PooledConnection(this, entry, borrower.site);
+
+        if (this.configuration.getLeakDetectionThreshold().isPresent()) {
+            this.leased.add(connection);
+        }
+
+        if (!borrower.deliver(connection)) {
+            this.leased.remove(connection);
+            release(entry);
+        }
+    }
+
+    private void detectLeaks(long now) {
+        this.configuration.getLeakDetectionThreshold().ifPresent(threshold -> {
+            for (PooledConnection connection : this.leased) {
+                long leasedNanos = connection.getLeasedNanos(now);
+
+                // Removing the lease ensures that each leak is only reported once
+                if (leasedNanos > threshold.toNanos() && this.leased.remove(connection)) {
+                    this.leakedCount.increment();
+
+                    String message = String.format("Connection leased %s ago has not been returned to the pool", Duration.ofNanos(leasedNanos));
+                    Throwable site = connection.getSite();
+
+                    if (site != null) {
+                        this.logger.warn(message, site);
+                    } else {
+                        this.logger.warn(message);
+                    }
+                }
+            }
+        });
+    }
+
+    private void drain() {
+        if (this.wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            Borrower borrower;
+            while (!this.closed && (borrower = this.pending.poll()) != null) {
+                this.pendingSize.decrement();
+
+                if (!borrower.isWaiting()) {
+                    continue;
+                }
+
+                Entry entry = pollIdle();
+                if (entry != null) {
+                    lease(borrower, entry);
+                } else if (tryReserve()) {
+                    allocate(borrower);
+                } else {
+                    this.pendingSize.increment();
+                    this.pending.offerFirst(borrower);
+                    break;
+                }
+            }
+
+            missed = this.wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private long expiresAt() {
+        return this.configuration.getMaxLifetime()
+            .map(maxLifetime -> {
+                long jitter = this.configuration.getMaxLifetimeJitter().toNanos();
+                long lifetime = maxLifetime.toNanos() - (jitter == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitter));
+
+                return System.nanoTime() + lifetime;
+            })
+            .orElse(Long.MAX_VALUE);
+    }
+
+    private int getIdleSize() {
+        int idleSize = 0;
+        for (Stripe stripe : this.stripes) {
+            idleSize += stripe.entries.size();
+        }
+
+        return idleSize;
+    }
+
+    private void lease(Borrower borrower, Entry entry) {
+        if (!this.configuration.getValidationQuery().isPresent() || entry.getIdleNanos(System.nanoTime()) < this.configuration.getValidationIdleTime().toNanos()) {
+            deliver(borrower, entry);
+            return;
+        }
+
+        validate(entry).subscribe(null,
+            t -> {
+                this.pendingSize.increment();
+                this.pending.offerFirst(borrower);
+                destroy(entry).subscribe();
+            },
+            () -> deliver(borrower, entry));
+    }
+
+    private int localStripe() {
+        if (this.stripes.length == 1) {
+            return 0;
+        }
+
+        return (int) (Thread.currentThread().getId() % this.stripes.length);
+    }
+
+    private Mono<Entry> open() {
+        return Mono.<Connection>from(this.connectionFactory.create())
+            .switchIfEmpty(Mono.error(new IllegalStateException("ConnectionFactory did not produce a Connection")))
+            .map(connection -> new Entry(connection, expiresAt()))
+            .doOnError(t -> {
+                this.allocated.decrementAndGet();
+                drain();
+            });
+    }
+
+    @Nullable
+    private Entry pollIdle() {
+        int local = localStripe();
+
+        boolean lifo = this.configuration.getAcquisitionStrategy() == AcquisitionStrategy.LIFO;
+
+        for (int i = 0; i < this.stripes.length; i++) {
+            Deque<Entry> entries = this.stripes[(local + i) % this.stripes.length].entries;
+            Entry entry = lifo ? entries.pollLast() : entries.pollFirst();
+
+            if (entry != null) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private void recordAcquire(long acquireNanos) {
+        this.acquiredCount.increment();
+        this.totalAcquireNanos.add(acquireNanos);
+        this.maxAcquireNanos.accumulate(acquireNanos);
+    }
+
+    private boolean tryReserve() {
+        for (; ; ) {
+            int current = this.allocated.get();
+
+            if (current >= this.configuration.getMaxSize()) {
+                return false;
+            }
+
+            if (this.allocated.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private Mono<Void> validate(Entry entry) {
+        return this.configuration.getValidationQuery()
+            .map(validationQuery -> Flux.defer(() -> entry.getConnection().createStatement(validationQuery).execute())
+                .flatMap(Result::getRowsUpdated)
+                .then())
+            .orElse(Mono.empty());
+    }
+
+    static final class Entry {
+
+        private final Connection connection;
+
+        private final long expiresAt;
+
+        private volatile long lastUsed = System.nanoTime();
+
+        Entry(Connection connection, long expiresAt) {
+            this.connection = connection;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                "connection=" + this.connection +
+                ", expiresAt=" + this.expiresAt +
+                ", lastUsed=" + this.lastUsed +
+                '}';
+        }
+
+        Connection getConnection() {
+            return this.connection;
+        }
+
+        long getIdleNanos(long now) {
+            return now - this.lastUsed;
+        }
+
+        boolean isExpired(long now) {
+            return this.expiresAt != Long.MAX_VALUE && now - this.expiresAt >= 0;
+        }
+
+        void touch() {
+            this.lastUsed = System.nanoTime();
+        }
+
+    }
+
+    private static final class Stripe {
+
+        private final Deque<Entry> entries = new ConcurrentLinkedDeque<>();
+
+        @Override
+        public String toString() {
+            return "Stripe{" +
+                "entries=" + this.entries +
+                '}';
+        }
+
+    }
+
+    private final class Borrower {
+
+        private static final int CANCELLED = 2;
+
+        private static final int DELIVERED = 1;
+
+        private static final int WAITING = 0;
+
+        @Nullable
+        private final Throwable site;
+
+        private final MonoSink<Connection> sink;
+
+        private final long start = System.nanoTime();
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        @Nullable
+        private volatile PooledConnection connection;
+
+        private Borrower(MonoSink<Connection> sink) {
+            this.sink = sink;
+            this.site = isSampled() ? new Exception("Connection leased here") : null;
+        }
+
+        private void cancel() {
+            if (this.state.compareAndSet(WAITING, CANCELLED)) {
+                if (PooledConnectionFactory.this.pending.remove(this)) {
+                    PooledConnectionFactory.this.pendingSize.decrement();
+                }
+
+                return;
+            }
+
+            // The sink only signals cancellation if it has not emitted a value, so a delivered connection would otherwise be dropped
+            PooledConnection connection = this.connection;
+            if (this.state.get() == DELIVERED && connection != null) {
+                connection.close().subscribe();
+            }
+        }
+
+        private boolean deliver(PooledConnection connection) {
+            this.connection = connection;
+
+            if (!this.state.compareAndSet(WAITING, DELIVERED)) {
+                return false;
+            }
+
+            recordAcquire(System.nanoTime() - this.start);
+            this.sink.success(connection);
+            return true;
+        }
+
+        private void error(Throwable t) {
+            if (this.state.compareAndSet(WAITING, CANCELLED)) {
+                this.sink.error(t);
+            }
+        }
+
+        private boolean isSampled() {
+            PoolConfiguration configuration = PooledConnectionFactory.this.configuration;
+
+            return configuration.getLeakDetectionThreshold().isPresent() && ThreadLocalRandom.current().nextDouble() < configuration.getLeakDetectionSampleRate();
+        }
+
+        private boolean isWaiting() {
+            return this.state.get() == WAITING;
+        }
+
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.routing;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link Connection} opened by a {@link LeastOutstandingConnectionFactory}.  Closing the connection reports how long it was in use to the load balancer, and the
+ * statements it creates report whether they succeed.
+ */
+final class BalancedConnection implements Connection {
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final Connection connection;
+
+    private final LeastOutstandingConnectionFactory.Lease lease;
+
+    BalancedConnection(Connection connection, LeastOutstandingConnectionFactory.Lease lease) {
+        this.connection = connection;
+        this.lease = lease;
+    }
+
+    @Override
+    public Publisher<Void> beginTransaction() {
+        return getConnection().beginTransaction();
+    }
+
+    @Override
+    public Mono<Void> close() {
+        return Mono.defer(() -> {
+            if (!this.closed.compareAndSet(false, true)) {
+                return Mono.empty();
+            }
+
+            return Flux.from(this.connection.close())
+                .then()
+                .doFinally(signal -> this.lease.release());
+        });
+    }
+
+    @Override
+    public Publisher<Void> commitTransaction() {
+        return getConnection().commitTransaction();
+    }
+
+    @Override
+    public Batch<?> createBatch() {
+        return new BalancedBatch(this.lease, getConnection().createBatch());
+    }
+
+    @Override
+    public Publisher<Void> createSavepoint(String name) {
+        return getConnection().createSavepoint(name);
+    }
+
+    @Override
+    public Statement<?> createStatement(String sql) {
+        return new BalancedStatement(this.lease, getConnection().createStatement(sql));
+    }
+
+    @Override
+    public Publisher<Void> releaseSavepoint(String name) {
+        return getConnection().releaseSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransaction() {
+        return getConnection().rollbackTransaction();
+    }
+
+    @Override
+    public Publisher<Void> rollbackTransactionToSavepoint(String name) {
+        return getConnection().rollbackTransactionToSavepoint(name);
+    }
+
+    @Override
+    public Publisher<Void> setTransactionIsolationLevel(IsolationLevel isolationLevel) {
+        return getConnection().setTransactionIsolationLevel(isolationLevel);
+    }
+
+    @Override
+    public String toString() {
+        return "BalancedConnection{" +
+            "closed=" + this.closed +
+            ", connection=" + this.connection +
+            ", lease=" + this.lease +
+            '}';
+    }
+
+    private Connection getConnection() {
+        if (this.closed.get()) {
+            throw new IllegalStateException("Connection has been closed");
+        }
+
+        return this.connection;
+    }
+
+}
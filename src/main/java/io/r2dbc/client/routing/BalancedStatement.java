@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.routing;
+
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Flux;
+
+/**
+ * A {@link Statement} created by a {@link BalancedConnection}.  Executing the statement reports its outcome to the load balancer.
+ */
+final class BalancedStatement implements Statement<BalancedStatement> {
+
+    private final LeastOutstandingConnectionFactory.Lease lease;
+
+    private final Statement<?> statement;
+
+    BalancedStatement(LeastOutstandingConnectionFactory.Lease lease, Statement<?> statement) {
+        this.lease = lease;
+        this.statement = statement;
+    }
+
+    @Override
+    public BalancedStatement add() {
+        this.statement.add();
+        return this;
+    }
+
+    @Override
+    public BalancedStatement bind(Object identifier, Object value) {
+        this.statement.bind(identifier, value);
+        return this;
+    }
+
+    @Override
+    public BalancedStatement bind(Integer index, Object value) {
+        this.statement.bind(index, value);
+        return this;
+    }
+
+    @Override
+    public BalancedStatement bindNull(Object identifier, Class<?> type) {
+        this.statement.bindNull(identifier, type);
+        return this;
+    }
+
+    @Override
+    public BalancedStatement bindNull(Integer index, Class<?> type) {
+        this.statement.bindNull(index, type);
+        return this;
+    }
+
+    @Override
+    public Flux<Result> execute() {
+        return this.lease.observe(this.statement.execute());
+    }
+
+    @Override
+    public String toString() {
+        return "BalancedStatement{" +
+            "lease=" + this.lease +
+            ", statement=" + this.statement +
+            '}';
+    }
+
+}
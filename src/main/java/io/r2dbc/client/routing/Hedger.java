@@ -0,0 +1,306 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.routing;
+
+import io.r2dbc.client.util.Assert;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hedges read-only units of work: if a unit of work has not produced its first result within a delay derived from a percentile of recent latencies, it is started a second time and the first
+ * of the two to respond wins, with the other being cancelled.  Hedging bounds tail latency at the cost of a small amount of extra load.  That extra load is capped by a budget, a fraction of
+ * the units of work that may be hedged, so that hedging cannot amplify load when the database is slow across the board.
+ * <p>
+ * A unit of work is hedged by resubscribing to it, so it must be safe to run twice.  Applied to an {@code R2dbc} routed over replicas, each subscription opens a new connection and so is likely
+ * to run on a different replica:
+ * <pre>
+ * r2dbc.withReadOnlyHandle(handle -&gt; handle.select("SELECT value FROM test").mapResult(...))
+ *     .transform(hedger::hedge)
+ * </pre>
+ */
+public final class Hedger {
+
+    private static final long TOKEN = 1000;
+
+    private final long budget;
+
+    private final LongAdder hedgedCount = new LongAdder();
+
+    private final long maxTokens;
+
+    private final long minDelayNanos;
+
+    private final double percentile;
+
+    private final long[] samples;
+
+    private final AtomicLong tokens = new AtomicLong();
+
+    private volatile long delayNanos = -1;
+
+    private long sampleCount;
+
+    private Hedger(double budget, int maxBurst, Duration minDelay, double percentile, int window) {
+        this.budget = (long) (budget * TOKEN);
+        this.maxTokens = maxBurst * TOKEN;
+        this.minDelayNanos = minDelay.toNanos();
+        this.percentile = percentile;
+        this.samples = new long[window];
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the delay after which a unit of work is hedged, once enough units of work have been observed to derive it.
+     *
+     * @return the delay after which a unit of work is hedged
+     */
+    public Optional<Duration> getDelay() {
+        long delayNanos = this.delayNanos;
+        return delayNanos < 0 ? Optional.empty() : Optional.of(Duration.ofNanos(delayNanos));
+    }
+
+    /**
+     * Returns the number of units of work that have been hedged.
+     *
+     * @return the number of units of work that have been hedged
+     */
+    public long getHedgedCount() {
+        return this.hedgedCount.sum();
+    }
+
+    /**
+     * Hedge a unit of work.
+     *
+     * @param source the unit of work, which is subscribed to a second time if it is slow to respond
+     * @param <T>    the type of results
+     * @return a {@link Flux} of the results of whichever subscription responds first
+     * @throws IllegalArgumentException if {@code source} is {@code null}
+     */
+    public <T> Flux<T> hedge(Publisher<T> source) {
+        Assert.requireNonNull(source, "source must not be null");
+
+        return Flux.defer(() -> {
+            deposit();
+
+            long delayNanos = this.delayNanos;
+            if (delayNanos < 0) {
+                return measure(source);
+            }
+
+            Flux<T> hedge = Mono.delay(Duration.ofNanos(delayNanos))
+                .flatMapMany(tick -> {
+                    if (!tryWithdraw()) {
+                        return Flux.never();
+                    }
+
+                    this.hedgedCount.increment();
+                    return measure(source);
+                });
+
+            return Flux.first(measure(source), hedge);
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "Hedger{" +
+            "budget=" + this.budget +
+            ", delayNanos=" + this.delayNanos +
+            ", hedgedCount=" + this.hedgedCount +
+            ", maxTokens=" + this.maxTokens +
+            ", minDelayNanos=" + this.minDelayNanos +
+            ", percentile=" + this.percentile +
+            ", tokens=" + this.tokens +
+            '}';
+    }
+
+    private void deposit() {
+        this.tokens.accumulateAndGet(this.budget, (current, budget) -> Math.min(this.maxTokens, current + budget));
+    }
+
+    private <T> Flux<T> measure(Publisher<T> source) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean responded = new AtomicBoolean();
+
+            return Flux.from(source)
+                .doOnEach(signal -> {
+                    if ((signal.isOnNext() || signal.isOnComplete()) && responded.compareAndSet(false, true)) {
+                        record(System.nanoTime() - start);
+                    }
+                });
+        });
+    }
+
+    private synchronized void record(long latencyNanos) {
+        this.samples[(int) (this.sampleCount++ % this.samples.length)] = latencyNanos;
+
+        // Sorting the window on every sample would cost more than the query, so the delay is only refreshed each time a tenth of the window has been replaced
+        int refresh = Math.max(1, this.samples.length / 10);
+        if (this.sampleCount % refresh != 0) {
+            return;
+        }
+
+        long[] sorted = Arrays.copyOf(this.samples, (int) Math.min(this.sampleCount, this.samples.length));
+        Arrays.sort(sorted);
+
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(this.percentile * sorted.length) - 1);
+        this.delayNanos = Math.max(this.minDelayNanos, sorted[Math.max(0, index)]);
+    }
+
+    private boolean tryWithdraw() {
+        for (; ; ) {
+            long current = this.tokens.get();
+
+            if (current < TOKEN) {
+                return false;
+            }
+
+            if (this.tokens.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * A builder for {@link Hedger} instances.
+     */
+    public static final class Builder {
+
+        private double budget = 0.05;
+
+        private int maxBurst = 10;
+
+        private Duration minDelay = Duration.ZERO;
+
+        private double percentile = 0.95;
+
+        private int window = 1000;
+
+        private Builder() {
+        }
+
+        /**
+         * Configure the fraction of units of work that may be hedged.  Defaults to {@code 0.05}, that is at most 5% extra load.
+         *
+         * @param budget the fraction of units of work that may be hedged
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code budget} is not between {@code 0} and {@code 1}
+         */
+        public Builder budget(double budget) {
+            Assert.isTrue(budget >= 0 && budget <= 1, "budget must be between 0 and 1");
+
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Returns a configured {@link Hedger}.
+         *
+         * @return a configured {@link Hedger}
+         */
+        public Hedger build() {
+            return new Hedger(this.budget, this.maxBurst, this.minDelay, this.percentile, this.window);
+        }
+
+        /**
+         * Configure how many unused hedges the budget may accumulate, bounding how many units of work can be hedged in a burst.  Defaults to {@code 10}.
+         *
+         * @param maxBurst how many unused hedges the budget may accumulate
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code maxBurst} is less than one
+         */
+        public Builder maxBurst(int maxBurst) {
+            Assert.isTrue(maxBurst > 0, "maxBurst must be greater than zero");
+
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        /**
+         * Configure the shortest delay after which a unit of work is hedged.  Defaults to {@link Duration#ZERO}.
+         *
+         * @param minDelay the shortest delay after which a unit of work is hedged
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code minDelay} is {@code null} or negative
+         */
+        public Builder minDelay(Duration minDelay) {
+            Assert.requireNonNull(minDelay, "minDelay must not be null");
+            Assert.isTrue(!minDelay.isNegative(), "minDelay must not be negative");
+
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        /**
+         * Configure the percentile of recent latencies, measured to the first result, after which a unit of work is hedged.  Defaults to {@code 0.95}.
+         *
+         * @param percentile the percentile of recent latencies after which a unit of work is hedged
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code percentile} is not greater than {@code 0} and less than {@code 1}
+         */
+        public Builder percentile(double percentile) {
+            Assert.isTrue(percentile > 0 && percentile < 1, "percentile must be greater than 0 and less than 1");
+
+            this.percentile = percentile;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Builder{" +
+                "budget=" + this.budget +
+                ", maxBurst=" + this.maxBurst +
+                ", minDelay=" + this.minDelay +
+                ", percentile=" + this.percentile +
+                ", window=" + this.window +
+                '}';
+        }
+
+        /**
+         * Configure how many recent latencies the percentile is taken over.  Units of work are not hedged until a tenth of this many have been observed.  Defaults to {@code 1000}.
+         *
+         * @param window how many recent latencies the percentile is taken over
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code window} is less than one
+         */
+        public Builder window(int window) {
+            Assert.isTrue(window > 0, "window must be greater than zero");
+
+            this.window = window;
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.routing;
+
+import io.r2dbc.client.util.Assert;
+import io.r2dbc.client.util.DelegatingConnectionFactory;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Result;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link ConnectionFactory} that opens each {@link Connection} from the least loaded of several {@link ConnectionFactory}s, typically one for each replica of a database.
+ * <p>
+ * For each {@link ConnectionFactory} this tracks the number of connections in use and an exponentially weighted moving average of how long each connection is in use, from the request for the
+ * connection until it is closed.  Each request compares two {@link ConnectionFactory}s chosen at random and uses the one with the lower product of the two, which avoids a slow replica without
+ * sending every request to the same fast one.  A {@link ConnectionFactory} with no latency samples yet is scored with the average latency of the others, rather than taking every request until
+ * its first sample.
+ * <p>
+ * A {@link ConnectionFactory} that fails to open a connection, or whose connections fail to execute statements, a number of times in a row without a statement succeeding is ejected, and
+ * receives no requests, for a period of time.  If every {@link ConnectionFactory} is ejected, requests are sent to the least loaded one regardless.
+ */
+public final class LeastOutstandingConnectionFactory implements DelegatingConnectionFactory {
+
+    private final long ejectionNanos;
+
+    private final int failureThreshold;
+
+    private final List<Node> nodes;
+
+    private final double smoothing;
+
+    private LeastOutstandingConnectionFactory(List<ConnectionFactory> connectionFactories, Duration ejectionTime, int failureThreshold, double smoothing) {
+        List<Node> nodes = new ArrayList<>(connectionFactories.size());
+        for (ConnectionFactory connectionFactory : connectionFactories) {
+            nodes.add(new Node(connectionFactory));
+        }
+
+        this.ejectionNanos = ejectionTime.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Open a {@link Connection} from the least loaded {@link ConnectionFactory}.  The {@link ConnectionFactory} is chosen on subscription, so that resubscribing, for example to retry, chooses
+     * again.
+     *
+     * @return a {@link Mono} of a {@link Connection}
+     */
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            Lease lease = new Lease(select(System.nanoTime()));
+
+            return Mono.<Connection>from(lease.node.connectionFactory.create())
+                .switchIfEmpty(Mono.error(new IllegalStateException("ConnectionFactory did not produce a Connection")))
+                .map(lease::connect)
+                .doOnError(t -> lease.fail())
+                .doOnCancel(lease::cancel);
+        });
+    }
+
+    @Override
+    public List<ConnectionFactory> getConnectionFactories() {
+        return this.nodes.stream()
+            .map(node -> node.connectionFactory)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return this.nodes.get(0).connectionFactory.getMetadata();
+    }
+
+    @Override
+    public String toString() {
+        return "LeastOutstandingConnectionFactory{" +
+            "ejectionNanos=" + this.ejectionNanos +
+            ", failureThreshold=" + this.failureThreshold +
+            ", nodes=" + this.nodes +
+            ", smoothing=" + this.smoothing +
+            '}';
+    }
+
+    private double getAverageLatencyNanos() {
+        double total = 0;
+        int count = 0;
+
+        for (Node node : this.nodes) {
+            double latencyNanos = node.latencyNanos;
+
+            if (latencyNanos != 0) {
+                total += latencyNanos;
+                count++;
+            }
+        }
+
+        return count == 0 ? 0 : total / count;
+    }
+
+    private Node select(long now) {
+        int size = this.nodes.size();
+
+        if (size == 1) {
+            return this.nodes.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int attempt = 0; attempt < size; attempt++) {
+            int i = random.nextInt(size);
+            int j = random.nextInt(size - 1);
+            if (j >= i) {
+                j++;
+            }
+
+            Node first = this.nodes.get(i);
+            Node second = this.nodes.get(j);
+
+            boolean firstAvailable = !first.isEjected(now);
+            boolean secondAvailable = !second.isEjected(now);
+
+            if (firstAvailable && secondAvailable) {
+                return first.getCost() <= second.getCost() ? first : second;
+            } else if (firstAvailable) {
+                return first;
+            } else if (secondAvailable) {
+                return second;
+            }
+        }
+
+        Node best = this.nodes.get(0);
+        for (Node node : this.nodes) {
+            if (node.getCost() < best.getCost()) {
+                best = node;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * A builder for {@link LeastOutstandingConnectionFactory} instances.
+     */
+    public static final class Builder {
+
+        @Nullable
+        private List<ConnectionFactory> connectionFactories;
+
+        private Duration ejectionTime = Duration.ofSeconds(30);
+
+        private int failureThreshold = 3;
+
+        private double smoothing = 0.3;
+
+        private Builder() {
+        }
+
+        /**
+         * Returns a configured {@link LeastOutstandingConnectionFactory}.
+         *
+         * @return a configured {@link LeastOutstandingConnectionFactory}
+         * @throws IllegalArgumentException if {@code connectionFactories} has not been configured
+         */
+        public LeastOutstandingConnectionFactory build() {
+            Assert.requireNonNull(this.connectionFactories, "connectionFactories must not be null");
+
+            return new LeastOutstandingConnectionFactory(this.connectionFactories, this.ejectionTime, this.failureThreshold, this.smoothing);
+        }
+
+        /**
+         * Configure the {@link ConnectionFactory}s to open {@link Connection}s from.
+         *
+         * @param connectionFactories the {@link ConnectionFactory}s to open {@link Connection}s from
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code connectionFactories} is {@code null}, empty, or contains {@code null}
+         */
+        public Builder connectionFactories(List<? extends ConnectionFactory> connectionFactories) {
+            Assert.requireNonNull(connectionFactories, "connectionFactories must not be null");
+            Assert.isTrue(!connectionFactories.isEmpty(), "connectionFactories must not be empty");
+            Assert.isTrue(!connectionFactories.contains(null), "connectionFactories must not contain null");
+
+            this.connectionFactories = new ArrayList<>(connectionFactories);
+            return this;
+        }
+
+        /**
+         * Configure how long a {@link ConnectionFactory} is ejected for after failing to open connections or execute statements.  Defaults to {@code 30} seconds.
+         *
+         * @param ejectionTime how long a {@link ConnectionFactory} is ejected for
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code ejectionTime} is {@code null} or negative
+         */
+        public Builder ejectionTime(Duration ejectionTime) {
+            Assert.requireNonNull(ejectionTime, "ejectionTime must not be null");
+            Assert.isTrue(!ejectionTime.isNegative(), "ejectionTime must not be negative");
+
+            this.ejectionTime = ejectionTime;
+            return this;
+        }
+
+        /**
+         * Configure how many times in a row a {@link ConnectionFactory} may fail to open a connection or execute a statement before it is ejected.  Defaults to {@code 3}.
+         *
+         * @param failureThreshold how many times in a row a {@link ConnectionFactory} may fail to open a connection or execute a statement
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code failureThreshold} is less than one
+         */
+        public Builder failureThreshold(int failureThreshold) {
+            Assert.isTrue(failureThreshold > 0, "failureThreshold must be greater than zero");
+
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * Configure the weight given to each new latency sample in the moving average, from {@code 0} exclusive to {@code 1}.  Higher values react faster to a change in latency.  Defaults to
+         * {@code 0.3}.
+         *
+         * @param smoothing the weight given to each new latency sample
+         * @return this {@link Builder}
+         * @throws IllegalArgumentException if {@code smoothing} is not greater than {@code 0} and at most {@code 1}
+         */
+        public Builder smoothing(double smoothing) {
+            Assert.isTrue(smoothing > 0 && smoothing <= 1, "smoothing must be greater than 0 and at most 1");
+
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Builder{" +
+                "connectionFactories=" + this.connectionFactories +
+                ", ejectionTime=" + this.ejectionTime +
+                ", failureThreshold=" + this.failureThreshold +
+                ", smoothing=" + this.smoothing +
+                '}';
+        }
+
+    }
+
+    final class Lease {
+
+        private final AtomicBoolean connected = new AtomicBoolean();
+
+        private final Node node;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private final long start = System.nanoTime();
+
+        private Lease(Node node) {
+            this.node = node;
+            node.inFlight.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return "Lease{" +
+                "node=" + this.node +
+                ", released=" + this.released +
+                ", start=" + this.start +
+                '}';
+        }
+
+        Flux<Result> observe(Publisher<? extends Result> source) {
+            return Flux.<Result>from(source)
+                .doOnError(t -> this.node.fail())
+                .map(result -> new BalancedResult(this, result));
+        }
+
+        <T> Flux<T> record(Publisher<T> source) {
+            return Flux.from(source)
+                .doOnComplete(() -> this.node.failures.set(0))
+                .doOnError(t -> this.node.fail());
+        }
+
+        void release() {
+            if (this.released.compareAndSet(false, true)) {
+                this.node.inFlight.decrementAndGet();
+                this.node.sample(System.nanoTime() - this.start);
+            }
+        }
+
+        private void cancel() {
+            // Once the connection has been handed out, the lease is released when the connection is closed
+            if (!this.connected.get() && this.released.compareAndSet(false, true)) {
+                this.node.inFlight.decrementAndGet();
+            }
+        }
+
+        private Connection connect(Connection connection) {
+            // Opening a connection does not reset the failures, so that a node that accepts connections but fails every statement is still ejected
+            this.connected.set(true);
+            return new BalancedConnection(connection, this);
+        }
+
+        private void fail() {
+            if (this.released.compareAndSet(false, true)) {
+                this.node.inFlight.decrementAndGet();
+                this.node.fail();
+            }
+        }
+
+    }
+
+    private final class Node {
+
+        private final ConnectionFactory connectionFactory;
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private volatile long ejectedUntil;
+
+        private volatile double latencyNanos;
+
+        private Node(ConnectionFactory connectionFactory) {
+            this.connectionFactory = connectionFactory;
+        }
+
+        @Override
+        public String toString() {
+            return "Node{" +
+                "connectionFactory=" + this.connectionFactory +
+                ", ejectedUntil=" + this.ejectedUntil +
+                ", failures=" + this.failures +
+                ", inFlight=" + this.inFlight +
+                ", latencyNanos=" + this.latencyNanos +
+                '}';
+        }
+
+        private void fail() {
+            if (this.failures.incrementAndGet() >= LeastOutstandingConnectionFactory.this.failureThreshold) {
+                this.failures.set(0);
+                this.ejectedUntil = System.nanoTime() + LeastOutstandingConnectionFactory.this.ejectionNanos;
+            }
+        }
+
+        private double getCost() {
+            double latencyNanos = this.latencyNanos;
+
+            if (latencyNanos == 0) {
+                latencyNanos = getAverageLatencyNanos();
+            }
+
+            return Math.max(1, latencyNanos) * (this.inFlight.get() + 1);
+        }
+
+        private boolean isEjected(long now) {
+            long ejectedUntil = this.ejectedUntil;
+            return ejectedUntil != 0 && now - ejectedUntil < 0;
+        }
+
+        private synchronized void sample(long latencyNanos) {
+            double smoothing = LeastOutstandingConnectionFactory.this.smoothing;
+            this.latencyNanos = this.latencyNanos == 0 ? latencyNanos : this.latencyNanos * (1 - smoothing) + latencyNanos * smoothing;
+        }
+
+    }
+
+}
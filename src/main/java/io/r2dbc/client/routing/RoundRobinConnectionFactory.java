@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.routing;
+
+import io.r2dbc.client.util.Assert;
+import io.r2dbc.client.util.DelegatingConnectionFactory;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ConnectionFactory} that opens each {@link Connection} from the next of several {@link ConnectionFactory}s in turn, typically one for each replica of a database.
+ */
+public final class RoundRobinConnectionFactory implements DelegatingConnectionFactory {
+
+    private final List<ConnectionFactory> connectionFactories;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Create a new instance of {@link RoundRobinConnectionFactory}.
+     *
+     * @param connectionFactories the {@link ConnectionFactory}s to open {@link Connection}s from
+     * @throws IllegalArgumentException if {@code connectionFactories} is {@code null}, empty, or contains {@code null}
+     */
+    public RoundRobinConnectionFactory(List<? extends ConnectionFactory> connectionFactories) {
+        Assert.requireNonNull(connectionFactories, "connectionFactories must not be null");
+        Assert.isTrue(!connectionFactories.isEmpty(), "connectionFactories must not be empty");
+        Assert.isTrue(!connectionFactories.contains(null), "connectionFactories must not contain null");
+
+        this.connectionFactories = Collections.unmodifiableList(new ArrayList<>(connectionFactories));
+    }
+
+    /**
+     * Open a {@link Connection} from the next {@link ConnectionFactory}.  The {@link ConnectionFactory} is chosen on subscription, so that resubscribing, for example to retry, moves on to the
+     * next one.
+     *
+     * @return a {@link Mono} of a {@link Connection}
+     */
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            int index = Math.floorMod(this.next.getAndIncrement(), this.connectionFactories.size());
+            return Mono.<Connection>from(this.connectionFactories.get(index).create());
+        });
+    }
+
+    @Override
+    public List<ConnectionFactory> getConnectionFactories() {
+        return this.connectionFactories;
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return this.connectionFactories.get(0).getMetadata();
+    }
+
+    @Override
+    public String toString() {
+        return "RoundRobinConnectionFactory{" +
+            "connectionFactories=" + this.connectionFactories +
+            ", next=" + this.next +
+            '}';
+    }
+
+}
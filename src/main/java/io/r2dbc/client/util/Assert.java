@@ -26,6 +26,19 @@ public final class Assert {
     private Assert() {
     }
 
+    /**
+     * Checks that a specified condition is {@code true} and throws a customized {@link IllegalArgumentException} if it is not.
+     *
+     * @param condition the condition to check
+     * @param message   the detail message to be used in the event that an {@link IllegalArgumentException} is thrown
+     * @throws IllegalArgumentException if {@code condition} is {@code false}
+     */
+    public static void isTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
     /**
      * Checks that a specified object reference is not {@code null} and throws a customized {@link IllegalArgumentException} if it is.
      *
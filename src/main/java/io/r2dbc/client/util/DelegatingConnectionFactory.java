@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.util;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+
+import java.util.List;
+
+/**
+ * A {@link ConnectionFactory} that opens its {@link Connection}s from one or more other {@link ConnectionFactory}s.  Implementing this interface lets code that looks for a particular
+ * {@link ConnectionFactory}, such as {@code R2dbc.warmup(int)} looking for pools, find it behind a wrapper.
+ */
+public interface DelegatingConnectionFactory extends ConnectionFactory {
+
+    /**
+     * Returns the {@link ConnectionFactory}s that {@link Connection}s are opened from.
+     *
+     * @return the {@link ConnectionFactory}s that {@link Connection}s are opened from
+     */
+    List<ConnectionFactory> getConnectionFactories();
+
+}
@@ -16,12 +16,21 @@
 
 package io.r2dbc.client;
 
+import io.r2dbc.spi.Result;
 import io.r2dbc.spi.test.MockBatch;
 import io.r2dbc.spi.test.MockResult;
+import io.r2dbc.spi.test.MockStatement;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
@@ -31,7 +40,7 @@ final class BatchTest {
     void add() {
         MockBatch batch = MockBatch.empty();
 
-        new Batch(batch)
+        new Batch(() -> batch, sql -> MockStatement.empty())
             .add("test-query");
 
         assertThat(batch.getSqls()).contains("test-query");
@@ -39,14 +48,119 @@ final class BatchTest {
 
     @Test
     void addNoSql() {
-        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(MockBatch.empty()).add(null))
+        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(MockBatch::empty, sql -> MockStatement.empty()).add(null))
+            .withMessage("sql must not be null");
+    }
+
+    @Test
+    void addParameters() {
+        MockBatch batch = MockBatch.builder()
+            .result(MockResult.builder().rowsUpdated(10).build())
+            .build();
+
+        MockStatement insert = MockStatement.builder()
+            .result(MockResult.builder().rowsUpdated(1).build(), MockResult.builder().rowsUpdated(2).build())
+            .build();
+
+        MockStatement update = MockStatement.builder()
+            .result(MockResult.builder().rowsUpdated(20).build())
+            .build();
+
+        Map<String, MockStatement> statements = new HashMap<>();
+        statements.put("test-insert", insert);
+        statements.put("test-update", update);
+
+        List<String> created = new ArrayList<>();
+
+        new Batch(() -> batch, sql -> {
+            created.add(sql);
+            return statements.get(sql);
+        })
+            .add("test-insert", 100)
+            .add("test-insert", 200)
+            .add("test-query")
+            .add("test-update", 300, "test-value")
+            .mapResult(Result::getRowsUpdated)
+            .as(StepVerifier::create)
+            .expectNext(1, 2, 10, 20)
+            .verifyComplete();
+
+        assertThat(created).containsExactly("test-insert", "test-update");
+        assertThat(batch.getSqls()).containsExactly("test-query");
+        assertThat(insert.getBindings()).containsExactly(Collections.singletonMap(0, 100), Collections.singletonMap(0, 200));
+
+        Map<Object, Object> expected = new HashMap<>();
+        expected.put(0, 300);
+        expected.put(1, "test-value");
+        assertThat(update.getBindings()).containsExactly(expected);
+    }
+
+    @Test
+    void addParametersEmpty() {
+        MockBatch batch = MockBatch.empty();
+
+        new Batch(() -> batch, sql -> MockStatement.empty())
+            .add("test-query", new Object[0]);
+
+        assertThat(batch.getSqls()).contains("test-query");
+    }
+
+    @Test
+    void addParametersNoParameters() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(MockBatch::empty, sql -> MockStatement.empty()).add("test-query", (Object[]) null))
+            .withMessage("parameters must not be null");
+    }
+
+    @Test
+    void addParametersNoSql() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(MockBatch::empty, sql -> MockStatement.empty()).add(null, 100))
             .withMessage("sql must not be null");
     }
 
+    @Test
+    void addParametersNullParameter() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(MockBatch::empty, sql -> MockStatement.empty()).add("test-query", 100, null))
+            .withMessage("parameters must not contain null");
+    }
+
+    @Test
+    void addParametersOrder() {
+        List<String> executed = new ArrayList<>();
+        List<MockStatement> statements = new ArrayList<>();
+
+        new Batch(() -> new RecordingBatch(executed), sql -> {
+            MockStatement statement = MockStatement.builder()
+                .result(MockResult.builder().rowsUpdated(statements.size() + 2).build())
+                .build();
+
+            executed.add(sql);
+            statements.add(statement);
+            return statement;
+        })
+            .add("test-insert")
+            .add("test-update", 100)
+            .add("test-delete")
+            .add("test-update", 200)
+            .mapResult(Result::getRowsUpdated)
+            .as(StepVerifier::create)
+            .expectNext(1, 2, 1, 3)
+            .verifyComplete();
+
+        assertThat(executed).containsExactly("test-insert", "test-update", "test-delete", "test-update");
+        assertThat(statements.get(0).getBindings()).containsExactly(Collections.singletonMap(0, 100));
+        assertThat(statements.get(1).getBindings()).containsExactly(Collections.singletonMap(0, 200));
+    }
+
     @Test
     void constructorNoBatch() {
-        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(null))
-            .withMessage("batch must not be null");
+        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(null, sql -> MockStatement.empty()))
+            .withMessage("batchFactory must not be null");
+    }
+
+    @Test
+    void constructorNoStatementFactory() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(MockBatch::empty, null))
+            .withMessage("statementFactory must not be null");
     }
 
     @Test
@@ -57,7 +171,7 @@ final class BatchTest {
             .result(result)
             .build();
 
-        new Batch(batch)
+        new Batch(() -> batch, sql -> MockStatement.empty())
             .mapResult(actual -> {
                 assertThat(actual).isSameAs(result);
                 return Mono.just(1);
@@ -67,10 +181,77 @@ final class BatchTest {
             .verifyComplete();
     }
 
+    @Test
+    void mapResultExtraResults() {
+        MockBatch batch = MockBatch.builder()
+            .result(MockResult.builder().rowsUpdated(10).build())
+            .build();
+
+        MockStatement insert = MockStatement.builder()
+            .result(MockResult.builder().rowsUpdated(1).build(), MockResult.builder().rowsUpdated(2).build())
+            .build();
+
+        new Batch(() -> batch, sql -> insert)
+            .add("test-insert", 100)
+            .add("test-query")
+            .mapResult(Result::getRowsUpdated)
+            .as(StepVerifier::create)
+            .verifyErrorMessage("Statements returned more results than the 1 added");
+    }
+
     @Test
     void mapResultNoF() {
-        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(MockBatch.empty()).mapResult(null))
+        assertThatIllegalArgumentException().isThrownBy(() -> new Batch(MockBatch::empty, sql -> MockStatement.empty()).mapResult(null))
             .withMessage("f must not be null");
     }
 
+    @Test
+    void mapResultOnExecute() {
+        MockBatch batch = MockBatch.builder()
+            .result(MockResult.builder().rowsUpdated(1).build())
+            .build();
+
+        MockStatement statement = MockStatement.builder()
+            .result(MockResult.builder().rowsUpdated(1).build())
+            .build();
+
+        List<String> executed = new ArrayList<>();
+
+        new Batch(() -> batch, sql -> statement, executed::add)
+            .add("test-statement-1")
+            .add("test-statement-2", 100)
+            .add("test-statement-1")
+            .mapResult(Result::getRowsUpdated)
+            .blockLast();
+
+        assertThat(executed).containsExactly("test-statement-1", "test-statement-2");
+    }
+
+    private static final class RecordingBatch implements io.r2dbc.spi.Batch<RecordingBatch> {
+
+        private final List<String> executed;
+
+        private final List<String> sqls = new ArrayList<>();
+
+        private RecordingBatch(List<String> executed) {
+            this.executed = executed;
+        }
+
+        @Override
+        public RecordingBatch add(String sql) {
+            this.sqls.add(sql);
+            return this;
+        }
+
+        @Override
+        public Flux<Result> execute() {
+            return Flux.defer(() -> {
+                this.executed.addAll(this.sqls);
+                return Flux.fromIterable(this.sqls)
+                    .map(sql -> MockResult.builder().rowsUpdated(1).build());
+            });
+        }
+
+    }
+
 }
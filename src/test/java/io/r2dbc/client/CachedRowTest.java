@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+final class CachedRowTest {
+
+    @Test
+    void getIndex() {
+        assertThat(this.row.get(0, Integer.class)).isEqualTo(100);
+        assertThat(this.row.get(1, String.class)).isNull();
+    }
+
+    @Test
+    void getName() {
+        assertThat(this.row.get("ID", Number.class)).isEqualTo(100);
+        assertThat(this.row.get("name")).isNull();
+    }
+
+    @Test
+    void getNotRead() {
+        assertThatIllegalStateException().isThrownBy(() -> this.row.get("value", Object.class))
+            .withMessage("Column value was not read when the row was cached");
+    }
+
+    @Test
+    void getRequestedType() {
+        CachedRow row = new CachedRow(new String[]{"id"}, new Class<?>[]{Long.class}, new Object[]{100L});
+
+        assertThat(row.get("id", Long.class)).isEqualTo(100L);
+        assertThat(row.get("id", Number.class)).isEqualTo(100L);
+    }
+
+    @Test
+    void getUnknownColumn() {
+        assertThatIllegalArgumentException().isThrownBy(() -> this.row.get(3, Object.class))
+            .withMessage("Column 3 does not exist");
+        assertThatIllegalArgumentException().isThrownBy(() -> this.row.get("test-column", Object.class))
+            .withMessage("Column test-column does not exist");
+    }
+
+    @Test
+    void getWrongType() {
+        assertThatIllegalArgumentException().isThrownBy(() -> this.row.get(0, String.class))
+            .withMessage("Cannot return value of type java.lang.Integer as java.lang.String");
+    }
+
+    private final CachedRow row = new CachedRow(new String[]{"id", "name", "value"}, new Class<?>[]{Integer.class, String.class, null},
+        new Object[]{100, null, CachedRow.NOT_READ});
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class FrequencySketchTest {
+
+    @Test
+    void frequency() {
+        FrequencySketch sketch = new FrequencySketch(100);
+
+        sketch.increment("test-key-1");
+        sketch.increment("test-key-1");
+        sketch.increment("test-key-2");
+
+        assertThat(sketch.frequency("test-key-1")).isEqualTo(2);
+        assertThat(sketch.frequency("test-key-2")).isEqualTo(1);
+        assertThat(sketch.frequency("test-key-3")).isZero();
+    }
+
+    @Test
+    void frequencySaturates() {
+        FrequencySketch sketch = new FrequencySketch(100);
+
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("test-key");
+        }
+
+        assertThat(sketch.frequency("test-key")).isEqualTo(15);
+    }
+
+    @Test
+    void reset() {
+        FrequencySketch sketch = new FrequencySketch(8);
+
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("test-key");
+        }
+
+        for (int i = 0; sketch.frequency("test-key") >= 10 && i < 1_000; i++) {
+            sketch.increment(i);
+        }
+
+        assertThat(sketch.frequency("test-key")).isBetween(5, 7);
+    }
+
+}
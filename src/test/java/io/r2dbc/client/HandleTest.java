@@ -16,12 +16,18 @@
 
 package io.r2dbc.client;
 
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
 import io.r2dbc.spi.test.MockBatch;
 import io.r2dbc.spi.test.MockConnection;
 import io.r2dbc.spi.test.MockResult;
+import io.r2dbc.spi.test.MockRow;
+import io.r2dbc.spi.test.MockRowMetadata;
 import io.r2dbc.spi.test.MockStatement;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -33,6 +39,8 @@ import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException
 
 final class HandleTest {
 
+    private static final Function<Row, Row> ROW = row -> row;
+
     @Test
     void beginTransaction() {
         MockConnection connection = MockConnection.empty();
@@ -44,6 +52,17 @@ final class HandleTest {
         assertThat(connection.isBeginTransactionCalled()).isTrue();
     }
 
+    @Test
+    void beginTransactionNotSubscribed() {
+        ResultCache resultCache = ResultCache.builder().build();
+        Handle handle = new Handle(MockConnection.builder().statement(rows()).build(), null, null, resultCache);
+
+        handle.beginTransaction();
+        handle.select("SELECT * FROM test_table").mapRow(ROW).blockLast();
+
+        assertThat(resultCache.getSize()).isEqualTo(1);
+    }
+
     @Test
     void close() {
         MockConnection connection = MockConnection.empty();
@@ -66,6 +85,26 @@ final class HandleTest {
         assertThat(connection.isCommitTransactionCalled()).isTrue();
     }
 
+    @Test
+    void commitTransactionInvalidatesResultCache() {
+        ResultCache resultCache = ResultCache.builder().build();
+        Handle handle = new Handle(MockConnection.builder().statement(rows()).build(), null, null, resultCache);
+        Handle other = new Handle(MockConnection.builder().statement(rows()).build(), null, null, resultCache);
+
+        Flux.from(handle.beginTransaction())
+            .thenMany(handle.execute("UPDATE test_table SET value = 100"))
+            .thenMany(other.select("SELECT * FROM test_table").mapRow(ROW))
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(resultCache.getSize()).isEqualTo(1);
+
+        StepVerifier.create(handle.commitTransaction()).verifyComplete();
+
+        assertThat(resultCache.getSize()).isZero();
+    }
+
     @Test
     void constructorNoConnection() {
         assertThatIllegalArgumentException().isThrownBy(() -> new Handle(null))
@@ -84,6 +123,17 @@ final class HandleTest {
         assertThat(batch).isNotNull();
     }
 
+    @Test
+    void createBatchInvalidatesResultCache() {
+        ResultCache resultCache = ResultCache.builder().build();
+        Handle handle = new Handle(MockConnection.builder().batch(MockBatch.builder().result(MockResult.empty()).build()).statement(rows()).build(), null, null, resultCache);
+
+        handle.select("SELECT * FROM test_table").mapRow(ROW).blockLast();
+        handle.createBatch().add("DELETE FROM test_table").mapResult(Result::getRowsUpdated).blockLast();
+
+        assertThat(resultCache.getSize()).isZero();
+    }
+
     @Test
     void createQuery() {
         MockConnection connection = MockConnection.builder()
@@ -97,6 +147,34 @@ final class HandleTest {
         assertThat(connection.getCreateStatementSql()).isEqualTo("test-query");
     }
 
+    @Test
+    void createQueryInvalidatesResultCache() {
+        ResultCache resultCache = ResultCache.builder().build();
+        Handle handle = new Handle(MockConnection.builder().statement(rows()).build(), null, null, resultCache);
+
+        handle.select("SELECT * FROM test_table_1").mapRow(ROW).blockLast();
+        handle.select("SELECT * FROM test_table_2").mapRow(ROW).blockLast();
+        handle.createQuery("UPDATE test_table_1 SET value = 100 RETURNING id").mapRow(ROW).blockLast();
+
+        assertThat(resultCache.getSize()).isEqualTo(1);
+
+        handle.createQuery("SELECT * FROM test_table_2 FOR UPDATE").mapRow(ROW).blockLast();
+
+        assertThat(resultCache.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void createQueryNamedParameters() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.empty())
+            .build();
+
+        new Handle(connection, new NamedParameters(ParameterStyle.AT_P), null)
+            .createQuery("SELECT * FROM test WHERE a = :a");
+
+        assertThat(connection.getCreateStatementSql()).isEqualTo("SELECT * FROM test WHERE a = @P0");
+    }
+
     @Test
     void createQueryNoSql() {
         assertThatIllegalArgumentException().isThrownBy(() -> new Handle(MockConnection.empty()).createQuery(null))
@@ -129,10 +207,42 @@ final class HandleTest {
         Update update = new Handle(connection)
             .createUpdate("test-update");
 
-        assertThat(update).isNotNull();
+        assertThat(connection.getCreateStatementSql()).isNull();
+
+        update.add();
+
         assertThat(connection.getCreateStatementSql()).isEqualTo("test-update");
     }
 
+    @Test
+    void createUpdateInsertRewriting() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.builder().result(MockResult.builder().rowsUpdated(3).build()).build())
+            .build();
+
+        new Handle(connection, null, new InsertRewriting(ParameterStyle.DOLLAR, 100))
+            .createUpdate("INSERT INTO test VALUES ($1)")
+            .executeMany(Flux.range(0, 3).map(i -> new Object[]{i}))
+            .as(StepVerifier::create)
+            .expectNext(3)
+            .verifyComplete();
+
+        assertThat(connection.getCreateStatementSql()).isEqualTo("INSERT INTO test VALUES ($1), ($2), ($3)");
+    }
+
+    @Test
+    void createUpdateNamedParameters() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.empty())
+            .build();
+
+        new Handle(connection, new NamedParameters(ParameterStyle.QUESTION_MARK), null)
+            .createUpdate("UPDATE test SET a = :a WHERE b = :b")
+            .add();
+
+        assertThat(connection.getCreateStatementSql()).isEqualTo("UPDATE test SET a = ? WHERE b = ?");
+    }
+
     @Test
     void createUpdateNoSql() {
         assertThatIllegalArgumentException().isThrownBy(() -> new Handle(MockConnection.empty()).createUpdate(null))
@@ -161,6 +271,18 @@ final class HandleTest {
         assertThat(statement.getBindings()).contains(Collections.singletonMap(0, 100));
     }
 
+    @Test
+    void executeInvalidatesResultCache() {
+        ResultCache resultCache = ResultCache.builder().build();
+        Handle handle = new Handle(MockConnection.builder().statement(rows()).build(), null, null, resultCache);
+
+        handle.select("SELECT * FROM test_table_1").mapRow(ROW).blockLast();
+        handle.select("SELECT * FROM test_table_2").mapRow(ROW).blockLast();
+        handle.execute("DELETE FROM test_table_1").blockLast();
+
+        assertThat(resultCache.getSize()).isEqualTo(1);
+    }
+
     @Test
     void executeNoSql() {
         assertThatIllegalArgumentException().isThrownBy(() -> new Handle(MockConnection.empty()).execute(null, new Object()))
@@ -298,6 +420,63 @@ final class HandleTest {
             .withMessage("sql must not be null");
     }
 
+    @Test
+    void selectResultCache() {
+        ResultCache resultCache = ResultCache.builder().build();
+        Handle handle = new Handle(MockConnection.builder().statement(rows()).build(), null, null, resultCache);
+
+        handle.select("SELECT * FROM test_table WHERE id = $1", 100)
+            .mapRow(ROW)
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        handle.select("SELECT * FROM test_table WHERE id = $1", 100)
+            .mapRow(ROW)
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(resultCache.getHitCount()).isEqualTo(1);
+        assertThat(resultCache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void selectResultCacheInTransaction() {
+        ResultCache resultCache = ResultCache.builder().build();
+        Handle handle = new Handle(MockConnection.builder().statement(rows()).build(), null, null, resultCache);
+
+        handle.inTransaction(h -> h.select("SELECT * FROM test_table").mapRow(ROW))
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(resultCache.getMissCount()).isZero();
+        assertThat(resultCache.getSize()).isZero();
+
+        handle.select("SELECT * FROM test_table").mapRow(ROW).blockLast();
+
+        assertThat(resultCache.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void selectResultCacheWrite() {
+        ResultCache resultCache = ResultCache.builder().build();
+        Handle handle = new Handle(MockConnection.builder().statement(rows()).build(), null, null, resultCache);
+
+        for (int i = 0; i < 2; i++) {
+            handle.select("INSERT INTO test_table (value) VALUES ($1) RETURNING id", 100)
+                .mapRow(ROW)
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
+        }
+
+        assertThat(resultCache.getHitCount()).isZero();
+        assertThat(resultCache.getMissCount()).isZero();
+        assertThat(resultCache.getSize()).isZero();
+    }
+
     @Test
     void setTransactionIsolationLevel() {
         MockConnection connection = MockConnection.empty();
@@ -377,4 +556,14 @@ final class HandleTest {
             .withMessage("f must not be null");
     }
 
+    private static MockStatement rows() {
+        return MockStatement.builder()
+            .result(MockResult.builder()
+                .rowMetadata(MockRowMetadata.empty())
+                .row(MockRow.empty())
+                .rowsUpdated(1)
+                .build())
+            .build();
+    }
+
 }
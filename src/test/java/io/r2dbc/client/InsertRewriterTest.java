@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import org.junit.jupiter.api.Test;
+
+import static io.r2dbc.client.ParameterStyle.AT_P;
+import static io.r2dbc.client.ParameterStyle.DOLLAR;
+import static io.r2dbc.client.ParameterStyle.QUESTION_MARK;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class InsertRewriterTest {
+
+    @Test
+    void ofAlreadyMultiRow() {
+        assertThat(InsertRewriter.of("INSERT INTO test VALUES ($1), ($2)", DOLLAR, 100)).isNull();
+    }
+
+    @Test
+    void ofAtP() {
+        InsertRewriter insertRewriter = InsertRewriter.of("INSERT INTO test (a, b) VALUES (@P0, @P1)", AT_P, 100);
+
+        assertThat(insertRewriter).isNotNull();
+        assertThat(insertRewriter.getParameterCount()).isEqualTo(2);
+        assertThat(insertRewriter.getSql(3)).isEqualTo("INSERT INTO test (a, b) VALUES (@P0, @P1), (@P2, @P3), (@P4, @P5)");
+    }
+
+    @Test
+    void ofDollar() {
+        InsertRewriter insertRewriter = InsertRewriter.of("insert into test (a, b, c) values ($1, lower($2), $1) RETURNING id", DOLLAR, 100);
+
+        assertThat(insertRewriter).isNotNull();
+        assertThat(insertRewriter.getParameterCount()).isEqualTo(2);
+        assertThat(insertRewriter.getSql(2)).isEqualTo("insert into test (a, b, c) values ($1, lower($2), $1), ($3, lower($4), $3) RETURNING id");
+    }
+
+    @Test
+    void ofIgnoresQuotedValues() {
+        InsertRewriter insertRewriter = InsertRewriter.of("INSERT INTO \"values\" VALUES ('VALUES (', $1)", DOLLAR, 100);
+
+        assertThat(insertRewriter).isNotNull();
+        assertThat(insertRewriter.getSql(2)).isEqualTo("INSERT INTO \"values\" VALUES ('VALUES (', $1), ('VALUES (', $2)");
+    }
+
+    @Test
+    void ofMaxParameters() {
+        InsertRewriter insertRewriter = InsertRewriter.of("INSERT INTO test VALUES (@P0, @P1, @P2)", AT_P, 1_000);
+
+        assertThat(insertRewriter).isNotNull();
+        assertThat(insertRewriter.getRowsPerStatement()).isEqualTo(700);
+    }
+
+    @Test
+    void ofMaxRows() {
+        InsertRewriter insertRewriter = InsertRewriter.of("INSERT INTO test VALUES ($1, $2)", DOLLAR, 100);
+
+        assertThat(insertRewriter).isNotNull();
+        assertThat(insertRewriter.getRowsPerStatement()).isEqualTo(100);
+    }
+
+    @Test
+    void ofMissingPlaceholder() {
+        assertThat(InsertRewriter.of("INSERT INTO test VALUES ($1, $3)", DOLLAR, 100)).isNull();
+    }
+
+    @Test
+    void ofNoParameterStyle() {
+        assertThatIllegalArgumentException().isThrownBy(() -> InsertRewriter.of("INSERT INTO test VALUES ($1)", null, 100))
+            .withMessage("parameterStyle must not be null");
+    }
+
+    @Test
+    void ofNoPlaceholders() {
+        assertThat(InsertRewriter.of("INSERT INTO test VALUES (1)", DOLLAR, 100)).isNull();
+    }
+
+    @Test
+    void ofNoSql() {
+        assertThatIllegalArgumentException().isThrownBy(() -> InsertRewriter.of(null, DOLLAR, 100))
+            .withMessage("sql must not be null");
+    }
+
+    @Test
+    void ofNotInsert() {
+        assertThat(InsertRewriter.of("UPDATE test SET a = $1", DOLLAR, 100)).isNull();
+    }
+
+    @Test
+    void ofPlaceholderOutsideValues() {
+        assertThat(InsertRewriter.of("INSERT INTO test VALUES ($1) ON CONFLICT (id) DO UPDATE SET a = $2", DOLLAR, 100)).isNull();
+    }
+
+    @Test
+    void ofQuestionMark() {
+        InsertRewriter insertRewriter = InsertRewriter.of("INSERT INTO test VALUES (?, ?)", QUESTION_MARK, 100);
+
+        assertThat(insertRewriter).isNotNull();
+        assertThat(insertRewriter.getParameterCount()).isEqualTo(2);
+        assertThat(insertRewriter.getSql(2)).isEqualTo("INSERT INTO test VALUES (?, ?), (?, ?)");
+    }
+
+    @Test
+    void ofSelect() {
+        assertThat(InsertRewriter.of("INSERT INTO test SELECT a FROM other WHERE b = $1", DOLLAR, 100)).isNull();
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import org.junit.jupiter.api.Test;
+
+import static io.r2dbc.client.ParameterStyle.DOLLAR;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class InsertRewritingTest {
+
+    @Test
+    void constructorInvalidMaxRows() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new InsertRewriting(DOLLAR, 1))
+            .withMessage("maxRows must be greater than one");
+    }
+
+    @Test
+    void constructorNoParameterStyle() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new InsertRewriting(null, 100))
+            .withMessage("parameterStyle must not be null");
+    }
+
+    @Test
+    void get() {
+        InsertRewriting insertRewriting = new InsertRewriting(DOLLAR, 100);
+
+        InsertRewriter insertRewriter = insertRewriting.get("INSERT INTO test VALUES ($1)");
+
+        assertThat(insertRewriter).isNotNull();
+        assertThat(insertRewriting.get("INSERT INTO test VALUES ($1)")).isSameAs(insertRewriter);
+    }
+
+    @Test
+    void getNotRewritable() {
+        assertThat(new InsertRewriting(DOLLAR, 100).get("UPDATE test SET a = $1")).isNull();
+    }
+
+}
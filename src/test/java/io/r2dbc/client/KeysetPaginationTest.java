@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.test.MockConnectionFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class KeysetPaginationTest {
+
+    private final KeysetPagination pagination = KeysetPagination.builder()
+        .r2dbc(new R2dbc(MockConnectionFactory.empty()))
+        .keyColumn("id")
+        .pageSize(100)
+        .parameterStyle(ParameterStyle.DOLLAR)
+        .build();
+
+    @Test
+    void builderInvalidPageSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> KeysetPagination.builder().pageSize(0))
+            .withMessage("pageSize must be greater than zero");
+    }
+
+    @Test
+    void builderNegativePrefetch() {
+        assertThatIllegalArgumentException().isThrownBy(() -> KeysetPagination.builder().prefetch(-1))
+            .withMessage("prefetch must not be negative");
+    }
+
+    @Test
+    void builderNoKeyColumn() {
+        assertThatIllegalArgumentException().isThrownBy(() -> KeysetPagination.builder().r2dbc(new R2dbc(MockConnectionFactory.empty())).parameterStyle(ParameterStyle.DOLLAR).build())
+            .withMessage("keyColumn must not be null");
+    }
+
+    @Test
+    void builderNoParameterStyle() {
+        assertThatIllegalArgumentException().isThrownBy(() -> KeysetPagination.builder().r2dbc(new R2dbc(MockConnectionFactory.empty())).keyColumn("id").build())
+            .withMessage("parameterStyle must not be null");
+    }
+
+    @Test
+    void builderNoR2dbc() {
+        assertThatIllegalArgumentException().isThrownBy(() -> KeysetPagination.builder().keyColumn("id").parameterStyle(ParameterStyle.DOLLAR).build())
+            .withMessage("r2dbc must not be null");
+    }
+
+    @Test
+    void getSql() {
+        assertThat(this.pagination.getSql("SELECT id, name FROM test", 0, false))
+            .isEqualTo("SELECT * FROM (SELECT id, name FROM test) AS keyset ORDER BY id LIMIT 100");
+        assertThat(this.pagination.getSql("SELECT id, name FROM test WHERE tenant = $1", 1, true))
+            .isEqualTo("SELECT * FROM (SELECT id, name FROM test WHERE tenant = $1) AS keyset WHERE id > $2 ORDER BY id LIMIT 100");
+    }
+
+    @Test
+    void selectNoParameters() {
+        assertThatIllegalArgumentException().isThrownBy(() -> this.pagination.select("test-query", (Object[]) null))
+            .withMessage("parameters must not be null");
+    }
+
+    @Test
+    void selectNoSql() {
+        assertThatIllegalArgumentException().isThrownBy(() -> this.pagination.select(null))
+            .withMessage("sql must not be null");
+    }
+
+    @Test
+    void selectNullParameter() {
+        assertThatIllegalArgumentException().isThrownBy(() -> this.pagination.select("test-query", (Object) null))
+            .withMessage("parameters must not contain null");
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.test.MockConnection;
+import io.r2dbc.spi.test.MockConnectionFactory;
+import io.r2dbc.spi.test.MockResult;
+import io.r2dbc.spi.test.MockRow;
+import io.r2dbc.spi.test.MockRowMetadata;
+import io.r2dbc.spi.test.MockStatement;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class KeysetQueryTest {
+
+    private final Queue<MockResult> connectionResults = new ArrayDeque<>();
+
+    private final List<MockConnection> connections = new ArrayList<>();
+
+    private final List<MockStatement> statements = new ArrayList<>();
+
+    @Test
+    void after() {
+        KeysetQuery query = pagination(2, 1, page(3)).select("SELECT id FROM test").after(2);
+
+        query.mapRow(KeysetQueryTest::id)
+            .as(StepVerifier::create)
+            .expectNext(3)
+            .verifyComplete();
+
+        assertThat(this.connections.get(0).getCreateStatementSql()).isEqualTo("SELECT * FROM (SELECT id FROM test) AS keyset WHERE id > $1 ORDER BY id LIMIT 2");
+        assertThat(this.statements.get(0).getBindings()).contains(Collections.singletonMap(0, 2));
+    }
+
+    @Test
+    void afterNoKey() {
+        assertThatIllegalArgumentException().isThrownBy(() -> pagination(2, 1).select("SELECT id FROM test").after(null))
+            .withMessage("key must not be null");
+    }
+
+    @Test
+    void mapResult() {
+        KeysetQuery query = pagination(2, 1, page(1, 2), page(3)).select("SELECT id FROM test");
+
+        query.mapResult(result -> result.map((row, rowMetadata) -> id(row)))
+            .as(StepVerifier::create)
+            .expectNext(1, 2, 3)
+            .verifyComplete();
+
+        assertThat(query.getLastKey()).hasValue(3);
+    }
+
+    @Test
+    void mapRow() {
+        KeysetQuery query = pagination(2, 1, page(1, 2), page(3, 4), page(5)).select("SELECT id FROM test WHERE tenant = $1", 100);
+
+        query.mapRow(KeysetQueryTest::id)
+            .as(StepVerifier::create)
+            .expectNext(1, 2, 3, 4, 5)
+            .verifyComplete();
+
+        assertThat(this.connections).hasSize(3);
+        assertThat(this.connections.get(0).getCreateStatementSql()).isEqualTo("SELECT * FROM (SELECT id FROM test WHERE tenant = $1) AS keyset ORDER BY id LIMIT 2");
+        assertThat(this.connections.get(1).getCreateStatementSql()).isEqualTo("SELECT * FROM (SELECT id FROM test WHERE tenant = $1) AS keyset WHERE id > $2 ORDER BY id LIMIT 2");
+        assertThat(this.statements.get(1).getBindings()).contains(bindings(100, 2));
+        assertThat(this.statements.get(2).getBindings()).contains(bindings(100, 4));
+        assertThat(query.getLastKey()).hasValue(5);
+    }
+
+    @Test
+    void mapRowEmptyLastPage() {
+        pagination(2, 1, page(1, 2), page()).select("SELECT id FROM test")
+            .mapRow(KeysetQueryTest::id)
+            .as(StepVerifier::create)
+            .expectNext(1, 2)
+            .verifyComplete();
+
+        assertThat(this.connections).hasSize(2);
+    }
+
+    @Test
+    void mapRowDuplicateKey() {
+        pagination(3, 1, page(1, 2, 2)).select("SELECT id FROM test")
+            .mapRow(KeysetQueryTest::id)
+            .as(StepVerifier::create)
+            .verifyErrorMessage("Key column id must be unique, but 2 was repeated");
+    }
+
+    @Test
+    void mapRowNullKey() {
+        MockResult result = MockResult.builder()
+            .rowMetadata(MockRowMetadata.empty())
+            .row(MockRow.builder().identified("id", Object.class, null).build())
+            .build();
+
+        pagination(2, 1, result).select("SELECT id FROM test")
+            .mapRow(row -> row)
+            .as(StepVerifier::create)
+            .verifyErrorMessage("Key column id must not be null");
+    }
+
+    @Test
+    void prefetch() {
+        Flux<Integer> rows = pagination(2, 1, page(1, 2), page(3, 4), page(5, 6), page()).select("SELECT id FROM test")
+            .mapRow(KeysetQueryTest::id);
+
+        StepVerifier.create(rows, 1)
+            .expectNext(1)
+            .then(() -> assertThat(this.connections).hasSize(2))
+            .thenRequest(Long.MAX_VALUE)
+            .expectNext(2, 3, 4, 5, 6)
+            .verifyComplete();
+    }
+
+    @Test
+    void prefetchNone() {
+        Flux<Integer> rows = pagination(2, 0, page(1, 2), page(3, 4), page()).select("SELECT id FROM test")
+            .mapRow(KeysetQueryTest::id);
+
+        StepVerifier.create(rows, 1)
+            .expectNext(1)
+            .then(() -> assertThat(this.connections).hasSize(1))
+            .thenRequest(Long.MAX_VALUE)
+            .expectNext(2, 3, 4)
+            .verifyComplete();
+    }
+
+    @Test
+    void resume() {
+        KeysetQuery query = pagination(2, 1, page(1, 2)).select("SELECT id FROM test");
+
+        query.mapRow(KeysetQueryTest::id)
+            .as(StepVerifier::create)
+            .expectNext(1, 2)
+            .verifyError(IllegalStateException.class);
+
+        assertThat(query.getLastKey()).hasValue(2);
+        assertThat(query.resume().getLastKey()).isEmpty();
+
+        this.connectionResults.add(page(3));
+
+        query.resume()
+            .mapRow(KeysetQueryTest::id)
+            .as(StepVerifier::create)
+            .expectNext(3)
+            .verifyComplete();
+
+        assertThat(this.statements.get(1).getBindings()).contains(Collections.singletonMap(0, 2));
+    }
+
+    @Test
+    void resumeNotStarted() {
+        KeysetQuery query = pagination(2, 1).select("SELECT id FROM test");
+
+        assertThat(query.resume()).isSameAs(query);
+    }
+
+    private static Map<Object, Object> bindings(Object... values) {
+        Map<Object, Object> bindings = new HashMap<>();
+
+        for (int i = 0; i < values.length; i++) {
+            bindings.put(i, values[i]);
+        }
+
+        return bindings;
+    }
+
+    private static Integer id(Row row) {
+        return row.get("id", Integer.class);
+    }
+
+    private static MockResult page(Integer... ids) {
+        return MockResult.builder()
+            .rowMetadata(MockRowMetadata.empty())
+            .row(Arrays.stream(ids)
+                .map(id -> MockRow.builder().identified("id", Object.class, id).identified("id", Integer.class, id).build())
+                .toArray(Row[]::new))
+            .build();
+    }
+
+    private KeysetPagination pagination(int pageSize, int prefetch, MockResult... results) {
+        this.connectionResults.addAll(Arrays.asList(results));
+
+        return KeysetPagination.builder()
+            .r2dbc(new R2dbc(new PageConnectionFactory()))
+            .keyColumn("id")
+            .pageSize(pageSize)
+            .parameterStyle(ParameterStyle.DOLLAR)
+            .prefetch(prefetch)
+            .build();
+    }
+
+    private final class PageConnectionFactory implements ConnectionFactory {
+
+        @Override
+        public Mono<Connection> create() {
+            return Mono.fromCallable(() -> {
+                MockResult result = KeysetQueryTest.this.connectionResults.poll();
+
+                if (result == null) {
+                    throw new IllegalStateException("No more pages");
+                }
+
+                MockStatement statement = MockStatement.builder().result(result).build();
+                MockConnection connection = MockConnection.builder().statement(statement).build();
+
+                KeysetQueryTest.this.statements.add(statement);
+                KeysetQueryTest.this.connections.add(connection);
+                return connection;
+            });
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return MockConnectionFactory.empty().getMetadata();
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import org.junit.jupiter.api.Test;
+
+import static io.r2dbc.client.ParameterStyle.DOLLAR;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class NamedParametersTest {
+
+    @Test
+    void constructorInvalidCacheSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new NamedParameters(DOLLAR, 0))
+            .withMessage("cacheSize must be greater than zero");
+    }
+
+    @Test
+    void constructorNoParameterStyle() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new NamedParameters(null))
+            .withMessage("parameterStyle must not be null");
+    }
+
+    @Test
+    void parse() {
+        ParsedSql parsedSql = new NamedParameters(DOLLAR)
+            .parse("SELECT * FROM test WHERE a = :a");
+
+        assertThat(parsedSql.getSql()).isEqualTo("SELECT * FROM test WHERE a = $1");
+    }
+
+    @Test
+    void parseBounded() {
+        NamedParameters namedParameters = new NamedParameters(DOLLAR, 2);
+
+        namedParameters.parse("SELECT :a");
+        namedParameters.parse("SELECT :b");
+        namedParameters.parse("SELECT :c");
+
+        assertThat(namedParameters.getCachedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void parseCached() {
+        NamedParameters namedParameters = new NamedParameters(DOLLAR);
+
+        ParsedSql parsedSql = namedParameters.parse("SELECT * FROM test WHERE a = :a");
+
+        assertThat(namedParameters.parse("SELECT * FROM test WHERE a = :a")).isSameAs(parsedSql);
+        assertThat(namedParameters.getCachedCount()).isEqualTo(1);
+    }
+
+}
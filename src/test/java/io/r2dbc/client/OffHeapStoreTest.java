@@ -0,0 +1,282 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.test.MockColumnMetadata;
+import io.r2dbc.spi.test.MockRow;
+import io.r2dbc.spi.test.MockRowMetadata;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class OffHeapStoreTest {
+
+    private static final BiFunction<Row, RowMetadata, Object> VALUE = (row, rowMetadata) -> row.get("value", Object.class);
+
+    private static final RowMetadata ROW_METADATA = MockRowMetadata.builder()
+        .columnMetadata(MockColumnMetadata.builder().name("value").type(100).build())
+        .build();
+
+    @Test
+    void invalidate() {
+        OffHeapStore store = new OffHeapStore(1_024, 1_024);
+
+        write(store, "test-key-1", Collections.singleton("test_table_1"), 100);
+        write(store, "test-key-2", Collections.singleton("test_table_2"), 200);
+
+        store.invalidate("test_table_1");
+
+        assertThat(store.read("test-key-1", VALUE, 0)).isNull();
+        assertThat(store.read("test-key-2", VALUE, 0)).isNotNull();
+
+        store.invalidateAll();
+
+        assertThat(store.getSize()).isZero();
+    }
+
+    @Test
+    void readEmpty() {
+        OffHeapStore store = new OffHeapStore(1_024, 1_024);
+
+        store.writer().commit("test-key", Collections.emptySet(), Long.MAX_VALUE);
+
+        read(store, "test-key")
+            .as(StepVerifier::create)
+            .verifyComplete();
+    }
+
+    @Test
+    void readExpired() {
+        OffHeapStore store = new OffHeapStore(1_024, 1_024);
+
+        OffHeapStore.Writer writer = store.writer();
+        writer.write(row(100), ROW_METADATA, VALUE);
+        writer.commit("test-key", Collections.emptySet(), 10);
+
+        assertThat(store.read("test-key", VALUE, 9)).isNotNull();
+        assertThat(store.read("test-key", VALUE, 10)).isNull();
+        assertThat(store.getSize()).isZero();
+    }
+
+    @Test
+    void readMissing() {
+        assertThat(new OffHeapStore(1_024, 1_024).read("test-key", VALUE, 0)).isNull();
+    }
+
+    @Test
+    void reclaimOldestSegment() {
+        OffHeapStore store = new OffHeapStore(64, 32);
+
+        write(store, "test-key-1", Collections.emptySet(), "test-value-1");
+        write(store, "test-key-2", Collections.emptySet(), "test-value-2");
+        write(store, "test-key-3", Collections.emptySet(), "test-value-3");
+
+        assertThat(store.read("test-key-1", VALUE, 0)).isNull();
+        assertThat(store.getAllocated()).isEqualTo(64);
+        read(store, "test-key-3")
+            .as(StepVerifier::create)
+            .expectNext("test-value-3")
+            .verifyComplete();
+    }
+
+    @Test
+    void reclaimPinnedSegment() {
+        OffHeapStore store = new OffHeapStore(32, 32);
+
+        write(store, "test-key-1", Collections.emptySet(), "test-value-1");
+
+        StepVerifier.create(read(store, "test-key-1"), 0)
+            .then(() -> write(store, "test-key-2", Collections.emptySet(), "test-value-2"))
+            .thenRequest(2)
+            .expectNext("test-value-1")
+            .verifyComplete();
+
+        assertThat(store.read("test-key-1", VALUE, 0)).isNull();
+        assertThat(store.read("test-key-2", VALUE, 0)).isNull();
+
+        write(store, "test-key-3", Collections.emptySet(), "test-value-3");
+
+        read(store, "test-key-3")
+            .as(StepVerifier::create)
+            .expectNext("test-value-3")
+            .verifyComplete();
+    }
+
+    @Test
+    void roundTrip() {
+        List<Object> values = Arrays.asList(
+            new BigDecimal("-1234.5678"),
+            new BigInteger("123456789012345678901234567890"),
+            true,
+            (byte) 1,
+            'a',
+            1.5d,
+            2.5f,
+            Instant.ofEpochSecond(1_500_000_000, 123),
+            100,
+            LocalDate.of(2019, 1, 2),
+            LocalDateTime.of(2019, 1, 2, 3, 4, 5, 6),
+            LocalTime.of(3, 4, 5, 6),
+            200L,
+            OffsetDateTime.of(2019, 1, 2, 3, 4, 5, 6, ZoneOffset.ofHours(-8)),
+            (short) 3,
+            "test-v\u00e4lue",
+            UUID.randomUUID());
+
+        OffHeapStore store = new OffHeapStore(1_024, 1_024);
+
+        OffHeapStore.Writer writer = store.writer();
+        values.forEach(value -> writer.write(row(value), ROW_METADATA, VALUE));
+        writer.write(row(null), ROW_METADATA, VALUE);
+        writer.commit("test-key", Collections.emptySet(), Long.MAX_VALUE);
+
+        Flux<Object> read = store.read("test-key", (row, rowMetadata) -> Arrays.asList(row.get("value")), 0);
+        assertThat(read).isNotNull();
+
+        read
+            .as(StepVerifier::create)
+            .expectNextSequence(values.stream().map(Collections::singletonList).collect(Collectors.toList()))
+            .expectNext(Collections.singletonList(null))
+            .verifyComplete();
+
+        byte[] bytes = {1, 2, 3};
+        write(store, "test-key-bytes", Collections.emptySet(), bytes);
+
+        read(store, "test-key-bytes")
+            .as(StepVerifier::create)
+            .assertNext(value -> assertThat((byte[]) value).containsExactly(1, 2, 3))
+            .verifyComplete();
+    }
+
+    @Test
+    void spillIntoSegments() {
+        OffHeapStore store = new OffHeapStore(128, 32);
+
+        OffHeapStore.Writer writer = store.writer();
+        for (int i = 0; i < 10; i++) {
+            writer.write(row((long) i), ROW_METADATA, VALUE);
+        }
+        writer.commit("test-key", Collections.emptySet(), Long.MAX_VALUE);
+
+        read(store, "test-key")
+            .as(StepVerifier::create)
+            .expectNext(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L)
+            .verifyComplete();
+    }
+
+    @Test
+    void writeRequestedTypes() {
+        OffHeapStore store = new OffHeapStore(1_024, 1_024);
+
+        Row row = MockRow.builder()
+            .identified(0, Object.class, 100)
+            .identified("value", Long.class, 100L)
+            .build();
+
+        OffHeapStore.Writer writer = store.writer();
+        Long value = writer.write(row, ROW_METADATA, (r, m) -> r.get("value", Long.class));
+        assertThat(value).isEqualTo(100L);
+        writer.commit("test-key", Collections.emptySet(), Long.MAX_VALUE);
+
+        Flux<Long> read = store.read("test-key", (r, m) -> r.get("VALUE", Long.class), 0);
+        assertThat(read).isNotNull();
+
+        read
+            .as(StepVerifier::create)
+            .expectNext(100L)
+            .verifyComplete();
+    }
+
+    @Test
+    void writeRequestedTypesConflict() {
+        OffHeapStore store = new OffHeapStore(1_024, 1_024);
+
+        Row row = MockRow.builder()
+            .identified("value", Object.class, 100)
+            .identified("value", Long.class, 100L)
+            .build();
+
+        OffHeapStore.Writer writer = store.writer();
+        writer.write(row, ROW_METADATA, (r, m) -> r.get("value", Long.class));
+        writer.write(row, ROW_METADATA, VALUE);
+        writer.commit("test-key", Collections.emptySet(), Long.MAX_VALUE);
+
+        assertThat(store.read("test-key", VALUE, 0)).isNull();
+    }
+
+    @Test
+    void writeTooLarge() {
+        OffHeapStore store = new OffHeapStore(64, 32);
+
+        OffHeapStore.Writer writer = store.writer();
+        for (int i = 0; i < 10; i++) {
+            writer.write(row((long) i), ROW_METADATA, VALUE);
+        }
+        writer.commit("test-key", Collections.emptySet(), Long.MAX_VALUE);
+
+        assertThat(store.read("test-key", VALUE, 0)).isNull();
+    }
+
+    @Test
+    void writeUnsupportedType() {
+        OffHeapStore store = new OffHeapStore(1_024, 1_024);
+
+        write(store, "test-key", Collections.emptySet(), new Object());
+
+        assertThat(store.read("test-key", VALUE, 0)).isNull();
+    }
+
+    private static Flux<Object> read(OffHeapStore store, String key) {
+        Flux<Object> read = store.read(key, VALUE, 0);
+        assertThat(read).isNotNull();
+        return read;
+    }
+
+    private static Row row(Object value) {
+        return MockRow.builder()
+            .identified(0, Object.class, value)
+            .identified("value", Object.class, value)
+            .build();
+    }
+
+    private static void write(OffHeapStore store, String key, Set<String> tables, Object value) {
+        OffHeapStore.Writer writer = store.writer();
+        writer.write(row(value), ROW_METADATA, VALUE);
+        writer.commit(key, tables, Long.MAX_VALUE);
+    }
+
+}
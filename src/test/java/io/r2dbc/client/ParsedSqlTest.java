@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.test.MockStatement;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.r2dbc.client.ParameterStyle.AT_P;
+import static io.r2dbc.client.ParameterStyle.DOLLAR;
+import static io.r2dbc.client.ParameterStyle.QUESTION_MARK;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class ParsedSqlTest {
+
+    @Test
+    void bind() {
+        MockStatement statement = MockStatement.empty();
+
+        boolean bound = ParsedSql.parse("SELECT * FROM test WHERE a = :a OR b = :a", QUESTION_MARK)
+            .bind(statement, "a", "test-value");
+
+        Map<Object, Object> expected = new HashMap<>();
+        expected.put(0, "test-value");
+        expected.put(1, "test-value");
+
+        assertThat(bound).isTrue();
+        assertThat(statement.getBindings()).contains(expected);
+    }
+
+    @Test
+    void bindNull() {
+        MockStatement statement = MockStatement.empty();
+
+        boolean bound = ParsedSql.parse("SELECT * FROM test WHERE a = :a", DOLLAR)
+            .bindNull(statement, "a", String.class);
+
+        assertThat(bound).isTrue();
+        assertThat(statement.getBindings()).hasSize(1);
+        assertThat(statement.getBindings().get(0)).containsOnlyKeys("$1");
+    }
+
+    @Test
+    void bindUnknownName() {
+        MockStatement statement = MockStatement.empty();
+
+        boolean bound = ParsedSql.parse("SELECT * FROM test WHERE a = :a", DOLLAR)
+            .bind(statement, "b", "test-value");
+
+        assertThat(bound).isFalse();
+        assertThat(statement.getBindings()).allMatch(Map::isEmpty);
+    }
+
+    @Test
+    void parseAtP() {
+        ParsedSql parsedSql = ParsedSql.parse("SELECT * FROM test WHERE a = :a AND b = :b OR c = :a", AT_P);
+
+        assertThat(parsedSql.getSql()).isEqualTo("SELECT * FROM test WHERE a = @P0 AND b = @P1 OR c = @P0");
+        assertThat(parsedSql.getIdentifiers("a")).containsExactly("P0");
+        assertThat(parsedSql.getIdentifiers("b")).containsExactly("P1");
+    }
+
+    @Test
+    void parseDollar() {
+        ParsedSql parsedSql = ParsedSql.parse("SELECT * FROM test WHERE a = :a AND b = :b_2 OR c = :a", DOLLAR);
+
+        assertThat(parsedSql.getSql()).isEqualTo("SELECT * FROM test WHERE a = $1 AND b = $2 OR c = $1");
+        assertThat(parsedSql.getIdentifiers("a")).containsExactly("$1");
+        assertThat(parsedSql.getIdentifiers("b_2")).containsExactly("$2");
+    }
+
+    @Test
+    void parseIgnoresCasts() {
+        assertThat(ParsedSql.parse("SELECT :a::text", DOLLAR).getSql()).isEqualTo("SELECT $1::text");
+    }
+
+    @Test
+    void parseIgnoresComments() {
+        assertThat(ParsedSql.parse("SELECT :a -- :b\n, /* :c */ :d", DOLLAR).getSql()).isEqualTo("SELECT $1 -- :b\n, /* :c */ $2");
+    }
+
+    @Test
+    void parseIgnoresDollarQuotedStrings() {
+        assertThat(ParsedSql.parse("SELECT $body$ :a $body$, $$ :b $$, $1, :c", DOLLAR).getSql()).isEqualTo("SELECT $body$ :a $body$, $$ :b $$, $1, $1");
+    }
+
+    @Test
+    void parseIgnoresQuotedStrings() {
+        assertThat(ParsedSql.parse("SELECT ':a', 'it''s :b', \":c\", :d", DOLLAR).getSql()).isEqualTo("SELECT ':a', 'it''s :b', \":c\", $1");
+    }
+
+    @Test
+    void parseNoParameters() {
+        String sql = "SELECT * FROM test WHERE a = ?";
+        ParsedSql parsedSql = ParsedSql.parse(sql, DOLLAR);
+
+        assertThat(parsedSql.getSql()).isSameAs(sql);
+        assertThat(parsedSql.getIdentifiers("a")).isNull();
+    }
+
+    @Test
+    void parseNoParameterStyle() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ParsedSql.parse("test-query", null))
+            .withMessage("parameterStyle must not be null");
+    }
+
+    @Test
+    void parseNoSql() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ParsedSql.parse(null, DOLLAR))
+            .withMessage("sql must not be null");
+    }
+
+    @Test
+    void parseQuestionMark() {
+        ParsedSql parsedSql = ParsedSql.parse("SELECT * FROM test WHERE a = :a AND b = :b OR c = :a", QUESTION_MARK);
+
+        assertThat(parsedSql.getSql()).isEqualTo("SELECT * FROM test WHERE a = ? AND b = ? OR c = ?");
+        assertThat(parsedSql.getIdentifiers("a")).containsExactly(0, 2);
+        assertThat(parsedSql.getIdentifiers("b")).containsExactly(1);
+    }
+
+}
@@ -16,8 +16,12 @@
 
 package io.r2dbc.client;
 
+import io.r2dbc.spi.Row;
 import io.r2dbc.spi.test.MockResult;
+import io.r2dbc.spi.test.MockRow;
+import io.r2dbc.spi.test.MockRowMetadata;
 import io.r2dbc.spi.test.MockStatement;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -65,6 +69,26 @@ final class QueryTest {
             .withMessage("value must not be null");
     }
 
+    @Test
+    void bindNamed() {
+        MockStatement statement = MockStatement.empty();
+
+        new Query(statement, ParsedSql.parse("test-query :a", ParameterStyle.DOLLAR))
+            .bind("a", "test-value");
+
+        assertThat(statement.getBindings()).contains(Collections.singletonMap("$1", "test-value"));
+    }
+
+    @Test
+    void bindNamedUnknown() {
+        MockStatement statement = MockStatement.empty();
+
+        new Query(statement, ParsedSql.parse("test-query :a", ParameterStyle.DOLLAR))
+            .bind("test-identifier", "test-value");
+
+        assertThat(statement.getBindings()).contains(Collections.singletonMap("test-identifier", "test-value"));
+    }
+
     @Test
     void bindNoIdentifier() {
         assertThatIllegalArgumentException().isThrownBy(() -> new Query(MockStatement.empty()).bind(null, new Object()))
@@ -87,6 +111,16 @@ final class QueryTest {
         assertThat(statement.getBindings()).contains(Collections.singletonMap("test-identifier", Integer.class));
     }
 
+    @Test
+    void bindNullNamed() {
+        MockStatement statement = MockStatement.empty();
+
+        new Query(statement, ParsedSql.parse("test-query :a", ParameterStyle.DOLLAR))
+            .bindNull("a", Integer.class);
+
+        assertThat(statement.getBindings()).contains(Collections.singletonMap("$1", Integer.class));
+    }
+
     @Test
     void bindNullNoIdentifier() {
         assertThatIllegalArgumentException().isThrownBy(() -> new Query(MockStatement.empty()).bindNull(null, Object.class))
@@ -129,4 +163,43 @@ final class QueryTest {
             .withMessage("f must not be null");
     }
 
+    @Test
+    void mapRowCached() {
+        MockStatement statement = MockStatement.builder()
+            .result(MockResult.builder()
+                .rowMetadata(MockRowMetadata.empty())
+                .row(MockRow.empty())
+                .build())
+            .build();
+
+        ResultCache resultCache = ResultCache.builder().build();
+        Query query = new Query(statement, null, new CachedSelect(resultCache, "test-query", new Object[]{100}, () -> false));
+        Function<Row, Row> f = row -> row;
+
+        query.mapRow(f).as(StepVerifier::create).expectNextCount(1).verifyComplete();
+        query.mapRow(f).as(StepVerifier::create).expectNextCount(1).verifyComplete();
+        query.mapRow((row, rowMetadata) -> row).as(StepVerifier::create).expectNextCount(1).verifyComplete();
+
+        assertThat(resultCache.getHitCount()).isEqualTo(1);
+        assertThat(resultCache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void mapRowCachedBypass() {
+        MockStatement statement = MockStatement.builder()
+            .result(MockResult.builder()
+                .rowMetadata(MockRowMetadata.empty())
+                .row(MockRow.empty())
+                .build())
+            .build();
+
+        ResultCache resultCache = ResultCache.builder().build();
+        Query query = new Query(statement, null, new CachedSelect(resultCache, "test-query", new Object[0], () -> true));
+
+        query.mapRow(row -> row).as(StepVerifier::create).expectNextCount(1).verifyComplete();
+
+        assertThat(resultCache.getMissCount()).isZero();
+        assertThat(resultCache.getSize()).isZero();
+    }
+
 }
@@ -16,14 +16,34 @@
 
 package io.r2dbc.client;
 
+import io.r2dbc.client.breaker.CircuitBreakerConnectionFactory;
+import io.r2dbc.client.limit.LimitingConnectionFactory;
+import io.r2dbc.client.pool.PooledConnectionFactory;
+import io.r2dbc.client.util.DelegatingConnectionFactory;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Row;
 import io.r2dbc.spi.test.MockConnection;
 import io.r2dbc.spi.test.MockConnectionFactory;
+import io.r2dbc.spi.test.MockResult;
+import io.r2dbc.spi.test.MockRow;
+import io.r2dbc.spi.test.MockRowMetadata;
+import io.r2dbc.spi.test.MockStatement;
 import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 
 final class R2dbcTest {
 
@@ -33,6 +53,24 @@ final class R2dbcTest {
             .withMessage("connectionFactory must not be null");
     }
 
+    @Test
+    void constructorNoPrimary() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new R2dbc(null, MockConnectionFactory.empty()))
+            .withMessage("primary must not be null");
+    }
+
+    @Test
+    void constructorNoReplicas() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new R2dbc(MockConnectionFactory.empty(), (ConnectionFactory) null))
+            .withMessage("replicas must not be null");
+    }
+
+    @Test
+    void constructorNoReplicasList() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new R2dbc(MockConnectionFactory.empty(), (List<ConnectionFactory>) null))
+            .withMessage("replicas must not be null");
+    }
+
     @Test
     void inTransaction() {
         MockConnection connection = MockConnection.empty();
@@ -80,6 +118,47 @@ final class R2dbcTest {
             .withMessage("f must not be null");
     }
 
+    @Test
+    void inTransactionReplicas() {
+        MockConnection primary = MockConnection.empty();
+        MockConnection replica = MockConnection.empty();
+
+        new R2dbc(MockConnectionFactory.builder().connection(primary).build(), MockConnectionFactory.builder().connection(replica).build())
+            .inTransaction(handle ->
+                Mono.just(100))
+            .as(StepVerifier::create)
+            .expectNext(100)
+            .verifyComplete();
+
+        assertThat(primary.isCommitTransactionCalled()).isTrue();
+        assertThat(replica.isBeginTransactionCalled()).isFalse();
+    }
+
+    @Test
+    void namedParameters() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.empty())
+            .build();
+
+        new R2dbc(MockConnectionFactory.builder().connection(connection).build())
+            .namedParameters(ParameterStyle.DOLLAR)
+            .withHandle(handle -> handle
+                .createUpdate("INSERT INTO test VALUES (:a, :b, :a)")
+                .bind("a", 100)
+                .bind("b", 200)
+                .execute())
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(connection.getCreateStatementSql()).isEqualTo("INSERT INTO test VALUES ($1, $2, $1)");
+    }
+
+    @Test
+    void namedParametersNoParameterStyle() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new R2dbc(MockConnectionFactory.empty()).namedParameters(null))
+            .withMessage("parameterStyle must not be null");
+    }
+
     @Test
     void open() {
         MockConnection connection = MockConnection.empty();
@@ -95,6 +174,85 @@ final class R2dbcTest {
             .verifyComplete();
     }
 
+    @Test
+    void openReadOnly() {
+        MockConnection primary = MockConnection.empty();
+        MockConnection replica = MockConnection.empty();
+
+        Handle handle = new R2dbc(MockConnectionFactory.builder().connection(primary).build(), MockConnectionFactory.builder().connection(replica).build())
+            .openReadOnly()
+            .block();
+
+        StepVerifier.create(handle.close()).verifyComplete();
+
+        assertThat(primary.isCloseCalled()).isFalse();
+        assertThat(replica.isCloseCalled()).isTrue();
+    }
+
+    @Test
+    void resultCache() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.builder()
+                .result(MockResult.builder()
+                    .rowMetadata(MockRowMetadata.empty())
+                    .row(MockRow.empty())
+                    .rowsUpdated(1)
+                    .build())
+                .build())
+            .build();
+
+        ResultCache resultCache = ResultCache.builder().build();
+        R2dbc r2dbc = new R2dbc(MockConnectionFactory.builder().connection(connection).build())
+            .resultCache(resultCache);
+        Function<Row, Row> f = row -> row;
+
+        r2dbc.withHandle(handle -> handle.select("SELECT * FROM test_table").mapRow(f))
+            .concatWith(r2dbc.withHandle(handle -> handle.select("SELECT * FROM test_table").mapRow(f)))
+            .as(StepVerifier::create)
+            .expectNextCount(2)
+            .verifyComplete();
+
+        assertThat(resultCache.getHitCount()).isEqualTo(1);
+
+        r2dbc.withHandle(handle -> handle.execute("UPDATE test_table SET value = 100"))
+            .as(StepVerifier::create)
+            .expectNext(1)
+            .verifyComplete();
+
+        assertThat(resultCache.getSize()).isZero();
+    }
+
+    @Test
+    void resultCacheNoResultCache() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new R2dbc(MockConnectionFactory.empty()).resultCache(null))
+            .withMessage("resultCache must not be null");
+    }
+
+    @Test
+    void rewriteInserts() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.builder().result(MockResult.builder().rowsUpdated(2).build()).build())
+            .build();
+
+        new R2dbc(MockConnectionFactory.builder().connection(connection).build())
+            .namedParameters(ParameterStyle.AT_P)
+            .rewriteInserts(ParameterStyle.AT_P, 100)
+            .withHandle(handle -> handle
+                .createUpdate("INSERT INTO test VALUES (:a, :b)")
+                .executeMany(Flux.just(new Object[]{100, 200}, new Object[]{300, 400})))
+            .as(StepVerifier::create)
+            .expectNext(2)
+            .verifyComplete();
+
+        assertThat(connection.getCreateStatementSql()).isEqualTo("INSERT INTO test VALUES (@P0, @P1), (@P2, @P3)");
+    }
+
+    @Test
+    void rewriteInsertsNoParameterStyle() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new R2dbc(MockConnectionFactory.empty()).rewriteInserts(null, 100))
+            .withMessage("parameterStyle must not be null");
+    }
+
     @Test
     void useHandle() {
         MockConnection connection = MockConnection.empty();
@@ -137,6 +295,25 @@ final class R2dbcTest {
             .withMessage("f must not be null");
     }
 
+    @Test
+    void useReadOnlyHandle() {
+        MockConnection replica = MockConnection.empty();
+
+        new R2dbc(MockConnectionFactory.empty(), MockConnectionFactory.builder().connection(replica).build())
+            .useReadOnlyHandle(handle ->
+                Mono.just(100))
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(replica.isCloseCalled()).isTrue();
+    }
+
+    @Test
+    void useReadOnlyHandleNoF() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new R2dbc(MockConnectionFactory.empty()).useReadOnlyHandle(null))
+            .withMessage("f must not be null");
+    }
+
     @Test
     void useTransaction() {
         MockConnection connection = MockConnection.empty();
@@ -183,6 +360,69 @@ final class R2dbcTest {
             .withMessage("f must not be null");
     }
 
+    @Test
+    void warmup() {
+        PooledConnectionFactory connectionFactory = new PooledConnectionFactory(MockConnectionFactory.builder()
+            .connection(MockConnection.empty())
+            .build());
+
+        new R2dbc(connectionFactory)
+            .warmup(1)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
+    @Test
+    void warmupNegative() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new R2dbc(MockConnectionFactory.empty()).warmup(-1))
+            .withMessage("minIdle must not be negative");
+    }
+
+    @Test
+    void warmupNotPooled() {
+        assertThatIllegalStateException().isThrownBy(() -> new R2dbc(MockConnectionFactory.empty()).warmup(1))
+            .withMessage("No PooledConnectionFactory found to warm up; wrapping ConnectionFactories must implement DelegatingConnectionFactory");
+    }
+
+    @Test
+    void warmupUserDelegating() {
+        PooledConnectionFactory pool = new PooledConnectionFactory(MockConnectionFactory.builder()
+            .connection(MockConnection.empty())
+            .build());
+
+        new R2dbc(new UserConnectionFactory(pool))
+            .warmup(1)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
+    @Test
+    void warmupWrapped() {
+        PooledConnectionFactory primary = new PooledConnectionFactory(MockConnectionFactory.builder()
+            .connection(MockConnection.empty())
+            .build());
+
+        PooledConnectionFactory replica = new PooledConnectionFactory(MockConnectionFactory.builder()
+            .connection(MockConnection.empty())
+            .build());
+
+        ConnectionFactory wrapped = new LimitingConnectionFactory(CircuitBreakerConnectionFactory.builder()
+            .connectionFactory(primary)
+            .build());
+
+        new R2dbc(wrapped, Arrays.asList(replica, MockConnectionFactory.empty()))
+            .warmup(1)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(primary.getMetrics().getIdleSize()).isEqualTo(1);
+        assertThat(replica.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
     @Test
     void withHandle() {
         MockConnection connection = MockConnection.empty();
@@ -226,4 +466,87 @@ final class R2dbcTest {
             .withMessage("f must not be null");
     }
 
+    @Test
+    void withReadOnlyHandle() {
+        MockConnection primary = MockConnection.empty();
+        MockConnection replica1 = MockConnection.empty();
+        MockConnection replica2 = MockConnection.empty();
+
+        R2dbc r2dbc = new R2dbc(MockConnectionFactory.builder().connection(primary).build(), Arrays.asList(
+            MockConnectionFactory.builder().connection(replica1).build(),
+            MockConnectionFactory.builder().connection(replica2).build()));
+
+        r2dbc
+            .withReadOnlyHandle(handle ->
+                Mono.just(100))
+            .as(StepVerifier::create)
+            .expectNext(100)
+            .verifyComplete();
+
+        assertThat(replica1.isCloseCalled()).isTrue();
+        assertThat(replica2.isCloseCalled()).isFalse();
+
+        r2dbc
+            .withReadOnlyHandle(handle ->
+                Mono.just(100))
+            .as(StepVerifier::create)
+            .expectNext(100)
+            .verifyComplete();
+
+        assertThat(replica2.isCloseCalled()).isTrue();
+        assertThat(primary.isCloseCalled()).isFalse();
+    }
+
+    @Test
+    void withReadOnlyHandleNoF() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new R2dbc(MockConnectionFactory.empty()).withReadOnlyHandle(null))
+            .withMessage("f must not be null");
+    }
+
+    @Test
+    void withReadOnlyHandleNoReplicas() {
+        MockConnection primary = MockConnection.empty();
+
+        new R2dbc(MockConnectionFactory.builder().connection(primary).build(), Collections.emptyList())
+            .withReadOnlyHandle(handle ->
+                Mono.just(100))
+            .as(StepVerifier::create)
+            .expectNext(100)
+            .verifyComplete();
+
+        assertThat(primary.isCloseCalled()).isTrue();
+    }
+
+    private static final class UserConnectionFactory implements DelegatingConnectionFactory {
+
+        private final ConnectionFactory connectionFactory;
+
+        private UserConnectionFactory(ConnectionFactory connectionFactory) {
+            this.connectionFactory = connectionFactory;
+        }
+
+        @Override
+        public Publisher<? extends Connection> create() {
+            return this.connectionFactory.create();
+        }
+
+        @Override
+        public List<ConnectionFactory> getConnectionFactories() {
+            return Collections.singletonList(this.connectionFactory);
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return this.connectionFactory.getMetadata();
+        }
+
+        @Override
+        public String toString() {
+            return "UserConnectionFactory{" +
+                "connectionFactory=" + this.connectionFactory +
+                '}';
+        }
+
+    }
+
 }
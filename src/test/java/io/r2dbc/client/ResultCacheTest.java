@@ -0,0 +1,389 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.test.MockColumnMetadata;
+import io.r2dbc.spi.test.MockRow;
+import io.r2dbc.spi.test.MockRowMetadata;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class ResultCacheTest {
+
+    private static final Function<Object, Object> MAPPER = Function.identity();
+
+    private static final BiFunction<Row, RowMetadata, Integer> VALUE = (row, rowMetadata) -> row.get("value", Integer.class);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    @Test
+    void builderInvalidExpireAfterWrite() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ResultCache.builder().expireAfterWrite(Duration.ZERO))
+            .withMessage("expireAfterWrite must be positive");
+    }
+
+    @Test
+    void builderInvalidMaximumWeight() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ResultCache.builder().maximumWeight(0))
+            .withMessage("maximumWeight must be greater than zero");
+    }
+
+    @Test
+    void builderInvalidOffHeapSegmentSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ResultCache.builder().offHeapSegmentSize(0))
+            .withMessage("offHeapSegmentSize must be greater than zero");
+    }
+
+    @Test
+    void builderNegativeMaximumOffHeapSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ResultCache.builder().maximumOffHeapSize(-1))
+            .withMessage("maximumOffHeapSize must not be negative");
+    }
+
+    @Test
+    void builderNoExpireAfterWrite() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ResultCache.builder().expireAfterWrite(null))
+            .withMessage("expireAfterWrite must not be null");
+    }
+
+    @Test
+    void builderNoWeigher() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ResultCache.builder().weigher(null))
+            .withMessage("weigher must not be null");
+    }
+
+    @Test
+    void builderOffHeap() {
+        ResultCache resultCache = ResultCache.builder()
+            .maximumOffHeapSize(1_024)
+            .offHeapSegmentSize(256)
+            .build();
+
+        getRows(resultCache, VALUE).blockLast();
+
+        assertThat(resultCache.getOffHeapSize()).isEqualTo(1);
+        assertThat(resultCache.getOffHeapMemory()).isEqualTo(256);
+    }
+
+    @Test
+    void evictionPrefersFrequentlyUsed() {
+        ResultCache resultCache = cache(100);
+
+        for (int i = 0; i < 5; i++) {
+            get(resultCache, "SELECT * FROM test_table", "test-popular").blockLast();
+        }
+
+        for (int i = 0; i < 500; i++) {
+            get(resultCache, "SELECT * FROM test_table", "test-scan-" + i).blockLast();
+        }
+
+        this.loads.set(0);
+        get(resultCache, "SELECT * FROM test_table", "test-popular").blockLast();
+
+        assertThat(this.loads).hasValue(0);
+        assertThat(resultCache.getEvictionCount()).isPositive();
+        assertThat(resultCache.getWeight()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void expireAfterWrite() {
+        ResultCache resultCache = cache(100);
+
+        get(resultCache, "SELECT * FROM test_table", 100).blockLast();
+        this.ticker.addAndGet(Duration.ofMinutes(1).toNanos() - 1);
+        get(resultCache, "SELECT * FROM test_table", 100).blockLast();
+
+        assertThat(this.loads).hasValue(1);
+
+        this.ticker.incrementAndGet();
+        get(resultCache, "SELECT * FROM test_table", 100).blockLast();
+
+        assertThat(this.loads).hasValue(2);
+    }
+
+    @Test
+    void get() {
+        ResultCache resultCache = cache(100);
+
+        get(resultCache, "SELECT * FROM test_table", 100)
+            .as(StepVerifier::create)
+            .expectNext("test-value-1", "test-value-2")
+            .verifyComplete();
+
+        get(resultCache, "SELECT * FROM test_table", 100)
+            .as(StepVerifier::create)
+            .expectNext("test-value-1", "test-value-2")
+            .verifyComplete();
+
+        assertThat(this.loads).hasValue(1);
+        assertThat(resultCache.getHitCount()).isEqualTo(1);
+        assertThat(resultCache.getMissCount()).isEqualTo(1);
+        assertThat(resultCache.getSize()).isEqualTo(1);
+        assertThat(resultCache.getWeight()).isEqualTo(2);
+    }
+
+    @Test
+    void getDifferentMapper() {
+        ResultCache resultCache = cache(100);
+
+        resultCache.get("SELECT * FROM test_table", new Object[]{100}, MAPPER, this::load).blockLast();
+        resultCache.get("SELECT * FROM test_table", new Object[]{100}, Function.<Object>identity().andThen(MAPPER), this::load).blockLast();
+
+        assertThat(this.loads).hasValue(2);
+    }
+
+    @Test
+    void getDifferentParameters() {
+        ResultCache resultCache = cache(100);
+
+        get(resultCache, "SELECT * FROM test_table", 100).blockLast();
+        get(resultCache, "SELECT * FROM test_table", 200).blockLast();
+        get(resultCache, "SELECT * FROM test_table", new byte[]{1}).blockLast();
+        get(resultCache, "SELECT * FROM test_table", new byte[]{1}).blockLast();
+
+        assertThat(this.loads).hasValue(3);
+    }
+
+    @Test
+    void getError() {
+        ResultCache resultCache = cache(100);
+
+        resultCache.get("SELECT * FROM test_table", new Object[0], MAPPER, () -> Flux.error(new IllegalStateException()))
+            .as(StepVerifier::create)
+            .verifyError(IllegalStateException.class);
+
+        assertThat(resultCache.getSize()).isZero();
+    }
+
+    @Test
+    void getInvalidatedWhileLoading() {
+        ResultCache resultCache = cache(100);
+        DirectProcessor<Object> processor = DirectProcessor.create();
+
+        resultCache.get("SELECT * FROM test_table", new Object[0], MAPPER, () -> processor)
+            .as(StepVerifier::create)
+            .then(() -> {
+                resultCache.invalidate("test_table");
+                processor.onNext("test-value");
+                processor.onComplete();
+            })
+            .expectNext("test-value")
+            .verifyComplete();
+
+        assertThat(resultCache.getSize()).isZero();
+    }
+
+    @Test
+    void getOffHeap() {
+        ResultCache resultCache = new ResultCache(1, Duration.ofMinutes(1), value -> 1, new OffHeapStore(1_024, 1_024), this.ticker::get);
+
+        getRows(resultCache, VALUE)
+            .as(StepVerifier::create)
+            .expectNext(100, 200)
+            .verifyComplete();
+
+        getRows(resultCache, VALUE)
+            .as(StepVerifier::create)
+            .expectNext(100, 200)
+            .verifyComplete();
+
+        getRows(resultCache, (row, rowMetadata) -> row.get("value", Integer.class) + 1)
+            .as(StepVerifier::create)
+            .expectNext(101, 201)
+            .verifyComplete();
+
+        assertThat(this.loads).hasValue(2);
+        assertThat(resultCache.getSize()).isZero();
+        assertThat(resultCache.getOffHeapHitCount()).isEqualTo(1);
+        assertThat(resultCache.getOffHeapSize()).isEqualTo(2);
+    }
+
+    @Test
+    void getOffHeapConverted() {
+        ResultCache resultCache = new ResultCache(1, Duration.ofMinutes(1), value -> 2, new OffHeapStore(1_024, 1_024), this.ticker::get);
+
+        RowMetadata rowMetadata = MockRowMetadata.builder()
+            .columnMetadata(MockColumnMetadata.builder().name("id").type(100).build())
+            .columnMetadata(MockColumnMetadata.builder().name("name").type(200).build())
+            .build();
+
+        Row row = MockRow.builder()
+            .identified("id", Object.class, 100)
+            .identified("id", Long.class, 100L)
+            .identified("name", Object.class, new StringBuilder("test-name"))
+            .identified("name", String.class, "test-name")
+            .build();
+
+        BiFunction<Row, RowMetadata, String> f = (r, m) -> {
+            Long id = r.get("id", Long.class);
+            String name = r.get("name", String.class);
+            return id + ":" + name;
+        };
+
+        for (int i = 0; i < 2; i++) {
+            resultCache.get("SELECT id, name FROM test_table", new Object[0], f, f, g -> Flux.defer(() -> {
+                this.loads.incrementAndGet();
+                return Flux.just(g.apply(row, rowMetadata));
+            }))
+                .as(StepVerifier::create)
+                .expectNext("100:test-name")
+                .verifyComplete();
+        }
+
+        assertThat(this.loads).hasValue(1);
+        assertThat(resultCache.getOffHeapHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getOffHeapInvalidate() {
+        ResultCache resultCache = new ResultCache(1, Duration.ofMinutes(1), value -> 1, new OffHeapStore(1_024, 1_024), this.ticker::get);
+
+        getRows(resultCache, VALUE).blockLast();
+        resultCache.invalidate("test_table");
+        getRows(resultCache, VALUE).blockLast();
+        resultCache.invalidateAll();
+        getRows(resultCache, VALUE).blockLast();
+
+        assertThat(this.loads).hasValue(3);
+        assertThat(resultCache.getOffHeapHitCount()).isZero();
+    }
+
+    @Test
+    void getTooHeavy() {
+        ResultCache resultCache = cache(1);
+
+        get(resultCache, "SELECT * FROM test_table", 100).blockLast();
+
+        assertThat(resultCache.getSize()).isZero();
+        assertThat(resultCache.getWeight()).isZero();
+    }
+
+    @Test
+    void invalidate() {
+        ResultCache resultCache = cache(100);
+
+        get(resultCache, "SELECT * FROM test_table_1", 100).blockLast();
+        get(resultCache, "SELECT * FROM test_table_1 JOIN test_table_2 USING (id)", 100).blockLast();
+        get(resultCache, "SELECT * FROM test_table_3", 100).blockLast();
+
+        resultCache.invalidate("TEST_TABLE_2");
+
+        assertThat(resultCache.getSize()).isEqualTo(2);
+        assertThat(resultCache.getWeight()).isEqualTo(4);
+
+        resultCache.invalidate("test_table_1");
+
+        assertThat(resultCache.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateAll() {
+        ResultCache resultCache = cache(100);
+
+        get(resultCache, "SELECT * FROM test_table_1", 100).blockLast();
+        get(resultCache, "SELECT * FROM test_table_2", 100).blockLast();
+
+        resultCache.invalidateAll();
+
+        assertThat(resultCache.getSize()).isZero();
+        assertThat(resultCache.getWeight()).isZero();
+    }
+
+    @Test
+    void invalidateNoTable() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ResultCache.builder().build().invalidate(null))
+            .withMessage("table must not be null");
+    }
+
+    @Test
+    void weigher() {
+        ResultCache resultCache = new ResultCache(100, Duration.ofMinutes(1), value -> ((String) value).length(), this.ticker::get);
+
+        get(resultCache, "SELECT * FROM test_table", 100).blockLast();
+
+        assertThat(resultCache.getWeight()).isEqualTo(24);
+    }
+
+    @Test
+    void written() {
+        ResultCache resultCache = cache(100);
+
+        get(resultCache, "SELECT * FROM test_table_1", 100).blockLast();
+        get(resultCache, "SELECT * FROM test_table_2", 100).blockLast();
+
+        resultCache.written("UPDATE test_table_1 SET value = $1");
+
+        assertThat(resultCache.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void writtenUnknown() {
+        ResultCache resultCache = cache(100);
+
+        get(resultCache, "SELECT * FROM test_table_1", 100).blockLast();
+        get(resultCache, "SELECT * FROM test_table_2", 100).blockLast();
+
+        resultCache.written("CALL test_procedure()");
+
+        assertThat(resultCache.getSize()).isZero();
+    }
+
+    private ResultCache cache(long maximumWeight) {
+        return new ResultCache(maximumWeight, Duration.ofMinutes(1), value -> 1, this.ticker::get);
+    }
+
+    private Flux<Object> get(ResultCache resultCache, String sql, Object parameter) {
+        return resultCache.get(sql, new Object[]{parameter}, MAPPER, this::load);
+    }
+
+    private <T> Flux<T> getRows(ResultCache resultCache, BiFunction<Row, RowMetadata, T> f) {
+        RowMetadata rowMetadata = MockRowMetadata.builder()
+            .columnMetadata(MockColumnMetadata.builder().name("value").type(100).build())
+            .build();
+
+        return resultCache.get("SELECT value FROM test_table", new Object[0], f, f, g -> Flux.defer(() -> {
+            this.loads.incrementAndGet();
+
+            return Flux.just(100, 200)
+                .map(value -> MockRow.builder().identified(0, Object.class, value).identified("value", Integer.class, value).build())
+                .map(row -> g.apply(row, rowMetadata));
+        }));
+    }
+
+    private Flux<Object> load() {
+        return Flux.defer(() -> {
+            this.loads.incrementAndGet();
+            return Flux.just("test-value-1", "test-value-2");
+        });
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.test.MockConnection;
+import io.r2dbc.spi.test.MockConnectionFactory;
+import io.r2dbc.spi.test.MockResult;
+import io.r2dbc.spi.test.MockStatement;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.DirectProcessor;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class SingleFlightTest {
+
+    @Test
+    void constructorNoR2dbc() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SingleFlight(null))
+            .withMessage("r2dbc must not be null");
+    }
+
+    @Test
+    void mapResult() {
+        DirectProcessor<String> processor = DirectProcessor.create();
+        Function<Result, Publisher<String>> f = result -> processor;
+        SingleFlight singleFlight = new SingleFlight(r2dbc());
+
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+
+        singleFlight.select("test-query", 100).mapResult(f).subscribe(first::add);
+        singleFlight.select("test-query", 100).mapResult(f).subscribe(second::add);
+
+        assertThat(singleFlight.getExecutionCount()).isEqualTo(1);
+        assertThat(singleFlight.getCollapsedCount()).isEqualTo(1);
+        assertThat(singleFlight.getInFlightCount()).isEqualTo(1);
+
+        processor.onNext("test-value");
+        processor.onComplete();
+
+        assertThat(first).containsExactly("test-value");
+        assertThat(second).containsExactly("test-value");
+        assertThat(singleFlight.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void mapResultAfterCompletion() {
+        Function<Result, Publisher<Integer>> f = Result::getRowsUpdated;
+        SingleFlight singleFlight = new SingleFlight(r2dbc());
+
+        singleFlight.select("test-query").mapResult(f)
+            .as(StepVerifier::create)
+            .expectNext(100)
+            .verifyComplete();
+
+        singleFlight.select("test-query").mapResult(f)
+            .as(StepVerifier::create)
+            .expectNext(100)
+            .verifyComplete();
+
+        assertThat(singleFlight.getExecutionCount()).isEqualTo(2);
+        assertThat(singleFlight.getCollapsedCount()).isZero();
+    }
+
+    @Test
+    void mapResultDifferentMappers() {
+        DirectProcessor<String> processor = DirectProcessor.create();
+        SingleFlight singleFlight = new SingleFlight(r2dbc());
+
+        singleFlight.select("test-query", 100).mapResult(result -> processor).subscribe();
+        singleFlight.select("test-query", 100).mapResult(result -> processor).subscribe();
+
+        assertThat(singleFlight.getExecutionCount()).isEqualTo(2);
+        processor.onComplete();
+    }
+
+    @Test
+    void mapResultDifferentParameters() {
+        DirectProcessor<String> processor = DirectProcessor.create();
+        Function<Result, Publisher<String>> f = result -> processor;
+        SingleFlight singleFlight = new SingleFlight(r2dbc());
+
+        singleFlight.select("test-query", 100).mapResult(f).subscribe();
+        singleFlight.select("test-query", 200).mapResult(f).subscribe();
+        singleFlight.select("test-query", new byte[]{1}).mapResult(f).subscribe();
+        singleFlight.select("test-query", new byte[]{1}).mapResult(f).subscribe();
+
+        assertThat(singleFlight.getExecutionCount()).isEqualTo(3);
+        assertThat(singleFlight.getCollapsedCount()).isEqualTo(1);
+        processor.onComplete();
+    }
+
+    @Test
+    void mapResultNoF() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SingleFlight(r2dbc()).select("test-query").mapResult(null))
+            .withMessage("f must not be null");
+    }
+
+    @Test
+    void mapResultNotSubscribed() {
+        SingleFlight singleFlight = new SingleFlight(r2dbc());
+
+        singleFlight.select("test-query").mapResult(Result::getRowsUpdated);
+
+        assertThat(singleFlight.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void selectNoParameters() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SingleFlight(r2dbc()).select("test-query", (Object[]) null))
+            .withMessage("parameters must not be null");
+    }
+
+    @Test
+    void selectNoSql() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SingleFlight(r2dbc()).select(null))
+            .withMessage("sql must not be null");
+    }
+
+    private static R2dbc r2dbc() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.builder().result(MockResult.builder().rowsUpdated(100).build()).build())
+            .build();
+
+        return new R2dbc(MockConnectionFactory.builder().connection(connection).build());
+    }
+
+}
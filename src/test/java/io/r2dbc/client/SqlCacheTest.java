@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class SqlCacheTest {
+
+    @Test
+    void constructorInvalidMaximumSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SqlCache<>(0, String::length))
+            .withMessage("maximumSize must be greater than zero");
+    }
+
+    @Test
+    void constructorNoLoader() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SqlCache<>(1, null))
+            .withMessage("loader must not be null");
+    }
+
+    @Test
+    void get() {
+        AtomicInteger loads = new AtomicInteger();
+        SqlCache<Integer> cache = new SqlCache<>(10, sql -> {
+            loads.incrementAndGet();
+            return sql.length();
+        });
+
+        assertThat(cache.get("test-query")).isEqualTo(10);
+        assertThat(cache.get("test-query")).isEqualTo(10);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void getBounded() {
+        SqlCache<Integer> cache = new SqlCache<>(2, String::length);
+
+        cache.get("a");
+        cache.get("bb");
+        cache.get("ccc");
+
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+}
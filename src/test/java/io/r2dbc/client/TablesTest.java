@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class TablesTest {
+
+    @Test
+    void access() {
+        Tables.Access access = Tables.access("UPDATE test_table_1 SET value = (SELECT value FROM test_table_2) RETURNING id");
+
+        assertThat(access.getRead()).containsExactly("test_table_2");
+        assertThat(access.getWritten()).containsExactly("test_table_1");
+        assertThat(access.isSelect()).isFalse();
+        assertThat(access.isWrite()).isTrue();
+    }
+
+    @Test
+    void accessSelect() {
+        assertThat(Tables.access("SELECT * FROM test_table").isSelect()).isTrue();
+        assertThat(Tables.access("SELECT * FROM test_table").isWrite()).isFalse();
+        assertThat(Tables.access("SELECT * FROM test_table FOR UPDATE").isWrite()).isFalse();
+        assertThat(Tables.access("WITH d AS (DELETE FROM test_table RETURNING *) SELECT * FROM d").isWrite()).isTrue();
+    }
+
+    @Test
+    void isSelect() {
+        assertThat(Tables.isSelect("SELECT * FROM test_table WHERE id = $1")).isTrue();
+        assertThat(Tables.isSelect("WITH t AS (SELECT id FROM test_table) SELECT * FROM t")).isTrue();
+        assertThat(Tables.isSelect("SELECT 'update' FROM test_table -- for update")).isTrue();
+    }
+
+    @Test
+    void isSelectWrite() {
+        assertThat(Tables.isSelect("INSERT INTO test_table VALUES ($1) RETURNING id")).isFalse();
+        assertThat(Tables.isSelect("UPDATE test_table SET value = $1 RETURNING *")).isFalse();
+        assertThat(Tables.isSelect("WITH d AS (DELETE FROM test_table RETURNING *) SELECT * FROM d")).isFalse();
+        assertThat(Tables.isSelect("SELECT * FROM test_table FOR UPDATE")).isFalse();
+        assertThat(Tables.isSelect("SELECT * INTO test_copy FROM test_table")).isFalse();
+        assertThat(Tables.isSelect("")).isFalse();
+    }
+
+    @Test
+    void readAlias() {
+        assertThat(Tables.read("SELECT * FROM test_table AS t WHERE t.id = $1")).containsExactly("test_table");
+    }
+
+    @Test
+    void readCommaSeparated() {
+        assertThat(Tables.read("SELECT * FROM test_table_1 a, test_table_2 b WHERE a.id = b.id")).containsExactly("test_table_1", "test_table_2");
+    }
+
+    @Test
+    void readIgnoresLiteralsAndComments() {
+        assertThat(Tables.read("SELECT 'from test_literal' FROM test_table -- JOIN test_comment")).containsExactly("test_table");
+    }
+
+    @Test
+    void readJoin() {
+        assertThat(Tables.read("SELECT * FROM test_table_1 t1 LEFT JOIN test_table_2 t2 ON t1.id = t2.id JOIN test_table_3 USING (id)"))
+            .containsExactly("test_table_1", "test_table_2", "test_table_3");
+    }
+
+    @Test
+    void readNoTables() {
+        assertThat(Tables.read("SELECT 1")).isEmpty();
+    }
+
+    @Test
+    void readQualified() {
+        assertThat(Tables.read("SELECT * FROM test_schema.\"Test_Table\"")).containsExactly("test_table");
+    }
+
+    @Test
+    void readSubquery() {
+        assertThat(Tables.read("SELECT * FROM (SELECT id FROM test_table_1) s JOIN test_table_2 ON s.id = test_table_2.id")).containsExactly("test_table_1", "test_table_2");
+    }
+
+    @Test
+    void writtenDelete() {
+        assertThat(Tables.written("DELETE FROM test_table WHERE id = $1")).containsExactly("test_table");
+    }
+
+    @Test
+    void writtenInsert() {
+        assertThat(Tables.written("insert into Test_Schema.Test_Table (id) VALUES ($1)")).containsExactly("test_table");
+    }
+
+    @Test
+    void writtenMerge() {
+        assertThat(Tables.written("MERGE INTO test_table USING test_source ON (id)")).containsExactly("test_table");
+    }
+
+    @Test
+    void writtenOnly() {
+        assertThat(Tables.written("UPDATE ONLY test_table SET value = $1")).containsExactly("test_table");
+        assertThat(Tables.written("DELETE FROM ONLY test_schema.test_table WHERE id = $1")).containsExactly("test_table");
+        assertThat(Tables.written("TRUNCATE TABLE ONLY test_table")).containsExactly("test_table");
+    }
+
+    @Test
+    void writtenTruncate() {
+        assertThat(Tables.written("TRUNCATE TABLE test_table")).containsExactly("test_table");
+    }
+
+    @Test
+    void writtenUnknown() {
+        assertThat(Tables.written("CALL test_procedure()")).isNull();
+        assertThat(Tables.written("WITH t AS (SELECT 1) UPDATE test_table SET value = 1")).isNull();
+        assertThat(Tables.written("")).isNull();
+    }
+
+    @Test
+    void writtenUpdate() {
+        assertThat(Tables.written("/* comment */ UPDATE test_table SET value = $1")).containsExactly("test_table");
+    }
+
+}
@@ -16,15 +16,30 @@
 
 package io.r2dbc.client;
 
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
 import io.r2dbc.spi.test.MockResult;
 import io.r2dbc.spi.test.MockStatement;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 import reactor.test.StepVerifier;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 
 final class UpdateTest {
 
@@ -64,6 +79,26 @@ final class UpdateTest {
             .withMessage("value must not be null");
     }
 
+    @Test
+    void bindNamed() {
+        MockStatement statement = MockStatement.empty();
+
+        new Update(statement, ParsedSql.parse("test-query :a", ParameterStyle.DOLLAR))
+            .bind("a", "test-value");
+
+        assertThat(statement.getBindings()).contains(Collections.singletonMap("$1", "test-value"));
+    }
+
+    @Test
+    void bindNamedUnknown() {
+        MockStatement statement = MockStatement.empty();
+
+        new Update(statement, ParsedSql.parse("test-query :a", ParameterStyle.DOLLAR))
+            .bind("test-identifier", "test-value");
+
+        assertThat(statement.getBindings()).contains(Collections.singletonMap("test-identifier", "test-value"));
+    }
+
     @Test
     void bindNoIdentifier() {
         assertThatIllegalArgumentException().isThrownBy(() -> new Update(MockStatement.empty()).bind(null, new Object()))
@@ -86,6 +121,16 @@ final class UpdateTest {
         assertThat(statement.getBindings()).contains(Collections.singletonMap("test-identifier", Integer.class));
     }
 
+    @Test
+    void bindNullNamed() {
+        MockStatement statement = MockStatement.empty();
+
+        new Update(statement, ParsedSql.parse("test-query :a", ParameterStyle.DOLLAR))
+            .bindNull("a", Integer.class);
+
+        assertThat(statement.getBindings()).contains(Collections.singletonMap("$1", Integer.class));
+    }
+
     @Test
     void bindNullNoIdentifier() {
         assertThatIllegalArgumentException().isThrownBy(() -> new Update(MockStatement.empty()).bindNull(null, Object.class))
@@ -121,4 +166,209 @@ final class UpdateTest {
             .verifyComplete();
     }
 
+    @Test
+    void executeMany() {
+        List<MockStatement> statements = new ArrayList<>();
+
+        Function<String, Statement<?>> statementFactory = sql -> {
+            MockStatement statement = MockStatement.builder()
+                .result(MockResult.builder().rowsUpdated(1).build(), MockResult.builder().rowsUpdated(1).build())
+                .build();
+
+            statements.add(statement);
+            return statement;
+        };
+
+        new Update(statementFactory, "test-update", null, null, null)
+            .executeMany(Flux.range(0, 5).map(i -> new Object[]{"test-value", i}), 2, 2)
+            .as(StepVerifier::create)
+            .expectNext(2, 2, 2)
+            .verifyComplete();
+
+        assertThat(statements).hasSize(3);
+        assertThat(statements.get(0).getBindings()).containsExactly(bindings("test-value", 0), bindings("test-value", 1));
+        assertThat(statements.get(1).getBindings()).containsExactly(bindings("test-value", 2), bindings("test-value", 3));
+        assertThat(statements.get(2).getBindings()).containsExactly(bindings("test-value", 4));
+    }
+
+    @Test
+    void executeManyInsertRewriter() {
+        InsertRewriter insertRewriter = InsertRewriter.of("INSERT INTO test VALUES (?, ?)", ParameterStyle.QUESTION_MARK, 2);
+        List<MockStatement> statements = new ArrayList<>();
+        List<String> sqls = new ArrayList<>();
+
+        Function<String, Statement<?>> statementFactory = sql -> {
+            MockStatement statement = MockStatement.builder()
+                .result(MockResult.builder().rowsUpdated(sql.equals("INSERT INTO test VALUES (?, ?)") ? 1 : 2).build())
+                .build();
+
+            sqls.add(sql);
+            statements.add(statement);
+            return statement;
+        };
+
+        new Update(statementFactory, "INSERT INTO test VALUES (?, ?)", null, insertRewriter, null)
+            .executeMany(Flux.range(0, 5).map(i -> new Object[]{"test-value", i}))
+            .as(StepVerifier::create)
+            .expectNext(2, 2, 1)
+            .verifyComplete();
+
+        assertThat(sqls).containsExactly("INSERT INTO test VALUES (?, ?), (?, ?)", "INSERT INTO test VALUES (?, ?), (?, ?)", "INSERT INTO test VALUES (?, ?)");
+
+        Map<Object, Object> expected = new HashMap<>();
+        expected.put(0, "test-value");
+        expected.put(1, 2);
+        expected.put(2, "test-value");
+        expected.put(3, 3);
+
+        assertThat(statements.get(1).getBindings()).containsExactly(expected);
+    }
+
+    @Test
+    void executeManyInsertRewriterWrongParameterCount() {
+        InsertRewriter insertRewriter = InsertRewriter.of("INSERT INTO test VALUES (?, ?)", ParameterStyle.QUESTION_MARK, 2);
+
+        new Update(sql -> MockStatement.empty(), "INSERT INTO test VALUES (?, ?)", null, insertRewriter, null)
+            .executeMany(Flux.<Object[]>just(new Object[]{"test-value"}))
+            .as(StepVerifier::create)
+            .verifyErrorMessage("parameters must contain 2 values");
+    }
+
+    @Test
+    void executeManyInvalidChunkSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new Update(MockStatement.empty()).executeMany(Flux.empty(), 0, 1))
+            .withMessage("chunkSize must be greater than zero");
+    }
+
+    @Test
+    void executeManyInvalidConcurrency() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new Update(MockStatement.empty()).executeMany(Flux.empty(), 1, 0))
+            .withMessage("concurrency must be greater than zero");
+    }
+
+    @Test
+    void executeManyNoParameters() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new Update(MockStatement.empty()).executeMany(null))
+            .withMessage("parameters must not be null");
+    }
+
+    @Test
+    void executeManyNoStatementFactory() {
+        assertThatIllegalStateException().isThrownBy(() -> new Update(MockStatement.empty()).executeMany(Flux.empty()))
+            .withMessage("Update cannot create a statement for each chunk");
+    }
+
+    @Test
+    void executeManyNoUpdateStatement() {
+        List<String> sqls = new ArrayList<>();
+
+        Function<String, Statement<?>> statementFactory = sql -> {
+            sqls.add(sql);
+            return MockStatement.builder()
+                .result(MockResult.builder().rowsUpdated(1).build())
+                .build();
+        };
+
+        new Update(statementFactory, "test-update", null, null, null)
+            .executeMany(Flux.just(new Object[]{100}, new Object[]{200}), 1, 1)
+            .as(StepVerifier::create)
+            .expectNext(1, 1)
+            .verifyComplete();
+
+        assertThat(sqls).containsExactly("test-update", "test-update");
+    }
+
+    @Test
+    void executeManyNullValue() {
+        new Update(sql -> MockStatement.empty(), "test-update", null, null, null)
+            .executeMany(Flux.<Object[]>just(new Object[]{null}))
+            .as(StepVerifier::create)
+            .verifyErrorMessage("value must not be null");
+    }
+
+    @Test
+    void executeManyOnExecute() {
+        MockStatement statement = MockStatement.builder()
+            .result(MockResult.builder().rowsUpdated(1).build())
+            .build();
+
+        AtomicInteger executions = new AtomicInteger();
+
+        new Update(sql -> statement, "test-update", null, null, executions::incrementAndGet)
+            .executeMany(Flux.just(new Object[]{100}, new Object[]{200}), 1, 1)
+            .as(StepVerifier::create)
+            .expectNext(1, 1)
+            .verifyComplete();
+
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void executeOnExecute() {
+        MockStatement statement = MockStatement.builder()
+            .result(MockResult.builder().rowsUpdated(1).build())
+            .build();
+
+        AtomicInteger executions = new AtomicInteger();
+
+        new Update(sql -> statement, "test-update", null, null, executions::incrementAndGet)
+            .add()
+            .execute()
+            .as(StepVerifier::create)
+            .expectNext(1)
+            .verifyComplete();
+
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void executeOrdered() {
+        MonoProcessor<Integer> first = MonoProcessor.create();
+        MonoProcessor<Integer> second = MonoProcessor.create();
+
+        MockStatement statement = MockStatement.builder()
+            .result(new DeferredResult(first), new DeferredResult(second))
+            .build();
+
+        new Update(statement)
+            .execute()
+            .as(StepVerifier::create)
+            .then(() -> {
+                second.onNext(2);
+                first.onNext(1);
+            })
+            .expectNext(1, 2)
+            .verifyComplete();
+    }
+
+    private static Map<Object, Object> bindings(Object... values) {
+        Map<Object, Object> bindings = new HashMap<>();
+
+        for (int i = 0; i < values.length; i++) {
+            bindings.put(i, values[i]);
+        }
+
+        return bindings;
+    }
+
+    private static final class DeferredResult implements Result {
+
+        private final Mono<Integer> rowsUpdated;
+
+        private DeferredResult(Mono<Integer> rowsUpdated) {
+            this.rowsUpdated = rowsUpdated;
+        }
+
+        @Override
+        public Mono<Integer> getRowsUpdated() {
+            return this.rowsUpdated;
+        }
+
+        @Override
+        public <T> Flux<T> map(BiFunction<Row, RowMetadata, ? extends T> f) {
+            return Flux.empty();
+        }
+
+    }
+
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client;
+
+import io.r2dbc.spi.test.MockConnection;
+import io.r2dbc.spi.test.MockConnectionFactory;
+import io.r2dbc.spi.test.MockResult;
+import io.r2dbc.spi.test.MockStatement;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class WriteCoalescerTest {
+
+    @Test
+    void builderInvalidMaxSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> WriteCoalescer.builder().maxSize(0))
+            .withMessage("maxSize must be greater than zero");
+    }
+
+    @Test
+    void builderNegativeWindow() {
+        assertThatIllegalArgumentException().isThrownBy(() -> WriteCoalescer.builder().window(Duration.ofMillis(-1)))
+            .withMessage("window must not be negative");
+    }
+
+    @Test
+    void builderNoR2dbc() {
+        assertThatIllegalArgumentException().isThrownBy(() -> WriteCoalescer.builder().build())
+            .withMessage("r2dbc must not be null");
+    }
+
+    @Test
+    void builderNoWindow() {
+        assertThatIllegalArgumentException().isThrownBy(() -> WriteCoalescer.builder().window(null))
+            .withMessage("window must not be null");
+    }
+
+    @Test
+    void execute() {
+        MockStatement statement = MockStatement.builder()
+            .result(MockResult.builder().rowsUpdated(1).build(), MockResult.builder().rowsUpdated(0).build(), MockResult.builder().rowsUpdated(1).build())
+            .build();
+
+        MockConnection connection = MockConnection.builder()
+            .statement(statement)
+            .build();
+
+        WriteCoalescer coalescer = WriteCoalescer.builder()
+            .r2dbc(new R2dbc(MockConnectionFactory.builder().connection(connection).build()))
+            .maxSize(3)
+            .window(Duration.ofMinutes(1))
+            .build();
+
+        Mono.zip(
+            coalescer.execute("test-update", 100),
+            coalescer.execute("test-update", 200),
+            coalescer.execute("test-update", 300))
+            .as(StepVerifier::create)
+            .assertNext(counts -> {
+                assertThat(counts.getT1()).isEqualTo(1);
+                assertThat(counts.getT2()).isEqualTo(0);
+                assertThat(counts.getT3()).isEqualTo(1);
+            })
+            .verifyComplete();
+
+        Map<Object, Object> expected = new HashMap<>();
+        expected.put(0, 200);
+
+        assertThat(statement.getBindings()).hasSize(3).contains(expected);
+        assertThat(coalescer.getCoalescedCount()).isEqualTo(3);
+        assertThat(coalescer.getExecutionCount()).isEqualTo(1);
+        assertThat(connection.isCloseCalled()).isTrue();
+    }
+
+    @Test
+    void executeError() {
+        WriteCoalescer coalescer = WriteCoalescer.builder()
+            .r2dbc(new R2dbc(MockConnectionFactory.builder().connection(MockConnection.empty()).build()))
+            .maxSize(2)
+            .window(Duration.ofMinutes(1))
+            .build();
+
+        Mono.zip(
+            coalescer.execute("test-update", 100),
+            coalescer.execute("test-update", 200))
+            .as(StepVerifier::create)
+            .verifyError(AssertionError.class);
+    }
+
+    @Test
+    void executeMissingRowCount() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.builder().result(MockResult.builder().rowsUpdated(1).build()).build())
+            .build();
+
+        WriteCoalescer coalescer = WriteCoalescer.builder()
+            .r2dbc(new R2dbc(MockConnectionFactory.builder().connection(connection).build()))
+            .maxSize(2)
+            .window(Duration.ofMinutes(1))
+            .build();
+
+        Mono<Integer> first = coalescer.execute("test-update", 100).cache();
+        first.subscribe();
+
+        coalescer.execute("test-update", 200)
+            .as(StepVerifier::create)
+            .verifyErrorMessage("Update returned 1 row counts for 2 bindings");
+
+        first
+            .as(StepVerifier::create)
+            .expectNext(1)
+            .verifyComplete();
+    }
+
+    @Test
+    void executeNoParameters() {
+        assertThatIllegalArgumentException().isThrownBy(() -> WriteCoalescer.builder().r2dbc(new R2dbc(MockConnectionFactory.empty())).build().execute("test-update", (Object[]) null))
+            .withMessage("parameters must not be null");
+    }
+
+    @Test
+    void executeNoSql() {
+        assertThatIllegalArgumentException().isThrownBy(() -> WriteCoalescer.builder().r2dbc(new R2dbc(MockConnectionFactory.empty())).build().execute(null, 100))
+            .withMessage("sql must not be null");
+    }
+
+    @Test
+    void executeNullParameter() {
+        assertThatIllegalArgumentException().isThrownBy(() -> WriteCoalescer.builder().r2dbc(new R2dbc(MockConnectionFactory.empty())).build().execute("test-update", 100, null))
+            .withMessage("parameters must not contain null");
+    }
+
+    @Test
+    void executeWindow() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.builder().result(MockResult.builder().rowsUpdated(1).build()).build())
+            .build();
+
+        WriteCoalescer coalescer = WriteCoalescer.builder()
+            .r2dbc(new R2dbc(MockConnectionFactory.builder().connection(connection).build()))
+            .window(Duration.ofMillis(10))
+            .build();
+
+        coalescer.execute("test-update", 100)
+            .as(StepVerifier::create)
+            .expectNext(1)
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(coalescer.getExecutionCount()).isEqualTo(1);
+    }
+
+}
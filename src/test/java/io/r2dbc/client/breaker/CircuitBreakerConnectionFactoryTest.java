@@ -0,0 +1,323 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.breaker;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.test.MockConnection;
+import io.r2dbc.spi.test.MockConnectionFactory;
+import io.r2dbc.spi.test.MockResult;
+import io.r2dbc.spi.test.MockStatement;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+
+import static io.r2dbc.client.breaker.CircuitBreakerConnectionFactory.State.CLOSED;
+import static io.r2dbc.client.breaker.CircuitBreakerConnectionFactory.State.HALF_OPEN;
+import static io.r2dbc.client.breaker.CircuitBreakerConnectionFactory.State.OPEN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class CircuitBreakerConnectionFactoryTest {
+
+    @Test
+    void builderInvalidFailureRateThreshold() {
+        assertThatIllegalArgumentException().isThrownBy(() -> CircuitBreakerConnectionFactory.builder().failureRateThreshold(0))
+            .withMessage("failureRateThreshold must be greater than 0 and at most 1");
+    }
+
+    @Test
+    void builderInvalidMinimumCalls() {
+        assertThatIllegalArgumentException().isThrownBy(() -> CircuitBreakerConnectionFactory.builder().connectionFactory(MockConnectionFactory.empty()).minimumCalls(20).windowSize(10).build())
+            .withMessage("minimumCalls must not be greater than windowSize");
+    }
+
+    @Test
+    void builderNegativeOpenDuration() {
+        assertThatIllegalArgumentException().isThrownBy(() -> CircuitBreakerConnectionFactory.builder().openDuration(Duration.ofSeconds(-1)))
+            .withMessage("openDuration must not be negative");
+    }
+
+    @Test
+    void builderInvalidProbeTimeout() {
+        assertThatIllegalArgumentException().isThrownBy(() -> CircuitBreakerConnectionFactory.builder().probeTimeout(Duration.ZERO))
+            .withMessage("probeTimeout must be positive");
+    }
+
+    @Test
+    void builderNoConnectionFactory() {
+        assertThatIllegalArgumentException().isThrownBy(() -> CircuitBreakerConnectionFactory.builder().build())
+            .withMessage("connectionFactory must not be null");
+    }
+
+    @Test
+    void builderNoRecordFailure() {
+        assertThatIllegalArgumentException().isThrownBy(() -> CircuitBreakerConnectionFactory.builder().recordFailure(null))
+            .withMessage("recordFailure must not be null");
+    }
+
+    @Test
+    void create() {
+        MockStatement statement = MockStatement.builder().result(MockResult.empty()).build();
+        MockConnection connection = MockConnection.builder().statement(statement).build();
+
+        CircuitBreakerConnectionFactory connectionFactory = CircuitBreakerConnectionFactory.builder()
+            .connectionFactory(MockConnectionFactory.builder().connection(connection).build())
+            .build();
+
+        connectionFactory.create()
+            .flatMapMany(c -> c.createStatement("test-query").execute())
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(connection.getCreateStatementSql()).isEqualTo("test-query");
+        assertThat(connectionFactory.getState()).isEqualTo(CLOSED);
+    }
+
+    @Test
+    void createHalfOpenProbeFailure() {
+        StubConnectionFactory delegate = new StubConnectionFactory(Mono.error(new IllegalStateException("test-message")));
+        CircuitBreakerConnectionFactory connectionFactory = breaker(delegate, Duration.ZERO);
+
+        fail(connectionFactory, 2);
+        assertThat(connectionFactory.getState()).isEqualTo(HALF_OPEN);
+
+        fail(connectionFactory, 1);
+
+        assertThat(delegate.getCreated()).isEqualTo(3);
+        assertThat(connectionFactory.getState()).isEqualTo(HALF_OPEN);
+    }
+
+    @Test
+    void createHalfOpenProbeTimeout() {
+        StubConnectionFactory delegate = new StubConnectionFactory(Mono.error(new IllegalStateException("test-message")));
+
+        CircuitBreakerConnectionFactory connectionFactory = CircuitBreakerConnectionFactory.builder()
+            .connectionFactory(delegate)
+            .minimumCalls(2)
+            .openDuration(Duration.ZERO)
+            .probeTimeout(Duration.ofMillis(50))
+            .windowSize(2)
+            .build();
+
+        fail(connectionFactory, 2);
+
+        delegate.setConnection(Mono.never());
+
+        connectionFactory.create()
+            .as(StepVerifier::create)
+            .expectError(TimeoutException.class)
+            .verify();
+
+        delegate.setConnection(Mono.just(MockConnection.empty()));
+
+        connectionFactory.create()
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getState()).isEqualTo(CLOSED);
+    }
+
+    @Test
+    void createHalfOpenProbeSuccess() {
+        StubConnectionFactory delegate = new StubConnectionFactory(Mono.error(new IllegalStateException("test-message")));
+        CircuitBreakerConnectionFactory connectionFactory = breaker(delegate, Duration.ZERO);
+
+        fail(connectionFactory, 2);
+
+        delegate.setConnection(Mono.just(MockConnection.empty()));
+
+        connectionFactory.create()
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getState()).isEqualTo(CLOSED);
+    }
+
+    @Test
+    void createHalfOpenSingleProbe() {
+        StubConnectionFactory delegate = new StubConnectionFactory(Mono.error(new IllegalStateException("test-message")));
+        CircuitBreakerConnectionFactory connectionFactory = breaker(delegate, Duration.ZERO);
+
+        fail(connectionFactory, 2);
+
+        delegate.setConnection(Mono.never());
+        Disposable probe = connectionFactory.create().subscribe();
+
+        connectionFactory.create()
+            .as(StepVerifier::create)
+            .expectError(CircuitBreakerOpenException.class)
+            .verify();
+
+        probe.dispose();
+
+        assertThat(delegate.getCreated()).isEqualTo(3);
+        assertThat(connectionFactory.getState()).isEqualTo(HALF_OPEN);
+    }
+
+    @Test
+    void createOpen() {
+        StubConnectionFactory delegate = new StubConnectionFactory(Mono.error(new IllegalStateException("test-message")));
+        CircuitBreakerConnectionFactory connectionFactory = breaker(delegate, Duration.ofMinutes(1));
+
+        fail(connectionFactory, 2);
+
+        assertThat(connectionFactory.getState()).isEqualTo(OPEN);
+
+        connectionFactory.create()
+            .as(StepVerifier::create)
+            .expectErrorSatisfies(t -> assertThat(t).isInstanceOf(CircuitBreakerOpenException.class)
+                .hasMessageStartingWith("Circuit breaker for"))
+            .verify();
+
+        assertThat(delegate.getCreated()).isEqualTo(2);
+        assertThat(connectionFactory.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void executeResultFailure() {
+        MockStatement statement = MockStatement.builder().result(new FailingResult()).build();
+        MockConnection connection = MockConnection.builder().statement(statement).build();
+        CircuitBreakerConnectionFactory connectionFactory = breaker(MockConnectionFactory.builder().connection(connection).build(), Duration.ofMinutes(1));
+
+        Flux<Result> results = connectionFactory.create()
+            .flatMapMany(c -> c.createStatement("test-query").execute());
+
+        results
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getState()).isEqualTo(CLOSED);
+
+        results
+            .flatMap(Result::getRowsUpdated)
+            .as(StepVerifier::create)
+            .verifyErrorMessage("test-message");
+
+        assertThat(connectionFactory.getState()).isEqualTo(OPEN);
+    }
+
+    @Test
+    void guard() {
+        CircuitBreakerConnectionFactory connectionFactory = breaker(MockConnectionFactory.empty(), Duration.ofMinutes(1));
+
+        for (int i = 0; i < 2; i++) {
+            connectionFactory.guard(Flux.error(new IllegalStateException("test-message")))
+                .as(StepVerifier::create)
+                .verifyErrorMessage("test-message");
+        }
+
+        assertThat(connectionFactory.getState()).isEqualTo(OPEN);
+    }
+
+    @Test
+    void recordFailure() {
+        CircuitBreakerConnectionFactory connectionFactory = CircuitBreakerConnectionFactory.builder()
+            .connectionFactory(MockConnectionFactory.empty())
+            .minimumCalls(2)
+            .recordFailure(t -> !(t instanceof IllegalArgumentException))
+            .windowSize(2)
+            .build();
+
+        for (int i = 0; i < 2; i++) {
+            connectionFactory.guard(Flux.error(new IllegalArgumentException("test-message")))
+                .as(StepVerifier::create)
+                .verifyErrorMessage("test-message");
+        }
+
+        assertThat(connectionFactory.getState()).isEqualTo(CLOSED);
+    }
+
+    private static CircuitBreakerConnectionFactory breaker(ConnectionFactory delegate, Duration openDuration) {
+        return CircuitBreakerConnectionFactory.builder()
+            .connectionFactory(delegate)
+            .minimumCalls(2)
+            .openDuration(openDuration)
+            .windowSize(2)
+            .build();
+    }
+
+    private static void fail(CircuitBreakerConnectionFactory connectionFactory, int count) {
+        for (int i = 0; i < count; i++) {
+            connectionFactory.create()
+                .as(StepVerifier::create)
+                .verifyErrorMessage("test-message");
+        }
+    }
+
+    private static final class FailingResult implements Result {
+
+        @Override
+        public Mono<Integer> getRowsUpdated() {
+            return Mono.error(new IllegalStateException("test-message"));
+        }
+
+        @Override
+        public <T> Mono<T> map(BiFunction<Row, RowMetadata, ? extends T> f) {
+            return Mono.error(new IllegalStateException("test-message"));
+        }
+
+    }
+
+    private static final class StubConnectionFactory implements ConnectionFactory {
+
+        private Mono<Connection> connection;
+
+        private int created;
+
+        private StubConnectionFactory(Mono<Connection> connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Mono<Connection> create() {
+            return Mono.defer(() -> {
+                this.created++;
+                return this.connection;
+            });
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return MockConnectionFactory.empty().getMetadata();
+        }
+
+        private int getCreated() {
+            return this.created;
+        }
+
+        private void setConnection(Mono<Connection> connection) {
+            this.connection = connection;
+        }
+
+    }
+
+}
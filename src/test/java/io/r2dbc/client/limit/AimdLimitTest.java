@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class AimdLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void builderInvalidBackoffRatio() {
+        assertThatIllegalArgumentException().isThrownBy(() -> AimdLimit.builder().backoffRatio(1))
+            .withMessage("backoffRatio must be at least 0.5 and less than 1");
+    }
+
+    @Test
+    void builderInvalidInitialLimit() {
+        assertThatIllegalArgumentException().isThrownBy(() -> AimdLimit.builder().initialLimit(20).maxLimit(10).build())
+            .withMessage("initialLimit must be between minLimit and maxLimit");
+    }
+
+    @Test
+    void builderInvalidMinLimit() {
+        assertThatIllegalArgumentException().isThrownBy(() -> AimdLimit.builder().minLimit(20).maxLimit(10).build())
+            .withMessage("minLimit must not be greater than maxLimit");
+    }
+
+    @Test
+    void builderInvalidTimeout() {
+        assertThatIllegalArgumentException().isThrownBy(() -> AimdLimit.builder().timeout(Duration.ZERO))
+            .withMessage("timeout must be positive");
+    }
+
+    @Test
+    void builderNoTimeout() {
+        assertThatIllegalArgumentException().isThrownBy(() -> AimdLimit.builder().timeout(null))
+            .withMessage("timeout must not be null");
+    }
+
+    @Test
+    void decreaseOnDrop() {
+        AimdLimit limit = AimdLimit.builder().initialLimit(20).build();
+
+        limit.onSample(FAST, 20, true);
+
+        assertThat(limit.getLimit()).isEqualTo(18);
+    }
+
+    @Test
+    void decreaseOnTimeout() {
+        AimdLimit limit = AimdLimit.builder().initialLimit(20).timeout(Duration.ofSeconds(1)).build();
+
+        limit.onSample(TimeUnit.SECONDS.toNanos(2), 20, false);
+
+        assertThat(limit.getLimit()).isEqualTo(18);
+    }
+
+    @Test
+    void decreaseToMinLimit() {
+        AimdLimit limit = AimdLimit.builder().initialLimit(3).minLimit(2).build();
+
+        limit.onSample(FAST, 3, true);
+        limit.onSample(FAST, 3, true);
+
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void increase() {
+        AimdLimit limit = AimdLimit.builder().initialLimit(10).build();
+
+        limit.onSample(FAST, 10, false);
+
+        assertThat(limit.getLimit()).isEqualTo(11);
+    }
+
+    @Test
+    void increaseToMaxLimit() {
+        AimdLimit limit = AimdLimit.builder().initialLimit(10).maxLimit(10).build();
+
+        limit.onSample(FAST, 10, false);
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void noIncreaseWhenUnused() {
+        AimdLimit limit = AimdLimit.builder().initialLimit(10).build();
+
+        limit.onSample(FAST, 2, false);
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+}
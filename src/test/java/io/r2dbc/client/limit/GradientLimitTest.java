@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class GradientLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void builderInvalidInitialLimit() {
+        assertThatIllegalArgumentException().isThrownBy(() -> GradientLimit.builder().initialLimit(20).maxLimit(10).build())
+            .withMessage("initialLimit must be between minLimit and maxLimit");
+    }
+
+    @Test
+    void builderInvalidLongWindow() {
+        assertThatIllegalArgumentException().isThrownBy(() -> GradientLimit.builder().longWindow(0))
+            .withMessage("longWindow must be greater than zero");
+    }
+
+    @Test
+    void builderInvalidSmoothing() {
+        assertThatIllegalArgumentException().isThrownBy(() -> GradientLimit.builder().smoothing(0))
+            .withMessage("smoothing must be greater than 0 and at most 1");
+    }
+
+    @Test
+    void builderInvalidTolerance() {
+        assertThatIllegalArgumentException().isThrownBy(() -> GradientLimit.builder().tolerance(0.5))
+            .withMessage("tolerance must be at least 1");
+    }
+
+    @Test
+    void decreaseOnDrop() {
+        GradientLimit limit = GradientLimit.builder().initialLimit(100).smoothing(1).build();
+
+        limit.onSample(FAST, 100, true);
+
+        assertThat(limit.getLimit()).isEqualTo(60);
+    }
+
+    @Test
+    void decreaseWhenLatencyRises() {
+        GradientLimit limit = GradientLimit.builder().initialLimit(100).build();
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(FAST, limit.getLimit(), false);
+        }
+        int baseline = limit.getLimit();
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(FAST * 10, limit.getLimit(), false);
+        }
+
+        assertThat(limit.getLimit()).isLessThan(baseline);
+    }
+
+    @Test
+    void increaseWhenLatencyStable() {
+        GradientLimit limit = GradientLimit.builder().initialLimit(10).build();
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(FAST, limit.getLimit(), false);
+        }
+
+        assertThat(limit.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void limitBounded() {
+        GradientLimit limit = GradientLimit.builder().initialLimit(10).maxLimit(12).minLimit(8).smoothing(1).build();
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(FAST, limit.getLimit(), false);
+        }
+        assertThat(limit.getLimit()).isEqualTo(12);
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(FAST, limit.getLimit(), true);
+        }
+        assertThat(limit.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void noIncreaseWhenUnused() {
+        GradientLimit limit = GradientLimit.builder().initialLimit(10).build();
+
+        limit.onSample(FAST, 2, false);
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.limit;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.test.MockConnection;
+import io.r2dbc.spi.test.MockConnectionFactory;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+final class LimitingConnectionFactoryTest {
+
+    @Test
+    void close() {
+        MockConnection connection = MockConnection.empty();
+        RecordingLimit limit = new RecordingLimit(2);
+        LimitingConnectionFactory connectionFactory = new LimitingConnectionFactory(MockConnectionFactory.builder().connection(connection).build(), limit);
+
+        Connection limited = connectionFactory.create().block();
+        assertThat(connectionFactory.getInFlight()).isEqualTo(1);
+
+        StepVerifier.create(limited.close()).verifyComplete();
+        StepVerifier.create(limited.close()).verifyComplete();
+
+        assertThat(connection.isCloseCalled()).isTrue();
+        assertThat(connectionFactory.getInFlight()).isZero();
+        assertThat(limit.getDropped()).containsExactly(false);
+        assertThat(limit.getInFlight()).containsExactly(1);
+    }
+
+    @Test
+    void closed() {
+        LimitingConnectionFactory connectionFactory = new LimitingConnectionFactory(MockConnectionFactory.builder().connection(MockConnection.empty()).build());
+
+        Connection limited = connectionFactory.create().block();
+        StepVerifier.create(limited.close()).verifyComplete();
+
+        assertThatIllegalStateException().isThrownBy(limited::beginTransaction)
+            .withMessage("Connection has been closed");
+    }
+
+    @Test
+    void constructorNoConnectionFactory() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new LimitingConnectionFactory(null))
+            .withMessage("connectionFactory must not be null");
+    }
+
+    @Test
+    void constructorNoLimit() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new LimitingConnectionFactory(MockConnectionFactory.builder().connection(MockConnection.empty()).build(), null))
+            .withMessage("limit must not be null");
+    }
+
+    @Test
+    void createCancelled() {
+        LimitingConnectionFactory connectionFactory = new LimitingConnectionFactory(new PublisherConnectionFactory(Mono.never()), new RecordingLimit(1));
+
+        Disposable pending = connectionFactory.create().subscribe();
+        assertThat(connectionFactory.getInFlight()).isEqualTo(1);
+
+        pending.dispose();
+
+        assertThat(connectionFactory.getInFlight()).isZero();
+    }
+
+    @Test
+    void createError() {
+        RecordingLimit limit = new RecordingLimit(1);
+        LimitingConnectionFactory connectionFactory = new LimitingConnectionFactory(new PublisherConnectionFactory(Mono.error(new IllegalStateException("test-message"))), limit);
+
+        connectionFactory.create()
+            .as(StepVerifier::create)
+            .verifyErrorMessage("test-message");
+
+        assertThat(connectionFactory.getInFlight()).isZero();
+        assertThat(limit.getDropped()).containsExactly(true);
+    }
+
+    @Test
+    void createLimitExceeded() {
+        LimitingConnectionFactory connectionFactory = new LimitingConnectionFactory(MockConnectionFactory.builder().connection(MockConnection.empty()).build(), new RecordingLimit(1));
+
+        Connection first = connectionFactory.create().block();
+
+        connectionFactory.create()
+            .as(StepVerifier::create)
+            .expectErrorSatisfies(t -> assertThat(t).isInstanceOf(LimitExceededException.class)
+                .hasMessage("Concurrency limit of 1 has been reached"))
+            .verify();
+
+        assertThat(connectionFactory.getRejectedCount()).isEqualTo(1);
+
+        StepVerifier.create(first.close()).verifyComplete();
+
+        connectionFactory.create()
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+    }
+
+    @Test
+    void getLimit() {
+        LimitingConnectionFactory connectionFactory = new LimitingConnectionFactory(MockConnectionFactory.builder().connection(MockConnection.empty()).build(), new RecordingLimit(3));
+
+        assertThat(connectionFactory.getLimit()).isEqualTo(3);
+    }
+
+    private static final class PublisherConnectionFactory implements ConnectionFactory {
+
+        private final Mono<Connection> connection;
+
+        private PublisherConnectionFactory(Mono<Connection> connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Mono<Connection> create() {
+            return this.connection;
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return MockConnectionFactory.empty().getMetadata();
+        }
+
+    }
+
+    private static final class RecordingLimit implements Limit {
+
+        private final List<Boolean> dropped = new ArrayList<>();
+
+        private final List<Integer> inFlight = new ArrayList<>();
+
+        private final int limit;
+
+        private RecordingLimit(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public int getLimit() {
+            return this.limit;
+        }
+
+        @Override
+        public void onSample(long rttNanos, int inFlight, boolean dropped) {
+            this.dropped.add(dropped);
+            this.inFlight.add(inFlight);
+        }
+
+        private List<Boolean> getDropped() {
+            return this.dropped;
+        }
+
+        private List<Integer> getInFlight() {
+            return this.inFlight;
+        }
+
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class PoolConfigurationTest {
+
+    @Test
+    void builder() {
+        PoolConfiguration configuration = PoolConfiguration.builder()
+            .acquireTimeout(Duration.ofSeconds(2))
+            .acquisitionStrategy(AcquisitionStrategy.LIFO)
+            .housekeepingInterval(Duration.ofSeconds(5))
+            .leakDetectionSampleRate(0.5)
+            .leakDetectionThreshold(Duration.ofMinutes(2))
+            .maxIdleTime(Duration.ofMinutes(10))
+            .maxLifetime(Duration.ofMinutes(30))
+            .maxLifetimeJitter(Duration.ofMinutes(1))
+            .maxPendingAcquire(100)
+            .maxSize(20)
+            .minIdle(5)
+            .stripes(4)
+            .validationIdleTime(Duration.ofSeconds(1))
+            .validationQuery("SELECT 1")
+            .build();
+
+        assertThat(configuration.getAcquireTimeout()).hasValue(Duration.ofSeconds(2));
+        assertThat(configuration.getAcquisitionStrategy()).isEqualTo(AcquisitionStrategy.LIFO);
+        assertThat(configuration.getHousekeepingInterval()).isEqualTo(Duration.ofSeconds(5));
+        assertThat(configuration.getLeakDetectionSampleRate()).isEqualTo(0.5);
+        assertThat(configuration.getLeakDetectionThreshold()).hasValue(Duration.ofMinutes(2));
+        assertThat(configuration.getMaxIdleTime()).hasValue(Duration.ofMinutes(10));
+        assertThat(configuration.getMaxLifetime()).hasValue(Duration.ofMinutes(30));
+        assertThat(configuration.getMaxLifetimeJitter()).isEqualTo(Duration.ofMinutes(1));
+        assertThat(configuration.getMaxPendingAcquire()).isEqualTo(100);
+        assertThat(configuration.getMaxSize()).isEqualTo(20);
+        assertThat(configuration.getMinIdle()).isEqualTo(5);
+        assertThat(configuration.getStripes()).isEqualTo(4);
+        assertThat(configuration.getValidationIdleTime()).isEqualTo(Duration.ofSeconds(1));
+        assertThat(configuration.getValidationQuery()).hasValue("SELECT 1");
+    }
+
+    @Test
+    void builderDefaultMaxLifetimeJitter() {
+        PoolConfiguration configuration = PoolConfiguration.builder()
+            .maxLifetime(Duration.ofMinutes(40))
+            .build();
+
+        assertThat(configuration.getMaxLifetimeJitter()).isEqualTo(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void builderDefaults() {
+        PoolConfiguration configuration = PoolConfiguration.builder()
+            .build();
+
+        assertThat(configuration.getAcquireTimeout()).isEmpty();
+        assertThat(configuration.getAcquisitionStrategy()).isEqualTo(AcquisitionStrategy.FIFO);
+        assertThat(configuration.getHousekeepingInterval()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(configuration.getLeakDetectionSampleRate()).isEqualTo(0.1);
+        assertThat(configuration.getLeakDetectionThreshold()).isEmpty();
+        assertThat(configuration.getMaxIdleTime()).isEmpty();
+        assertThat(configuration.getMaxLifetime()).isEmpty();
+        assertThat(configuration.getMaxLifetimeJitter()).isEqualTo(Duration.ZERO);
+        assertThat(configuration.getMaxPendingAcquire()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(configuration.getMaxSize()).isEqualTo(10);
+        assertThat(configuration.getMinIdle()).isZero();
+        assertThat(configuration.getStripes()).isEqualTo(1);
+        assertThat(configuration.getValidationIdleTime()).isEqualTo(Duration.ofMillis(500));
+        assertThat(configuration.getValidationQuery()).isEmpty();
+    }
+
+    @Test
+    void builderInvalidAcquireTimeout() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().acquireTimeout(Duration.ZERO))
+            .withMessage("acquireTimeout must be positive");
+    }
+
+    @Test
+    void builderInvalidHousekeepingInterval() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().housekeepingInterval(Duration.ZERO))
+            .withMessage("housekeepingInterval must be positive");
+    }
+
+    @Test
+    void builderInvalidLeakDetectionSampleRate() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().leakDetectionSampleRate(1.5))
+            .withMessage("leakDetectionSampleRate must be between 0 and 1");
+    }
+
+    @Test
+    void builderInvalidLeakDetectionThreshold() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().leakDetectionThreshold(Duration.ZERO))
+            .withMessage("leakDetectionThreshold must be positive");
+    }
+
+    @Test
+    void builderInvalidMaxLifetime() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().maxLifetime(Duration.ZERO))
+            .withMessage("maxLifetime must be positive");
+    }
+
+    @Test
+    void builderInvalidMaxLifetimeJitter() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().maxLifetime(Duration.ofMinutes(1)).maxLifetimeJitter(Duration.ofMinutes(1)).build())
+            .withMessage("maxLifetimeJitter must be less than maxLifetime");
+    }
+
+    @Test
+    void builderInvalidMaxSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().maxSize(0))
+            .withMessage("maxSize must be greater than zero");
+    }
+
+    @Test
+    void builderInvalidMinIdle() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().maxSize(1).minIdle(2).build())
+            .withMessage("minIdle must not be greater than maxSize");
+    }
+
+    @Test
+    void builderInvalidStripes() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().stripes(0))
+            .withMessage("stripes must be greater than zero");
+    }
+
+    @Test
+    void builderNegativeMaxIdleTime() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().maxIdleTime(Duration.ofMillis(-1)))
+            .withMessage("maxIdleTime must not be negative");
+    }
+
+    @Test
+    void builderNegativeMaxPendingAcquire() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().maxPendingAcquire(-1))
+            .withMessage("maxPendingAcquire must not be negative");
+    }
+
+    @Test
+    void builderNegativeMinIdle() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().minIdle(-1))
+            .withMessage("minIdle must not be negative");
+    }
+
+    @Test
+    void builderNegativeValidationIdleTime() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().validationIdleTime(Duration.ofMillis(-1)))
+            .withMessage("validationIdleTime must not be negative");
+    }
+
+    @Test
+    void builderNoAcquireTimeout() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().acquireTimeout(null))
+            .withMessage("acquireTimeout must not be null");
+    }
+
+    @Test
+    void builderNoAcquisitionStrategy() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().acquisitionStrategy(null))
+            .withMessage("acquisitionStrategy must not be null");
+    }
+
+    @Test
+    void builderNoValidationIdleTime() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().validationIdleTime(null))
+            .withMessage("validationIdleTime must not be null");
+    }
+
+    @Test
+    void builderNoValidationQuery() {
+        assertThatIllegalArgumentException().isThrownBy(() -> PoolConfiguration.builder().validationQuery(null))
+            .withMessage("validationQuery must not be null");
+    }
+
+}
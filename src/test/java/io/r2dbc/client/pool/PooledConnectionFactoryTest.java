@@ -0,0 +1,721 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.pool;
+
+import io.r2dbc.client.R2dbc;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.test.MockConnection;
+import io.r2dbc.spi.test.MockConnectionFactory;
+import io.r2dbc.spi.test.MockResult;
+import io.r2dbc.spi.test.MockStatement;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class PooledConnectionFactoryTest {
+
+    @Test
+    void acquisitionStrategyFifo() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory, PoolConfiguration.builder()
+            .acquisitionStrategy(AcquisitionStrategy.FIFO)
+            .build());
+
+        leaseTwiceAndReturnInOrder(pool);
+
+        pool.create()
+            .doOnNext(c -> c.createStatement("test-query"))
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getConnections().get(0).getCreateStatementSql()).isEqualTo("test-query");
+        assertThat(connectionFactory.getConnections().get(1).getCreateStatementSql()).isNull();
+    }
+
+    @Test
+    void acquisitionStrategyLifo() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory, PoolConfiguration.builder()
+            .acquisitionStrategy(AcquisitionStrategy.LIFO)
+            .build());
+
+        leaseTwiceAndReturnInOrder(pool);
+
+        pool.create()
+            .doOnNext(c -> c.createStatement("test-query"))
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getConnections().get(0).getCreateStatementSql()).isNull();
+        assertThat(connectionFactory.getConnections().get(1).getCreateStatementSql()).isEqualTo("test-query");
+        assertThat(pool.getMetrics().getAcquisitionStrategy()).isEqualTo(AcquisitionStrategy.LIFO);
+    }
+
+    @Test
+    void close() {
+        MockConnection connection = MockConnection.empty();
+        PooledConnectionFactory pool = pool(connection, PoolConfiguration.builder().build());
+
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+
+        pool.close()
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(connection.isCloseCalled()).isTrue();
+        assertThat(pool.getMetrics().getAllocatedSize()).isZero();
+
+        pool.create()
+            .as(StepVerifier::create)
+            .verifyErrorMessage("PooledConnectionFactory has been closed");
+    }
+
+    @Test
+    void closeFailsPending() {
+        PooledConnectionFactory pool = pool(MockConnection.empty(), PoolConfiguration.builder().maxSize(1).build());
+
+        Connection leased = pool.create().block();
+
+        pool.create()
+            .as(StepVerifier::create)
+            .then(() -> pool.close().subscribe())
+            .verifyErrorMessage("PooledConnectionFactory has been closed");
+
+        StepVerifier.create(leased.close()).verifyComplete();
+
+        assertThat(pool.getMetrics().getAllocatedSize()).isZero();
+    }
+
+    @Test
+    void constructorNoConfiguration() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new PooledConnectionFactory(MockConnectionFactory.empty(), null))
+            .withMessage("configuration must not be null");
+    }
+
+    @Test
+    void constructorNoConnectionFactory() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new PooledConnectionFactory(null))
+            .withMessage("connectionFactory must not be null");
+    }
+
+    @Test
+    void create() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory);
+
+        R2dbc r2dbc = new R2dbc(pool);
+
+        r2dbc.withHandle(handle -> Mono.just(100))
+            .concatWith(r2dbc.withHandle(handle -> Mono.just(200)))
+            .as(StepVerifier::create)
+            .expectNext(100, 200)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getCreated()).isEqualTo(1);
+        assertThat(pool.getMetrics().getAllocatedSize()).isEqualTo(1);
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
+    @Test
+    void createCancelled() {
+        PooledConnectionFactory pool = pool(MockConnection.empty(), PoolConfiguration.builder().maxSize(1).build());
+
+        Connection leased = pool.create().block();
+
+        Disposable pending = pool.create().subscribe();
+        assertThat(pool.getMetrics().getPendingAcquireSize()).isEqualTo(1);
+
+        pending.dispose();
+        assertThat(pool.getMetrics().getPendingAcquireSize()).isZero();
+
+        StepVerifier.create(leased.close()).verifyComplete();
+
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
+    @Test
+    void createError() {
+        PooledConnectionFactory pool = new PooledConnectionFactory(new CountingConnectionFactory(new IllegalStateException("test-message")));
+
+        pool.create()
+            .as(StepVerifier::create)
+            .verifyErrorMessage("test-message");
+
+        assertThat(pool.getMetrics().getAllocatedSize()).isZero();
+    }
+
+    @Test
+    void createExhausted() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory, PoolConfiguration.builder().maxSize(1).build());
+
+        Connection first = pool.create().block();
+
+        AtomicReference<Connection> second = new AtomicReference<>();
+        pool.create().subscribe(second::set);
+
+        assertThat(second.get()).isNull();
+        assertThat(pool.getMetrics().getPendingAcquireSize()).isEqualTo(1);
+
+        StepVerifier.create(first.close()).verifyComplete();
+
+        assertThat(second.get()).isNotNull();
+        assertThat(connectionFactory.getCreated()).isEqualTo(1);
+        assertThat(pool.getMetrics().getPendingAcquireSize()).isZero();
+    }
+
+    @Test
+    void createMaxPendingAcquire() {
+        PooledConnectionFactory pool = new PooledConnectionFactory(new CountingConnectionFactory(), PoolConfiguration.builder().maxPendingAcquire(1).maxSize(1).build());
+
+        Connection first = pool.create().block();
+        AtomicReference<Connection> second = new AtomicReference<>();
+        pool.create().subscribe(second::set);
+
+        pool.create()
+            .as(StepVerifier::create)
+            .expectErrorSatisfies(t -> assertThat(t).isInstanceOf(PoolExhaustedException.class)
+                .hasMessage("Pending acquire queue has reached its maximum size of 1"))
+            .verify();
+
+        assertThat(pool.getMetrics().getPendingAcquireSize()).isEqualTo(1);
+        assertThat(pool.getMetrics().getRejectedCount()).isEqualTo(1);
+
+        StepVerifier.create(first.close()).verifyComplete();
+
+        assertThat(second.get()).isNotNull();
+    }
+
+    @Test
+    void createMaxPendingAcquireIdle() {
+        PooledConnectionFactory pool = pool(MockConnection.empty(), PoolConfiguration.builder().maxPendingAcquire(0).build());
+
+        pool.create()
+            .flatMap(connection -> Mono.from(connection.close()))
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(pool.getMetrics().getRejectedCount()).isZero();
+    }
+
+    @Test
+    void createMaxPendingAcquireOpening() {
+        PooledConnectionFactory pool = new PooledConnectionFactory(new ConnectionFactory() {
+
+            @Override
+            public Mono<Connection> create() {
+                return Mono.never();
+            }
+
+            @Override
+            public ConnectionFactoryMetadata getMetadata() {
+                return MockConnectionFactory.empty().getMetadata();
+            }
+
+        }, PoolConfiguration.builder().maxPendingAcquire(1).maxSize(1).build());
+
+        Disposable opening = pool.create().subscribe();
+        Disposable queued = pool.create().subscribe();
+
+        assertThat(pool.getMetrics().getPendingAcquireSize()).isEqualTo(1);
+        assertThat(pool.getMetrics().getRejectedCount()).isZero();
+
+        opening.dispose();
+        queued.dispose();
+    }
+
+    @Test
+    void createTimeout() {
+        PooledConnectionFactory pool = new PooledConnectionFactory(new CountingConnectionFactory(), PoolConfiguration.builder().acquireTimeout(Duration.ofMillis(50)).maxSize(1).build());
+
+        Connection first = pool.create().block();
+
+        pool.create()
+            .as(StepVerifier::create)
+            .expectErrorSatisfies(t -> assertThat(t).isInstanceOf(PoolExhaustedException.class)
+                .hasMessage("Connection was not acquired within PT0.05S"))
+            .verify();
+
+        assertThat(pool.getMetrics().getPendingAcquireSize()).isZero();
+        assertThat(pool.getMetrics().getTimedOutCount()).isEqualTo(1);
+
+        StepVerifier.create(first.close()).verifyComplete();
+
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
+    @Test
+    void housekeepMaxIdleTime() {
+        MockConnection connection = MockConnection.empty();
+
+        PooledConnectionFactory pool = pool(connection, PoolConfiguration.builder()
+            .maxIdleTime(Duration.ZERO)
+            .build());
+
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+
+        pool.housekeep();
+
+        assertThat(connection.isCloseCalled()).isTrue();
+        assertThat(pool.getMetrics().getAllocatedSize()).isZero();
+
+        StepVerifier.create(pool.close()).verifyComplete();
+    }
+
+    @Test
+    void housekeepMaxLifetime() {
+        MockConnection connection = MockConnection.empty();
+
+        PooledConnectionFactory pool = pool(connection, PoolConfiguration.builder()
+            .maxLifetime(Duration.ofNanos(1))
+            .maxLifetimeJitter(Duration.ZERO)
+            .build());
+
+        pool.warmup(1)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        pool.housekeep();
+
+        assertThat(connection.isCloseCalled()).isTrue();
+        assertThat(pool.getMetrics().getAllocatedSize()).isZero();
+
+        StepVerifier.create(pool.close()).verifyComplete();
+    }
+
+    @Test
+    void housekeepMinIdle() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory, PoolConfiguration.builder()
+            .maxIdleTime(Duration.ZERO)
+            .minIdle(2)
+            .build());
+
+        pool.housekeep();
+
+        assertThat(connectionFactory.getCreated()).isEqualTo(2);
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(2);
+
+        pool.housekeep();
+
+        assertThat(connectionFactory.getCreated()).isEqualTo(2);
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(2);
+
+        StepVerifier.create(pool.close()).verifyComplete();
+    }
+
+    @Test
+    void housekeepMinIdleAcquired() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory, PoolConfiguration.builder()
+            .maxSize(5)
+            .minIdle(2)
+            .build());
+
+        pool.housekeep();
+
+        Connection first = pool.create().block();
+        Connection second = pool.create().block();
+        assertThat(pool.getMetrics().getIdleSize()).isZero();
+
+        pool.housekeep();
+
+        assertThat(connectionFactory.getCreated()).isEqualTo(4);
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(2);
+
+        Connection third = pool.create().block();
+        Connection fourth = pool.create().block();
+        pool.housekeep();
+
+        assertThat(connectionFactory.getCreated()).isEqualTo(5);
+        assertThat(pool.getMetrics().getAllocatedSize()).isEqualTo(5);
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+
+        Flux.just(first, second, third, fourth)
+            .flatMap(Connection::close)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        StepVerifier.create(pool.close()).verifyComplete();
+    }
+
+    @Test
+    void leakDetection() throws InterruptedException {
+        PooledConnectionFactory pool = pool(MockConnection.empty(), PoolConfiguration.builder()
+            .leakDetectionSampleRate(1)
+            .leakDetectionThreshold(Duration.ofMillis(1))
+            .build());
+
+        Connection leaked = pool.create().block();
+        Thread.sleep(10);
+
+        pool.housekeep();
+        pool.housekeep();
+
+        assertThat(pool.getMetrics().getLeakedCount()).isEqualTo(1);
+        assertThat(((PooledConnection) leaked).getSite()).hasMessage("Connection leased here");
+
+        StepVerifier.create(pool.close()).verifyComplete();
+    }
+
+    @Test
+    void leakDetectionReturned() throws InterruptedException {
+        PooledConnectionFactory pool = pool(MockConnection.empty(), PoolConfiguration.builder()
+            .leakDetectionSampleRate(0)
+            .leakDetectionThreshold(Duration.ofMillis(1))
+            .build());
+
+        Connection returned = pool.create().block();
+        assertThat(((PooledConnection) returned).getSite()).isNull();
+
+        StepVerifier.create(returned.close()).verifyComplete();
+        Thread.sleep(10);
+
+        pool.housekeep();
+
+        assertThat(pool.getMetrics().getLeakedCount()).isZero();
+
+        StepVerifier.create(pool.close()).verifyComplete();
+    }
+
+    @Test
+    void metrics() {
+        PooledConnectionFactory pool = pool(MockConnection.empty(), PoolConfiguration.builder().build());
+
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+
+        PoolMetrics metrics = pool.getMetrics();
+
+        assertThat(metrics.getAcquiredCount()).isEqualTo(2);
+        assertThat(metrics.getAcquisitionStrategy()).isEqualTo(AcquisitionStrategy.FIFO);
+        assertThat(metrics.getMaxAcquireTime()).isGreaterThan(Duration.ZERO);
+        assertThat(metrics.getMaxAcquireTime()).isGreaterThanOrEqualTo(metrics.getAverageAcquireTime());
+    }
+
+    @Test
+    void releaseExpired() {
+        MockConnection connection = MockConnection.empty();
+
+        PooledConnectionFactory pool = pool(connection, PoolConfiguration.builder()
+            .maxLifetime(Duration.ofNanos(1))
+            .maxLifetimeJitter(Duration.ZERO)
+            .build());
+
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+
+        assertThat(connection.isCloseCalled()).isTrue();
+        assertThat(pool.getMetrics().getAllocatedSize()).isZero();
+
+        StepVerifier.create(pool.close()).verifyComplete();
+    }
+
+    @Test
+    void stripes() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory, PoolConfiguration.builder()
+            .stripes(4)
+            .build());
+
+        Scheduler scheduler = Schedulers.newSingle("test");
+
+        try {
+            pool.create()
+                .flatMap(c -> Mono.from(c.close()))
+                .subscribeOn(scheduler)
+                .as(StepVerifier::create)
+                .verifyComplete();
+
+            pool.create()
+                .flatMap(c -> Mono.from(c.close()))
+                .as(StepVerifier::create)
+                .verifyComplete();
+
+            assertThat(connectionFactory.getCreated()).isEqualTo(1);
+            assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    void validationIdle() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.builder()
+                .result(MockResult.empty())
+                .build())
+            .build();
+
+        PooledConnectionFactory pool = pool(connection, PoolConfiguration.builder()
+            .validationIdleTime(Duration.ZERO)
+            .validationQuery("SELECT 1")
+            .build());
+
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+        assertThat(connection.getCreateStatementSql()).isNull();
+
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+        assertThat(connection.getCreateStatementSql()).isEqualTo("SELECT 1");
+    }
+
+    @Test
+    void validationIdleError() {
+        MockConnection connection = MockConnection.empty();
+
+        PooledConnectionFactory pool = pool(connection, PoolConfiguration.builder()
+            .validationIdleTime(Duration.ZERO)
+            .validationQuery("SELECT 1")
+            .build());
+
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+
+        pool.create()
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(connection.isCloseCalled()).isTrue();
+        assertThat(pool.getMetrics().getAllocatedSize()).isEqualTo(1);
+    }
+
+    @Test
+    void validationRecentlyUsed() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.builder()
+                .result(MockResult.empty())
+                .build())
+            .build();
+
+        PooledConnectionFactory pool = pool(connection, PoolConfiguration.builder()
+            .validationIdleTime(Duration.ofMinutes(1))
+            .validationQuery("SELECT 1")
+            .build());
+
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+        StepVerifier.create(pool.create().flatMap(c -> Mono.from(c.close()))).verifyComplete();
+
+        assertThat(connection.getCreateStatementSql()).isNull();
+    }
+
+    @Test
+    void warmup() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory);
+
+        pool.warmup(3)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getCreated()).isEqualTo(3);
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(3);
+
+        pool.warmup(2)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getCreated()).isEqualTo(3);
+    }
+
+    @Test
+    void warmupAcquired() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory);
+
+        Connection connection = pool.create().block();
+
+        pool.warmup(1)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getCreated()).isEqualTo(2);
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+
+        StepVerifier.create(connection.close()).verifyComplete();
+    }
+
+    @Test
+    void warmupError() {
+        PooledConnectionFactory pool = new PooledConnectionFactory(new CountingConnectionFactory(new IllegalStateException("test-message")));
+
+        pool.warmup(1)
+            .as(StepVerifier::create)
+            .verifyErrorMessage("test-message");
+
+        pool.warmup(2)
+            .as(StepVerifier::create)
+            .verifyError();
+
+        assertThat(pool.getMetrics().getAllocatedSize()).isZero();
+    }
+
+    @Test
+    void warmupMaxSize() {
+        CountingConnectionFactory connectionFactory = new CountingConnectionFactory();
+        PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory, PoolConfiguration.builder().maxSize(2).build());
+
+        pool.warmup(5)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(connectionFactory.getCreated()).isEqualTo(2);
+    }
+
+    @Test
+    void warmupNegative() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new PooledConnectionFactory(MockConnectionFactory.empty()).warmup(-1))
+            .withMessage("minIdle must not be negative");
+    }
+
+    @Test
+    void warmupOpening() {
+        AtomicInteger created = new AtomicInteger();
+
+        PooledConnectionFactory pool = new PooledConnectionFactory(new ConnectionFactory() {
+
+            @Override
+            public Mono<Connection> create() {
+                return Mono.defer(() -> {
+                    created.incrementAndGet();
+                    return Mono.never();
+                });
+            }
+
+            @Override
+            public ConnectionFactoryMetadata getMetadata() {
+                return MockConnectionFactory.empty().getMetadata();
+            }
+
+        });
+
+        Disposable first = pool.warmup(2).subscribe();
+        Disposable second = pool.warmup(2).subscribe();
+
+        assertThat(created.get()).isEqualTo(2);
+        assertThat(pool.getMetrics().getAllocatedSize()).isEqualTo(2);
+
+        first.dispose();
+        second.dispose();
+    }
+
+    @Test
+    void warmupValidationQuery() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.builder()
+                .result(MockResult.empty())
+                .build())
+            .build();
+
+        PooledConnectionFactory pool = pool(connection, PoolConfiguration.builder()
+            .validationQuery("SELECT 1")
+            .build());
+
+        pool.warmup(1)
+            .as(StepVerifier::create)
+            .verifyComplete();
+
+        assertThat(connection.getCreateStatementSql()).isEqualTo("SELECT 1");
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
+    private static void leaseTwiceAndReturnInOrder(PooledConnectionFactory pool) {
+        Connection first = pool.create().block();
+        Connection second = pool.create().block();
+
+        StepVerifier.create(first.close()).verifyComplete();
+        StepVerifier.create(second.close()).verifyComplete();
+    }
+
+    private static PooledConnectionFactory pool(MockConnection connection, PoolConfiguration configuration) {
+        return new PooledConnectionFactory(MockConnectionFactory.builder()
+            .connection(connection)
+            .build(), configuration);
+    }
+
+    private static final class CountingConnectionFactory implements ConnectionFactory {
+
+        private final List<MockConnection> connections = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger created = new AtomicInteger();
+
+        private final RuntimeException error;
+
+        private CountingConnectionFactory() {
+            this(null);
+        }
+
+        private CountingConnectionFactory(RuntimeException error) {
+            this.error = error;
+        }
+
+        @Override
+        public Mono<Connection> create() {
+            return Mono.defer(() -> {
+                if (this.error != null) {
+                    return Mono.error(this.error);
+                }
+
+                MockConnection connection = MockConnection.builder()
+                    .statement(MockStatement.builder()
+                        .result(MockResult.empty())
+                        .build())
+                    .build();
+
+                this.connections.add(connection);
+                this.created.incrementAndGet();
+                return Mono.just(connection);
+            });
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return MockConnectionFactory.empty().getMetadata();
+        }
+
+        List<MockConnection> getConnections() {
+            return this.connections;
+        }
+
+        int getCreated() {
+            return this.created.get();
+        }
+
+    }
+
+}
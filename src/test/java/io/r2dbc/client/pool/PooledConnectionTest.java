@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.pool;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.test.MockConnection;
+import io.r2dbc.spi.test.MockConnectionFactory;
+import io.r2dbc.spi.test.MockStatement;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+final class PooledConnectionTest {
+
+    @Test
+    void close() {
+        MockConnection connection = MockConnection.empty();
+        PooledConnectionFactory pool = pool(connection);
+
+        Connection pooled = pool.create().block();
+
+        StepVerifier.create(pooled.close()).verifyComplete();
+
+        assertThat(connection.isCloseCalled()).isFalse();
+        assertThat(connection.isRollbackTransactionCalled()).isFalse();
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
+    @Test
+    void closeAfterCommit() {
+        MockConnection connection = MockConnection.empty();
+        PooledConnectionFactory pool = pool(connection);
+
+        Connection pooled = pool.create().block();
+
+        StepVerifier.create(pooled.beginTransaction()).verifyComplete();
+        StepVerifier.create(pooled.commitTransaction()).verifyComplete();
+
+        StepVerifier.create(pooled.close()).verifyComplete();
+
+        assertThat(connection.isRollbackTransactionCalled()).isFalse();
+    }
+
+    @Test
+    void closeIdempotent() {
+        PooledConnectionFactory pool = pool(MockConnection.empty());
+
+        Connection pooled = pool.create().block();
+
+        StepVerifier.create(pooled.close()).verifyComplete();
+        StepVerifier.create(pooled.close()).verifyComplete();
+
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
+    @Test
+    void closeInTransaction() {
+        MockConnection connection = MockConnection.empty();
+        PooledConnectionFactory pool = pool(connection);
+
+        Connection pooled = pool.create().block();
+
+        StepVerifier.create(pooled.beginTransaction()).verifyComplete();
+
+        StepVerifier.create(pooled.close()).verifyComplete();
+
+        assertThat(connection.isRollbackTransactionCalled()).isTrue();
+        assertThat(connection.isCloseCalled()).isFalse();
+        assertThat(pool.getMetrics().getIdleSize()).isEqualTo(1);
+    }
+
+    @Test
+    void createStatement() {
+        MockConnection connection = MockConnection.builder()
+            .statement(MockStatement.empty())
+            .build();
+
+        pool(connection).create()
+            .map(pooled -> pooled.createStatement("test-query"))
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .verifyComplete();
+
+        assertThat(connection.getCreateStatementSql()).isEqualTo("test-query");
+    }
+
+    @Test
+    void useAfterClose() {
+        Connection pooled = pool(MockConnection.empty()).create().block();
+
+        StepVerifier.create(pooled.close()).verifyComplete();
+
+        assertThatIllegalStateException().isThrownBy(() -> pooled.createStatement("test-query"))
+            .withMessage("Connection has been returned to the pool");
+    }
+
+    private static PooledConnectionFactory pool(MockConnection connection) {
+        return new PooledConnectionFactory(MockConnectionFactory.builder()
+            .connection(connection)
+            .build());
+    }
+
+}
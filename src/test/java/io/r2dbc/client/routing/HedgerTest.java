@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.routing;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class HedgerTest {
+
+    @Test
+    void builderInvalidBudget() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Hedger.builder().budget(2))
+            .withMessage("budget must be between 0 and 1");
+    }
+
+    @Test
+    void builderInvalidMaxBurst() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Hedger.builder().maxBurst(0))
+            .withMessage("maxBurst must be greater than zero");
+    }
+
+    @Test
+    void builderInvalidPercentile() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Hedger.builder().percentile(1))
+            .withMessage("percentile must be greater than 0 and less than 1");
+    }
+
+    @Test
+    void builderInvalidWindow() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Hedger.builder().window(0))
+            .withMessage("window must be greater than zero");
+    }
+
+    @Test
+    void builderNegativeMinDelay() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Hedger.builder().minDelay(Duration.ofSeconds(-1)))
+            .withMessage("minDelay must not be negative");
+    }
+
+    @Test
+    void hedge() {
+        Hedger hedger = Hedger.builder().budget(0.5).window(10).build();
+        warmup(hedger, 10);
+
+        AtomicInteger subscriptions = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        Flux<Integer> source = Flux.defer(() -> subscriptions.getAndIncrement() == 0 ?
+            Mono.delay(Duration.ofSeconds(10)).map(tick -> 1).doOnCancel(() -> cancelled.set(true)) :
+            Mono.just(2));
+
+        hedger.hedge(source)
+            .as(StepVerifier::create)
+            .expectNext(2)
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(subscriptions.get()).isEqualTo(2);
+        assertThat(cancelled.get()).isTrue();
+        assertThat(hedger.getHedgedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void hedgeBudgetExhausted() {
+        Hedger hedger = Hedger.builder().budget(0.01).window(10).build();
+        warmup(hedger, 10);
+
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        hedger.hedge(Flux.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(100)).map(tick -> 1);
+        }))
+            .as(StepVerifier::create)
+            .expectNext(1)
+            .verifyComplete();
+
+        assertThat(subscriptions.get()).isEqualTo(1);
+        assertThat(hedger.getHedgedCount()).isZero();
+    }
+
+    @Test
+    void hedgeFast() {
+        Hedger hedger = Hedger.builder().budget(0.5).minDelay(Duration.ofSeconds(10)).window(10).build();
+        warmup(hedger, 10);
+
+        assertThat(hedger.getDelay()).hasValue(Duration.ofSeconds(10));
+
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        hedger.hedge(Flux.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Flux.just(1, 2);
+        }))
+            .as(StepVerifier::create)
+            .expectNext(1, 2)
+            .verifyComplete();
+
+        assertThat(subscriptions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void hedgeNoSamples() {
+        Hedger hedger = Hedger.builder().build();
+
+        assertThat(hedger.getDelay()).isEmpty();
+
+        hedger.hedge(Mono.just(1))
+            .as(StepVerifier::create)
+            .expectNext(1)
+            .verifyComplete();
+
+        assertThat(hedger.getHedgedCount()).isZero();
+    }
+
+    @Test
+    void hedgeNoSource() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Hedger.builder().build().hedge(null))
+            .withMessage("source must not be null");
+    }
+
+    private static void warmup(Hedger hedger, int count) {
+        for (int i = 0; i < count; i++) {
+            hedger.hedge(Mono.just(i)).blockLast();
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.routing;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.test.MockConnection;
+import io.r2dbc.spi.test.MockConnectionFactory;
+import io.r2dbc.spi.test.MockStatement;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+final class LeastOutstandingConnectionFactoryTest {
+
+    @Test
+    void builderEmptyConnectionFactories() {
+        assertThatIllegalArgumentException().isThrownBy(() -> LeastOutstandingConnectionFactory.builder().connectionFactories(Collections.emptyList()))
+            .withMessage("connectionFactories must not be empty");
+    }
+
+    @Test
+    void builderInvalidFailureThreshold() {
+        assertThatIllegalArgumentException().isThrownBy(() -> LeastOutstandingConnectionFactory.builder().failureThreshold(0))
+            .withMessage("failureThreshold must be greater than zero");
+    }
+
+    @Test
+    void builderInvalidSmoothing() {
+        assertThatIllegalArgumentException().isThrownBy(() -> LeastOutstandingConnectionFactory.builder().smoothing(0))
+            .withMessage("smoothing must be greater than 0 and at most 1");
+    }
+
+    @Test
+    void builderNegativeEjectionTime() {
+        assertThatIllegalArgumentException().isThrownBy(() -> LeastOutstandingConnectionFactory.builder().ejectionTime(Duration.ofSeconds(-1)))
+            .withMessage("ejectionTime must not be negative");
+    }
+
+    @Test
+    void builderNoConnectionFactories() {
+        assertThatIllegalArgumentException().isThrownBy(() -> LeastOutstandingConnectionFactory.builder().build())
+            .withMessage("connectionFactories must not be null");
+    }
+
+    @Test
+    void close() {
+        MockConnection connection = MockConnection.empty();
+
+        Connection balanced = LeastOutstandingConnectionFactory.builder()
+            .connectionFactories(Collections.singletonList(MockConnectionFactory.builder().connection(connection).build()))
+            .build()
+            .create()
+            .block();
+
+        StepVerifier.create(balanced.close()).verifyComplete();
+        StepVerifier.create(balanced.close()).verifyComplete();
+
+        assertThat(connection.isCloseCalled()).isTrue();
+        assertThatIllegalStateException().isThrownBy(balanced::beginTransaction)
+            .withMessage("Connection has been closed");
+    }
+
+    @Test
+    void createColdAverageLatency() {
+        StubConnectionFactory first = new StubConnectionFactory(Mono.just(MockConnection.empty()));
+        StubConnectionFactory second = new StubConnectionFactory(Mono.just(MockConnection.empty()));
+
+        LeastOutstandingConnectionFactory connectionFactory = LeastOutstandingConnectionFactory.builder()
+            .connectionFactories(Arrays.asList(first, second))
+            .smoothing(1)
+            .build();
+
+        Connection sampled = connectionFactory.create().block();
+        StubConnectionFactory coldFactory = first.getCreated() == 1 ? second : first;
+
+        Connection cold = connectionFactory.create().block();
+        assertThat(coldFactory.getCreated()).isEqualTo(1);
+
+        StepVerifier.create(Mono.delay(Duration.ofMillis(50)).then(Mono.from(sampled.close()))).verifyComplete();
+
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(connectionFactory.create().flatMap(connection -> Mono.from(connection.close()))).verifyComplete();
+        }
+
+        assertThat(coldFactory.getCreated()).isEqualTo(1);
+
+        StepVerifier.create(cold.close()).verifyComplete();
+    }
+
+    @Test
+    void createEjectedFallback() {
+        StubConnectionFactory failing = new StubConnectionFactory(Mono.error(new IllegalStateException("test-message")));
+
+        LeastOutstandingConnectionFactory connectionFactory = LeastOutstandingConnectionFactory.builder()
+            .connectionFactories(Arrays.asList(failing, failing))
+            .failureThreshold(1)
+            .build();
+
+        for (int i = 0; i < 3; i++) {
+            connectionFactory.create()
+                .as(StepVerifier::create)
+                .verifyErrorMessage("test-message");
+        }
+
+        assertThat(failing.getCreated()).isEqualTo(3);
+    }
+
+    @Test
+    void createEjectsFailing() {
+        MockConnection healthy = MockConnection.empty();
+        StubConnectionFactory failing = new StubConnectionFactory(Mono.error(new IllegalStateException("test-message")));
+
+        LeastOutstandingConnectionFactory connectionFactory = LeastOutstandingConnectionFactory.builder()
+            .connectionFactories(Arrays.asList(failing, MockConnectionFactory.builder().connection(healthy).build()))
+            .failureThreshold(1)
+            .build();
+
+        for (int i = 0; i < 10 && failing.getCreated() == 0; i++) {
+            Connection connection = connectionFactory.create().onErrorResume(t -> Mono.empty()).block();
+
+            if (connection != null) {
+                StepVerifier.create(connection.close()).verifyComplete();
+            }
+        }
+        assertThat(failing.getCreated()).isEqualTo(1);
+
+        for (int i = 0; i < 10; i++) {
+            Connection connection = connectionFactory.create().block();
+            StepVerifier.create(connection.close()).verifyComplete();
+        }
+
+        assertThat(failing.getCreated()).isEqualTo(1);
+    }
+
+    @Test
+    void createEjectsStatementFailing() {
+        MockConnection failingConnection = MockConnection.builder()
+            .statement(MockStatement.builder()
+                .result(new FailingResult())
+                .build())
+            .build();
+
+        StubConnectionFactory failing = new StubConnectionFactory(Mono.just(failingConnection));
+
+        LeastOutstandingConnectionFactory connectionFactory = LeastOutstandingConnectionFactory.builder()
+            .connectionFactories(Arrays.asList(failing, MockConnectionFactory.builder().connection(MockConnection.empty()).build()))
+            .failureThreshold(1)
+            .build();
+
+        for (int i = 0; i < 10 && failing.getCreated() == 0; i++) {
+            Connection connection = connectionFactory.create().block();
+
+            if (failing.getCreated() == 1) {
+                Flux.from(connection.createStatement("test-query").execute())
+                    .flatMap(Result::getRowsUpdated)
+                    .as(StepVerifier::create)
+                    .verifyErrorMessage("test-message");
+            }
+
+            StepVerifier.create(connection.close()).verifyComplete();
+        }
+        assertThat(failing.getCreated()).isEqualTo(1);
+
+        for (int i = 0; i < 10; i++) {
+            Connection connection = connectionFactory.create().block();
+            StepVerifier.create(connection.close()).verifyComplete();
+        }
+
+        assertThat(failing.getCreated()).isEqualTo(1);
+    }
+
+    @Test
+    void createLeastOutstanding() {
+        MockConnection first = MockConnection.empty();
+        MockConnection second = MockConnection.empty();
+
+        LeastOutstandingConnectionFactory connectionFactory = LeastOutstandingConnectionFactory.builder()
+            .connectionFactories(Arrays.asList(MockConnectionFactory.builder().connection(first).build(), MockConnectionFactory.builder().connection(second).build()))
+            .build();
+
+        Connection held = connectionFactory.create().block();
+        Connection next = connectionFactory.create().block();
+
+        StepVerifier.create(next.close()).verifyComplete();
+        StepVerifier.create(held.close()).verifyComplete();
+
+        assertThat(first.isCloseCalled()).isTrue();
+        assertThat(second.isCloseCalled()).isTrue();
+    }
+
+    @Test
+    void createLowestLatency() {
+        StubConnectionFactory first = new StubConnectionFactory(Mono.just(MockConnection.empty()));
+        StubConnectionFactory second = new StubConnectionFactory(Mono.just(MockConnection.empty()));
+
+        LeastOutstandingConnectionFactory connectionFactory = LeastOutstandingConnectionFactory.builder()
+            .connectionFactories(Arrays.asList(first, second))
+            .smoothing(1)
+            .build();
+
+        Connection slow = connectionFactory.create().block();
+        StubConnectionFactory slowFactory = first.getCreated() == 1 ? first : second;
+        StubConnectionFactory fastFactory = first.getCreated() == 1 ? second : first;
+
+        Connection fast = connectionFactory.create().block();
+        assertThat(fastFactory.getCreated()).isEqualTo(1);
+
+        StepVerifier.create(fast.close()).verifyComplete();
+        StepVerifier.create(Mono.delay(Duration.ofMillis(50)).then(Mono.from(slow.close()))).verifyComplete();
+
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(connectionFactory.create().flatMap(connection -> Mono.from(connection.close()))).verifyComplete();
+        }
+
+        assertThat(fastFactory.getCreated()).isEqualTo(6);
+        assertThat(slowFactory.getCreated()).isEqualTo(1);
+    }
+
+    @Test
+    void getMetadata() {
+        MockConnectionFactory delegate = MockConnectionFactory.empty();
+
+        LeastOutstandingConnectionFactory connectionFactory = LeastOutstandingConnectionFactory.builder()
+            .connectionFactories(Collections.singletonList(delegate))
+            .build();
+
+        assertThat(connectionFactory.getMetadata().getName()).isEqualTo(delegate.getMetadata().getName());
+    }
+
+    private static final class FailingResult implements Result {
+
+        @Override
+        public Mono<Integer> getRowsUpdated() {
+            return Mono.error(new IllegalStateException("test-message"));
+        }
+
+        @Override
+        public <T> Mono<T> map(BiFunction<Row, RowMetadata, ? extends T> f) {
+            return Mono.error(new IllegalStateException("test-message"));
+        }
+
+    }
+
+    private static final class StubConnectionFactory implements ConnectionFactory {
+
+        private final Mono<Connection> connection;
+
+        private int created;
+
+        private StubConnectionFactory(Mono<Connection> connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Mono<Connection> create() {
+            return Mono.defer(() -> {
+                this.created++;
+                return this.connection;
+            });
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return MockConnectionFactory.empty().getMetadata();
+        }
+
+        private int getCreated() {
+            return this.created;
+        }
+
+    }
+
+}
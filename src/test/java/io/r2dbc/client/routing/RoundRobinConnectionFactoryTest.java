@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.r2dbc.client.routing;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.test.MockConnection;
+import io.r2dbc.spi.test.MockConnectionFactory;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+final class RoundRobinConnectionFactoryTest {
+
+    @Test
+    void constructorContainsNull() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new RoundRobinConnectionFactory(Collections.singletonList((ConnectionFactory) null)))
+            .withMessage("connectionFactories must not contain null");
+    }
+
+    @Test
+    void constructorEmpty() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new RoundRobinConnectionFactory(Collections.emptyList()))
+            .withMessage("connectionFactories must not be empty");
+    }
+
+    @Test
+    void constructorNoConnectionFactories() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new RoundRobinConnectionFactory(null))
+            .withMessage("connectionFactories must not be null");
+    }
+
+    @Test
+    void create() {
+        MockConnection first = MockConnection.empty();
+        MockConnection second = MockConnection.empty();
+
+        RoundRobinConnectionFactory connectionFactory = new RoundRobinConnectionFactory(Arrays.asList(
+            MockConnectionFactory.builder().connection(first).build(),
+            MockConnectionFactory.builder().connection(second).build()));
+
+        StepVerifier.create(connectionFactory.create()).expectNext(first).verifyComplete();
+        StepVerifier.create(connectionFactory.create()).expectNext(second).verifyComplete();
+        StepVerifier.create(connectionFactory.create()).expectNext(first).verifyComplete();
+    }
+
+    @Test
+    void createChoosesOnSubscription() {
+        MockConnection first = MockConnection.empty();
+        MockConnection second = MockConnection.empty();
+
+        RoundRobinConnectionFactory connectionFactory = new RoundRobinConnectionFactory(Arrays.asList(
+            MockConnectionFactory.builder().connection(first).build(),
+            MockConnectionFactory.builder().connection(second).build()));
+
+        Mono<Connection> create = connectionFactory.create();
+
+        StepVerifier.create(create).expectNext(first).verifyComplete();
+        StepVerifier.create(create).expectNext(second).verifyComplete();
+    }
+
+    @Test
+    void getMetadata() {
+        MockConnectionFactory delegate = MockConnectionFactory.empty();
+
+        assertThat(new RoundRobinConnectionFactory(Collections.singletonList(delegate)).getMetadata().getName()).isEqualTo(delegate.getMetadata().getName());
+    }
+
+}